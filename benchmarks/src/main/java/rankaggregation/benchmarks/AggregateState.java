@@ -0,0 +1,68 @@
+package rankaggregation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The inputs of one benchmarked aggregation. The parameters which are common to all methods are declared here,
+ * the methods and the candidate list sizes in the benchmark classes.
+ * @author Mariam Nassar
+ *
+ */
+@State(Scope.Thread)
+public abstract class AggregateState {
+
+	@Param({"2", "4", "8", "16"})
+	public int rankers;
+
+	@Param({"0.5", "1.0"})
+	public double overlap;
+
+	@Param({"0.0", "0.9"})
+	public double correlation;
+
+	List<List<Object>> rankersList;
+	List<Object> initialAggregateRanker;
+	float[] rankersWeights;
+	Object aggregateMethod;
+
+	/**
+	 *
+	 * @return The name of the RankAggregationType.Types value to benchmark.
+	 */
+	abstract String method();
+
+	/**
+	 *
+	 * @return The number of candidates.
+	 */
+	abstract int candidates();
+
+	@Setup(Level.Trial)
+	public void generate(){
+		SyntheticRankers generator = new SyntheticRankers(candidates(), overlap, correlation, 42);
+		rankersList = generator.partialRankers(rankers);
+		initialAggregateRanker = generator.fullRanker();
+		aggregateMethod = RankAggregationBridge.type(method());
+
+		rankersWeights = new float[rankers];
+		for(int i = 0; i < rankers; i++)
+			rankersWeights[i] = 1 + i % 3;
+	}
+
+	/**
+	 * The aggregation methods reorder a list which is handed in, so each invocation gets a fresh copy.
+	 *
+	 * @return A copy of the initial aggregate ranker.
+	 */
+	List<Object> initialAggregateRankerCopy(){
+		return new ArrayList<Object>(initialAggregateRanker);
+	}
+
+}
@@ -0,0 +1,75 @@
+package rankaggregation.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the overhead of the AggregationListener on small aggregations, where it is largest relative to the work.
+ * NONE is the baseline, the aggregation without reading the listener and without trace. With NO_OP the aggregation
+ * only reads the listener and uses the disabled trace, COUNTING times every phase and counts. The overhead of NO_OP
+ * is negligible if its scores are within the error of the NONE scores.
+ * Run with: java -jar benchmarks/target/benchmarks.jar InstrumentationBenchmark -p rankers=4
+ * @author Mariam Nassar
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentationBenchmark extends AggregateState {
+
+	@Param({"NONE", "NO_OP", "COUNTING"})
+	public String listener;
+
+	@Param({"COMB_MNZ", "LOCAL_KEMENIZATION"})
+	public String method;
+
+	@Param({"10", "100"})
+	public int candidates;
+
+	private long[] totalNanosSink = new long[1];
+
+	private boolean untraced;
+
+	@Override
+	String method(){
+		return method;
+	}
+
+	@Override
+	int candidates(){
+		return candidates;
+	}
+
+	@Setup(Level.Trial)
+	public void setListener(){
+		untraced = listener.equals("NONE");
+		RankAggregationBridge.setListener(listener.equals("COUNTING") ? RankAggregationBridge.newCountingListener(totalNanosSink) : null);
+	}
+
+	@TearDown(Level.Trial)
+	public void resetListener(){
+		RankAggregationBridge.setListener(null);
+	}
+
+	@Benchmark
+	public List<?> aggregate(){
+		if(untraced)
+			return RankAggregationBridge.aggregateUntraced(rankersList, initialAggregateRankerCopy(), aggregateMethod, rankersWeights);
+		return RankAggregationBridge.aggregate(rankersList, initialAggregateRankerCopy(), aggregateMethod, rankersWeights);
+	}
+
+}
@@ -0,0 +1,50 @@
+package rankaggregation.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks RankAggregation.aggregate for the Kemeny-style methods. Their pairwise matrices grow with the
+ * square of the number of candidates, so the default sizes stop at 10k. Larger sizes can be given with -p candidates=...
+ * Run with: java -jar benchmarks/target/benchmarks.jar KemenyMethodsBenchmark -prof gc
+ * @author Mariam Nassar
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class KemenyMethodsBenchmark extends AggregateState {
+
+	@Param({"ADJACENT_PAIRS", "LOCAL_KEMENIZATION", "SUPERVISED_LOCAL_KEMENIZATION"})
+	public String method;
+
+	@Param({"100", "1000", "10000"})
+	public int candidates;
+
+	@Override
+	String method(){
+		return method;
+	}
+
+	@Override
+	int candidates(){
+		return candidates;
+	}
+
+	@Benchmark
+	public List<?> aggregate(){
+		return RankAggregationBridge.aggregate(rankersList, initialAggregateRankerCopy(), aggregateMethod, rankersWeights);
+	}
+
+}
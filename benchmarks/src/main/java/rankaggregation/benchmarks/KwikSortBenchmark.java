@@ -0,0 +1,65 @@
+package rankaggregation.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks KWIK_SORT against the other Kemeny-style methods on time and on quality. The quality is the sum
+ * of the Kendall-tau distances between the aggregate list and the rankers, printed once per trial next to the
+ * distance of the initial aggregate ranker (lower is better).
+ * Run with: java -jar benchmarks/target/benchmarks.jar KwikSortBenchmark -p rankers=4 -p overlap=1.0
+ * @author Mariam Nassar
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class KwikSortBenchmark extends AggregateState {
+
+	@Param({"KWIK_SORT", "LOCAL_KEMENIZATION", "SUPERVISED_LOCAL_KEMENIZATION", "MARKOV_CHAIN"})
+	public String method;
+
+	@Param({"1000", "10000"})
+	public int candidates;
+
+	private List<?> lastResult;
+
+	@Override
+	String method(){
+		return method;
+	}
+
+	@Override
+	int candidates(){
+		return candidates;
+	}
+
+	@Benchmark
+	public List<?> aggregate(){
+		lastResult = RankAggregationBridge.aggregate(rankersList, initialAggregateRankerCopy(), aggregateMethod, rankersWeights);
+		return lastResult;
+	}
+
+	@TearDown(Level.Trial)
+	public void printQuality(){
+		if(lastResult == null)
+			return;
+		System.out.println();
+		System.out.println("Kendall-tau distance of " + method + ": " + RankAggregationBridge.kendallTauDistance(lastResult, rankersList)
+				+ " (initial aggregate ranker: " + RankAggregationBridge.kendallTauDistance(initialAggregateRanker, rankersList) + ")");
+	}
+
+}
@@ -0,0 +1,49 @@
+package rankaggregation.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks RankAggregation.aggregate for the methods which run in (almost) linear time, up to 100k candidates.
+ * Run with: java -jar benchmarks/target/benchmarks.jar LinearMethodsBenchmark -prof gc
+ * @author Mariam Nassar
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinearMethodsBenchmark extends AggregateState {
+
+	@Param({"DEFAULT", "COMB_MNZ", "COMB_SUM", "BORDA", "RECIPROCAL_RANK_FUSION", "MARKOV_CHAIN"})
+	public String method;
+
+	@Param({"100", "1000", "10000", "100000"})
+	public int candidates;
+
+	@Override
+	String method(){
+		return method;
+	}
+
+	@Override
+	int candidates(){
+		return candidates;
+	}
+
+	@Benchmark
+	public List<?> aggregate(){
+		return RankAggregationBridge.aggregate(rankersList, initialAggregateRankerCopy(), aggregateMethod, rankersWeights);
+	}
+
+}
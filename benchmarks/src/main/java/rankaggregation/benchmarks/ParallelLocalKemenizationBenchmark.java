@@ -0,0 +1,73 @@
+package rankaggregation.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the scaling of ParallelLocalKemenization over the number of threads of its pool.
+ * The pairwise preferences are filled on the same pool as the blocks, so that each run uses only threads threads
+ * and not the common pool.
+ * Compare with LOCAL_KEMENIZATION in KemenyMethodsBenchmark for the sequential version.
+ * Run with: java -jar benchmarks/target/benchmarks.jar ParallelLocalKemenizationBenchmark -p rankers=4
+ * @author Mariam Nassar
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ParallelLocalKemenizationBenchmark extends AggregateState {
+
+	@Param({"1", "2", "4", "8", "16", "32"})
+	public int threads;
+
+	@Param({"1000", "10000"})
+	public int candidates;
+
+	@Param({"256"})
+	public int blockLength;
+
+	private ForkJoinPool pool;
+	private Object parallelLocalKemenization;
+
+	@Override
+	String method(){
+		return "LOCAL_KEMENIZATION";
+	}
+
+	@Override
+	int candidates(){
+		return candidates;
+	}
+
+	@Setup(Level.Trial)
+	public void startPool(){
+		pool = new ForkJoinPool(threads);
+		parallelLocalKemenization = RankAggregationBridge.newParallelLocalKemenization(pool, blockLength);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopPool(){
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public List<?> aggregate(){
+		return RankAggregationBridge.aggregate(parallelLocalKemenization, rankersList, initialAggregateRankerCopy());
+	}
+
+}
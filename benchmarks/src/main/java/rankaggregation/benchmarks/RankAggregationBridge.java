@@ -0,0 +1,244 @@
+package rankaggregation.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Access to the rank aggregation classes. They are in the default package, which cannot be imported
+ * from a named package and JMH does not allow benchmarks in the default package. So they are bound
+ * once with method handles, which the JIT inlines like direct calls.
+ * @author Mariam Nassar
+ *
+ */
+final class RankAggregationBridge {
+
+	private static final Class<?> MODEL;
+	private static final Class<?> TYPES;
+	private static final MethodHandle NEW_MODEL;
+	private static final MethodHandle AGGREGATE;
+	private static final MethodHandle AGGREGATE_UNTRACED;
+	private static final MethodHandle AGGREGATE_TOP_K;
+	private static final MethodHandle NEW_PARALLEL_LOCAL_KEMENIZATION;
+	private static final MethodHandle PARALLEL_LOCAL_KEMENIZATION_AGGREGATE;
+	private static final Class<?> AGGREGATION_LISTENER;
+	private static final MethodHandle SET_LISTENER;
+	private static final MethodHandle TRACE_TOTAL_NANOS;
+	private static final MethodHandle NEW_RANKER_HANDLER;
+	private static final MethodHandle KENDALL_TAU_DISTANCE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MODEL = Class.forName("Model");
+			TYPES = Class.forName("RankAggregationType$Types");
+			Class<?> rankAggregation = Class.forName("RankAggregation");
+
+			NEW_MODEL = lookup.findConstructor(MODEL, MethodType.methodType(void.class, float.class, String.class));
+			AGGREGATE = lookup.findStatic(rankAggregation, "aggregate",
+					MethodType.methodType(List.class, List.class, List.class, TYPES, float[].class));
+			//Package-private, so that it is bound by reflection
+			Method aggregateUntraced = rankAggregation.getDeclaredMethod("aggregateUntraced", List.class, List.class, TYPES, float[].class);
+			aggregateUntraced.setAccessible(true);
+			AGGREGATE_UNTRACED = MethodHandles.filterReturnValue(MethodHandles.lookup().unreflect(aggregateUntraced),
+					lookup.findVirtual(Class.forName("AggregateResult"), "toList", MethodType.methodType(List.class)));
+			AGGREGATE_TOP_K = lookup.findStatic(rankAggregation, "aggregate",
+					MethodType.methodType(List.class, List.class, List.class, TYPES, int.class, int.class));
+
+			Class<?> parallelLocalKemenization = Class.forName("ParallelLocalKemenization");
+			NEW_PARALLEL_LOCAL_KEMENIZATION = lookup.findConstructor(parallelLocalKemenization,
+					MethodType.methodType(void.class, ForkJoinPool.class, int.class));
+			PARALLEL_LOCAL_KEMENIZATION_AGGREGATE = lookup.findVirtual(parallelLocalKemenization, "aggregate",
+					MethodType.methodType(List.class, List.class, List.class));
+
+			AGGREGATION_LISTENER = Class.forName("AggregationListener");
+			SET_LISTENER = lookup.findStatic(rankAggregation, "setListener", MethodType.methodType(void.class, AGGREGATION_LISTENER));
+			TRACE_TOTAL_NANOS = lookup.findVirtual(Class.forName("AggregationTrace"), "getTotalNanos", MethodType.methodType(long.class));
+
+			Class<?> rankerHandler = Class.forName("RankerHandler");
+			NEW_RANKER_HANDLER = lookup.findConstructor(rankerHandler, MethodType.methodType(void.class, List.class));
+			KENDALL_TAU_DISTANCE = lookup.findStatic(Class.forName("KendallTau"), "distance",
+					MethodType.methodType(long.class, rankerHandler, rankerHandler));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private RankAggregationBridge(){
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return The RankAggregationType.Types value with the given name.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static Object type(String name){
+		return Enum.valueOf((Class<? extends Enum>) TYPES, name);
+	}
+
+	/**
+	 *
+	 * @param score
+	 * @param uniqueId
+	 * @return A new Model.
+	 */
+	static Object newModel(float score, String uniqueId){
+		try {
+			return NEW_MODEL.invoke(score, uniqueId);
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calls RankAggregation.aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights).
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @return Aggregate list of models
+	 */
+	static List<?> aggregate(List<? extends List<?>> rankersList, List<?> initialAggregateRanker, Object aggregateMethod, float[] rankersWeights){
+		try {
+			return (List<?>) AGGREGATE.invoke(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calls RankAggregation.aggregateUntraced(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights).toList(),
+	 * the aggregation without reading the listener and without trace.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod Neither DEFAULT nor AUTO.
+	 * @param rankersWeights
+	 * @return Aggregate list of models
+	 */
+	static List<?> aggregateUntraced(List<? extends List<?>> rankersList, List<?> initialAggregateRanker, Object aggregateMethod, float[] rankersWeights){
+		try {
+			return (List<?>) AGGREGATE_UNTRACED.invoke(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calls RankAggregation.aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, k).
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param k
+	 * @return The first k models of the aggregate list of models
+	 */
+	static List<?> aggregate(List<? extends List<?>> rankersList, List<?> initialAggregateRanker, Object aggregateMethod, int rankersWeights, int k){
+		try {
+			return (List<?>) AGGREGATE_TOP_K.invoke(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, k);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param pool
+	 * @param blockLength
+	 * @return A new ParallelLocalKemenization.
+	 */
+	static Object newParallelLocalKemenization(ForkJoinPool pool, int blockLength){
+		try {
+			return NEW_PARALLEL_LOCAL_KEMENIZATION.invoke(pool, blockLength);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calls ParallelLocalKemenization.aggregate(rankersList, initialAggregateRanker).
+	 *
+	 * @param parallelLocalKemenization
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return Aggregate list of models
+	 */
+	static List<?> aggregate(Object parallelLocalKemenization, List<? extends List<?>> rankersList, List<?> initialAggregateRanker){
+		try {
+			return (List<?>) PARALLEL_LOCAL_KEMENIZATION_AGGREGATE.invoke(parallelLocalKemenization, rankersList, initialAggregateRanker);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The quality of an aggregate list, see KendallTau.distance.
+	 *
+	 * @param aggregateRanker
+	 * @param rankersList
+	 * @return The sum of the Kendall-tau distances between the aggregate list and each ranker.
+	 */
+	static long kendallTauDistance(List<?> aggregateRanker, List<? extends List<?>> rankersList){
+		try {
+			Object aggregateRankerH = NEW_RANKER_HANDLER.invoke(aggregateRanker);
+			long distance = 0;
+			for(List<?> ranker: rankersList)
+				distance += (long) KENDALL_TAU_DISTANCE.invoke(aggregateRankerH, NEW_RANKER_HANDLER.invoke(ranker));
+			return distance;
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calls RankAggregation.setListener(listener).
+	 *
+	 * @param listener An AggregationListener, or null for the no-op listener.
+	 */
+	static void setListener(Object listener){
+		try {
+			SET_LISTENER.invoke(listener);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The listener reads the total time of each trace and adds it to the sink, like a listener which exports metrics.
+	 *
+	 * @param totalNanosSink
+	 * @return A new AggregationListener.
+	 */
+	static Object newCountingListener(long[] totalNanosSink){
+		return Proxy.newProxyInstance(AGGREGATION_LISTENER.getClassLoader(), new Class<?>[] {AGGREGATION_LISTENER}, (proxy, method, args) -> {
+			if(method.getName().equals("aggregationStarted"))
+				return null;
+			if(!method.getName().equals("aggregationCompleted"))
+				return method.invoke(totalNanosSink, args);
+			totalNanosSink[0] += (long) TRACE_TOTAL_NANOS.invoke(args[0]);
+			return null;
+		});
+	}
+
+}
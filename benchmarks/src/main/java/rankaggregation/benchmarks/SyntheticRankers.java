@@ -0,0 +1,83 @@
+package rankaggregation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A seeded generator of rankers for the benchmarks. All rankers are drawn from one candidate list.
+ * Each ranker contains a random part of the candidates (the overlap ratio) and orders them by a mix of a
+ * hidden common order and random noise (the correlation): 1 gives identical orders, 0 independent ones.
+ * @author Mariam Nassar
+ *
+ */
+final class SyntheticRankers {
+
+	private final int numberOfCandidates;
+	private final double overlap;
+	private final double correlation;
+	private final Random random;
+
+	/**
+	 * Constructor.
+	 * @param numberOfCandidates
+	 * @param overlap The ratio of the candidates each ranker contains, in (0, 1].
+	 * @param correlation The weight of the common order against the noise, in [0, 1].
+	 * @param seed
+	 */
+	SyntheticRankers(int numberOfCandidates, double overlap, double correlation, long seed){
+		this.numberOfCandidates = numberOfCandidates;
+		this.overlap = overlap;
+		this.correlation = correlation;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 *
+	 * @return A ranker which contains all candidates, e.g. the initial aggregate ranker.
+	 */
+	List<Object> fullRanker(){
+		return ranker(1.0);
+	}
+
+	/**
+	 *
+	 * @return A ranker which contains the overlap ratio of the candidates.
+	 */
+	List<Object> partialRanker(){
+		return ranker(overlap);
+	}
+
+	/**
+	 *
+	 * @param numberOfRankers
+	 * @return A list of partial rankers.
+	 */
+	List<List<Object>> partialRankers(int numberOfRankers){
+		List<List<Object>> rankers = new ArrayList<List<Object>>(numberOfRankers);
+		for(int i = 0; i < numberOfRankers; i++)
+			rankers.add(partialRanker());
+		return rankers;
+	}
+
+	private List<Object> ranker(double ratio){
+		//Sort keys: the candidate index is the common order
+		long[] keys = new long[numberOfCandidates];
+		int size = 0;
+		for(int i = 0; i < numberOfCandidates; i++){
+			if(random.nextDouble() >= ratio)
+				continue;
+			double key = correlation * i / numberOfCandidates + (1 - correlation) * random.nextDouble();
+			//The key in the upper bits, the candidate in the lower 32 bits
+			keys[size++] = ((long) (key * (1 << 30)) << 32) | i;
+		}
+		Arrays.sort(keys, 0, size);
+
+		List<Object> ranker = new ArrayList<Object>(size);
+		for(int i = 0; i < size; i++)
+			ranker.add(RankAggregationBridge.newModel(size - i, "model" + (int) keys[i]));
+		return ranker;
+	}
+
+}
@@ -0,0 +1,67 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * A JFR event for one call of RankAggregation.aggregate, with the timings of its phases and its counters.
+ * It is committed by the JfrAggregationListener.
+ * @author Mariam Nassar
+ *
+ */
+@Name("de.unirostock.sems.masymos.RankAggregation")
+@Label("Rank Aggregation")
+@Category({"MaSyMoS", "Rank Aggregation"})
+@Description("One aggregation of rankers by RankAggregation.aggregate")
+@StackTrace(false)
+class AggregationEvent extends Event {
+
+	@Label("Aggregate Method")
+	String aggregateMethod;
+
+	@Label("Models")
+	@Description("The number of models in the initial aggregate ranker (n)")
+	int numberOfModels;
+
+	@Label("Rankers")
+	@Description("The number of rankers (m)")
+	int numberOfRankers;
+
+	@Label("Total Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long totalTime;
+
+	@Label("Handler Construction")
+	@Timespan(Timespan.NANOSECONDS)
+	long handlerConstruction;
+
+	@Label("Distance Initialisation")
+	@Timespan(Timespan.NANOSECONDS)
+	long distanceInitialisation;
+
+	@Label("Search")
+	@Description("The search of the Kemeny methods or the sorting of COMB_MNZ")
+	@Timespan(Timespan.NANOSECONDS)
+	long search;
+
+	@Label("Result Materialisation")
+	@Timespan(Timespan.NANOSECONDS)
+	long resultMaterialisation;
+
+	@Label("Comparisons")
+	long comparisons;
+
+	@Label("Swaps")
+	long swaps;
+
+	@Label("Rank Lookups")
+	long rankLookups;
+
+	@Label("Sweeps")
+	long sweeps;
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Records each aggregation as an AggregationEvent in the flight recorder. The events are only created while a recording
+ * has enabled them, e.g. with -XX:StartFlightRecording or "jcmd PID JFR.start":
+ * <pre>
+ * RankAggregation.setListener(new JfrAggregationListener());
+ * </pre>
+ * The event begins when the aggregation starts and ends when it is completed, so that its duration is the time of the aggregation
+ * and a threshold of the recording, e.g. "de.unirostock.sems.masymos.RankAggregation#threshold=10 ms", keeps only the slow aggregations.
+ * @author Mariam Nassar
+ *
+ */
+public class JfrAggregationListener implements AggregationListener {
+
+	@Override
+	public void aggregationStarted(AggregationTrace trace){
+		AggregationEvent event = new AggregationEvent();
+		if(!event.isEnabled())
+			return;
+		event.begin();
+		trace.setAttachment(event);
+	}
+
+	@Override
+	public void aggregationCompleted(AggregationTrace trace){
+		if(!(trace.getAttachment() instanceof AggregationEvent))
+			return;
+		AggregationEvent event = (AggregationEvent) trace.getAttachment();
+		event.end();
+		if(!event.shouldCommit())
+			return;
+
+		event.aggregateMethod = RankAggregationType.rankAggregationTypeToString(trace.getAggregateMethod());
+		event.numberOfModels = trace.getNumberOfModels();
+		event.numberOfRankers = trace.getNumberOfRankers();
+		event.totalTime = trace.getTotalNanos();
+		event.handlerConstruction = trace.getPhaseNanos(AggregationPhase.HANDLER_CONSTRUCTION);
+		event.distanceInitialisation = trace.getPhaseNanos(AggregationPhase.DISTANCE_INITIALISATION);
+		event.search = trace.getPhaseNanos(AggregationPhase.SEARCH);
+		event.resultMaterialisation = trace.getPhaseNanos(AggregationPhase.RESULT_MATERIALISATION);
+		event.comparisons = trace.getComparisons();
+		event.swaps = trace.getSwaps();
+		event.rankLookups = trace.getRankLookups();
+		event.sweeps = trace.getSweeps();
+		event.commit();
+	}
+
+}
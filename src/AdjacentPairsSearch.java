@@ -0,0 +1,220 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The search of the adjacent pairs aggregation method. Two adjacent models of the aggregate ranker are swapped,
+ * if that reduces the sum of the Kendall-tau distances between the aggregate ranker and the rankers.
+ * <p>
+ * The first sweep examines every adjacent pair. A swap can only change the pairs next to it, so every later sweep
+ * examines only the positions next to a swap of the sweep before (worklist). The search stops when there are no
+ * such positions left, i.e. no adjacent pair can be improved, or when the budget is used up. Every swap improves
+ * the aggregate ranker, so that it is the best ordering found so far at any time.
+ * <p>
+ * A search keeps the statistics of its last run, so that one instance should be used by one thread at a time.
+ * @author Mariam Nassar
+ *
+ */
+public class AdjacentPairsSearch {
+	/**
+	 * The number of examined pairs between two readings of the clock.
+	 */
+	private static final int PAIRS_PER_CLOCK_CHECK = 1024;
+
+	/**
+	 * The maximal number of examined pairs, 0 if there is no limit.
+	 */
+	private long maxExaminedPairs;
+	/**
+	 * The maximal running time in nanoseconds, 0 if there is no limit.
+	 */
+	private long timeBudgetNanos;
+
+	private int sweeps;
+	private long swaps;
+	private long examinedPairs;
+	private long distanceChange;
+	private boolean converged;
+
+
+	/**
+	 * Constructor. The search runs until no adjacent pair can be improved.
+	 */
+	public AdjacentPairsSearch(){
+		this(0, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Constructor.
+	 * @param maxExaminedPairs The maximal number of examined pairs, 0 or less if there is no limit.
+	 * @param timeBudget The maximal running time, 0 or less if there is no limit.
+	 * @param unit The unit of timeBudget.
+	 */
+	public AdjacentPairsSearch(long maxExaminedPairs, long timeBudget, TimeUnit unit){
+		this.maxExaminedPairs = Math.max(0, maxExaminedPairs);
+		this.timeBudgetNanos = (timeBudget > 0) ? Math.max(1, unit.toNanos(timeBudget)) : 0;
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker by the adjacent pairs method.
+	 * Like RankAggregation.aggregate, it changes the scores of the models of the initial aggregate ranker.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return Aggregate list of models
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+
+		ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = RankAggregation.buildRankerHandlers(rankersList, dictionary);
+
+		search(aggregateRankerH, new PairwisePreference(rankersListH, aggregateRankerH));
+		return aggregateRankerH.makeResultsListRankBased();
+	}
+
+	/**
+	 * Swaps adjacent models of the aggregate ranker as long as that reduces the sum of the distances
+	 * and the budget allows it.
+	 *
+	 * @param aggregateRankerH The aggregate ranker handler, which will be changed.
+	 * @param preference The pairwise preferences of the rankers over the models of the aggregate ranker.
+	 */
+	void search(IndexedRankerHandler aggregateRankerH, PairwisePreference preference){
+		int numberOfPairs = Math.max(0, aggregateRankerH.getRankerSize() - 1);
+		int[] pairs = new int[numberOfPairs];
+		for(int i = 0; i < numberOfPairs; i++)
+			pairs[i] = i;
+
+		search(aggregateRankerH, preference, 0, aggregateRankerH.getRankerSize(), pairs, numberOfPairs);
+	}
+
+	/**
+	 * Swaps adjacent models in a part of the aggregate ranker as long as that reduces the sum of the distances
+	 * and the budget allows it. The first sweep examines only the given pairs.
+	 *
+	 * @param aggregateRankerH The aggregate ranker handler, which will be changed.
+	 * @param preference The pairwise preferences of the rankers over the models of the aggregate ranker.
+	 * @param from The position of the first model of the part.
+	 * @param to The position after the last model of the part.
+	 * @param firstPairs The positions of the first models of the pairs of the first sweep in ascending order,
+	 * each in [from, to - 1).
+	 * @param numberOfFirstPairs
+	 */
+	void search(IndexedRankerHandler aggregateRankerH, PairwisePreference preference, int from, int to, int[] firstPairs, int numberOfFirstPairs){
+		sweeps = 0;
+		swaps = 0;
+		examinedPairs = 0;
+		distanceChange = 0;
+		converged = false;
+
+		long startTime = System.nanoTime();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		int numberOfPairs = Math.max(0, to - from - 1);
+
+		//The pair at position i consists of the models at the positions from + i and from + i + 1
+		int[] current = new int[numberOfPairs];
+		int[] next = new int[numberOfPairs];
+		boolean[] inCurrent = new boolean[numberOfPairs];
+		boolean[] inNext = new boolean[numberOfPairs];
+
+		int currentSize = numberOfFirstPairs;
+		for(int k = 0; k < numberOfFirstPairs; k++){
+			current[k] = firstPairs[k] - from;
+			inCurrent[current[k]] = true;
+		}
+
+		while(currentSize > 0){
+			sweeps++;
+			int nextSize = 0;
+
+			for(int k = 0; k < currentSize; k++){
+				if(maxExaminedPairs > 0 && examinedPairs >= maxExaminedPairs)
+					return;
+				if(timeBudgetNanos > 0 && examinedPairs % PAIRS_PER_CLOCK_CHECK == 0 && examinedPairs > 0
+						&& System.nanoTime() - startTime >= timeBudgetNanos)
+					return;
+
+				int i = current[k];
+				inCurrent[i] = false;
+				examinedPairs++;
+
+				int change = RankAggregation.distanceChange(preference, modelIndexList[from + i + 1], modelIndexList[from + i]);
+				if(change >= 0)
+					continue;
+
+				aggregateRankerH.swap(modelIndexList[from + i], modelIndexList[from + i + 1]);
+				swaps++;
+				distanceChange += change;
+
+				//The pair before has been examined in this sweep already
+				if(i > 0 && !inNext[i - 1]){
+					inNext[i - 1] = true;
+					next[nextSize++] = i - 1;
+				}
+				//The pair after is examined in this sweep if it is still in the worklist
+				if(i + 1 < numberOfPairs && !inCurrent[i + 1] && !inNext[i + 1]){
+					inNext[i + 1] = true;
+					next[nextSize++] = i + 1;
+				}
+			}
+
+			//The next sweep examines its pairs from the top like the first one
+			Arrays.sort(next, 0, nextSize);
+			for(int k = 0; k < nextSize; k++){
+				inNext[next[k]] = false;
+				inCurrent[next[k]] = true;
+			}
+			int[] temp = current;
+			current = next;
+			next = temp;
+			currentSize = nextSize;
+		}
+		converged = true;
+	}
+
+	/**
+	 *
+	 * @return The number of sweeps of the last search, including an interrupted last sweep.
+	 */
+	public int getSweeps(){
+		return sweeps;
+	}
+
+	/**
+	 *
+	 * @return The number of swaps of the last search.
+	 */
+	public long getSwaps(){
+		return swaps;
+	}
+
+	/**
+	 *
+	 * @return The number of examined adjacent pairs of the last search.
+	 */
+	public long getExaminedPairs(){
+		return examinedPairs;
+	}
+
+	/**
+	 *
+	 * @return The change of the sum of the Kendall-tau distances between the aggregate ranker and the rankers
+	 * by the last search. It is 0 or negative.
+	 */
+	public long getDistanceChange(){
+		return distanceChange;
+	}
+
+	/**
+	 *
+	 * @return true, if the last search has stopped because no adjacent pair could be improved,
+	 * and false, if it has used up its budget.
+	 */
+	public boolean isConverged(){
+		return converged;
+	}
+
+}
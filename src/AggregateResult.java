@@ -0,0 +1,258 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/**
+ * A read-only view of an aggregate list, backed by the order of the aggregate ranker handler. No list of models is built,
+ * so that a page of the results costs only the models which are read, e.g. by slice(offset, limit) for one page of MORRE.
+ * get(i) costs an array access. The rank and the score of a position can be read without getting the model.
+ * <p>
+ * The view and its slices share the arrays of the aggregation, which are not changed after the aggregation.
+ * The scores are those of the models, so that a caller which changes the score of a model changes the view as well.
+ * A view of an aggregation into an AggregationBuffer has the unchanged models of the caller, the aggregate scores
+ * are only read by getScore. Such a view is valid until the buffer is used again.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregateResult extends AbstractList<Model> implements RandomAccess {
+	/**
+	 * Maps the model indices onto the model objects.
+	 */
+	private Model[] models;
+	/**
+	 * Maps the model indices onto the aggregate scores, null if the scores are those of the models.
+	 */
+	private float[] scores;
+	/**
+	 * The model indices in the order of the aggregate list.
+	 */
+	private int[] modelIndexList;
+	/**
+	 * The position of the first model of this view in modelIndexList.
+	 */
+	private int from;
+	/**
+	 * The number of models of this view.
+	 */
+	private int size;
+	/**
+	 * The plan of an aggregation with AUTO or within a latency budget, null otherwise.
+	 */
+	private AggregationPlan plan;
+
+
+	/**
+	 * Constructor.
+	 * @param models Maps the model indices onto the model objects.
+	 * @param scores Maps the model indices onto the aggregate scores, null if the scores are those of the models.
+	 * @param modelIndexList The model indices in the order of the aggregate list.
+	 * @param from The position of the first model of the view.
+	 * @param size The number of models of the view.
+	 */
+	AggregateResult(Model[] models, float[] scores, int[] modelIndexList, int from, int size){
+		this.models = models;
+		this.scores = scores;
+		this.modelIndexList = modelIndexList;
+		this.from = from;
+		this.size = size;
+	}
+
+	/**
+	 *
+	 * @param modelsList
+	 * @return A view of a list of models, e.g. of an aggregation which has made a list of models anyway.
+	 */
+	static AggregateResult of(List<Model> modelsList){
+		Model[] models = modelsList.toArray(new Model[modelsList.size()]);
+		int[] modelIndexList = new int[models.length];
+		for(int i = 0; i < models.length; i++)
+			modelIndexList[i] = i;
+		return new AggregateResult(models, null, modelIndexList, 0, models.length);
+	}
+
+	/**
+	 *
+	 * @param modelsList
+	 * @param plan The plan by which the list was aggregated.
+	 * @return A view of a list of models which has been aggregated as planned.
+	 */
+	static AggregateResult of(List<Model> modelsList, AggregationPlan plan){
+		AggregateResult result = of(modelsList);
+		result.plan = plan;
+		return result;
+	}
+
+	@Override
+	public Model get(int index){
+		return models[modelIndex(index)];
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	/**
+	 *
+	 * @param index The position in this view.
+	 * @return The ranking of the model at the position in the whole aggregate list, 1 for the first model.
+	 */
+	public int getRank(int index){
+		checkIndex(index);
+		return from + index + 1;
+	}
+
+	/**
+	 *
+	 * @param index The position in this view.
+	 * @return The aggregate score of the model at the position.
+	 */
+	public float getScore(int index){
+		int modelIndex = modelIndex(index);
+		return (scores != null) ? scores[modelIndex] : models[modelIndex].getScore();
+	}
+
+	/**
+	 *
+	 * @param index The position in this view.
+	 * @return The unique model Id of the model at the position.
+	 */
+	public String getUniqueModelID(int index){
+		return models[modelIndex(index)].getUniqueVersionId();
+	}
+
+	/**
+	 * Returns a page of this view. The page is a view as well, its ranks are the ranks in the whole aggregate list.
+	 *
+	 * @param offset The position of the first model of the page.
+	 * @param limit The maximal number of models of the page.
+	 * @return The models from offset to offset + limit, fewer or none at the end of the view.
+	 */
+	public AggregateResult slice(int offset, int limit){
+		if(offset < 0 || limit < 0)
+			throw new IllegalArgumentException("Negative offset or limit: " + offset + ", " + limit);
+
+		int start = Math.min(offset, size);
+		return view(from + start, Math.min(limit, size - start));
+	}
+
+	@Override
+	public AggregateResult subList(int fromIndex, int toIndex){
+		if(fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("From " + fromIndex + " to " + toIndex + " of " + size);
+		return view(from + fromIndex, toIndex - fromIndex);
+	}
+
+	/**
+	 *
+	 * @return The plan of an aggregation with AUTO or within a latency budget, e.g. whether only the head was aggregated
+	 * or COMB_MNZ ran instead, null for the other aggregations. The slices of the view have the same plan.
+	 */
+	public AggregationPlan getPlan(){
+		return plan;
+	}
+
+	/**
+	 *
+	 * @return A new list with the models of this view.
+	 */
+	public List<Model> toList(){
+		List<Model> modelsList = new ArrayList<Model>(size);
+		for(int i = from; i < from + size; i++)
+			modelsList.add(models[modelIndexList[i]]);
+		return modelsList;
+	}
+
+	@Override
+	public Spliterator<Model> spliterator(){
+		return new ResultSpliterator(from, from + size);
+	}
+
+	/**
+	 *
+	 * @param start The position of the first model of the view in modelIndexList.
+	 * @param length The number of models of the view.
+	 * @return A view of the same aggregation with the same plan.
+	 */
+	private AggregateResult view(int start, int length){
+		AggregateResult view = new AggregateResult(models, scores, modelIndexList, start, length);
+		view.plan = plan;
+		return view;
+	}
+
+	/**
+	 *
+	 * @param index The position in this view.
+	 * @return The model index at the position.
+	 */
+	private int modelIndex(int index){
+		checkIndex(index);
+		return modelIndexList[from + index];
+	}
+
+	private void checkIndex(int index){
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+	}
+
+
+	/**
+	 * Splits the positions of the view in halves, e.g. for serialising a large aggregate list in parallel.
+	 */
+	private class ResultSpliterator implements Spliterator<Model> {
+
+		/**
+		 * The next position in modelIndexList.
+		 */
+		private int position;
+		/**
+		 * The position after the last model.
+		 */
+		private int end;
+
+
+		ResultSpliterator(int position, int end){
+			this.position = position;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Model> action){
+			if(position >= end)
+				return false;
+			action.accept(models[modelIndexList[position++]]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Model> action){
+			for(; position < end; position++)
+				action.accept(models[modelIndexList[position]]);
+		}
+
+		@Override
+		public Spliterator<Model> trySplit(){
+			int middle = (position + end) >>> 1;
+			if(middle <= position)
+				return null;
+			ResultSpliterator prefix = new ResultSpliterator(position, middle);
+			position = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize(){
+			return end - position;
+		}
+
+		@Override
+		public int characteristics(){
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+		}
+	}
+
+}
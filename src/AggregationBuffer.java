@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The reusable state of aggregations which never change the models of the caller: the dictionary, the ranker handlers
+ * and the aggregate scores and order, all in arrays. The arrays grow to the largest query the buffer has seen
+ * and are reused afterwards, so that aggregating queries of similar sizes hardly allocates.
+ * The Kemeny methods still build their pairwise preferences for each query.
+ * <p>
+ * A buffer is used by one thread at a time. The AggregateResult of an aggregation into the buffer is valid until the
+ * buffer is used again, so that a caller which keeps results needs a buffer per result or copies the results.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationBuffer {
+	/**
+	 * The buffer of each thread.
+	 */
+	private static final ThreadLocal<AggregationBuffer> BUFFERS = new ThreadLocal<AggregationBuffer>(){
+		@Override
+		protected AggregationBuffer initialValue(){
+			return new AggregationBuffer();
+		}
+	};
+
+	private ModelIdDictionary dictionary = new ModelIdDictionary();
+	/**
+	 * The detached handler of the aggregate ranker, which keeps the aggregate scores.
+	 */
+	private IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler();
+	/**
+	 * The handlers of the rankers of all queries so far, the first ones are those of the current query.
+	 */
+	private List<IndexedRankerHandler> rankerHandlers = new ArrayList<IndexedRankerHandler>();
+	/**
+	 * The handlers of the rankers of the current query.
+	 */
+	private List<IndexedRankerHandler> rankersListH = new ArrayList<IndexedRankerHandler>();
+
+
+	/**
+	 *
+	 * @return The buffer of the current thread.
+	 */
+	public static AggregationBuffer get(){
+		return BUFFERS.get();
+	}
+
+	/**
+	 * Removes the models of the last aggregation, so that they can be garbage collected. The arrays are kept.
+	 */
+	public void reset(){
+		dictionary.clear();
+		aggregateRankerH.reset(null, dictionary, true);
+		for(IndexedRankerHandler rankerH: rankerHandlers)
+			rankerH.reset(null, dictionary, false);
+		rankersListH.clear();
+	}
+
+	/**
+	 * Fills the buffer with a query.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return The detached handler of the aggregate ranker.
+	 */
+	IndexedRankerHandler fill(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		dictionary.clear();
+		dictionary.internAll(initialAggregateRanker);
+		for(List<Model> ranker: rankersList)
+			dictionary.internAll(ranker);
+
+		aggregateRankerH.reset(initialAggregateRanker, dictionary, true);
+		rankersListH.clear();
+		for(int l = 0; l < rankersList.size(); l++){
+			if(l == rankerHandlers.size())
+				rankerHandlers.add(new IndexedRankerHandler());
+			IndexedRankerHandler rankerH = rankerHandlers.get(l);
+			rankerH.reset(rankersList.get(l), dictionary, false);
+			rankersListH.add(rankerH);
+		}
+		return aggregateRankerH;
+	}
+
+	/**
+	 *
+	 * @return The handlers of the rankers of the current query.
+	 */
+	List<IndexedRankerHandler> getRankerHandlers(){
+		return rankersListH;
+	}
+
+}
@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A bounded cache in front of the rank aggregation for repeated queries, e.g. when users page through the results.
+ * An entry is found by a 64-bit fingerprint of the unique model Ids of the rankers and of the initial aggregate ranker
+ * in their order, the aggregate method, the weights and the settings of the method, e.g. the constant k of
+ * RECIPROCAL_RANK_FUSION or the seed of KWIK_SORT. On a hit, the request is compared with the entry,
+ * so that a collision of the fingerprints never returns a wrong list. If the global settings of RankAggregation change,
+ * the entries of the old settings are not found anymore. A MARKOV_CHAIN entry with a warm start is the result
+ * of its first aggregation, which is within the tolerance of the stationary distribution like a new aggregation.
+ * <p>
+ * The cache keeps the Ids and the scores of the results, not the models. Each call returns new models, so that
+ * callers can change the models they passed in or got back without changing the cache.
+ * The aggregation of a miss runs outside of the lock, so that two threads could compute the same entry at once.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationCache {
+	/**
+	 * The maximal number of entries.
+	 */
+	private int maximumSize;
+	/**
+	 * The time to live of an entry in nanoseconds, 0 if entries never expire.
+	 */
+	private long timeToLiveNanos;
+	/**
+	 * The engine which aggregates on a miss. It does not change the models of the caller.
+	 */
+	private AggregationEngine engine = new AggregationEngine();
+	/**
+	 * Maps the fingerprints onto the entries, the least recently used entry first.
+	 */
+	private LinkedHashMap<Long, Entry> entries;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+
+	/**
+	 * Constructor.
+	 * @param maximumSize The maximal number of entries. The least recently used entry is removed first.
+	 * @param timeToLive The time after which an entry expires, 0 or less if entries never expire.
+	 * @param unit The unit of timeToLive.
+	 */
+	public AggregationCache(int maximumSize, long timeToLive, TimeUnit unit){
+		if(maximumSize < 1)
+			throw new IllegalArgumentException("The maximal size of the cache must be at least 1: " + maximumSize);
+
+		this.maximumSize = maximumSize;
+		this.timeToLiveNanos = (timeToLive > 0) ? Math.max(1, unit.toNanos(timeToLive)) : 0;
+		this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method,
+	 * or returns the cached list if the same request has been aggregated before.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weights of the first 4 rankers in the rankersList, two decimal digits each.
+	 * @return Aggregate list of new models.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, int rankersWeights){
+		return aggregate(rankersList, initialAggregateRanker, aggregateMethod, RankAggregation.decodeWeights(rankersWeights));
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method,
+	 * or returns the cached list if the same request has been aggregated before.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 * Rankers without a weight have the weight 0.
+	 * @return Aggregate list of new models.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		return aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, RankAggregation.getSettings());
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method and settings,
+	 * or returns the cached list if the same request has been aggregated before with the same settings of the method.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 * Rankers without a weight have the weight 0.
+	 * @param settings The settings of the methods, e.g. RankAggregation.getSettings().
+	 * @return Aggregate list of new models.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationSettings settings){
+		//The default method returns the initial aggregate ranker with its scores, there is nothing to cache
+		if(aggregateMethod == RankAggregationType.Types.DEFAULT)
+			return engine.aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, settings);
+
+		if(rankersWeights == null){
+			rankersWeights = new float[rankersList.size()];
+			for(int l = 0; l < rankersWeights.length; l++)
+				rankersWeights[l] = 1;
+		}
+
+		long[] settingsKey = settings.key(aggregateMethod);
+		long fingerprint = fingerprint(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, settingsKey);
+		long now = System.nanoTime();
+
+		synchronized(this){
+			Entry entry = entries.get(fingerprint);
+			if(entry != null && timeToLiveNanos > 0 && now - entry.creationTime >= timeToLiveNanos){
+				entries.remove(fingerprint);
+				evictionCount++;
+				entry = null;
+			}
+			if(entry != null && entry.matches(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, settingsKey)){
+				hitCount++;
+				return entry.makeResultsList();
+			}
+			missCount++;
+		}
+
+		//The same settings as the key, even if the global settings change meanwhile
+		List<Model> results = engine.aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, settings);
+		Entry entry = new Entry(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, settingsKey, results, now);
+
+		synchronized(this){
+			entries.put(fingerprint, entry);
+			removeEldestEntries();
+		}
+		return results;
+	}
+
+	/**
+	 * Removes all entries. The counters are kept.
+	 */
+	public synchronized void invalidateAll(){
+		entries.clear();
+	}
+
+	/**
+	 *
+	 * @return The number of entries, including expired entries which have not been removed yet.
+	 */
+	public synchronized int size(){
+		return entries.size();
+	}
+
+	/**
+	 *
+	 * @return The number of requests which have been answered from the cache.
+	 */
+	public synchronized long getHitCount(){
+		return hitCount;
+	}
+
+	/**
+	 *
+	 * @return The number of requests which have been aggregated. Requests of the default method are not counted.
+	 */
+	public synchronized long getMissCount(){
+		return missCount;
+	}
+
+	/**
+	 *
+	 * @return The number of entries which have been removed because of the maximal size or because they have expired.
+	 */
+	public synchronized long getEvictionCount(){
+		return evictionCount;
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache has its maximal size.
+	 * Expired entries are removed first.
+	 */
+	private void removeEldestEntries(){
+		if(entries.size() <= maximumSize)
+			return;
+
+		if(timeToLiveNanos > 0){
+			long now = System.nanoTime();
+			for(Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();){
+				if(now - iterator.next().creationTime >= timeToLiveNanos){
+					iterator.remove();
+					evictionCount++;
+				}
+			}
+		}
+
+		for(Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator(); entries.size() > maximumSize;){
+			iterator.next();
+			iterator.remove();
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Computes a 64-bit fingerprint of a request. Equal requests have equal fingerprints.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param settingsKey The settings of the aggregate method, see AggregationSettings.key.
+	 * @return The fingerprint.
+	 */
+	static long fingerprint(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			long[] settingsKey){
+		long hash = mix(0x9E3779B97F4A7C15L, aggregateMethod.ordinal());
+
+		for(long setting: settingsKey){
+			hash = mix(hash, (int) setting);
+			hash = mix(hash, (int) (setting >>> 32));
+		}
+
+		hash = mix(hash, rankersWeights.length);
+		for(float weight: rankersWeights)
+			hash = mix(hash, Float.floatToIntBits(weight));
+
+		hash = mix(hash, initialAggregateRanker, rankersList.size());
+		for(List<Model> ranker: rankersList)
+			hash = mix(hash, ranker, 0);
+		return hash;
+	}
+
+	/**
+	 *
+	 * @param hash
+	 * @param rankerList
+	 * @param value A value which is mixed in before the ranker.
+	 * @return The hash mixed with the size and the unique model Ids of the ranker.
+	 */
+	private static long mix(long hash, List<Model> rankerList, int value){
+		int size = (rankerList != null) ? rankerList.size() : 0;
+		hash = mix(hash, value);
+		hash = mix(hash, size);
+		for(int i = 0; i < size; i++)
+			//The hash code of a String is cached, so that this does not read the characters again
+			hash = mix(hash, Objects.hashCode(rankerList.get(i).getUniqueVersionId()));
+		return hash;
+	}
+
+	/**
+	 *
+	 * @param hash
+	 * @param value
+	 * @return The hash mixed with the value.
+	 */
+	private static long mix(long hash, int value){
+		hash = (hash ^ (value & 0xFFFFFFFFL)) * 0xBF58476D1CE4E5B9L;
+		return hash ^ (hash >>> 31);
+	}
+
+
+	/**
+	 * A cached request with the Ids and the scores of its aggregate list.
+	 */
+	private static class Entry {
+
+		private RankAggregationType.Types aggregateMethod;
+		private float[] rankersWeights;
+		private long[] settingsKey;
+		private String[] initialAggregateRankerIds;
+		private String[][] rankersIds;
+		private String[] resultIds;
+		private float[] resultScores;
+		/**
+		 * The value of System.nanoTime when the request was received.
+		 */
+		private long creationTime;
+
+
+		Entry(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+				long[] settingsKey, List<Model> results, long creationTime){
+			this.aggregateMethod = aggregateMethod;
+			this.rankersWeights = rankersWeights.clone();
+			this.settingsKey = settingsKey;
+			this.initialAggregateRankerIds = ids(initialAggregateRanker);
+			this.rankersIds = new String[rankersList.size()][];
+			for(int l = 0; l < rankersIds.length; l++)
+				rankersIds[l] = ids(rankersList.get(l));
+
+			this.resultIds = ids(results);
+			this.resultScores = new float[results.size()];
+			for(int i = 0; i < resultScores.length; i++)
+				resultScores[i] = results.get(i).getScore();
+			this.creationTime = creationTime;
+		}
+
+		/**
+		 *
+		 * @param rankersList
+		 * @param initialAggregateRanker
+		 * @param aggregateMethod
+		 * @param rankersWeights
+		 * @param settingsKey
+		 * @return true, if this entry belongs to the given request.
+		 */
+		boolean matches(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+				long[] settingsKey){
+			if(this.aggregateMethod != aggregateMethod || !Arrays.equals(this.rankersWeights, rankersWeights) || !Arrays.equals(this.settingsKey, settingsKey)
+					|| rankersIds.length != rankersList.size() || !matches(initialAggregateRankerIds, initialAggregateRanker))
+				return false;
+
+			for(int l = 0; l < rankersIds.length; l++)
+				if(!matches(rankersIds[l], rankersList.get(l)))
+					return false;
+			return true;
+		}
+
+		/**
+		 *
+		 * @return A list of new models with the Ids and the scores of the aggregate list.
+		 */
+		List<Model> makeResultsList(){
+			List<Model> modelsList = new ArrayList<Model>(resultIds.length);
+			for(int i = 0; i < resultIds.length; i++)
+				modelsList.add(new Model(resultScores[i], resultIds[i]));
+			return modelsList;
+		}
+
+		/**
+		 *
+		 * @param ids
+		 * @param rankerList
+		 * @return true, if the ranker consists of the models with the given Ids in the same order.
+		 */
+		private static boolean matches(String[] ids, List<Model> rankerList){
+			int size = (rankerList != null) ? rankerList.size() : 0;
+			if(ids.length != size)
+				return false;
+			for(int i = 0; i < size; i++)
+				if(!Objects.equals(ids[i], rankerList.get(i).getUniqueVersionId()))
+					return false;
+			return true;
+		}
+
+		/**
+		 *
+		 * @param rankerList
+		 * @return The unique model Ids of the ranker in its order.
+		 */
+		private static String[] ids(List<Model> rankerList){
+			int size = (rankerList != null) ? rankerList.size() : 0;
+			String[] ids = new String[size];
+			for(int i = 0; i < size; i++)
+				ids[i] = rankerList.get(i).getUniqueVersionId();
+			return ids;
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * A reentrant entry point for the rank aggregation. Unlike RankAggregation.aggregate, it never changes the
+ * models of the caller: the aggregate list consists of new models, so the same input lists can be aggregated
+ * by several threads at once. Each thread uses its own AggregationWorkspace and AggregationBuffer.
+ * The settings of RECIPROCAL_RANK_FUSION, MARKOV_CHAIN and KWIK_SORT can be passed with each aggregation,
+ * so that a thread does not depend on the global settings of RankAggregation, which other threads may change.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationEngine {
+	/**
+	 * The executor of the batch aggregations.
+	 */
+	private Executor executor;
+
+
+	/**
+	 * Constructor. The batch aggregations run on the common ForkJoinPool.
+	 */
+	public AggregationEngine(){
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor.
+	 * @param executor The executor of the batch aggregations, e.g. a fixed thread pool or a virtual thread per task executor.
+	 */
+	public AggregationEngine(Executor executor){
+		this.executor = executor;
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 * Rankers without a weight have the weight 0.
+	 * @return Aggregate list of new models.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		return aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, null);
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method and settings.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 * Rankers without a weight have the weight 0.
+	 * @param settings The settings of the methods, or null for the current global settings of RankAggregation.
+	 * @return Aggregate list of new models.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationSettings settings){
+		if(settings == null)
+			settings = RankAggregation.getSettings();
+		if(rankersWeights == null){
+			rankersWeights = new float[rankersList.size()];
+			for(int l = 0; l < rankersWeights.length; l++)
+				rankersWeights[l] = 1;
+		}
+
+		//The models of the caller are not changed, the new models are made from the aggregate scores of the buffer
+		AggregateResult result = RankAggregation.aggregateResult(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, AggregationBuffer.get(), settings);
+		List<Model> results = new ArrayList<Model>(result.size());
+		for(int i = 0; i < result.size(); i++)
+			results.add(new Model(result.getScore(i), result.getUniqueModelID(i)));
+		return results;
+	}
+
+	/**
+	 * Aggregates the rankers of a request.
+	 *
+	 * @param request
+	 * @return Aggregate list of new models.
+	 */
+	public List<Model> aggregate(AggregationRequest request){
+		return aggregate(request.getRankersList(), request.getInitialAggregateRanker(), request.getAggregateMethod(), request.getRankersWeights(), request.getSettings());
+	}
+
+	/**
+	 * Aggregates the rankers of each request on the executor of this engine.
+	 *
+	 * @param requests
+	 * @return A future for the aggregate list of each request, in the order of the requests.
+	 */
+	public List<CompletableFuture<List<Model>>> aggregateAll(List<AggregationRequest> requests){
+		List<CompletableFuture<List<Model>>> futures = new ArrayList<CompletableFuture<List<Model>>>(requests.size());
+		for(AggregationRequest request: requests)
+			futures.add(CompletableFuture.supplyAsync(() -> aggregate(request), executor));
+		return futures;
+	}
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Gets the timings and the counters of each aggregation by RankAggregation.aggregate, e.g. to export them as metrics.
+ * A listener is set by RankAggregation.setListener. It is called by the aggregating thread before and after each aggregation,
+ * so it should return fast and it must be thread safe.
+ * @author Mariam Nassar
+ *
+ */
+public interface AggregationListener {
+	/**
+	 * The default listener, which ignores all aggregations. With this listener the aggregation is not timed at all.
+	 */
+	AggregationListener NO_OP = new AggregationListener(){
+		@Override
+		public void aggregationCompleted(AggregationTrace trace){
+		}
+	};
+
+	/**
+	 * Called before an aggregation, when the clock of the trace has started. A listener which measures the aggregation
+	 * itself, e.g. by an event of the flight recorder, can keep its state in the attachment of the trace.
+	 *
+	 * @param trace The trace of the aggregation, which aggregationCompleted gets as well.
+	 */
+	default void aggregationStarted(AggregationTrace trace){
+	}
+
+	/**
+	 * Called after an aggregation.
+	 *
+	 * @param trace The timings and the counters of the aggregation. It must not be kept after the call.
+	 */
+	void aggregationCompleted(AggregationTrace trace);
+
+}
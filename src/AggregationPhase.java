@@ -0,0 +1,23 @@
+/**
+ * The phases of an aggregation, which are timed for the AggregationListener.
+ * @author Mariam Nassar
+ *
+ */
+public enum AggregationPhase {
+	/*
+	 * Building the model dictionary and the ranker handlers
+	 */
+	HANDLER_CONSTRUCTION,
+	/*
+	 * Computing the pairwise preferences, the supervised matrix or the CombMNZ scores
+	 */
+	DISTANCE_INITIALISATION,
+	/*
+	 * Swapping the models of the aggregate ranker or sorting them by their scores
+	 */
+	SEARCH,
+	/*
+	 * Making the list of the results
+	 */
+	RESULT_MATERIALISATION
+}
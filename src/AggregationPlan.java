@@ -0,0 +1,81 @@
+/**
+ * The decision of the AggregationPlanner for one aggregation: which method runs on which part of the aggregate ranker.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationPlan {
+
+	public static enum Path
+	{
+		/*
+		 * The requested method aggregates the whole aggregate ranker.
+		 */
+		REQUESTED,
+		/*
+		 * The requested method aggregates the head of the aggregate ranker, the tail keeps its order.
+		 */
+		TRUNCATED_HEAD,
+		/*
+		 * COMB_MNZ aggregates the whole aggregate ranker instead of the requested method.
+		 */
+		FALLBACK
+	}
+
+	private RankAggregationType.Types requestedMethod;
+	private RankAggregationType.Types method;
+	private Path path;
+	private int headLength;
+	private long estimatedNanos;
+	private long latencyBudgetNanos;
+
+
+	/**
+	 * Constructor.
+	 * @param requestedMethod The method the caller asked for.
+	 * @param method The method which runs.
+	 * @param path
+	 * @param headLength The number of models at the top of the aggregate ranker which are aggregated.
+	 * @param estimatedNanos The estimated running time.
+	 * @param latencyBudgetNanos
+	 */
+	AggregationPlan(RankAggregationType.Types requestedMethod, RankAggregationType.Types method, Path path, int headLength,
+			long estimatedNanos, long latencyBudgetNanos){
+		this.requestedMethod = requestedMethod;
+		this.method = method;
+		this.path = path;
+		this.headLength = headLength;
+		this.estimatedNanos = estimatedNanos;
+		this.latencyBudgetNanos = latencyBudgetNanos;
+	}
+
+	public RankAggregationType.Types getRequestedMethod() {
+		return requestedMethod;
+	}
+
+	public RankAggregationType.Types getMethod() {
+		return method;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public int getHeadLength() {
+		return headLength;
+	}
+
+	public long getEstimatedNanos() {
+		return estimatedNanos;
+	}
+
+	public long getLatencyBudgetNanos() {
+		return latencyBudgetNanos;
+	}
+
+	@Override
+	public String toString(){
+		return path + ": " + RankAggregationType.rankAggregationTypeToString(method) + " on " + headLength + " models, estimated "
+				+ estimatedNanos + " ns of " + latencyBudgetNanos + " ns";
+	}
+
+}
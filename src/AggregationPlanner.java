@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Chooses how to aggregate within a latency budget. The running time of each method is estimated by a cost model:
+ * <ul>
+ * <li>COMB_MNZ: n * (m + log n), a score per model and ranker and the sorting,</li>
+ * <li>ADJACENT_PAIRS and LOCAL_KEMENIZATION: n^2 / 2 * (m + overlap), the pairwise preferences and the swaps,
+ * which only happen between models contained in the rankers,</li>
+ * <li>SUPERVISED_LOCAL_KEMENIZATION: n^2 / 2 * (m + 1), the supervised matrix and the swaps of all pairs,</li>
+ * <li>MARKOV_CHAIN: n * (m + 1) * (m + iterations), the majorities of the neighbours of each model and the power iteration,</li>
+ * <li>KWIK_SORT: n * m * log n, the majorities of the expected comparisons with the pivots,</li>
+ * </ul>
+ * with n models in the aggregate ranker, m rankers and the average ratio of the aggregate ranker which the rankers
+ * contain (overlap). The time per unit of each method is measured by a small benchmark when the planner is calibrated.
+ * <p>
+ * If the requested method fits into the budget, it runs. Otherwise it runs on the longest head of the aggregate ranker
+ * which fits and the tail keeps its order. If that head is shorter than MIN_HEAD_LENGTH, COMB_MNZ runs instead.
+ * <p>
+ * The calibration takes a few hundred milliseconds. A server calls calibrateDefault when it starts, or setDefault
+ * with a planner of known times, otherwise the first aggregation with AUTO calibrates the default planner
+ * and the calibration takes from its latency budget.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationPlanner {
+	/**
+	 * The method which AUTO requests.
+	 */
+	public static final RankAggregationType.Types AUTO_METHOD = RankAggregationType.Types.LOCAL_KEMENIZATION;
+	/**
+	 * The latency budget of RankAggregation.aggregate with AUTO, in milliseconds.
+	 */
+	public static final long DEFAULT_LATENCY_BUDGET_MILLIS = 100;
+	/**
+	 * The shortest head which is aggregated by a truncated method instead of falling back to COMB_MNZ.
+	 */
+	public static final int MIN_HEAD_LENGTH = 32;
+
+	/**
+	 * The number of models, rankers and runs of the calibration benchmark.
+	 */
+	private static final int CALIBRATION_LENGTH = 256;
+	private static final int CALIBRATION_RANKERS = 3;
+	private static final int CALIBRATION_RUNS = 10;
+
+	/**
+	 * The estimated nanoseconds per cost unit, for each method by the ordinal of the type.
+	 */
+	private double[] nanosPerUnit;
+
+
+	/**
+	 * The planner of RankAggregation.aggregate with AUTO, null until it is calibrated or set.
+	 */
+	private static volatile AggregationPlanner defaultPlanner;
+
+	/**
+	 *
+	 * @return The planner of RankAggregation.aggregate with AUTO, calibrated on its first use unless it has been
+	 * calibrated or set before.
+	 */
+	public static AggregationPlanner getDefault(){
+		AggregationPlanner planner = defaultPlanner;
+		if(planner == null){
+			synchronized(AggregationPlanner.class){
+				planner = defaultPlanner;
+				if(planner == null)
+					defaultPlanner = planner = calibrate();
+			}
+		}
+		return planner;
+	}
+
+	/**
+	 * Calibrates the default planner now, e.g. when the server starts, so that no aggregation with AUTO waits for the
+	 * calibration.
+	 *
+	 * @return The calibrated default planner.
+	 */
+	public static AggregationPlanner calibrateDefault(){
+		AggregationPlanner planner = calibrate();
+		defaultPlanner = planner;
+		return planner;
+	}
+
+	/**
+	 * Sets the planner of RankAggregation.aggregate with AUTO, e.g. with the times of an earlier calibration.
+	 *
+	 * @param planner
+	 */
+	public static void setDefault(AggregationPlanner planner){
+		if(planner == null)
+			throw new IllegalArgumentException("The default planner must not be null");
+		defaultPlanner = planner;
+	}
+
+	/**
+	 * Constructor.
+	 * @param combMNZNanos The nanoseconds per cost unit of COMB_MNZ.
+	 * @param adjacentPairsNanos The nanoseconds per cost unit of ADJACENT_PAIRS.
+	 * @param localKemenizationNanos The nanoseconds per cost unit of LOCAL_KEMENIZATION.
+	 * @param supervisedLocalKemenizationNanos The nanoseconds per cost unit of SUPERVISED_LOCAL_KEMENIZATION.
+	 * @param markovChainNanos The nanoseconds per cost unit of MARKOV_CHAIN.
+	 * @param kwikSortNanos The nanoseconds per cost unit of KWIK_SORT.
+	 */
+	public AggregationPlanner(double combMNZNanos, double adjacentPairsNanos, double localKemenizationNanos, double supervisedLocalKemenizationNanos,
+			double markovChainNanos, double kwikSortNanos){
+		this.nanosPerUnit = new double[RankAggregationType.Types.values().length];
+		nanosPerUnit[RankAggregationType.Types.COMB_MNZ.ordinal()] = combMNZNanos;
+		//The linear fusions gather the same rankings as COMB_MNZ
+		nanosPerUnit[RankAggregationType.Types.COMB_SUM.ordinal()] = combMNZNanos;
+		nanosPerUnit[RankAggregationType.Types.BORDA.ordinal()] = combMNZNanos;
+		nanosPerUnit[RankAggregationType.Types.RECIPROCAL_RANK_FUSION.ordinal()] = combMNZNanos;
+		nanosPerUnit[RankAggregationType.Types.MARKOV_CHAIN.ordinal()] = markovChainNanos;
+		nanosPerUnit[RankAggregationType.Types.KWIK_SORT.ordinal()] = kwikSortNanos;
+		nanosPerUnit[RankAggregationType.Types.ADJACENT_PAIRS.ordinal()] = adjacentPairsNanos;
+		nanosPerUnit[RankAggregationType.Types.LOCAL_KEMENIZATION.ordinal()] = localKemenizationNanos;
+		nanosPerUnit[RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION.ordinal()] = supervisedLocalKemenizationNanos;
+	}
+
+	/**
+	 * Measures the time per cost unit of each method on random rankers. Takes up to a few hundred milliseconds,
+	 * most of it for warming up the JIT. The benchmark aggregations are not reported to the AggregationListener.
+	 *
+	 * @return A calibrated planner.
+	 */
+	public static AggregationPlanner calibrate(){
+		Random random = new Random(42);
+		List<String> uniqueModelIds = new ArrayList<String>(CALIBRATION_LENGTH);
+		for(int i = 0; i < CALIBRATION_LENGTH; i++)
+			uniqueModelIds.add("calibration" + i);
+
+		List<List<Model>> rankersList = new ArrayList<List<Model>>(CALIBRATION_RANKERS);
+		for(int l = 0; l < CALIBRATION_RANKERS; l++){
+			Collections.shuffle(uniqueModelIds, random);
+			rankersList.add(makeRanker(uniqueModelIds));
+		}
+		Collections.shuffle(uniqueModelIds, random);
+		float[] weights = new float[CALIBRATION_RANKERS];
+		for(int l = 0; l < CALIBRATION_RANKERS; l++)
+			weights[l] = 1;
+
+		RankAggregationType.Types[] methods = {RankAggregationType.Types.COMB_MNZ, RankAggregationType.Types.ADJACENT_PAIRS,
+				RankAggregationType.Types.LOCAL_KEMENIZATION, RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION,
+				RankAggregationType.Types.MARKOV_CHAIN, RankAggregationType.Types.KWIK_SORT};
+		double[] nanos = new double[methods.length];
+		for(int k = 0; k < methods.length; k++){
+			//The fastest run, the first runs warm up the JIT
+			long minTime = Long.MAX_VALUE;
+			for(int run = 0; run < CALIBRATION_RUNS; run++){
+				List<Model> initialAggregateRanker = makeRanker(uniqueModelIds);
+				long startTime = System.nanoTime();
+				RankAggregation.aggregateUntraced(rankersList, initialAggregateRanker, methods[k], weights);
+				minTime = Math.min(minTime, System.nanoTime() - startTime);
+			}
+			nanos[k] = minTime / units(methods[k], CALIBRATION_LENGTH, CALIBRATION_RANKERS, 1);
+		}
+		return new AggregationPlanner(nanos[0], nanos[1], nanos[2], nanos[3], nanos[4], nanos[5]);
+	}
+
+	/**
+	 * Plans an aggregation of a list of rankers with regard to an initial aggregate ranker.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod The requested method. AUTO requests AUTO_METHOD.
+	 * @param latencyBudget
+	 * @param unit The unit of latencyBudget.
+	 * @return The plan.
+	 */
+	public AggregationPlan plan(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod,
+			long latencyBudget, TimeUnit unit){
+		int n = initialAggregateRanker.size();
+		int m = rankersList.size();
+
+		//The overlap is estimated by the lengths of the rankers, so that planning costs O(m)
+		double overlap = 0;
+		if(n > 0)
+			for(List<Model> ranker: rankersList)
+				overlap += (double) Math.min(n, (ranker != null) ? ranker.size() : 0) / n / m;
+
+		return plan(n, m, overlap, aggregateMethod, unit.toNanos(latencyBudget));
+	}
+
+	/**
+	 * Plans an aggregation.
+	 *
+	 * @param n The number of models in the initial aggregate ranker.
+	 * @param m The number of rankers.
+	 * @param overlap The average ratio of the models of the initial aggregate ranker which the rankers contain, in [0, 1].
+	 * @param aggregateMethod The requested method. AUTO requests AUTO_METHOD.
+	 * @param latencyBudgetNanos
+	 * @return The plan.
+	 */
+	public AggregationPlan plan(int n, int m, double overlap, RankAggregationType.Types aggregateMethod, long latencyBudgetNanos){
+		RankAggregationType.Types method = (aggregateMethod == RankAggregationType.Types.AUTO) ? AUTO_METHOD : aggregateMethod;
+
+		long estimatedNanos = estimate(method, n, m, overlap);
+		//The (almost) linear methods have no cheaper alternative
+		if(estimatedNanos <= latencyBudgetNanos || method == RankAggregationType.Types.DEFAULT || isLinear(method))
+			return new AggregationPlan(aggregateMethod, method, AggregationPlan.Path.REQUESTED, n, estimatedNanos, latencyBudgetNanos);
+
+		//The longest head which fits into the budget, the estimate grows with the length
+		int low = 0;
+		int high = n - 1;
+		while(low < high){
+			int middle = (low + high + 1) >>> 1;
+			if(estimate(method, middle, m, overlap) <= latencyBudgetNanos)
+				low = middle;
+			else high = middle - 1;
+		}
+		if(low >= MIN_HEAD_LENGTH)
+			return new AggregationPlan(aggregateMethod, method, AggregationPlan.Path.TRUNCATED_HEAD, low, estimate(method, low, m, overlap), latencyBudgetNanos);
+
+		RankAggregationType.Types fallback = RankAggregationType.Types.COMB_MNZ;
+		return new AggregationPlan(aggregateMethod, fallback, AggregationPlan.Path.FALLBACK, n, estimate(fallback, n, m, overlap), latencyBudgetNanos);
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker as planned.
+	 *
+	 * @param plan A plan for these rankers.
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @return Aggregate list of models
+	 */
+	public List<Model> execute(AggregationPlan plan, List<List<Model>> rankersList, List<Model> initialAggregateRanker, float[] rankersWeights){
+		if(plan.getPath() != AggregationPlan.Path.TRUNCATED_HEAD)
+			return RankAggregation.aggregate(rankersList, initialAggregateRanker, plan.getMethod(), rankersWeights);
+
+		int headLength = plan.getHeadLength();
+		List<Model> head = new ArrayList<Model>(initialAggregateRanker.subList(0, headLength));
+		List<Model> results = new ArrayList<Model>(initialAggregateRanker.size());
+		results.addAll(RankAggregation.aggregate(rankersList, head, plan.getMethod(), rankersWeights));
+
+		//The tail keeps its order, without scores like the head
+		for(Model model: initialAggregateRanker.subList(headLength, initialAggregateRanker.size())){
+			model.setScore(-1);
+			results.add(model);
+		}
+		return results;
+	}
+
+	/**
+	 *
+	 * @param method
+	 * @param n
+	 * @param m
+	 * @param overlap
+	 * @return The estimated running time in nanoseconds.
+	 */
+	public long estimate(RankAggregationType.Types method, int n, int m, double overlap){
+		double nanos = nanosPerUnit[method.ordinal()] * units(method, n, m, overlap);
+		return (long) Math.min(nanos, Long.MAX_VALUE);
+	}
+
+	/**
+	 *
+	 * @param method
+	 * @param n
+	 * @param m
+	 * @param overlap
+	 * @return The cost units of a method, see the class comment.
+	 */
+	private static double units(RankAggregationType.Types method, int n, int m, double overlap){
+		double pairs = (double) n * (n - 1) / 2;
+
+		switch(method){
+		case COMB_MNZ:
+		case COMB_SUM:
+		case BORDA:
+		case RECIPROCAL_RANK_FUSION:
+			return (double) n * (m + Math.log(Math.max(n, 2)) / Math.log(2));
+		case ADJACENT_PAIRS:
+		case LOCAL_KEMENIZATION:
+			return pairs * (m + overlap);
+		case SUPERVISED_LOCAL_KEMENIZATION:
+			return pairs * (m + 1);
+		case MARKOV_CHAIN:
+			return (double) n * (m + 1) * (m + MarkovChainAggregation.DEFAULT_MAX_ITERATIONS);
+		case KWIK_SORT:
+			return (double) n * m * Math.log(Math.max(n, 2)) / Math.log(2);
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 *
+	 * @param method
+	 * @return true, if the cost of the method grows (almost) linearly with the number of models.
+	 */
+	private static boolean isLinear(RankAggregationType.Types method){
+		switch(method){
+		case COMB_MNZ:
+		case COMB_SUM:
+		case BORDA:
+		case RECIPROCAL_RANK_FUSION:
+		case MARKOV_CHAIN:
+		case KWIK_SORT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * @param uniqueModelIds
+	 * @return A ranker with new models in the order of the unique model Ids.
+	 */
+	private static List<Model> makeRanker(List<String> uniqueModelIds){
+		List<Model> ranker = new ArrayList<Model>(uniqueModelIds.size());
+		for(String uniqueModelId: uniqueModelIds)
+			ranker.add(new Model(0, uniqueModelId));
+		return ranker;
+	}
+
+}
@@ -0,0 +1,67 @@
+import java.util.List;
+
+
+/**
+ * The input of one aggregation: the rankers, the initial aggregate ranker, the aggregate method, the ranker weights
+ * and optionally the settings of the methods, otherwise the global settings of RankAggregation apply.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationRequest {
+
+	private List<List<Model>> rankersList;
+	private List<Model> initialAggregateRanker;
+	private RankAggregationType.Types aggregateMethod;
+	private float[] rankersWeights;
+	private AggregationSettings settings;
+
+
+	/**
+	 * Constructor.
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 */
+	public AggregationRequest(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		this.rankersList = rankersList;
+		this.initialAggregateRanker = initialAggregateRanker;
+		this.aggregateMethod = aggregateMethod;
+		this.rankersWeights = rankersWeights;
+	}
+
+	/**
+	 * Constructor.
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 * @param settings The settings of the methods, or null for the global settings of RankAggregation at the aggregation.
+	 */
+	public AggregationRequest(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationSettings settings){
+		this(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights);
+		this.settings = settings;
+	}
+
+	public List<List<Model>> getRankersList() {
+		return rankersList;
+	}
+
+	public List<Model> getInitialAggregateRanker() {
+		return initialAggregateRanker;
+	}
+
+	public RankAggregationType.Types getAggregateMethod() {
+		return aggregateMethod;
+	}
+
+	public float[] getRankersWeights() {
+		return rankersWeights;
+	}
+
+	public AggregationSettings getSettings() {
+		return settings;
+	}
+
+}
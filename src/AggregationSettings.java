@@ -0,0 +1,78 @@
+/**
+ * The settings of the aggregate methods which are not part of the rankers and weights of a request:
+ * the constant k of RECIPROCAL_RANK_FUSION, the Markov chain aggregation of MARKOV_CHAIN and the randomized pivot
+ * aggregation of KWIK_SORT. RankAggregation.getSettings returns the global settings of RankAggregation.aggregate,
+ * an AggregationRequest of the AggregationEngine can carry its own, so that no thread depends on the global settings.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationSettings {
+
+	private final int reciprocalRankFusionK;
+	private final MarkovChainAggregation markovChainAggregation;
+	private final KwikSortAggregation kwikSortAggregation;
+
+
+	/**
+	 * Constructor.
+	 * @param reciprocalRankFusionK The constant k of the reciprocal rank fusion, at least 0.
+	 * @param markovChainAggregation The Markov chain aggregation of MARKOV_CHAIN.
+	 * @param kwikSortAggregation The randomized pivot aggregation of KWIK_SORT.
+	 */
+	public AggregationSettings(int reciprocalRankFusionK, MarkovChainAggregation markovChainAggregation, KwikSortAggregation kwikSortAggregation){
+		if(reciprocalRankFusionK < 0)
+			throw new IllegalArgumentException("The constant of the reciprocal rank fusion must not be negative: " + reciprocalRankFusionK);
+		if(markovChainAggregation == null || kwikSortAggregation == null)
+			throw new IllegalArgumentException("The aggregations of the settings must not be null");
+
+		this.reciprocalRankFusionK = reciprocalRankFusionK;
+		this.markovChainAggregation = markovChainAggregation;
+		this.kwikSortAggregation = kwikSortAggregation;
+	}
+
+	/**
+	 *
+	 * @param aggregateMethod
+	 * @return The settings which the result of the aggregate method depends on, e.g. for the key of the AggregationCache.
+	 * The pool of KWIK_SORT is not part of the key, the result only depends on the seed.
+	 */
+	long[] key(RankAggregationType.Types aggregateMethod){
+		switch(aggregateMethod){
+		case RECIPROCAL_RANK_FUSION:
+			return new long[]{reciprocalRankFusionK};
+		case MARKOV_CHAIN:
+			return new long[]{markovChainAggregation.getRadius(), Double.doubleToLongBits(markovChainAggregation.getDamping()),
+					Double.doubleToLongBits(markovChainAggregation.getTolerance()), markovChainAggregation.getMaxIterations(),
+					markovChainAggregation.isWarmStart() ? 1 : 0};
+		case KWIK_SORT:
+			return new long[]{kwikSortAggregation.getSeed(), kwikSortAggregation.isPolish() ? 1 : 0};
+		default:
+			return new long[0];
+		}
+	}
+
+	/**
+	 *
+	 * @return The constant k of the reciprocal rank fusion.
+	 */
+	public int getReciprocalRankFusionK(){
+		return reciprocalRankFusionK;
+	}
+
+	/**
+	 *
+	 * @return The Markov chain aggregation of MARKOV_CHAIN.
+	 */
+	public MarkovChainAggregation getMarkovChainAggregation(){
+		return markovChainAggregation;
+	}
+
+	/**
+	 *
+	 * @return The randomized pivot aggregation of KWIK_SORT.
+	 */
+	public KwikSortAggregation getKwikSortAggregation(){
+		return kwikSortAggregation;
+	}
+
+}
@@ -0,0 +1,194 @@
+/**
+ * The timings and the counters of one aggregation. A trace is filled by the aggregating thread only.
+ * The disabled trace ignores all calls, so that the aggregation methods can report to it without checking the listener.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationTrace {
+	/**
+	 * The trace of aggregations which nobody listens to.
+	 */
+	static final AggregationTrace DISABLED = new AggregationTrace(RankAggregationType.Types.DEFAULT, 0, 0, false);
+
+	private boolean enabled;
+	private RankAggregationType.Types aggregateMethod;
+	private int numberOfModels;
+	private int numberOfRankers;
+
+	/**
+	 * The time of each phase in nanoseconds, by the ordinal of the phase.
+	 */
+	private long[] phaseNanos = new long[AggregationPhase.values().length];
+	private long startTime;
+	private long lastMarkTime;
+	private long totalNanos;
+
+	private long comparisons;
+	private long swaps;
+	private long rankLookups;
+	private long sweeps;
+
+	/**
+	 * The state of the listener for this aggregation.
+	 */
+	private Object attachment;
+
+
+	/**
+	 * Constructor. Starts the clock.
+	 * @param aggregateMethod
+	 * @param numberOfModels The number of models in the initial aggregate ranker.
+	 * @param numberOfRankers
+	 */
+	AggregationTrace(RankAggregationType.Types aggregateMethod, int numberOfModels, int numberOfRankers){
+		this(aggregateMethod, numberOfModels, numberOfRankers, true);
+	}
+
+	private AggregationTrace(RankAggregationType.Types aggregateMethod, int numberOfModels, int numberOfRankers, boolean enabled){
+		this.enabled = enabled;
+		this.aggregateMethod = aggregateMethod;
+		this.numberOfModels = numberOfModels;
+		this.numberOfRankers = numberOfRankers;
+		if(enabled){
+			this.startTime = System.nanoTime();
+			this.lastMarkTime = startTime;
+		}
+	}
+
+	/**
+	 * Adds the time since the last mark to a phase.
+	 *
+	 * @param phase The phase which has just ended.
+	 */
+	void mark(AggregationPhase phase){
+		if(!enabled)
+			return;
+		long now = System.nanoTime();
+		phaseNanos[phase.ordinal()] += now - lastMarkTime;
+		lastMarkTime = now;
+	}
+
+	/**
+	 * Stops the clock.
+	 */
+	void finish(){
+		if(enabled)
+			totalNanos = System.nanoTime() - startTime;
+	}
+
+	void addComparisons(long comparisons){
+		if(enabled)
+			this.comparisons += comparisons;
+	}
+
+	void addSwaps(long swaps){
+		if(enabled)
+			this.swaps += swaps;
+	}
+
+	void addRankLookups(long rankLookups){
+		if(enabled)
+			this.rankLookups += rankLookups;
+	}
+
+	void addSweeps(long sweeps){
+		if(enabled)
+			this.sweeps += sweeps;
+	}
+
+	/**
+	 *
+	 * @return true, if this trace records the aggregation.
+	 */
+	public boolean isEnabled(){
+		return enabled;
+	}
+
+	public RankAggregationType.Types getAggregateMethod() {
+		return aggregateMethod;
+	}
+
+	/**
+	 *
+	 * @return The number of models in the initial aggregate ranker (n).
+	 */
+	public int getNumberOfModels() {
+		return numberOfModels;
+	}
+
+	/**
+	 *
+	 * @return The number of rankers (m).
+	 */
+	public int getNumberOfRankers() {
+		return numberOfRankers;
+	}
+
+	/**
+	 *
+	 * @param phase
+	 * @return The time of the phase in nanoseconds.
+	 */
+	public long getPhaseNanos(AggregationPhase phase){
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 *
+	 * @return The time of the whole aggregation in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 *
+	 * @return The number of compared pairs of models, per ranker while computing the preferences.
+	 */
+	public long getComparisons() {
+		return comparisons;
+	}
+
+	/**
+	 *
+	 * @return The number of swaps of two models in the aggregate ranker.
+	 */
+	public long getSwaps() {
+		return swaps;
+	}
+
+	/**
+	 *
+	 * @return The number of rankings which have been looked up in the rankers.
+	 */
+	public long getRankLookups() {
+		return rankLookups;
+	}
+
+	/**
+	 *
+	 * @return The number of sweeps over the aggregate ranker, for the adjacent pairs method.
+	 */
+	public long getSweeps() {
+		return sweeps;
+	}
+
+	/**
+	 *
+	 * @return The state which the listener has attached in aggregationStarted, or null.
+	 */
+	public Object getAttachment() {
+		return attachment;
+	}
+
+	/**
+	 * Attaches a state of the listener to this aggregation, e.g. an event which has begun in aggregationStarted.
+	 *
+	 * @param attachment
+	 */
+	public void setAttachment(Object attachment) {
+		if(enabled)
+			this.attachment = attachment;
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Scratch arrays for the aggregation methods, one workspace per thread.
+ * The arrays grow to the largest query a thread has seen and are reused afterwards,
+ * so that concurrent aggregations do not share any scratch state and do not allocate it again.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationWorkspace {
+	/**
+	 * The workspace of each thread.
+	 */
+	private static final ThreadLocal<AggregationWorkspace> WORKSPACES = new ThreadLocal<AggregationWorkspace>(){
+		@Override
+		protected AggregationWorkspace initialValue(){
+			return new AggregationWorkspace();
+		}
+	};
+
+	private int[] rankings = new int[0];
+	private int[] mergeBuffer = new int[0];
+	private double[] rowScores = new double[0];
+	private long[] scoreKeys = new long[0];
+	private float[] fusionRankings = new float[0];
+	private float[] fusionPresence = new float[0];
+	private float[] fusionScores = new float[0];
+
+
+	/**
+	 *
+	 * @return The workspace of the current thread.
+	 */
+	public static AggregationWorkspace get(){
+		return WORKSPACES.get();
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return An int array for rankings with at least the given length. The content is undefined.
+	 */
+	public int[] getRankings(int length){
+		if(rankings.length < length)
+			rankings = new int[grow(rankings.length, length)];
+		return rankings;
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return An int array for merging with at least the given length. The content is undefined.
+	 */
+	public int[] getMergeBuffer(int length){
+		if(mergeBuffer.length < length)
+			mergeBuffer = new int[grow(mergeBuffer.length, length)];
+		return mergeBuffer;
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return A double array for the scores of a row of pairs with at least the given length. The content is undefined.
+	 */
+	public double[] getRowScores(int length){
+		if(rowScores.length < length)
+			rowScores = new double[grow(rowScores.length, length)];
+		return rowScores;
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return A long array for the keys of the ScoreSorter with at least the given length. The content is undefined.
+	 */
+	public long[] getScoreKeys(int length){
+		if(scoreKeys.length < length)
+			scoreKeys = new long[grow(scoreKeys.length, length)];
+		return scoreKeys;
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return A float array for the rankings of the models of the aggregate ranker in one ranker, for the linear fusion,
+	 * with at least the given length. The content is undefined.
+	 */
+	public float[] getFusionRankings(int length){
+		if(fusionRankings.length < length)
+			fusionRankings = new float[grow(fusionRankings.length, length)];
+		return fusionRankings;
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return A float array for the presence (1 or 0) of the models of the aggregate ranker in one ranker,
+	 * for the linear fusion, with at least the given length. The content is undefined.
+	 */
+	public float[] getFusionPresence(int length){
+		if(fusionPresence.length < length)
+			fusionPresence = new float[grow(fusionPresence.length, length)];
+		return fusionPresence;
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return A float array for the accumulated scores of the linear fusion with at least the given length.
+	 * The content is undefined.
+	 */
+	public float[] getFusionScores(int length){
+		if(fusionScores.length < length)
+			fusionScores = new float[grow(fusionScores.length, length)];
+		return fusionScores;
+	}
+
+	/**
+	 *
+	 * @param currentLength
+	 * @param minLength
+	 * @return The new length of a growing array: at least minLength and at least 1.5 times the current length.
+	 */
+	private static int grow(int currentLength, int minLength){
+		long newLength = Math.max((long) minLength, currentLength + ((long) currentLength >> 1));
+		return (int) Math.min(newLength, Integer.MAX_VALUE - 8);
+	}
+
+}
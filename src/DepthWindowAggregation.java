@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Bounded depth aggregation for the rank based methods ADJACENT_PAIRS, LOCAL_KEMENIZATION and SUPERVISED_LOCAL_KEMENIZATION.
+ * Only the window of the models which are among the first d models of a ranker or of the initial aggregate ranker
+ * is aggregated, in the order of the initial aggregate ranker. The rankers are cut after d models, so that a model
+ * of the window beyond the depth of a ranker is treated like a model which the ranker does not contain.
+ * The other models are appended in their initial order. The time and memory of the method depend on d and on
+ * the number of rankers, not on the length of the initial aggregate ranker.
+ * <p>
+ * compare aggregates a sample of requests with and without the window and reports how far the results differ,
+ * so that d can be chosen before the window is used.
+ * @author Mariam Nassar
+ *
+ */
+public class DepthWindowAggregation {
+	/**
+	 * The default depth.
+	 */
+	public static final int DEFAULT_DEPTH = 100;
+
+	private int depth;
+
+
+	/**
+	 * The models which are aggregated and the models which are appended.
+	 */
+	private static class Window {
+		private final List<List<Model>> rankersList;
+		private final List<Model> models;
+		private final List<Model> tail;
+
+		Window(List<List<Model>> rankersList, List<Model> models, List<Model> tail){
+			this.rankersList = rankersList;
+			this.models = models;
+			this.tail = tail;
+		}
+	}
+
+
+	/**
+	 * Constructor with the default depth.
+	 */
+	public DepthWindowAggregation(){
+		this(DEFAULT_DEPTH);
+	}
+
+	/**
+	 * Constructor.
+	 * @param depth The number of models of each ranker and of the initial aggregate ranker which are aggregated, at least 1.
+	 */
+	public DepthWindowAggregation(int depth){
+		if(depth < 1)
+			throw new IllegalArgumentException("The depth must be at least 1: " + depth);
+
+		this.depth = depth;
+	}
+
+	/**
+	 * Aggregates the window of a list of rankers with regard to an initial aggregate ranker using a rank based method.
+	 * Like RankAggregation.aggregate, it changes the scores of the models of the initial aggregate ranker:
+	 * all models get the score -1 of the rank based methods.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod ADJACENT_PAIRS, LOCAL_KEMENIZATION or SUPERVISED_LOCAL_KEMENIZATION.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @return Aggregate list of models, the aggregated window first.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		if(!isWindowed(aggregateMethod))
+			throw new IllegalArgumentException("The aggregate method has no depth window: " + aggregateMethod);
+		if(initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+
+		Window window = window(rankersList, initialAggregateRanker);
+		List<Model> results = new ArrayList<Model>(initialAggregateRanker.size());
+		results.addAll(RankAggregation.aggregate(window.rankersList, window.models, aggregateMethod, rankersWeights));
+
+		//The tail keeps its order, with the score -1 like the window
+		for(Model model: window.tail){
+			model.setScore(-1);
+			results.add(model);
+		}
+		return results;
+	}
+
+	/**
+	 * Splits the initial aggregate ranker into the window and the tail.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return The rankers cut after depth models, the window and the tail.
+	 */
+	private Window window(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		ModelIdDictionary rankerHeads = new ModelIdDictionary();
+		List<List<Model>> heads = new ArrayList<List<Model>>(rankersList.size());
+		for(List<Model> ranker: rankersList){
+			List<Model> head = ranker.subList(0, Math.min(depth, ranker.size()));
+			rankerHeads.internAll(head);
+			heads.add(head);
+		}
+
+		List<Model> models = new ArrayList<Model>(Math.min(initialAggregateRanker.size(), depth + rankerHeads.size()));
+		List<Model> tail = new ArrayList<Model>();
+		int position = 0;
+		for(Model model: initialAggregateRanker){
+			if(position < depth || rankerHeads.getModelIndex(model.getUniqueVersionId()) >= 0)
+				models.add(model);
+			else tail.add(model);
+			position++;
+		}
+		return new Window(heads, models, tail);
+	}
+
+	/**
+	 * Aggregates each request of a sample with and without the window and compares the results.
+	 * The models of the requests are not changed.
+	 *
+	 * @param sample Requests with the methods ADJACENT_PAIRS, LOCAL_KEMENIZATION or SUPERVISED_LOCAL_KEMENIZATION.
+	 * @param k The number of models at the top of the results whose overlap is reported.
+	 * @return The divergence of the window from the whole aggregation.
+	 */
+	public DepthWindowReport compare(List<AggregationRequest> sample, int k){
+		if(k < 1)
+			throw new IllegalArgumentException("k must be at least 1: " + k);
+
+		DepthWindowReport report = new DepthWindowReport(depth, k);
+		for(AggregationRequest request: sample){
+			List<List<Model>> rankersList = request.getRankersList();
+			RankAggregationType.Types aggregateMethod = request.getAggregateMethod();
+			float[] rankersWeights = request.getRankersWeights();
+			if(rankersWeights == null){
+				rankersWeights = new float[rankersList.size()];
+				for(int l = 0; l < rankersWeights.length; l++)
+					rankersWeights[l] = 1;
+			}
+
+			long start = System.nanoTime();
+			List<Model> full = RankAggregation.aggregate(rankersList, copy(request.getInitialAggregateRanker()), aggregateMethod, rankersWeights);
+			long fullNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<Model> windowed = aggregate(rankersList, copy(request.getInitialAggregateRanker()), aggregateMethod, rankersWeights);
+			long windowNanos = System.nanoTime() - start;
+
+			int windowSize = window(rankersList, request.getInitialAggregateRanker()).models.size();
+			report.add(full, windowed, windowSize, fullNanos, windowNanos);
+		}
+		return report;
+	}
+
+	/**
+	 *
+	 * @param ranker
+	 * @return New models with the unique model Ids and scores of the ranker.
+	 */
+	private static List<Model> copy(List<Model> ranker){
+		List<Model> copy = new ArrayList<Model>(ranker.size());
+		for(Model model: ranker)
+			copy.add(new Model(model.getScore(), model.getUniqueVersionId()));
+		return copy;
+	}
+
+	/**
+	 *
+	 * @param aggregateMethod
+	 * @return true, if the aggregate method can be restricted to a depth window.
+	 */
+	public static boolean isWindowed(RankAggregationType.Types aggregateMethod){
+		switch(aggregateMethod){
+		case ADJACENT_PAIRS:
+		case LOCAL_KEMENIZATION:
+		case SUPERVISED_LOCAL_KEMENIZATION:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of models of each ranker and of the initial aggregate ranker which are aggregated.
+	 */
+	public int getDepth(){
+		return depth;
+	}
+
+}
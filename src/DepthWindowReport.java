@@ -0,0 +1,177 @@
+import java.util.List;
+
+
+/**
+ * How far the results of a DepthWindowAggregation differ from the whole aggregation on a sample of requests:
+ * the normalized Kendall-tau distance between the two results, the overlap of their first k models and the running times.
+ * @author Mariam Nassar
+ *
+ */
+public class DepthWindowReport {
+
+	private int depth;
+	private int k;
+	private int queries;
+	private double sumOfKendallTau;
+	private double maxKendallTau;
+	private double sumOfTopKOverlap;
+	private double minTopKOverlap = 1;
+	private int identicalTopK;
+	private double sumOfWindowRatio;
+	private long fullNanos;
+	private long windowNanos;
+
+
+	/**
+	 * Constructor.
+	 * @param depth The depth of the window.
+	 * @param k The number of models at the top of the results which are compared.
+	 */
+	DepthWindowReport(int depth, int k){
+		this.depth = depth;
+		this.k = k;
+	}
+
+	/**
+	 * Adds the comparison of one request.
+	 *
+	 * @param full The result of the whole aggregation.
+	 * @param windowed The result of the window aggregation, with the same models.
+	 * @param windowSize The number of models in the window.
+	 * @param fullNanos The running time of the whole aggregation.
+	 * @param windowNanos The running time of the window aggregation.
+	 */
+	void add(List<Model> full, List<Model> windowed, int windowSize, long fullNanos, long windowNanos){
+		int n = full.size();
+		queries++;
+		this.fullNanos += fullNanos;
+		this.windowNanos += windowNanos;
+		if(n == 0){
+			sumOfTopKOverlap += 1;
+			identicalTopK++;
+			return;
+		}
+		sumOfWindowRatio += (double) windowSize / n;
+
+		//The position of each model in the whole aggregation, by the order of the window aggregation
+		ModelIdDictionary dictionary = new ModelIdDictionary();
+		int[] fullPositions = new int[n];
+		for(int i = 0; i < n; i++){
+			int size = dictionary.size();
+			int modelIndex = dictionary.intern(full.get(i).getUniqueVersionId());
+			if(dictionary.size() > size) //The first position of a unique model Id
+				fullPositions[modelIndex] = i;
+		}
+		int[] positions = new int[n];
+		for(int i = 0; i < n; i++)
+			positions[i] = fullPositions[dictionary.getModelIndex(windowed.get(i).getUniqueVersionId())];
+
+		int head = Math.min(k, n);
+		int overlap = 0;
+		boolean identical = true;
+		for(int i = 0; i < head; i++){
+			if(positions[i] < head)
+				overlap++;
+			if(positions[i] != i)
+				identical = false;
+		}
+		double topKOverlap = (double) overlap / head;
+		sumOfTopKOverlap += topKOverlap;
+		minTopKOverlap = Math.min(minTopKOverlap, topKOverlap);
+		if(identical)
+			identicalTopK++;
+
+		long pairs = (long) n * (n - 1) / 2;
+		double kendallTau = (pairs > 0) ? (double) KendallTau.countInversions(positions, n) / pairs : 0;
+		sumOfKendallTau += kendallTau;
+		maxKendallTau = Math.max(maxKendallTau, kendallTau);
+	}
+
+	/**
+	 *
+	 * @return The depth of the window.
+	 */
+	public int getDepth(){
+		return depth;
+	}
+
+	/**
+	 *
+	 * @return The number of models at the top of the results which are compared.
+	 */
+	public int getK(){
+		return k;
+	}
+
+	/**
+	 *
+	 * @return The number of compared requests.
+	 */
+	public int getQueries(){
+		return queries;
+	}
+
+	/**
+	 *
+	 * @return The mean ratio of the pairs of models which the two results order differently.
+	 */
+	public double getMeanKendallTau(){
+		return (queries > 0) ? sumOfKendallTau / queries : 0;
+	}
+
+	/**
+	 *
+	 * @return The largest ratio of the pairs of models which the two results of one request order differently.
+	 */
+	public double getMaxKendallTau(){
+		return maxKendallTau;
+	}
+
+	/**
+	 *
+	 * @return The mean ratio of the first k models of the whole aggregation which are among the first k models of the window aggregation.
+	 */
+	public double getMeanTopKOverlap(){
+		return (queries > 0) ? sumOfTopKOverlap / queries : 1;
+	}
+
+	/**
+	 *
+	 * @return The smallest ratio of the first k models of the whole aggregation which are among the first k models of the window aggregation.
+	 */
+	public double getMinTopKOverlap(){
+		return minTopKOverlap;
+	}
+
+	/**
+	 *
+	 * @return The number of requests whose first k models are the same in the same order.
+	 */
+	public int getIdenticalTopK(){
+		return identicalTopK;
+	}
+
+	/**
+	 *
+	 * @return The mean ratio of the models which are in the window.
+	 */
+	public double getMeanWindowRatio(){
+		return (queries > 0) ? sumOfWindowRatio / queries : 0;
+	}
+
+	/**
+	 *
+	 * @return The running time of the whole aggregations divided by the running time of the window aggregations.
+	 */
+	public double getSpeedup(){
+		return (windowNanos > 0) ? (double) fullNanos / windowNanos : 0;
+	}
+
+	@Override
+	public String toString(){
+		return String.format("depth %d on %d queries: Kendall-tau mean %.4f max %.4f, top %d overlap mean %.4f min %.4f, %d identical, window %.1f%%, speedup %.1f",
+				depth, queries, getMeanKendallTau(), maxKendallTau, k, getMeanTopKOverlap(), minTopKOverlap, identicalTopK,
+				100 * getMeanWindowRatio(), getSpeedup());
+	}
+
+}
@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Runs the shards of a ShardedAggregation by ShardWorkers in this JVM, e.g. for tests
+ * or to split an aggregation over the cores of one machine. Each shard can own a ShardPartitionStore
+ * for the requests which only name their query.
+ * @author Mariam Nassar
+ *
+ */
+public class InProcessShardTransport implements ShardTransport {
+
+	private int numberOfShards;
+	/**
+	 * The executor of the shards.
+	 */
+	private Executor executor;
+	/**
+	 * The partitions of each shard, null if the shards own no partitions.
+	 */
+	private List<ShardPartitionStore> partitions;
+
+
+	/**
+	 * Constructor. The shards run on the common ForkJoinPool.
+	 * @param numberOfShards
+	 */
+	public InProcessShardTransport(int numberOfShards){
+		this(numberOfShards, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor.
+	 * @param numberOfShards
+	 * @param executor The executor of the shards.
+	 */
+	public InProcessShardTransport(int numberOfShards, Executor executor){
+		if(numberOfShards < 1)
+			throw new IllegalArgumentException("At least 1 shard is needed: " + numberOfShards);
+
+		this.numberOfShards = numberOfShards;
+		this.executor = executor;
+	}
+
+	/**
+	 * Constructor for shards which own their partitions.
+	 * @param partitions The partitions of each shard.
+	 * @param executor The executor of the shards.
+	 */
+	public InProcessShardTransport(List<ShardPartitionStore> partitions, Executor executor){
+		this(partitions.size(), executor);
+		this.partitions = new ArrayList<ShardPartitionStore>(partitions);
+	}
+
+	@Override
+	public int getNumberOfShards(){
+		return numberOfShards;
+	}
+
+	@Override
+	public CompletableFuture<ShardResult> send(int shard, ShardRequest request){
+		ShardPartitionStore shardPartitions = (partitions != null) ? partitions.get(shard) : null;
+		return CompletableFuture.supplyAsync(() -> ShardWorker.aggregate(request, shardPartitions), executor);
+	}
+
+	/**
+	 * The executor is not owned by the transport, so there is nothing to close.
+	 */
+	@Override
+	public void close(){
+	}
+
+}
@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+/**
+ * Aggregates rankers which arrive one at a time, e.g. from different indexes which answer at different times.
+ * The state of the aggregation methods (pairwise preferences, CombMNZ sums, distances to the initial aggregate ranker)
+ * is updated when a ranker is added, replaced or removed, so that the current aggregate list can be made at any time.
+ * Like the AggregationEngine, it never changes the models of the caller: each aggregate list consists of new models.
+ * @author Mariam Nassar
+ *
+ */
+public class IncrementalAggregator {
+	/**
+	 * The initial aggregate ranker.
+	 */
+	private List<Model> initialAggregateRanker;
+	/**
+	 * The initial aggregate ranker handler. It is never swapped, the aggregation methods work on copies.
+	 * It is detached, so that the copies keep the aggregate scores and the models of the caller are never changed.
+	 */
+	private IndexedRankerHandler aggregateRankerH;
+	/**
+	 * Maps the ranker names onto the ranker handlers, in the order of arrival.
+	 */
+	private LinkedHashMap<String, IndexedRankerHandler> rankers = new LinkedHashMap<String, IndexedRankerHandler>();
+	/**
+	 * Maps the ranker names onto the ranker weights.
+	 */
+	private LinkedHashMap<String, Float> rankerWeights = new LinkedHashMap<String, Float>();
+	/**
+	 * Maps the ranker names onto the Kendall-tau distance between the initial aggregate ranker and the ranker.
+	 */
+	private LinkedHashMap<String, Long> distanceToRankers = new LinkedHashMap<String, Long>();
+	/**
+	 * The pairwise preferences of all rankers, each ranker with the weight 1.
+	 */
+	private PairwisePreference preference;
+	/**
+	 * For each model index of the initial aggregate ranker: the number of rankers which contain the model.
+	 */
+	private int[] combMNZCounts;
+	/**
+	 * For each model index of the initial aggregate ranker: the sum of the Borda rank normalizations of the model.
+	 */
+	private double[] combMNZSums;
+
+
+	/**
+	 * Constructor.
+	 * @param initialAggregateRanker A list of models.
+	 */
+	public IncrementalAggregator(List<Model> initialAggregateRanker){
+		this.initialAggregateRanker = initialAggregateRanker;
+		this.aggregateRankerH = new IndexedRankerHandler();
+		aggregateRankerH.reset(initialAggregateRanker, new ModelIdDictionary(), true);
+		this.preference = new PairwisePreference(aggregateRankerH);
+
+		int dictionarySize = aggregateRankerH.getDictionary().size();
+		this.combMNZCounts = new int[dictionarySize];
+		this.combMNZSums = new double[dictionarySize];
+	}
+
+	/**
+	 * Adds a ranker with the weight 1. A ranker with the same name will be replaced.
+	 *
+	 * @param rankerName
+	 * @param rankerList A list of models.
+	 */
+	public void addRanker(String rankerName, List<Model> rankerList){
+		addRanker(rankerName, rankerList, 1);
+	}
+
+	/**
+	 * Adds a ranker. A ranker with the same name will be replaced.
+	 *
+	 * @param rankerName
+	 * @param rankerList A list of models.
+	 * @param weight The weight of the ranker for supervised local Kemenization.
+	 */
+	public void addRanker(String rankerName, List<Model> rankerList, float weight){
+		removeRanker(rankerName);
+
+		IndexedRankerHandler ranker_iH = new IndexedRankerHandler(rankerList, aggregateRankerH.getDictionary());
+		preference.addRanker(ranker_iH, 1);
+		updateCombMNZ(ranker_iH, 1);
+		distanceToRankers.put(rankerName, KendallTau.distance(aggregateRankerH, ranker_iH));
+		rankers.put(rankerName, ranker_iH);
+		rankerWeights.put(rankerName, weight);
+	}
+
+	/**
+	 * Replaces a ranker and keeps its weight. The old ranker is removed and the new ranker is added, like removeRanker and addRanker.
+	 *
+	 * @param rankerName
+	 * @param rankerList A list of models.
+	 */
+	public void replaceRanker(String rankerName, List<Model> rankerList){
+		Float weight = rankerWeights.get(rankerName);
+		addRanker(rankerName, rankerList, (weight != null) ? weight : 1);
+	}
+
+	/**
+	 * Removes a ranker if it has been added.
+	 *
+	 * @param rankerName
+	 */
+	public void removeRanker(String rankerName){
+		IndexedRankerHandler ranker_iH = rankers.remove(rankerName);
+		if(ranker_iH == null)
+			return;
+
+		preference.removeRanker(ranker_iH, 1);
+		updateCombMNZ(ranker_iH, -1);
+		distanceToRankers.remove(rankerName);
+		rankerWeights.remove(rankerName);
+	}
+
+	/**
+	 *
+	 * @return The number of rankers.
+	 */
+	public int getNumberOfRankers(){
+		return rankers.size();
+	}
+
+	/**
+	 *
+	 * @param rankerName
+	 * @return The Kendall-tau distance between the initial aggregate ranker and the ranker, -1 if there is no such ranker.
+	 */
+	public long getDistanceToRanker(String rankerName){
+		Long distance = distanceToRankers.get(rankerName);
+		if(distance != null)
+			return distance;
+		else return -1;
+	}
+
+	/**
+	 * Aggregates the rankers which have been added so far.
+	 *
+	 * @param aggregateMethod
+	 * @return Aggregate list of new models, the initial aggregate ranker itself for the default method.
+	 */
+	public List<Model> aggregate(RankAggregationType.Types aggregateMethod){
+
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+
+		switch(aggregateMethod){
+
+		case ADJACENT_PAIRS:
+			return newModels(RankAggregation.adj(new IndexedRankerHandler(aggregateRankerH), preference, AggregationTrace.DISABLED));
+		case COMB_MNZ:
+			return combMNZ();
+		case LOCAL_KEMENIZATION:
+		case AUTO: //The pairwise preferences are kept up to date, so that local Kemenization costs only the swaps
+			return newModels(RankAggregation.localKemenization(preference, new IndexedRankerHandler(aggregateRankerH), AggregationTrace.DISABLED));
+		case SUPERVISED_LOCAL_KEMENIZATION:
+			float[] weights = getWeights();
+			double weightsSum = 0;
+			for(float weight: weights)
+				weightsSum += weight;
+			List<IndexedRankerHandler> rankersListH = new ArrayList<IndexedRankerHandler>(rankers.values());
+			return newModels(RankAggregation.supervisedLocalKemenization(rankersListH, new IndexedRankerHandler(aggregateRankerH), weights, weightsSum, AggregationTrace.DISABLED));
+		case COMB_SUM:
+		case BORDA:
+		case RECIPROCAL_RANK_FUSION: //Linear in the number of rankers anyway, so that nothing is kept up to date
+			return newModels(RankAggregation.linearFusion(new ArrayList<IndexedRankerHandler>(rankers.values()), new IndexedRankerHandler(aggregateRankerH), aggregateMethod, 
+					getWeights(), RankAggregation.getReciprocalRankFusionK(), AggregationTrace.DISABLED));
+		case MARKOV_CHAIN:
+			return newModels(RankAggregation.getMarkovChainAggregation().aggregate(new ArrayList<IndexedRankerHandler>(rankers.values()), 
+					new IndexedRankerHandler(aggregateRankerH), AggregationTrace.DISABLED));
+		case KWIK_SORT:
+			return newModels(RankAggregation.getKwikSortAggregation().aggregate(new ArrayList<IndexedRankerHandler>(rankers.values()), 
+					new IndexedRankerHandler(aggregateRankerH), AggregationTrace.DISABLED));
+		case DEFAULT:
+			return initialAggregateRanker;
+		default:
+			return initialAggregateRanker;
+		}
+	}
+
+	/**
+	 *
+	 * @return The weights of the rankers, in the order of arrival.
+	 */
+	private float[] getWeights(){
+		float[] weights = new float[rankerWeights.size()];
+		int l = 0;
+		for(float weight: rankerWeights.values())
+			weights[l++] = weight;
+		return weights;
+	}
+
+	/**
+	 *
+	 * @param result
+	 * @return New models with the unique model Ids and the aggregate scores of the result.
+	 */
+	private static List<Model> newModels(AggregateResult result){
+		List<Model> results = new ArrayList<Model>(result.size());
+		for(int i = 0; i < result.size(); i++)
+			results.add(new Model(result.getScore(i), result.getUniqueModelID(i)));
+		return results;
+	}
+
+	/**
+	 * Adds (sign = 1) or removes (sign = -1) the Borda rank normalizations of a ranker to the CombMNZ sums.
+	 * A model which is contained twice in the ranker is counted once, at its last ranking like in the ranker handler.
+	 *
+	 * @param ranker_iH
+	 * @param sign
+	 */
+	private void updateCombMNZ(IndexedRankerHandler ranker_iH, int sign){
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexList = ranker_iH.getModelIndexList();
+
+		for(int i = 0; i < ranker_iH.getRankerSize(); i++){
+			int modelIndex = modelIndexList[i];
+			if(!aggregateRankerH.containsByModelIndex(modelIndex))
+				continue;
+			int ranking = ranker_iH.getRankingByModelIndex(modelIndex);
+			if(ranking != i + 1)
+				continue;
+			combMNZCounts[modelIndex] += sign;
+			combMNZSums[modelIndex] += sign * (1 - ((double) (ranking - 1) / aggregateRankerLength));
+		}
+	}
+
+	/**
+	 * CombMNZ aggregation method on the CombMNZ sums.
+	 * The scores may differ from RankAggregation.aggregate in the last digits, because the sums are kept as doubles.
+	 *
+	 * @return An aggregate list of models.
+	 */
+	private List<Model> combMNZ(){
+		int s = rankers.size();
+		float maxPossibleScore = s * s;  //The maximum value the score could ever have
+		IndexedRankerHandler resultRankerH = new IndexedRankerHandler(aggregateRankerH);
+		int[] modelIndexList = resultRankerH.getModelIndexList();
+
+		for (int k = 0; k < resultRankerH.getRankerSize(); k++) {
+			int modelIndex = modelIndexList[k];
+			float newScore = (float) combMNZSums[modelIndex] * combMNZCounts[modelIndex];
+			resultRankerH.updateScoreByModelIndex(modelIndex, newScore / maxPossibleScore);
+		}
+
+		resultRankerH.sortModelsByScore();
+		return newModels(resultRankerH.makeResult());
+	}
+
+	/**
+	 *
+	 * @return The names of the rankers which have been added, in the order of arrival.
+	 */
+	public List<String> getRankerNames(){
+		return new ArrayList<String>(rankers.keySet());
+	}
+
+}
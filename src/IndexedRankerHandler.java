@@ -0,0 +1,388 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A variant of the RankerHandler which deals with model indices given by a ModelIdDictionary
+ * instead of unique model Ids. The rankings are stored in an int array indexed by the model index,
+ * so that getting a ranking costs an array access instead of hashing a String.
+ * @author Mariam Nassar
+ *
+ */
+public class IndexedRankerHandler {
+	/**
+	 * The ranking of models which are not contained in the ranker.
+	 */
+	public static final int ABSENT = -1;
+
+	/**
+	 * The dictionary of the model indices.
+	 */
+	private ModelIdDictionary dictionary;
+	/**
+	 * Maps the model indices onto the ranking of the model, ABSENT if the ranker does not contain the model.
+	 */
+	private int[] modelIndexRanking;
+	/**
+	 * Maps the model indices onto the model objects.
+	 */
+	private Model[] models;
+	/**
+	 * An array of the sorted model indices.
+	 */
+	private int[] modelIndexList;
+	/**
+	 * The number of models in the ranker.
+	 */
+	private int size;
+	/**
+	 * The number of model indices which this handler covers. Models with a larger index are not contained.
+	 */
+	private int dictionarySize;
+	/**
+	 * Maps the model indices onto the scores of the models if the handler is detached, null otherwise.
+	 * A detached handler never changes the model objects.
+	 */
+	private float[] scores;
+	/**
+	 * The ranker of a RankerFile whose rankings and scores are read from the mapped file, null otherwise.
+	 */
+	private MappedRanker mappedRanker;
+
+
+	/**
+	 * Constructor.
+	 * @param rankerList A list of models.
+	 * @param dictionary The dictionary of the model indices. The unique model Ids of rankerList
+	 * will be added to it if they are not contained yet.
+	 */
+	public IndexedRankerHandler(List<Model> rankerList, ModelIdDictionary dictionary){
+		reset(rankerList, dictionary, false);
+	}
+
+	/**
+	 * Constructor for an empty handler, which is filled by reset.
+	 */
+	IndexedRankerHandler(){
+		this.modelIndexRanking = new int[0];
+		this.models = new Model[0];
+		this.modelIndexList = new int[0];
+	}
+
+	/**
+	 * Constructor for a ranker of a RankerFile. The rankings and scores are read from the mapped file, only the
+	 * model indices in the order of the ranker are copied. The handler has no model objects and cannot be changed,
+	 * so that it can be used as one of the rankers but not as the aggregate ranker.
+	 * @param ranker
+	 * @param dictionary The dictionary of the model indices, made by RankerFile.newDictionary.
+	 */
+	IndexedRankerHandler(MappedRanker ranker, ModelIdDictionary dictionary){
+		this.dictionary = dictionary;
+		this.dictionarySize = dictionary.size();
+		this.mappedRanker = ranker;
+
+		this.size = ranker.getRankerSize();
+		this.modelIndexList = new int[size];
+		ranker.copyModelIndices(modelIndexList);
+	}
+
+	/**
+	 * Copy constructor. The copy can be swapped and sorted without changing the original handler.
+	 * Both handlers share the model objects.
+	 * @param rankerH
+	 */
+	public IndexedRankerHandler(IndexedRankerHandler rankerH){
+		this.dictionary = rankerH.dictionary;
+		this.modelIndexRanking = (rankerH.modelIndexRanking != null) ? rankerH.modelIndexRanking.clone() : null;
+		this.models = (rankerH.models != null) ? rankerH.models.clone() : null;
+		this.modelIndexList = rankerH.modelIndexList.clone();
+		this.size = rankerH.size;
+		this.dictionarySize = rankerH.dictionarySize;
+		this.scores = (rankerH.scores != null) ? rankerH.scores.clone() : null;
+		this.mappedRanker = rankerH.mappedRanker;
+	}
+
+	/**
+	 * Fills the handler with a ranker. The arrays of the handler are reused if they are large enough,
+	 * so that a handler which is reset for similar rankers does not allocate.
+	 *
+	 * @param rankerList A list of models, or null for an empty ranker.
+	 * @param dictionary The dictionary of the model indices. The unique model Ids of rankerList
+	 * will be added to it if they are not contained yet.
+	 * @param detached true, if the scores are kept in this handler, so that the models are never changed.
+	 */
+	void reset(List<Model> rankerList, ModelIdDictionary dictionary, boolean detached){
+		this.dictionary = dictionary;
+		this.mappedRanker = null;
+		dictionary.internAll(rankerList);
+
+		int newDictionarySize = dictionary.size();
+		if(modelIndexRanking == null || modelIndexRanking.length < newDictionarySize){
+			this.modelIndexRanking = new int[newDictionarySize];
+			this.models = new Model[newDictionarySize];
+		}
+		else Arrays.fill(models, 0, Math.min(dictionarySize, models.length), null); //The models of the last ranker can be collected
+		Arrays.fill(modelIndexRanking, 0, newDictionarySize, ABSENT);
+		this.dictionarySize = newDictionarySize;
+
+		if(!detached)
+			this.scores = null;
+		else if(scores == null || scores.length < newDictionarySize)
+			this.scores = new float[newDictionarySize];
+
+		this.size = (rankerList != null) ? rankerList.size() : 0;
+		if(modelIndexList == null || modelIndexList.length < size)
+			this.modelIndexList = new int[size];
+
+		int count = 1;
+		if(rankerList != null)
+			for(Model model: rankerList){
+				int modelIndex = dictionary.getModelIndex(model.getUniqueVersionId());
+				models[modelIndex] = model;
+				modelIndexRanking[modelIndex] = count;
+				modelIndexList[count - 1] = modelIndex;
+				if(detached)
+					scores[modelIndex] = model.getScore();
+				count++;
+			}
+	}
+
+	/**
+	 *
+	 * @return The dictionary of the model indices.
+	 */
+	public ModelIdDictionary getDictionary(){
+		return this.dictionary;
+	}
+
+	/**
+	 *
+	 * @return A sorted array of model indices. Only the first getRankerSize() entries are valid.
+	 */
+	public int[] getModelIndexList(){
+		return this.modelIndexList;
+	}
+
+	/**
+	 *
+	 * @return The number of models in the ranker.
+	 */
+	public int getRankerSize(){
+		return this.size;
+	}
+
+	/**
+	 * Search for the ranking of a model by model index.
+	 *
+	 * @param modelIndex
+	 * @return The ranking of the model with the given modelIndex if the ranker contains the model
+	 * and ABSENT otherwise.
+	 */
+	public int getRankingByModelIndex(int modelIndex){
+		//Models which have been added to the dictionary after this handler are not contained
+		if(modelIndex >= dictionarySize)
+			return ABSENT;
+		if(mappedRanker != null)
+			return mappedRanker.getRankingByModelIndex(modelIndex);
+		return modelIndexRanking[modelIndex];
+	}
+
+	/**
+	 * Tests if the ranker contains the model by model index.
+	 *
+	 * @param modelIndex
+	 * @return true, if the ranker contains the model, and false else.
+	 */
+	public boolean containsByModelIndex(int modelIndex){
+		return getRankingByModelIndex(modelIndex) != ABSENT;
+	}
+
+	/**
+	 * Searches for the score of a model by model index.
+	 *
+	 * @param modelIndex
+	 * @return the score of the model with the given modelIndex if the ranker contains the model.
+	 * And -1 otherwise.
+	 */
+	public float getScoreByModelIndex(int modelIndex){
+		if(mappedRanker != null)
+			return (modelIndex < dictionarySize) ? mappedRanker.getScoreByModelIndex(modelIndex) : -1;
+		if(containsByModelIndex(modelIndex) && (this.scores != null || this.models[modelIndex] != null))
+			return score(modelIndex);
+		else
+			return -1;
+	}
+
+	/**
+	 * Searches for a model by model index.
+	 *
+	 * @param modelIndex
+	 * @return The model with the given modelIndex if the ranker contains it and null otherwise.
+	 */
+	public Model getModelByModelIndex(int modelIndex){
+		if(containsByModelIndex(modelIndex) && this.models != null)
+			return this.models[modelIndex];
+		else
+			return null;
+	}
+
+	/**
+	 * Updates the score of a model by model index.
+	 *
+	 * @param modelIndex
+	 * @param newScore
+	 */
+	public void updateScoreByModelIndex(int modelIndex, float newScore){
+		if(!containsByModelIndex(modelIndex))
+			return;
+		if(this.scores != null)
+			this.scores[modelIndex] = newScore;
+		else if(this.models[modelIndex] != null)
+			this.models[modelIndex].setScore(newScore);
+	}
+
+	/**
+	 * Swaps two models in the ranker by model indices.
+	 *
+	 * @param modelIndex1
+	 * @param modelIndex2
+	 */
+	public void swap(int modelIndex1, int modelIndex2){
+		int rankingOfModel1 = this.modelIndexRanking[modelIndex1];
+		int rankingOfModel2 = this.modelIndexRanking[modelIndex2];
+
+		this.modelIndexRanking[modelIndex1] = rankingOfModel2;
+		this.modelIndexRanking[modelIndex2] = rankingOfModel1;
+		this.modelIndexList[rankingOfModel1 - 1] = modelIndex2;
+		this.modelIndexList[rankingOfModel2 - 1] = modelIndex1;
+	}
+
+	/**
+	 * Puts a model at a ranking without changing the other rankings, e.g. while writing back a merged part of the ranker.
+	 * The ranker is only consistent again when every ranking of the part has been set.
+	 *
+	 * @param ranking
+	 * @param modelIndex
+	 */
+	void setModelIndexAtRanking(int ranking, int modelIndex){
+		this.modelIndexList[ranking - 1] = modelIndex;
+		this.modelIndexRanking[modelIndex] = ranking;
+	}
+
+	/**
+	 * Sorts the models by their score, the best score first. For the score based aggregation methods.
+	 * Models with the same score keep their order.
+	 */
+	public void sortModelsByScore(){
+		AggregationWorkspace workspace = AggregationWorkspace.get();
+		long[] keys = workspace.getScoreKeys(size);
+		int[] oldModelIndexList = workspace.getRankings(size);
+
+		for(int i = 0; i < size; i++){
+			int modelIndex = modelIndexList[i];
+			oldModelIndexList[i] = modelIndex;
+			keys[i] = ScoreSorter.key(score(modelIndex), i);
+		}
+		Arrays.sort(keys, 0, size);
+
+		for(int i = 0; i < size; i++){
+			int modelIndex = oldModelIndexList[ScoreSorter.position(keys[i])];
+			modelIndexList[i] = modelIndex;
+			modelIndexRanking[modelIndex] = i + 1;
+		}
+	}
+
+	/**
+	 *
+	 * @return A list of sorted models for the score based aggregation methods.
+	 */
+	public List<Model> makeResultsListScoreBased(){
+		this.sortModelsByScore();
+		return makeResultsList();
+	}
+
+	/**
+	 * Selects the best k models in O(n log k) without sorting the whole ranker.
+	 * The order of the ranker is not changed.
+	 *
+	 * @param k The number of models to return.
+	 * @return A list of the best k models for the score based aggregation methods,
+	 * in the same order as the first k models of makeResultsListScoreBased.
+	 */
+	public List<Model> makeResultsListScoreBased(int k){
+		TopKSelector selector = new TopKSelector(Math.max(0, Math.min(k, size)));
+		for(int i = 0; i < size; i++)
+			selector.offer(score(modelIndexList[i]), i);
+
+		int[] positions = selector.removeAllBestFirst();
+		List<Model> modelsList = new ArrayList<Model>(positions.length);
+		for(int position: positions)
+			modelsList.add(this.models[modelIndexList[position]]);
+		return modelsList;
+	}
+
+	/**
+	 *
+	 * @return A list of sorted models for the rank based aggregation methods.
+	 */
+	public List<Model> makeResultsListRankBased(){
+		this.setScoresToNAN();
+		return makeResultsList();
+	}
+
+	/**
+	 * Sets all scores to -1 like makeResultsListRankBased, without building a list.
+	 *
+	 * @return A view of the models in the order of the ranker for the rank based aggregation methods.
+	 */
+	AggregateResult makeResultRankBased(){
+		this.setScoresToNAN();
+		return makeResult();
+	}
+
+	/**
+	 * The view shares the arrays of this handler, so that the handler must not be changed afterwards.
+	 *
+	 * @return A view of the models in the order of the ranker.
+	 */
+	AggregateResult makeResult(){
+		return new AggregateResult(models, scores, modelIndexList, 0, size);
+	}
+
+	/**
+	 *
+	 * @return A list of the models in the order of the ranker.
+	 */
+	private List<Model> makeResultsList(){
+		List<Model> modelsList = new ArrayList<Model>(size);
+		for(int i = 0; i < size; i++)
+			modelsList.add(this.models[modelIndexList[i]]);
+		return modelsList;
+	}
+
+	/**
+	 * Sets all scores to -1 when score are not relevant. For not score-based aggregation methods.
+	 */
+	private void setScoresToNAN(){
+		if(this.scores != null){
+			Arrays.fill(this.scores, 0, dictionarySize, -1);
+			return;
+		}
+		for(Model model: this.models)
+			if(model != null)
+				model.setScore(-1);
+	}
+
+	/**
+	 *
+	 * @param modelIndex The model index of a model which the ranker contains.
+	 * @return The score of the model, from the scores of a detached handler.
+	 */
+	private float score(int modelIndex){
+		if(this.scores != null)
+			return this.scores[modelIndex];
+		return this.models[modelIndex].getScore();
+	}
+
+}
@@ -0,0 +1,405 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Finds the Kemeny optimal order of the first models of an aggregate ranker by branch and bound.
+ * The head is the first headLength models of the aggregate ranker, e.g. of the result of a heuristic method.
+ * Only the order within the head changes, the head stays before the rest of the ranker, so that the pairs between
+ * the head and the rest do not depend on it and the rest keeps the order of the heuristic.
+ * <p>
+ * The search places the models of the head one position after the other. Placing a model costs the number of rankers
+ * which prefer one of the models not placed yet to it. The lower bound of the models not placed yet is the sum
+ * of the minority counts of their pairs, which every order has to pay. The search starts with the cost of the
+ * heuristic order as upper bound, the first levels of the search tree are split into tasks of a ForkJoinPool.
+ * <p>
+ * The search stops when its node or time budget is used up. The head then gets the best order found so far,
+ * which is never worse than the order of the heuristic.
+ * A search keeps the statistics of its last run, so that one instance should be used by one thread at a time.
+ * @author Mariam Nassar
+ *
+ */
+public class KemenyHeadSearch {
+	/**
+	 * The default number of models of the head.
+	 */
+	public static final int DEFAULT_HEAD_LENGTH = 12;
+	/**
+	 * The longest head, the models not placed yet are kept in the bits of an int.
+	 */
+	public static final int MAX_HEAD_LENGTH = 31;
+	/**
+	 * The default maximal number of nodes of the search tree.
+	 */
+	public static final long DEFAULT_MAX_NODES = 5000000;
+	/**
+	 * The default maximal running time in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_BUDGET_MILLIS = 20;
+
+	/**
+	 * The depth of the search tree down to which the subtrees are split into tasks.
+	 */
+	private static final int SPLIT_DEPTH = 2;
+	/**
+	 * The number of nodes of a task between two updates of the node counter and readings of the clock.
+	 */
+	private static final int NODES_PER_BUDGET_CHECK = 1024;
+
+	private ForkJoinPool pool;
+	private int headLength;
+	/**
+	 * The maximal number of nodes, 0 if there is no limit.
+	 */
+	private long maxNodes;
+	/**
+	 * The maximal running time in nanoseconds, 0 if there is no limit.
+	 */
+	private long timeBudgetNanos;
+
+	private long nodes;
+	private long distanceChange;
+	private boolean optimal;
+
+
+	/**
+	 * Constructor with the default head length and budgets. The subtrees are searched on the common ForkJoinPool.
+	 */
+	public KemenyHeadSearch(){
+		this(ForkJoinPool.commonPool(), DEFAULT_HEAD_LENGTH, DEFAULT_MAX_NODES, DEFAULT_TIME_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Constructor.
+	 * @param pool The pool which searches the subtrees.
+	 * @param headLength The number of models of the head, at most MAX_HEAD_LENGTH.
+	 * @param maxNodes The maximal number of nodes of the search tree, 0 or less if there is no limit.
+	 * @param timeBudget The maximal running time, 0 or less if there is no limit.
+	 * @param unit The unit of timeBudget.
+	 */
+	public KemenyHeadSearch(ForkJoinPool pool, int headLength, long maxNodes, long timeBudget, TimeUnit unit){
+		if(headLength < 2 || headLength > MAX_HEAD_LENGTH)
+			throw new IllegalArgumentException("The head must contain 2 to " + MAX_HEAD_LENGTH + " models: " + headLength);
+
+		this.pool = pool;
+		this.headLength = headLength;
+		this.maxNodes = Math.max(0, maxNodes);
+		this.timeBudgetNanos = (timeBudget > 0) ? Math.max(1, unit.toNanos(timeBudget)) : 0;
+	}
+
+	/**
+	 * Orders the head of an aggregate list of models, e.g. the result of RankAggregation.aggregate,
+	 * Kemeny optimally with regard to a list of rankers. The scores of the models are not changed.
+	 *
+	 * @param rankersList
+	 * @param aggregateRanker
+	 * @return A new list with the ordered head and the rest of the aggregate ranker.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> aggregateRanker){
+		if (aggregateRanker.isEmpty()) return aggregateRanker;
+
+		ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, aggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(aggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = RankAggregation.buildRankerHandlers(rankersList, dictionary);
+
+		search(rankersListH, aggregateRankerH);
+		return aggregateRankerH.makeResult().toList();
+	}
+
+	/**
+	 * Orders the head of the aggregate ranker Kemeny optimally, or as good as the budget allows.
+	 *
+	 * @param rankersListH A list of ranker handlers.
+	 * @param aggregateRankerH The aggregate ranker handler, which will be changed.
+	 */
+	void search(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH){
+		nodes = 0;
+		distanceChange = 0;
+		optimal = false;
+
+		int h = Math.min(headLength, aggregateRankerH.getRankerSize());
+		int[] head = new int[h];
+		System.arraycopy(aggregateRankerH.getModelIndexList(), 0, head, 0, h);
+
+		//preferred[a][b]: the number of rankers which prefer the model a of the head to the model b,
+		//models which are not contained in a ranker are ranked after all other models
+		int[][] preferred = new int[h][h];
+		int[] rankings = new int[h];
+		for(IndexedRankerHandler ranker_iH: rankersListH){
+			for(int a = 0; a < h; a++){
+				int ranking = ranker_iH.getRankingByModelIndex(head[a]);
+				rankings[a] = (ranking == IndexedRankerHandler.ABSENT) ? Integer.MAX_VALUE : ranking;
+			}
+			for(int a = 0; a < h; a++)
+				for(int b = 0; b < h; b++)
+					if(rankings[a] < rankings[b])
+						preferred[a][b]++;
+		}
+
+		Search search = new Search(preferred, h);
+		if(search.bestCost > search.rootLowerBound){
+			pool.invoke(search.new SubtreeTask((1 << h) - 1, 0, 0, search.rootLowerBound, new int[h]));
+			optimal = !search.exhausted;
+		}
+		else optimal = true; //The heuristic order pays only the minority of each pair
+
+		nodes = search.nodes.get();
+		distanceChange = search.bestCost - search.heuristicCost;
+		for(int position = 0; position < h; position++)
+			aggregateRankerH.setModelIndexAtRanking(position + 1, head[search.bestOrder[position]]);
+	}
+
+	/**
+	 *
+	 * @return The number of models of the head.
+	 */
+	public int getHeadLength(){
+		return headLength;
+	}
+
+	/**
+	 *
+	 * @return The number of nodes of the search tree of the last search.
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 *
+	 * @return The change of the sum of the Kendall-tau distances between the aggregate ranker and the rankers
+	 * by the last search. It is 0 or negative.
+	 */
+	public long getDistanceChange(){
+		return distanceChange;
+	}
+
+	/**
+	 *
+	 * @return true, if the order of the head of the last search is Kemeny optimal,
+	 * and false, if the search has used up its budget.
+	 */
+	public boolean isOptimal(){
+		return optimal;
+	}
+
+
+	/**
+	 * The state of one search, shared by its tasks.
+	 */
+	private class Search {
+		private final int[][] preferred;
+		/**
+		 * minority[a][b]: the smaller of the two counts of the pair, which every order pays.
+		 */
+		private final int[][] minority;
+		private final int size;
+		private final int heuristicCost;
+		private final int rootLowerBound;
+		private final long deadline;
+		private final AtomicLong nodes = new AtomicLong();
+
+		/**
+		 * The cost and the order of the best complete head found so far, changed under the lock of the search.
+		 */
+		private volatile int bestCost;
+		private int[] bestOrder;
+		private volatile boolean exhausted;
+
+
+		Search(int[][] preferred, int size){
+			this.preferred = preferred;
+			this.size = size;
+			this.minority = new int[size][size];
+			this.bestOrder = new int[size];
+
+			int heuristicCost = 0;
+			int rootLowerBound = 0;
+			for(int a = 0; a < size; a++){
+				bestOrder[a] = a;
+				for(int b = a + 1; b < size; b++){
+					minority[a][b] = minority[b][a] = Math.min(preferred[a][b], preferred[b][a]);
+					heuristicCost += preferred[b][a];
+					rootLowerBound += minority[a][b];
+				}
+			}
+			this.heuristicCost = heuristicCost;
+			this.bestCost = heuristicCost;
+			this.rootLowerBound = rootLowerBound;
+			this.deadline = System.nanoTime() + timeBudgetNanos;
+		}
+
+		/**
+		 * Adds the nodes of a task to the counter and tests the budget.
+		 *
+		 * @param taskNodes
+		 * @return true, if the budget is used up.
+		 */
+		boolean countNodes(long taskNodes){
+			long total = nodes.addAndGet(taskNodes);
+			if((maxNodes > 0 && total >= maxNodes) || (timeBudgetNanos > 0 && System.nanoTime() - deadline >= 0))
+				exhausted = true;
+			return exhausted;
+		}
+
+		/**
+		 * Keeps a complete head if it is better than the best one.
+		 *
+		 * @param cost
+		 * @param order
+		 */
+		synchronized void offer(int cost, int[] order){
+			if(cost < bestCost){
+				System.arraycopy(order, 0, bestOrder, 0, size);
+				bestCost = cost;
+			}
+		}
+
+		/**
+		 *
+		 * @param remaining The models not placed yet.
+		 * @param model One of them.
+		 * @return The cost of placing the model before the other remaining models.
+		 */
+		int placementCost(int remaining, int model){
+			int cost = 0;
+			for(int others = remaining & ~(1 << model); others != 0; others &= others - 1)
+				cost += preferred[Integer.numberOfTrailingZeros(others)][model];
+			return cost;
+		}
+
+		/**
+		 *
+		 * @param remaining The models not placed yet.
+		 * @param model One of them.
+		 * @return The decrease of the lower bound by placing the model.
+		 */
+		int boundDecrease(int remaining, int model){
+			int decrease = 0;
+			for(int others = remaining & ~(1 << model); others != 0; others &= others - 1)
+				decrease += minority[Integer.numberOfTrailingZeros(others)][model];
+			return decrease;
+		}
+
+		/**
+		 * Sorts the remaining models by their placement cost, so that good heads are found first.
+		 *
+		 * @param remaining
+		 * @param candidates The array which gets the models.
+		 * @param costs The array which gets their placement costs.
+		 * @return The number of remaining models.
+		 */
+		int candidates(int remaining, int[] candidates, int[] costs){
+			int count = 0;
+			for(int models = remaining; models != 0; models &= models - 1){
+				int model = Integer.numberOfTrailingZeros(models);
+				int cost = placementCost(remaining, model);
+				int k = count++;
+				//Insertion sort, the heads are short
+				while(k > 0 && costs[k - 1] > cost){
+					candidates[k] = candidates[k - 1];
+					costs[k] = costs[k - 1];
+					k--;
+				}
+				candidates[k] = model;
+				costs[k] = cost;
+			}
+			return count;
+		}
+
+
+		/**
+		 * Searches the subtree below a partial head: splits it into tasks down to SPLIT_DEPTH,
+		 * and searches it depth first below.
+		 */
+		private class SubtreeTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private int remaining;
+			private int depth;
+			private int cost;
+			private int lowerBound;
+			private int[] order;
+			private long taskNodes;
+
+
+			SubtreeTask(int remaining, int depth, int cost, int lowerBound, int[] order){
+				this.remaining = remaining;
+				this.depth = depth;
+				this.cost = cost;
+				this.lowerBound = lowerBound;
+				this.order = order;
+			}
+
+			@Override
+			protected void compute(){
+				if(depth >= SPLIT_DEPTH || depth >= size - 1){
+					int[][] candidates = new int[size][size];
+					int[][] costs = new int[size][size];
+					search(remaining, depth, cost, lowerBound, candidates, costs);
+					nodes.addAndGet(taskNodes);
+					return;
+				}
+
+				int[] candidates = new int[size];
+				int[] costs = new int[size];
+				int count = candidates(remaining, candidates, costs);
+				List<SubtreeTask> tasks = new ArrayList<SubtreeTask>(count);
+				for(int k = 0; k < count; k++){
+					int model = candidates[k];
+					int childLowerBound = lowerBound - boundDecrease(remaining, model);
+					if(cost + costs[k] + childLowerBound >= bestCost)
+						continue;
+					int[] childOrder = order.clone();
+					childOrder[depth] = model;
+					tasks.add(new SubtreeTask(remaining & ~(1 << model), depth + 1, cost + costs[k], childLowerBound, childOrder));
+				}
+				invokeAll(tasks);
+			}
+
+			/**
+			 * Depth first search below a partial head.
+			 *
+			 * @param remaining The models not placed yet.
+			 * @param depth The number of placed models.
+			 * @param cost The cost of the placed models.
+			 * @param lowerBound The lower bound of the cost of the remaining models.
+			 * @param candidates The scratch arrays of the candidates of each depth.
+			 * @param costs The scratch arrays of the placement costs of each depth.
+			 */
+			private void search(int remaining, int depth, int cost, int lowerBound, int[][] candidates, int[][] costs){
+				if(exhausted)
+					return;
+				if(++taskNodes == NODES_PER_BUDGET_CHECK){
+					boolean stop = countNodes(taskNodes);
+					taskNodes = 0;
+					if(stop)
+						return;
+				}
+
+				if(remaining == 0){
+					offer(cost, order);
+					return;
+				}
+
+				int count = candidates(remaining, candidates[depth], costs[depth]);
+				for(int k = 0; k < count; k++){
+					int model = candidates[depth][k];
+					int childCost = cost + costs[depth][k];
+					int childLowerBound = lowerBound - boundDecrease(remaining, model);
+					//The bound of the remaining models is admissible, so the subtree cannot beat the best head
+					if(childCost + childLowerBound >= bestCost)
+						continue;
+					order[depth] = model;
+					search(remaining & ~(1 << model), depth + 1, childCost, childLowerBound, candidates, costs);
+				}
+			}
+		}
+	}
+
+}
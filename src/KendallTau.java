@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+
+
+/**
+ * Computes the Kendall-tau distance between an aggregate ranker and a (partial) ranker
+ * in O(n log n) by counting inversions with a merge sort.
+ * @author Mariam Nassar
+ *
+ */
+public class KendallTau {
+
+	/**
+	 * Computes the Kendall-tau distance between an aggregate ranker and ranker_i.
+	 * Models which are not contained in ranker_i are ranked after all models of ranker_i.
+	 * Models of ranker_i which are not contained in the aggregate ranker keep the ranking -1.
+	 *
+	 * @param aggregateRankerH The aggregate ranker.
+	 * @param ranker_iH
+	 * @return The Kendall-tau distance between the given two rankers.
+	 */
+	public static long distance(IndexedRankerHandler aggregateRankerH, IndexedRankerHandler ranker_iH){
+		int ranker_iLength = ranker_iH.getRankerSize();
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexListR_i = ranker_iH.getModelIndexList();
+		int[] modelIndexListRA = aggregateRankerH.getModelIndexList();
+
+		long sumOfDisagreements = 0;
+
+		//Counts the number of pairs (m1, m2) from aggregate ranker with m1 is ranked better than m2 and
+		//ranker_i contains m2 but not m1
+		if (ranker_iLength > 0){
+			int sumOfModelsNotInR_i = 0;
+			for(int k = 0; k < aggregateRankerLength; k++){
+				if (ranker_iH.containsByModelIndex(modelIndexListRA[k]))
+					sumOfDisagreements += sumOfModelsNotInR_i;
+				else sumOfModelsNotInR_i++;
+			}
+		}
+
+		//The rankings in the aggregate ranker of the models in the order of ranker_i.
+		//Each inversion is a pair ranked differently by both rankers.
+		int[] rankingsInRA = AggregationWorkspace.get().getRankings(ranker_iLength);
+		for(int i = 0; i < ranker_iLength; i++)
+			rankingsInRA[i] = aggregateRankerH.getRankingByModelIndex(modelIndexListR_i[i]);
+
+		sumOfDisagreements += countInversions(rankingsInRA, ranker_iLength);
+		return sumOfDisagreements;
+	}
+
+	/**
+	 * Computes the Kendall-tau distance between an aggregate ranker and ranker_i.
+	 * Models which are not contained in ranker_i are ranked after all models of ranker_i.
+	 * Models of ranker_i which are not contained in the aggregate ranker keep the ranking -1.
+	 *
+	 * @param aggregateRankerH The aggregate ranker.
+	 * @param ranker_iH
+	 * @return The Kendall-tau distance between the given two rankers.
+	 */
+	public static long distance(RankerHandler aggregateRankerH, RankerHandler ranker_iH){
+		int ranker_iLength = ranker_iH.getRankerSize();
+		ArrayList<String> uniqueModelIDListR_i = ranker_iH.getUniqueModelIDList();
+		ArrayList<String> uniqueModelIDListRA = aggregateRankerH.getUniqueModelIDList();
+
+		long sumOfDisagreements = 0;
+
+		if (ranker_iLength > 0){
+			int sumOfModelsNotInR_i = 0;
+			for(String uniqueModelID : uniqueModelIDListRA){
+				if (ranker_iH.containsByUniqueModelID(uniqueModelID))
+					sumOfDisagreements += sumOfModelsNotInR_i;
+				else sumOfModelsNotInR_i++;
+			}
+		}
+
+		int[] rankingsInRA = AggregationWorkspace.get().getRankings(ranker_iLength);
+		for(int i = 0; i < ranker_iLength; i++)
+			rankingsInRA[i] = aggregateRankerH.getRankingByUniqueModelID(uniqueModelIDListR_i.get(i));
+
+		sumOfDisagreements += countInversions(rankingsInRA, ranker_iLength);
+		return sumOfDisagreements;
+	}
+
+	/**
+	 * Counts the pairs (i, j) with i < j and values[i] > values[j] by a bottom-up merge sort.
+	 * Equal values are not counted. The first length entries of values will be sorted.
+	 *
+	 * @param values
+	 * @param length
+	 * @return The number of inversions in values.
+	 */
+	public static long countInversions(int[] values, int length){
+		return countInversions(values, length, AggregationWorkspace.get().getMergeBuffer(length));
+	}
+
+	/**
+	 * Counts the pairs (i, j) with i < j and values[i] > values[j] by a bottom-up merge sort.
+	 * Equal values are not counted. The first length entries of values will be sorted.
+	 *
+	 * @param values
+	 * @param length
+	 * @param buffer An array with at least the given length, which is used for merging.
+	 * @return The number of inversions in values.
+	 */
+	public static long countInversions(int[] values, int length, int[] buffer){
+		long inversions = 0;
+		int[] source = values;
+		int[] target = buffer;
+
+		for(int width = 1; width < length; width *= 2){
+			for(int from = 0; from < length; from += 2 * width){
+				int middle = Math.min(from + width, length);
+				int to = Math.min(from + 2 * width, length);
+				int left = from;
+				int right = middle;
+				int k = from;
+
+				while(left < middle && right < to){
+					if(source[left] <= source[right])
+						target[k++] = source[left++];
+					else{
+						//All remaining models of the left run are ranked worse than source[right]
+						inversions += middle - left;
+						target[k++] = source[right++];
+					}
+				}
+				while(left < middle)
+					target[k++] = source[left++];
+				while(right < to)
+					target[k++] = source[right++];
+			}
+			int[] temp = source;
+			source = target;
+			target = temp;
+		}
+
+		if(source != values)
+			System.arraycopy(source, 0, values, 0, length);
+		return inversions;
+	}
+
+}
@@ -0,0 +1,377 @@
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+
+/**
+ * The randomized pivot aggregation KwikSort (Ailon, Charikar and Newman), an expected 11/7 approximation
+ * of the Kemeny optimal aggregation which does not depend on the initial aggregate ranker.
+ * A random pivot model splits the models into those which the majority of the rankers prefers to the pivot
+ * and the others, and both parts are sorted the same way. The majority of a pair is counted from the rankings
+ * when it is needed, so that the method needs O(n * m) memory and expected O(n log n * m) time.
+ * Ties of the majority keep the order of the initial aggregate ranker.
+ * <p>
+ * The parts are sorted in parallel on a ForkJoinPool, long parts are also partitioned in parallel.
+ * Each part gets its own random generator split from its parent, so that the result only depends on the seed
+ * and not on the number of threads. The optional polish is a local Kemenization of the result.
+ * @author Mariam Nassar
+ *
+ */
+public class KwikSortAggregation {
+	/**
+	 * The default seed of the random generator.
+	 */
+	public static final long DEFAULT_SEED = 42;
+	/**
+	 * The length of a part below which both of its parts are sorted by the same task.
+	 */
+	private static final int SEQUENTIAL_LENGTH = 2048;
+	/**
+	 * The length of a part from which it is partitioned in parallel chunks.
+	 */
+	private static final int PARALLEL_PARTITION_LENGTH = 1 << 15;
+	/**
+	 * The number of models of a chunk of a parallel partition.
+	 */
+	private static final int CHUNK_LENGTH = 4096;
+
+	private ForkJoinPool pool;
+	private long seed;
+	private boolean polish;
+
+
+	/**
+	 * Constructor. The parts are sorted on the common ForkJoinPool with the default seed and polished.
+	 */
+	public KwikSortAggregation(){
+		this(ForkJoinPool.commonPool(), DEFAULT_SEED, true);
+	}
+
+	/**
+	 * Constructor.
+	 * @param pool The pool which sorts the parts.
+	 * @param seed The seed of the random generator.
+	 * @param polish true, if the result is locally Kemenized.
+	 */
+	public KwikSortAggregation(ForkJoinPool pool, long seed, boolean polish){
+		this.pool = pool;
+		this.seed = seed;
+		this.polish = polish;
+	}
+
+	/**
+	 * Aggregates a list of rankers by KwikSort.
+	 * Like RankAggregation.aggregate, it changes the scores of the models of the initial aggregate ranker.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return Aggregate list of models
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+
+		ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = RankAggregation.buildRankerHandlers(rankersList, dictionary);
+
+		return aggregate(rankersListH, aggregateRankerH, AggregationTrace.DISABLED).toList();
+	}
+
+	/**
+	 * KwikSort aggregation of the models of the aggregate ranker.
+	 *
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param trace
+	 * @return An aggregate list of models.
+	 */
+	AggregateResult aggregate(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH, AggregationTrace trace){
+		int size = aggregateRankerH.getRankerSize();
+		int numberOfRankers = rankersListH.size();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+
+		//The rankings of the model of each row in all rankers, row by row, so that a pair reads two short runs.
+		//Models which are not contained in a ranker are ranked after all other models.
+		int[] rankings = new int[size * numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++){
+			IndexedRankerHandler ranker_iH = rankersListH.get(l);
+			for(int row = 0; row < size; row++){
+				int ranking = ranker_iH.getRankingByModelIndex(modelIndexList[row]);
+				rankings[row * numberOfRankers + l] = (ranking == IndexedRankerHandler.ABSENT) ? Integer.MAX_VALUE : ranking;
+			}
+		}
+		trace.addRankLookups((long) size * numberOfRankers);
+		trace.mark(AggregationPhase.DISTANCE_INITIALISATION);
+
+		Sort sort = new Sort(rankings, numberOfRankers, size);
+		pool.invoke(sort.new PartTask(0, size, new SplittableRandom(seed)));
+		long swaps = polish ? sort.polish() : 0;
+		trace.addComparisons(sort.comparisons.sum());
+		trace.addSwaps(swaps);
+
+		int[] rowModelIndex = new int[size];
+		System.arraycopy(modelIndexList, 0, rowModelIndex, 0, size);
+		for(int position = 0; position < size; position++)
+			aggregateRankerH.setModelIndexAtRanking(position + 1, rowModelIndex[sort.order[position]]);
+		trace.mark(AggregationPhase.SEARCH);
+
+		AggregateResult result = aggregateRankerH.makeResultRankBased();
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
+	}
+
+	/**
+	 *
+	 * @return The seed of the random generator.
+	 */
+	public long getSeed(){
+		return seed;
+	}
+
+	/**
+	 *
+	 * @return true, if the result is locally Kemenized.
+	 */
+	public boolean isPolish(){
+		return polish;
+	}
+
+
+	/**
+	 * The state of one aggregation, shared by its tasks. The tasks write disjoint parts of the arrays.
+	 */
+	private static class Sort {
+		private final int[] rankings;
+		private final int numberOfRankers;
+		/**
+		 * The rows in the current order, the rows are the positions in the initial aggregate ranker.
+		 */
+		private final int[] order;
+		private final int[] buffer;
+		private final LongAdder comparisons = new LongAdder();
+
+
+		Sort(int[] rankings, int numberOfRankers, int size){
+			this.rankings = rankings;
+			this.numberOfRankers = numberOfRankers;
+			this.order = new int[size];
+			this.buffer = new int[size];
+			for(int row = 0; row < size; row++)
+				order[row] = row;
+		}
+
+		/**
+		 *
+		 * @param row1
+		 * @param row2
+		 * @return true, if more rankers prefer the model of row1 to the model of row2 than the other way round,
+		 * or as many and row1 is before row2 in the initial aggregate ranker.
+		 */
+		boolean before(int row1, int row2){
+			//pro: the number of rankers which prefer model1, con: the number of rankers which prefer model2
+			int pro = 0;
+			int con = 0;
+			int offset1 = row1 * numberOfRankers;
+			int offset2 = row2 * numberOfRankers;
+			for(int l = 0; l < numberOfRankers; l++){
+				int ranking1 = rankings[offset1 + l];
+				int ranking2 = rankings[offset2 + l];
+				if(ranking1 < ranking2)
+					pro++;
+				else if(ranking2 < ranking1)
+					con++;
+			}
+			return pro > con || (pro == con && row1 < row2);
+		}
+
+		/**
+		 * Partitions a part around a pivot: the models before the pivot, the pivot, the other models,
+		 * each in their previous order.
+		 *
+		 * @param from
+		 * @param to
+		 * @param pivotIndex The position of the pivot.
+		 * @return The new position of the pivot.
+		 */
+		int partition(int from, int to, int pivotIndex){
+			int length = to - from;
+			int pivot = order[pivotIndex];
+			comparisons.add(length - 1);
+			if(length >= PARALLEL_PARTITION_LENGTH)
+				return parallelPartition(from, to, pivotIndex);
+
+			//The models before the pivot from the front of the buffer, the others reversed from its back
+			int numberBefore = 0;
+			int numberAfter = 0;
+			for(int k = from; k < to; k++){
+				int row = order[k];
+				if(k == pivotIndex)
+					continue;
+				if(before(row, pivot))
+					buffer[from + numberBefore++] = row;
+				else buffer[to - 1 - numberAfter++] = row;
+			}
+			System.arraycopy(buffer, from, order, from, numberBefore);
+			int pivotPosition = from + numberBefore;
+			order[pivotPosition] = pivot;
+			for(int k = 0; k < numberAfter; k++)
+				order[pivotPosition + 1 + k] = buffer[to - 1 - k];
+			return pivotPosition;
+		}
+
+		/**
+		 * Partitions a long part in parallel chunks: each chunk counts its models before the pivot,
+		 * then each chunk copies its models to their positions.
+		 *
+		 * @param from
+		 * @param to
+		 * @param pivotIndex The position of the pivot.
+		 * @return The new position of the pivot.
+		 */
+		private int parallelPartition(int from, int to, int pivotIndex){
+			int length = to - from;
+			int pivot = order[pivotIndex];
+			int pivotOffset = pivotIndex - from;
+			int numberOfChunks = (length + CHUNK_LENGTH - 1) / CHUNK_LENGTH;
+			boolean[] isBefore = new boolean[length];
+			int[] numbersBefore = new int[numberOfChunks + 1];
+			IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+				int chunkTo = Math.min(length, (chunk + 1) * CHUNK_LENGTH);
+				int numberBefore = 0;
+				for(int k = chunk * CHUNK_LENGTH; k < chunkTo; k++){
+					int row = order[from + k];
+					if(k != pivotOffset && before(row, pivot)){
+						isBefore[k] = true;
+						numberBefore++;
+					}
+				}
+				numbersBefore[chunk + 1] = numberBefore;
+			});
+			for(int chunk = 0; chunk < numberOfChunks; chunk++)
+				numbersBefore[chunk + 1] += numbersBefore[chunk];
+
+			int pivotPosition = from + numbersBefore[numberOfChunks];
+			IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+				int chunkFrom = chunk * CHUNK_LENGTH;
+				int chunkTo = Math.min(length, chunkFrom + CHUNK_LENGTH);
+				int before = from + numbersBefore[chunk];
+				//Behind the models after the pivot from the chunks before, without the pivot
+				int after = pivotPosition + 1 + (chunkFrom - numbersBefore[chunk]) - ((pivotOffset < chunkFrom) ? 1 : 0);
+				for(int k = chunkFrom; k < chunkTo; k++){
+					int row = order[from + k];
+					if(k == pivotOffset)
+						continue;
+					if(isBefore[k])
+						buffer[before++] = row;
+					else buffer[after++] = row;
+				}
+			});
+			buffer[pivotPosition] = pivot;
+			System.arraycopy(buffer, from, order, from, length);
+			return pivotPosition;
+		}
+
+		/**
+		 * Sorts a part without forking.
+		 *
+		 * @param from
+		 * @param to
+		 * @param random
+		 */
+		void sort(int from, int to, SplittableRandom random){
+			while(to - from > 1){
+				int pivotPosition = partition(from, to, from + random.nextInt(to - from));
+				SplittableRandom leftRandom = random.split();
+				sort(from, pivotPosition, leftRandom);
+				//The right part is sorted by the loop
+				from = pivotPosition + 1;
+				random = random.split();
+			}
+		}
+
+		/**
+		 * Local Kemenization of the order: each model moves up as long as the majority prefers it to the model before.
+		 *
+		 * @return The number of swaps.
+		 */
+		long polish(){
+			long swaps = 0;
+			long polishComparisons = 0;
+			for(int i = 1; i < order.length; i++){
+				int row = order[i];
+				int j = i;
+				while(j > 0){
+					polishComparisons++;
+					int previous = order[j - 1];
+					if(!preferred(row, previous))
+						break;
+					order[j] = previous;
+					j--;
+					swaps++;
+				}
+				order[j] = row;
+			}
+			comparisons.add(polishComparisons);
+			return swaps;
+		}
+
+		/**
+		 *
+		 * @param row1
+		 * @param row2
+		 * @return true, if strictly more rankers prefer the model of row1 to the model of row2.
+		 */
+		private boolean preferred(int row1, int row2){
+			int difference = 0;
+			int offset1 = row1 * numberOfRankers;
+			int offset2 = row2 * numberOfRankers;
+			for(int l = 0; l < numberOfRankers; l++){
+				int ranking1 = rankings[offset1 + l];
+				int ranking2 = rankings[offset2 + l];
+				if(ranking1 < ranking2)
+					difference++;
+				else if(ranking2 < ranking1)
+					difference--;
+			}
+			return difference > 0;
+		}
+
+
+		/**
+		 * Sorts a part: partitions it and sorts both parts, in parallel if the part is long.
+		 */
+		private class PartTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private int from;
+			private int to;
+			private SplittableRandom random;
+
+
+			PartTask(int from, int to, SplittableRandom random){
+				this.from = from;
+				this.to = to;
+				this.random = random;
+			}
+
+			@Override
+			protected void compute(){
+				if(to - from <= SEQUENTIAL_LENGTH){
+					sort(from, to, random);
+					return;
+				}
+
+				//The same splits as sort, so that the result does not depend on SEQUENTIAL_LENGTH
+				int pivotPosition = partition(from, to, from + random.nextInt(to - from));
+				SplittableRandom leftRandom = random.split();
+				SplittableRandom rightRandom = random.split();
+				invokeAll(new PartTask(from, pivotPosition, leftRandom), new PartTask(pivotPosition + 1, to, rightRandom));
+			}
+		}
+	}
+
+}
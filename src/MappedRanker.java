@@ -0,0 +1,112 @@
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+
+/**
+ * A ranker of a RankerFile. It reads the model indices, scores and rankings straight from the mapped file,
+ * like an IndexedRankerHandler which cannot be changed. The model indices are those of RankerFile.newDictionary.
+ * @author Mariam Nassar
+ *
+ */
+public class MappedRanker {
+	/**
+	 * The model indices in the order of the ranker.
+	 */
+	private IntBuffer modelIndices;
+	/**
+	 * The scores in the order of the ranker.
+	 */
+	private FloatBuffer scores;
+	/**
+	 * Maps the model indices of the file onto the ranking of the model, ABSENT if the ranker does not contain the model.
+	 */
+	private IntBuffer rankings;
+
+
+	/**
+	 * Constructor.
+	 * @param modelIndices
+	 * @param scores
+	 * @param rankings
+	 */
+	MappedRanker(IntBuffer modelIndices, FloatBuffer scores, IntBuffer rankings){
+		this.modelIndices = modelIndices;
+		this.scores = scores;
+		this.rankings = rankings;
+	}
+
+	/**
+	 *
+	 * @return The number of models in the ranker.
+	 */
+	public int getRankerSize(){
+		return modelIndices.limit();
+	}
+
+	/**
+	 *
+	 * @param position The position in the ranker, from 0 to getRankerSize() - 1.
+	 * @return The model index at the position.
+	 */
+	public int getModelIndex(int position){
+		return modelIndices.get(position);
+	}
+
+	/**
+	 *
+	 * @param position The position in the ranker, from 0 to getRankerSize() - 1.
+	 * @return The score of the model at the position.
+	 */
+	public float getScore(int position){
+		return scores.get(position);
+	}
+
+	/**
+	 * Search for the ranking of a model by model index.
+	 *
+	 * @param modelIndex
+	 * @return The ranking of the model with the given modelIndex if the ranker contains the model
+	 * and IndexedRankerHandler.ABSENT otherwise.
+	 */
+	public int getRankingByModelIndex(int modelIndex){
+		//Models which have been interned after the file has been written are not contained
+		if(modelIndex < 0 || modelIndex >= rankings.limit())
+			return IndexedRankerHandler.ABSENT;
+		return rankings.get(modelIndex);
+	}
+
+	/**
+	 * Tests if the ranker contains the model by model index.
+	 *
+	 * @param modelIndex
+	 * @return true, if the ranker contains the model, and false else.
+	 */
+	public boolean containsByModelIndex(int modelIndex){
+		return getRankingByModelIndex(modelIndex) != IndexedRankerHandler.ABSENT;
+	}
+
+	/**
+	 * Searches for the score of a model by model index.
+	 *
+	 * @param modelIndex
+	 * @return the score of the model with the given modelIndex if the ranker contains the model.
+	 * And -1 otherwise.
+	 */
+	public float getScoreByModelIndex(int modelIndex){
+		int ranking = getRankingByModelIndex(modelIndex);
+		if(ranking != IndexedRankerHandler.ABSENT)
+			return scores.get(ranking - 1);
+		else
+			return -1;
+	}
+
+	/**
+	 * Copies the model indices in the order of the ranker.
+	 *
+	 * @param modelIndexList An array with at least getRankerSize() entries.
+	 */
+	void copyModelIndices(int[] modelIndexList){
+		modelIndices.duplicate().get(modelIndexList, 0, modelIndices.limit());
+	}
+
+}
@@ -0,0 +1,245 @@
+import java.util.List;
+
+
+/**
+ * The Markov chain aggregation MC4 (Dwork et al.) on a sparse transition matrix. The chain moves from a model
+ * to a uniformly chosen model if the majority of the rankers prefers it, see TransitionMatrix. The models are ranked
+ * by the stationary probability of the chain, which is computed by a parallel power iteration.
+ * Unlike the local Kemenization, the chain moves models over long distances, so that it also reorders long lists
+ * whose initial order is far from the rankers.
+ * <p>
+ * With the warm start, the power iteration starts from the stationary probabilities of the previous aggregation,
+ * so that similar queries converge in fewer iterations.
+ * @author Mariam Nassar
+ *
+ */
+public class MarkovChainAggregation {
+	/**
+	 * The default number of positions before and after a model which are its neighbours.
+	 */
+	public static final int DEFAULT_RADIUS = 5;
+	/**
+	 * The default probability of a uniform jump.
+	 */
+	public static final double DEFAULT_DAMPING = 0.15;
+	/**
+	 * The default L1 distance between two steps of the power iteration at which it stops.
+	 */
+	public static final double DEFAULT_TOLERANCE = 1e-7;
+	/**
+	 * The default maximal number of steps of the power iteration.
+	 */
+	public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+	private int radius;
+	private double damping;
+	private double tolerance;
+	private int maxIterations;
+	private boolean warmStart;
+	/**
+	 * The stationary probabilities of the last aggregation, null if there is none or the warm start is off.
+	 */
+	private volatile StationaryVector lastStationaryVector;
+
+
+	/**
+	 * The stationary probabilities of an aggregation by unique model Id.
+	 */
+	private static class StationaryVector {
+		private final ModelIdDictionary dictionary;
+		private final double[] probabilities;
+
+		StationaryVector(ModelIdDictionary dictionary, double[] probabilities){
+			this.dictionary = dictionary;
+			this.probabilities = probabilities;
+		}
+	}
+
+
+	/**
+	 * Constructor with the default parameters and without warm start.
+	 */
+	public MarkovChainAggregation(){
+		this(DEFAULT_RADIUS, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS, false);
+	}
+
+	/**
+	 * Constructor.
+	 * @param radius The number of positions before and after a model which are its neighbours, at least 1.
+	 * @param damping The probability of a uniform jump, in (0, 1].
+	 * @param tolerance The L1 distance between two steps of the power iteration at which it stops.
+	 * @param maxIterations The maximal number of steps of the power iteration.
+	 * @param warmStart true, if the power iteration starts from the stationary probabilities of the previous aggregation.
+	 */
+	public MarkovChainAggregation(int radius, double damping, double tolerance, int maxIterations, boolean warmStart){
+		if(radius < 1)
+			throw new IllegalArgumentException("The radius of the neighbourhood must be at least 1: " + radius);
+		if(!(damping > 0 && damping <= 1))
+			throw new IllegalArgumentException("The damping must be in (0, 1]: " + damping);
+		if(maxIterations < 1)
+			throw new IllegalArgumentException("At least 1 iteration is needed: " + maxIterations);
+
+		this.radius = radius;
+		this.damping = damping;
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+		this.warmStart = warmStart;
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker by MC4.
+	 * Like RankAggregation.aggregate, it changes the scores of the models of the initial aggregate ranker.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return Aggregate list of models
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+
+		ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = RankAggregation.buildRankerHandlers(rankersList, dictionary);
+
+		return aggregate(rankersListH, aggregateRankerH, AggregationTrace.DISABLED).toList();
+	}
+
+	/**
+	 * MC4 aggregation of the aggregate ranker. The score of a model is its stationary probability.
+	 * This is a score based aggregation method.
+	 *
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param trace
+	 * @return An aggregate list of models.
+	 */
+	AggregateResult aggregate(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH, AggregationTrace trace){
+		TransitionMatrix matrix = new TransitionMatrix(rankersListH, aggregateRankerH, radius);
+		trace.addRankLookups((long) matrix.size() * rankersListH.size());
+		trace.addComparisons(matrix.getComparisons());
+		trace.mark(AggregationPhase.DISTANCE_INITIALISATION);
+
+		int size = matrix.size();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		double[] x = startVector(aggregateRankerH);
+		double[] next = new double[size];
+		double[] below = new double[size];
+		int iterations = 0;
+		while(iterations < maxIterations){
+			double change = matrix.multiply(x, next, below, damping);
+			double[] swap = x;
+			x = next;
+			next = swap;
+			iterations++;
+			if(change < tolerance)
+				break;
+		}
+		trace.addSweeps(iterations);
+
+		if(warmStart)
+			remember(aggregateRankerH, x);
+		for(int row = 0; row < size; row++)
+			aggregateRankerH.updateScoreByModelIndex(modelIndexList[row], (float) x[row]);
+		aggregateRankerH.sortModelsByScore();
+		trace.mark(AggregationPhase.SEARCH);
+
+		AggregateResult result = aggregateRankerH.makeResult();
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
+	}
+
+	/**
+	 * Forgets the stationary probabilities of the previous aggregation.
+	 */
+	public void resetWarmStart(){
+		lastStationaryVector = null;
+	}
+
+	/**
+	 *
+	 * @param aggregateRankerH
+	 * @return The uniform distribution over the models of the aggregate ranker, or with the warm start
+	 * the stationary probabilities of the previous aggregation. New models get the uniform probability.
+	 */
+	private double[] startVector(IndexedRankerHandler aggregateRankerH){
+		int size = aggregateRankerH.getRankerSize();
+		double[] x = new double[size];
+		double uniform = 1.0 / size;
+
+		StationaryVector last = warmStart ? lastStationaryVector : null;
+		if(last == null){
+			for(int row = 0; row < size; row++)
+				x[row] = uniform;
+			return x;
+		}
+
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		ModelIdDictionary dictionary = aggregateRankerH.getDictionary();
+		double sum = 0;
+		for(int row = 0; row < size; row++){
+			int lastRow = last.dictionary.getModelIndex(dictionary.getUniqueModelID(modelIndexList[row]));
+			x[row] = (lastRow >= 0) ? last.probabilities[lastRow] : uniform;
+			sum += x[row];
+		}
+		for(int row = 0; row < size; row++)
+			x[row] /= sum;
+		return x;
+	}
+
+	/**
+	 * Keeps the stationary probabilities for the warm start of the next aggregation.
+	 *
+	 * @param aggregateRankerH
+	 * @param x The stationary probabilities in the order of the aggregate ranker.
+	 */
+	private void remember(IndexedRankerHandler aggregateRankerH, double[] x){
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		ModelIdDictionary dictionary = aggregateRankerH.getDictionary();
+		ModelIdDictionary lastDictionary = new ModelIdDictionary();
+		double[] probabilities = new double[x.length];
+		for(int row = 0; row < x.length; row++)
+			probabilities[lastDictionary.intern(dictionary.getUniqueModelID(modelIndexList[row]))] = x[row];
+		lastStationaryVector = new StationaryVector(lastDictionary, probabilities);
+	}
+
+	/**
+	 *
+	 * @return The number of positions before and after a model which are its neighbours.
+	 */
+	public int getRadius(){
+		return radius;
+	}
+
+	/**
+	 *
+	 * @return The probability of a uniform jump.
+	 */
+	public double getDamping(){
+		return damping;
+	}
+
+	/**
+	 *
+	 * @return The L1 distance between two steps of the power iteration at which it stops.
+	 */
+	public double getTolerance(){
+		return tolerance;
+	}
+
+	/**
+	 *
+	 * @return The maximal number of steps of the power iteration.
+	 */
+	public int getMaxIterations(){
+		return maxIterations;
+	}
+
+	/**
+	 *
+	 * @return true, if the power iteration starts from the stationary probabilities of the previous aggregation.
+	 */
+	public boolean isWarmStart(){
+		return warmStart;
+	}
+
+}
@@ -0,0 +1,226 @@
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A dictionary which interns the unique model Ids onto dense integer indices.
+ * It is built once per aggregation, so that the aggregation methods can deal with
+ * int indices and arrays instead of Strings and hashmaps.
+ * The Ids are kept in an open addressing hash table of arrays, so that a dictionary can be cleared and filled again
+ * without allocating, e.g. in an AggregationBuffer.
+ * An overlay dictionary shares the Ids of a base dictionary, e.g. of a RankerFile, and only keeps the Ids which
+ * are interned into it, so that it can be made for each query without copying the base.
+ * @author Mariam Nassar
+ *
+ */
+public class ModelIdDictionary {
+	/**
+	 * The initial number of slots of the hash table, a power of 2.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The hash table of the model indices + 1, 0 for an empty slot. The table is at most half full.
+	 */
+	private int[] slots = new int[INITIAL_CAPACITY];
+	/**
+	 * The unique model Ids. The unique model Id with index i is at position i.
+	 */
+	private String[] uniqueModelIDList = new String[INITIAL_CAPACITY / 2];
+	/**
+	 * The number of unique model Ids in the dictionary.
+	 */
+	private int size;
+	/**
+	 * The model index of the unique model Id null, -1 if the dictionary does not contain it.
+	 */
+	private int nullModelIndex = -1;
+	/**
+	 * The dictionary whose Ids this dictionary shares, null if there is none. The Ids of this dictionary follow the Ids of the base.
+	 */
+	private ModelIdDictionary base;
+	/**
+	 * The number of unique model Ids of the base when this dictionary was made.
+	 */
+	private int baseSize;
+
+
+	/**
+	 * Constructor for an empty dictionary.
+	 */
+	public ModelIdDictionary(){
+	}
+
+	/**
+	 * Copy constructor. Ids which are interned into the copy are not added to the original dictionary.
+	 * @param dictionary
+	 */
+	public ModelIdDictionary(ModelIdDictionary dictionary){
+		this.slots = dictionary.slots.clone();
+		this.uniqueModelIDList = dictionary.uniqueModelIDList.clone();
+		this.size = dictionary.size;
+		this.nullModelIndex = dictionary.nullModelIndex;
+		this.base = dictionary.base;
+		this.baseSize = dictionary.baseSize;
+	}
+
+	/**
+	 * Returns a new dictionary on top of a base dictionary. The Ids of the base keep their model indices,
+	 * further Ids are only interned into the new dictionary. The base is shared, not copied,
+	 * so that it must not be changed afterwards.
+	 *
+	 * @param base
+	 * @return A new overlay dictionary.
+	 */
+	public static ModelIdDictionary overlay(ModelIdDictionary base){
+		ModelIdDictionary dictionary = new ModelIdDictionary();
+		dictionary.base = base;
+		dictionary.baseSize = base.size();
+		return dictionary;
+	}
+
+	/**
+	 * Returns the model index of a unique model Id and adds the unique model Id to the dictionary
+	 * if it is not contained yet.
+	 *
+	 * @param uniqueModelID
+	 * @return The model index of the given uniqueModelID.
+	 */
+	public int intern(String uniqueModelID){
+		if(base != null){
+			int modelIndex = base.getModelIndex(uniqueModelID);
+			if(modelIndex >= 0)
+				return modelIndex;
+		}
+		if(uniqueModelID == null){
+			if(nullModelIndex < 0)
+				nullModelIndex = baseSize + add(null);
+			return nullModelIndex;
+		}
+
+		int mask = slots.length - 1;
+		for(int slot = hash(uniqueModelID) & mask; ; slot = (slot + 1) & mask){
+			int entry = slots[slot];
+			if(entry == 0){
+				int newModelIndex = add(uniqueModelID);
+				if(2 * size > slots.length)
+					rehash(2 * slots.length);
+				else slots[slot] = newModelIndex + 1;
+				return baseSize + newModelIndex;
+			}
+			if(uniqueModelID.equals(uniqueModelIDList[entry - 1]))
+				return baseSize + entry - 1;
+		}
+	}
+
+	/**
+	 * Interns the unique model Ids of all models in a ranker.
+	 *
+	 * @param rankerList A list of models.
+	 */
+	public void internAll(List<Model> rankerList){
+		if(rankerList != null)
+			for(Model model: rankerList)
+				intern(model.getUniqueVersionId());
+	}
+
+	/**
+	 * Searches for the model index of a unique model Id.
+	 *
+	 * @param uniqueModelID
+	 * @return The model index of the given uniqueModelID if the dictionary contains it and -1 otherwise.
+	 */
+	public int getModelIndex(String uniqueModelID){
+		if(base != null){
+			int modelIndex = base.getModelIndex(uniqueModelID);
+			if(modelIndex >= 0)
+				return modelIndex;
+		}
+		if(uniqueModelID == null)
+			return nullModelIndex;
+
+		int mask = slots.length - 1;
+		for(int slot = hash(uniqueModelID) & mask; ; slot = (slot + 1) & mask){
+			int entry = slots[slot];
+			if(entry == 0)
+				return -1;
+			if(uniqueModelID.equals(uniqueModelIDList[entry - 1]))
+				return baseSize + entry - 1;
+		}
+	}
+
+	/**
+	 *
+	 * @param modelIndex
+	 * @return The unique model Id with the given model index.
+	 */
+	public String getUniqueModelID(int modelIndex){
+		if(modelIndex < 0 || modelIndex >= size())
+			throw new IndexOutOfBoundsException("Model index " + modelIndex + " of " + size());
+		if(modelIndex < baseSize)
+			return base.getUniqueModelID(modelIndex);
+		return uniqueModelIDList[modelIndex - baseSize];
+	}
+
+	/**
+	 *
+	 * @return The number of unique model Ids in the dictionary.
+	 */
+	public int size(){
+		return baseSize + size;
+	}
+
+	/**
+	 * Removes all unique model Ids, except the Ids of the base of an overlay dictionary.
+	 * The arrays are kept, so that the dictionary can be filled again without allocating.
+	 */
+	public void clear(){
+		Arrays.fill(slots, 0);
+		Arrays.fill(uniqueModelIDList, 0, size, null);
+		size = 0;
+		nullModelIndex = -1;
+	}
+
+	/**
+	 * Appends a unique model Id to the list of the Ids.
+	 *
+	 * @param uniqueModelID
+	 * @return The new position in the list of the Ids.
+	 */
+	private int add(String uniqueModelID){
+		if(size == uniqueModelIDList.length)
+			uniqueModelIDList = Arrays.copyOf(uniqueModelIDList, 2 * size);
+		uniqueModelIDList[size] = uniqueModelID;
+		return size++;
+	}
+
+	/**
+	 * Builds the hash table again with a new number of slots.
+	 *
+	 * @param capacity A power of 2.
+	 */
+	private void rehash(int capacity){
+		slots = new int[capacity];
+		int mask = capacity - 1;
+		for(int modelIndex = 0; modelIndex < size; modelIndex++){
+			String uniqueModelID = uniqueModelIDList[modelIndex];
+			if(uniqueModelID == null)
+				continue;
+			int slot = hash(uniqueModelID) & mask;
+			while(slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			slots[slot] = modelIndex + 1;
+		}
+	}
+
+	/**
+	 *
+	 * @param uniqueModelID
+	 * @return The spread hash code of the unique model Id. The hash code of a String is cached.
+	 */
+	private static int hash(String uniqueModelID){
+		int hash = uniqueModelID.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,475 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * Counts for each pair of models in the aggregate ranker how many rankers prefer one model to the other.
+ * It is built once per aggregation, so that the Kemeny-style methods read the preferences from an array
+ * instead of looking up both models in every ranker for every comparison.
+ * The counts are kept in two upper triangular arrays over the positions of the models in the aggregate ranker
+ * at the time of construction. Later swaps in the aggregate ranker do not change them.
+ * Rankers can also be added and removed one at a time, e.g. while they arrive from different indexes.
+ * <p>
+ * The counts are bytes as long as the weights of the rankers are not negative and sum up to at most 255,
+ * otherwise shorts. If the arrays would take more than MAX_COUNT_BYTES or the weights are too large for shorts,
+ * only the rankings of the models are kept and each preference is counted over the rankers when it is read,
+ * like the methods did without the matrix.
+ * @author Mariam Nassar
+ *
+ */
+public class PairwisePreference {
+	/**
+	 * The number of rows which are filled by one task.
+	 */
+	private static final int ROWS_PER_BLOCK = 64;
+	/**
+	 * The largest count of a byte array.
+	 */
+	private static final int MAX_BYTE_COUNT = 0xFF;
+	/**
+	 * The largest size of the two triangular arrays, an eighth of the heap.
+	 */
+	public static final long MAX_COUNT_BYTES = Runtime.getRuntime().maxMemory() / 8;
+
+	/**
+	 * How the preferences are kept.
+	 */
+	private enum Counts {
+		BYTES, SHORTS, RANKINGS
+	}
+
+	/**
+	 * The number of models in the aggregate ranker.
+	 */
+	private int size;
+	/**
+	 * The model index of each row.
+	 */
+	private int[] rowModelIndex;
+	/**
+	 * Maps the model indices onto the rows of the matrix, -1 if the aggregate ranker does not contain the model.
+	 */
+	private int[] modelIndexRow;
+	/**
+	 * The largest size of the two triangular arrays.
+	 */
+	private long maxCountBytes;
+	/**
+	 * How the preferences are kept, null as long as no ranker has been added.
+	 */
+	private Counts counts;
+	/**
+	 * The offset of each row in the triangular arrays.
+	 */
+	private int[] rowOffsets;
+	/**
+	 * For each pair of rows (a, b) with a < b: the weight of the rankers which rank the model of a before the model of b.
+	 * Either the bytes or the shorts are used.
+	 */
+	private byte[] rowPreferredBytes;
+	private short[] rowPreferred;
+	/**
+	 * For each pair of rows (a, b) with a < b: the weight of the rankers which rank the model of b before the model of a.
+	 */
+	private byte[] columnPreferredBytes;
+	private short[] columnPreferred;
+	/**
+	 * The rankers which have been added and their weights, so that the counts can be widened.
+	 */
+	private List<IndexedRankerHandler> rankers = new ArrayList<IndexedRankerHandler>();
+	private List<Integer> rankerWeights = new ArrayList<Integer>();
+	/**
+	 * Without arrays: the rankings of the models of the aggregate ranker in each ranker, in the order of the rows.
+	 */
+	private List<int[]> rankingsByRow;
+	/**
+	 * The sum of the weights of all rankers.
+	 */
+	private int totalWeight;
+	/**
+	 * The sum of the absolute weights of all rankers, which bounds the counts.
+	 */
+	private long absoluteWeight;
+	/**
+	 * The number of rankers with a negative weight.
+	 */
+	private int negativeWeights;
+
+
+	/**
+	 * Constructor. Each ranker has the weight 1.
+	 * @param rankersListH A list of ranker handlers.
+	 * @param aggregateRankerH The aggregate ranker handler.
+	 */
+	public PairwisePreference(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH){
+		this(rankersListH, aggregateRankerH, unitWeights(rankersListH.size()));
+	}
+
+	/**
+	 * Constructor.
+	 * @param rankersListH A list of ranker handlers.
+	 * @param aggregateRankerH The aggregate ranker handler.
+	 * @param weights The weight of each ranker in rankersListH.
+	 */
+	public PairwisePreference(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH, int[] weights){
+		this(aggregateRankerH);
+		update(rankersListH, weights, 1);
+	}
+
+	/**
+	 * Constructor for a matrix without rankers. The rankers can be added with addRanker.
+	 * @param aggregateRankerH The aggregate ranker handler.
+	 */
+	public PairwisePreference(IndexedRankerHandler aggregateRankerH){
+		this(aggregateRankerH, MAX_COUNT_BYTES);
+	}
+
+	/**
+	 * Constructor for a matrix without rankers.
+	 * @param aggregateRankerH The aggregate ranker handler.
+	 * @param maxCountBytes The largest size of the two triangular arrays.
+	 */
+	PairwisePreference(IndexedRankerHandler aggregateRankerH, long maxCountBytes){
+		this.size = aggregateRankerH.getRankerSize();
+		this.maxCountBytes = maxCountBytes;
+
+		this.rowModelIndex = Arrays.copyOf(aggregateRankerH.getModelIndexList(), size);
+		this.modelIndexRow = new int[aggregateRankerH.getDictionary().size()];
+		for(int i = 0; i < modelIndexRow.length; i++)
+			modelIndexRow[i] = -1;
+		for(int row = 0; row < size; row++)
+			modelIndexRow[rowModelIndex[row]] = row;
+	}
+
+	/**
+	 * Adds the preferences of a ranker.
+	 *
+	 * @param ranker_iH
+	 * @param weight The weight of the ranker.
+	 */
+	public void addRanker(IndexedRankerHandler ranker_iH, int weight){
+		update(Collections.singletonList(ranker_iH), new int[]{weight}, 1);
+	}
+
+	/**
+	 * Removes the preferences of a ranker which has been added before with the same weight.
+	 *
+	 * @param ranker_iH
+	 * @param weight The weight of the ranker.
+	 */
+	public void removeRanker(IndexedRankerHandler ranker_iH, int weight){
+		update(Collections.singletonList(ranker_iH), new int[]{weight}, -1);
+	}
+
+	/**
+	 * Adds (sign = 1) or removes (sign = -1) the preferences of a list of rankers.
+	 *
+	 * @param rankersListH
+	 * @param weights The weight of each ranker in rankersListH.
+	 * @param sign
+	 */
+	private void update(List<IndexedRankerHandler> rankersListH, int[] weights, int sign){
+		int numberOfRankers = rankersListH.size();
+
+		//Check the removed rankers before anything is changed
+		int[] removedIndices = new int[numberOfRankers];
+		if(sign < 0)
+			for(int l = 0; l < numberOfRankers; l++){
+				removedIndices[l] = indexOf(rankersListH.get(l), weights[l], removedIndices, l);
+				if(removedIndices[l] < 0)
+					throw new IllegalArgumentException("The ranker has not been added with the weight " + weights[l]);
+			}
+
+		if(sign > 0)
+			for(int l = 0; l < numberOfRankers; l++){
+				rankers.add(rankersListH.get(l));
+				rankerWeights.add(weights[l]);
+			}
+		else{
+			Arrays.sort(removedIndices);
+			for(int l = numberOfRankers - 1; l >= 0; l--){
+				rankers.remove(removedIndices[l]);
+				rankerWeights.remove(removedIndices[l]);
+				if(counts == Counts.RANKINGS)
+					rankingsByRow.remove(removedIndices[l]);
+			}
+		}
+		for(int l = 0; l < numberOfRankers; l++){
+			totalWeight += sign * weights[l];
+			absoluteWeight += sign * Math.abs((long) weights[l]);
+			if(weights[l] < 0)
+				negativeWeights += sign;
+		}
+
+		Counts required = requiredCounts();
+		if((counts == null || required.compareTo(counts) > 0) && widen(required))
+			return;
+		if(counts == Counts.RANKINGS){
+			if(sign > 0)
+				for(int l = 0; l < numberOfRankers; l++)
+					rankingsByRow.add(rankingsByRow(rankersListH.get(l)));
+			return;
+		}
+
+		//The rankings of the models of the aggregate ranker in each ranker, in the order of the rows.
+		final int[][] rankingsByRow = new int[numberOfRankers][];
+		final int[] signedWeights = new int[numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++){
+			rankingsByRow[l] = rankingsByRow(rankersListH.get(l));
+			signedWeights[l] = sign * weights[l];
+		}
+		fill(rankingsByRow, signedWeights);
+	}
+
+	/**
+	 *
+	 * @param ranker_iH
+	 * @param weight
+	 * @param skippedIndices Indices which are not returned.
+	 * @param numberOfSkippedIndices
+	 * @return The last index of the ranker with the weight in the added rankers, -1 if it has not been added.
+	 */
+	private int indexOf(IndexedRankerHandler ranker_iH, int weight, int[] skippedIndices, int numberOfSkippedIndices){
+		search:
+		for(int index = rankers.size() - 1; index >= 0; index--){
+			if(rankers.get(index) != ranker_iH || rankerWeights.get(index) != weight)
+				continue;
+			for(int l = 0; l < numberOfSkippedIndices; l++)
+				if(skippedIndices[l] == index)
+					continue search;
+			return index;
+		}
+		return -1;
+	}
+
+	/**
+	 *
+	 * @return The number of pairs of models of the aggregate ranker, in long because it exceeds int from 46342 models on.
+	 */
+	private long numberOfPairs(){
+		return (long) size * (size - 1) / 2;
+	}
+
+	/**
+	 *
+	 * @return How the preferences of the added rankers can be kept.
+	 */
+	private Counts requiredCounts(){
+		long numberOfPairs = numberOfPairs();
+		boolean arrays = numberOfPairs <= Integer.MAX_VALUE - 8;
+		if(arrays && negativeWeights == 0 && absoluteWeight <= MAX_BYTE_COUNT && 2 * numberOfPairs <= maxCountBytes)
+			return Counts.BYTES;
+		if(arrays && absoluteWeight <= Short.MAX_VALUE && 4 * numberOfPairs <= maxCountBytes)
+			return Counts.SHORTS;
+		return Counts.RANKINGS;
+	}
+
+	/**
+	 * Changes how the preferences are kept. The counts of bytes are copied into shorts,
+	 * the other counts are built from the added rankers.
+	 *
+	 * @param required
+	 * @return true, if the counts have been built from all added rankers.
+	 */
+	private boolean widen(Counts required){
+		Counts previous = counts;
+		counts = required;
+		if(required == Counts.RANKINGS){
+			rowOffsets = null;
+			rowPreferredBytes = columnPreferredBytes = null;
+			rowPreferred = columnPreferred = null;
+			rankingsByRow = new ArrayList<int[]>(rankers.size());
+			for(IndexedRankerHandler ranker_iH: rankers)
+				rankingsByRow.add(rankingsByRow(ranker_iH));
+			return true;
+		}
+
+		//requiredCounts has checked that the pairs fit into an array
+		int numberOfPairs = (int) numberOfPairs();
+		if(previous == null){
+			rowOffsets = new int[size];
+			int offset = 0;
+			for(int row = 0; row < size; row++){
+				rowOffsets[row] = offset;
+				offset += size - row - 1;
+			}
+			if(required == Counts.BYTES){
+				rowPreferredBytes = new byte[numberOfPairs];
+				columnPreferredBytes = new byte[numberOfPairs];
+			}
+			else{
+				rowPreferred = new short[numberOfPairs];
+				columnPreferred = new short[numberOfPairs];
+			}
+			return false;
+		}
+
+		//From bytes to shorts
+		rowPreferred = new short[numberOfPairs];
+		columnPreferred = new short[numberOfPairs];
+		for(int pair = 0; pair < numberOfPairs; pair++){
+			rowPreferred[pair] = (short) (rowPreferredBytes[pair] & 0xFF);
+			columnPreferred[pair] = (short) (columnPreferredBytes[pair] & 0xFF);
+		}
+		rowPreferredBytes = columnPreferredBytes = null;
+		//The counts of the added rankers have not been filled in yet
+		return false;
+	}
+
+	/**
+	 *
+	 * @param ranker_iH
+	 * @return The rankings of the models of the aggregate ranker in the ranker, in the order of the rows.
+	 * Models which are not contained in the ranker are ranked after all other models.
+	 */
+	private int[] rankingsByRow(IndexedRankerHandler ranker_iH){
+		int[] rankings = new int[size];
+		for(int row = 0; row < size; row++){
+			int ranking = ranker_iH.getRankingByModelIndex(rowModelIndex[row]);
+			rankings[row] = (ranking == IndexedRankerHandler.ABSENT) ? Integer.MAX_VALUE : ranking;
+		}
+		return rankings;
+	}
+
+	/**
+	 * Adds the preferences of rankers to the arrays. The rows are filled in blocks, which write disjoint parts of the arrays.
+	 *
+	 * @param rankingsByRow
+	 * @param signedWeights
+	 */
+	private void fill(int[][] rankingsByRow, int[] signedWeights){
+		int numberOfBlocks = (size + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+		IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+			int to = Math.min(size, (block + 1) * ROWS_PER_BLOCK);
+			for(int row = block * ROWS_PER_BLOCK; row < to; row++){
+				if(counts == Counts.BYTES)
+					fillRowBytes(row, rankingsByRow, signedWeights);
+				else fillRow(row, rankingsByRow, signedWeights);
+			}
+		});
+	}
+
+	/**
+	 * Counts the preferences between the model of a row and the models of all following rows.
+	 *
+	 * @param row
+	 * @param rankingsByRow
+	 * @param weights
+	 */
+	private void fillRow(int row, int[][] rankingsByRow, int[] weights){
+		int offset = rowOffsets[row] - row - 1;
+
+		for(int l = 0; l < rankingsByRow.length; l++){
+			int[] rankings = rankingsByRow[l];
+			short weight = (short) weights[l];
+			int rankingOfModel1 = rankings[row];
+
+			for(int column = row + 1; column < size; column++){
+				int rankingOfModel2 = rankings[column];
+				if(rankingOfModel1 < rankingOfModel2)
+					rowPreferred[offset + column] += weight;
+				else if(rankingOfModel2 < rankingOfModel1)
+					columnPreferred[offset + column] += weight;
+			}
+		}
+	}
+
+	/**
+	 * Counts the preferences between the model of a row and the models of all following rows into the bytes.
+	 *
+	 * @param row
+	 * @param rankingsByRow
+	 * @param weights
+	 */
+	private void fillRowBytes(int row, int[][] rankingsByRow, int[] weights){
+		int offset = rowOffsets[row] - row - 1;
+
+		for(int l = 0; l < rankingsByRow.length; l++){
+			int[] rankings = rankingsByRow[l];
+			byte weight = (byte) weights[l];
+			int rankingOfModel1 = rankings[row];
+
+			for(int column = row + 1; column < size; column++){
+				int rankingOfModel2 = rankings[column];
+				if(rankingOfModel1 < rankingOfModel2)
+					rowPreferredBytes[offset + column] += weight;
+				else if(rankingOfModel2 < rankingOfModel1)
+					columnPreferredBytes[offset + column] += weight;
+			}
+		}
+	}
+
+	/**
+	 * Returns the weight of the rankers which rank model1 before model2.
+	 * Both models have to be contained in the aggregate ranker.
+	 *
+	 * @param modelIndex1
+	 * @param modelIndex2
+	 * @return The weight of the rankers which prefer model1 to model2.
+	 */
+	public int getPreference(int modelIndex1, int modelIndex2){
+		int row1 = modelIndexRow[modelIndex1];
+		int row2 = modelIndexRow[modelIndex2];
+		if(row1 == row2 || counts == null)
+			return 0;
+
+		switch(counts){
+		case BYTES:
+			if(row1 < row2)
+				return rowPreferredBytes[rowOffsets[row1] + row2 - row1 - 1] & 0xFF;
+			else return columnPreferredBytes[rowOffsets[row2] + row1 - row2 - 1] & 0xFF;
+		case SHORTS:
+			if(row1 < row2)
+				return rowPreferred[rowOffsets[row1] + row2 - row1 - 1];
+			else return columnPreferred[rowOffsets[row2] + row1 - row2 - 1];
+		default:
+			int preference = 0;
+			for(int l = 0; l < rankingsByRow.size(); l++){
+				int[] rankings = rankingsByRow.get(l);
+				if(rankings[row1] < rankings[row2])
+					preference += rankerWeights.get(l);
+			}
+			return preference;
+		}
+	}
+
+	/**
+	 *
+	 * @return true, if the preferences are kept in arrays, false if they are counted when they are read.
+	 */
+	public boolean isTabulated(){
+		return counts != Counts.RANKINGS;
+	}
+
+	/**
+	 *
+	 * @return The sum of the weights of all rankers.
+	 */
+	public int getTotalWeight(){
+		return this.totalWeight;
+	}
+
+	/**
+	 *
+	 * @return The number of models in the aggregate ranker.
+	 */
+	public int getSize(){
+		return this.size;
+	}
+
+	/**
+	 *
+	 * @param numberOfRankers
+	 * @return An array of weights which are all 1.
+	 */
+	private static int[] unitWeights(int numberOfRankers){
+		int[] weights = new int[numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++)
+			weights[l] = 1;
+		return weights;
+	}
+
+}
@@ -0,0 +1,169 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * A parallel variant of the local Kemenization. The initial aggregate ranker is split into contiguous blocks,
+ * which are locally Kemenized in parallel. Neighbouring blocks are merged with the same majority comparator:
+ * a model of the right block is put before the next model of the left block if more rankers prefer it.
+ * The majority is not transitive, so that the pairs of models from different blocks which became adjacent
+ * by the merge are repaired by swapping adjacent pairs (AdjacentPairsSearch) until no adjacent pair is preferred
+ * the other way round by the majority of the rankers. The result is locally Kemeny optimal like the result of
+ * the sequential local Kemenization, but it may be a different one.
+ * @author Mariam Nassar
+ *
+ */
+public class ParallelLocalKemenization {
+	/**
+	 * The default number of models of a block.
+	 */
+	public static final int DEFAULT_BLOCK_LENGTH = 256;
+
+	/**
+	 * The pool which fills the pairwise preferences and Kemenizes and merges the blocks.
+	 */
+	private ForkJoinPool pool;
+	/**
+	 * The maximal number of models of a block.
+	 */
+	private int blockLength;
+
+
+	/**
+	 * Constructor. The preferences are filled and the blocks are Kemenized on the common ForkJoinPool.
+	 */
+	public ParallelLocalKemenization(){
+		this(ForkJoinPool.commonPool(), DEFAULT_BLOCK_LENGTH);
+	}
+
+	/**
+	 * Constructor.
+	 * @param pool The pool which fills the pairwise preferences and Kemenizes and merges the blocks.
+	 * @param blockLength The maximal number of models of a block.
+	 */
+	public ParallelLocalKemenization(ForkJoinPool pool, int blockLength){
+		if(blockLength < 2)
+			throw new IllegalArgumentException("A block must contain at least 2 models: " + blockLength);
+
+		this.pool = pool;
+		this.blockLength = blockLength;
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker by the parallel local Kemenization.
+	 * Like RankAggregation.aggregate, it changes the scores of the models of the initial aggregate ranker.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return Aggregate list of models
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+
+		ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = RankAggregation.buildRankerHandlers(rankersList, dictionary);
+
+		//The preferences are filled by a parallel stream, which runs on the pool of the task, not on the common pool
+		PairwisePreference preference = pool.submit(() -> new PairwisePreference(rankersListH, aggregateRankerH)).join();
+		return localKemenization(preference, aggregateRankerH);
+	}
+
+	/**
+	 * Parallel local Kemenization of the aggregate ranker.
+	 *
+	 * @param preference The pairwise preferences of the rankers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @return An aggregate list of models.
+	 */
+	List<Model> localKemenization(PairwisePreference preference, IndexedRankerHandler aggregateRankerH){
+		pool.invoke(new BlockTask(preference, aggregateRankerH, 0, aggregateRankerH.getRankerSize()));
+
+		List<Model> results = aggregateRankerH.makeResultsListRankBased();
+		return results;
+	}
+
+
+	/**
+	 * Kemenizes a part of the aggregate ranker: a block directly, a larger part by two halves which are merged afterwards.
+	 * The tasks write disjoint parts of the aggregate ranker.
+	 */
+	private class BlockTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private PairwisePreference preference;
+		private IndexedRankerHandler aggregateRankerH;
+		private int from;
+		private int to;
+
+
+		BlockTask(PairwisePreference preference, IndexedRankerHandler aggregateRankerH, int from, int to){
+			this.preference = preference;
+			this.aggregateRankerH = aggregateRankerH;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from <= blockLength){
+				RankAggregation.localKemenization(preference, aggregateRankerH, from, to, AggregationTrace.DISABLED);
+				return;
+			}
+
+			//Split at a block border, so that only the last block may be shorter
+			int numberOfBlocks = (to - from + blockLength - 1) / blockLength;
+			int middle = from + (numberOfBlocks / 2) * blockLength;
+			invokeAll(new BlockTask(preference, aggregateRankerH, from, middle), new BlockTask(preference, aggregateRankerH, middle, to));
+
+			merge(middle);
+		}
+
+		/**
+		 * Merges the Kemenized parts [from, middle) and [middle, to) and repairs the pairs of models from different parts
+		 * which became adjacent.
+		 *
+		 * @param middle
+		 */
+		private void merge(int middle){
+			int[] modelIndexList = aggregateRankerH.getModelIndexList();
+			int length = to - from;
+			int[] merged = new int[length];
+			//true, if the merged model at the position comes from the right part
+			boolean[] fromRight = new boolean[length];
+
+			int left = from;
+			int right = middle;
+			for(int k = 0; k < length; k++){
+				boolean takeRight;
+				if(left == middle)
+					takeRight = true;
+				else if(right == to)
+					takeRight = false;
+				else{
+					//pro: the number of rankers which prefer the left model, con: the number of rankers which prefer the right model
+					int pro = preference.getPreference(modelIndexList[left], modelIndexList[right]);
+					int con = preference.getPreference(modelIndexList[right], modelIndexList[left]);
+					takeRight = con > pro;
+				}
+				fromRight[k] = takeRight;
+				merged[k] = takeRight ? modelIndexList[right++] : modelIndexList[left++];
+			}
+
+			for(int k = 0; k < length; k++)
+				aggregateRankerH.setModelIndexAtRanking(from + k + 1, merged[k]);
+
+			//Adjacent models from the same part are adjacent in that part as well, so only the other pairs are repaired
+			int[] boundaryPairs = new int[length];
+			int numberOfBoundaryPairs = 0;
+			for(int k = 0; k + 1 < length; k++)
+				if(fromRight[k] != fromRight[k + 1])
+					boundaryPairs[numberOfBoundaryPairs++] = from + k;
+
+			new AdjacentPairsSearch().search(aggregateRankerH, preference, from, to, boundaryPairs, numberOfBoundaryPairs);
+		}
+	}
+
+}
@@ -1,9 +1,9 @@
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 /**
  * This class contains the aggregation methods for the models lists.  
@@ -11,6 +11,120 @@ import java.util.List;
  *
  */
 public class RankAggregation {
+	/**
+	 * The number of rows of a matrix which are computed by one task.
+	 */
+	private static final int ROWS_PER_BLOCK = 64;
+	/**
+	 * The default constant k of the reciprocal rank fusion, which damps the weight of the top rankings.
+	 */
+	public static final int DEFAULT_RECIPROCAL_RANK_FUSION_K = 60;
+	/**
+	 * The listener which gets the timings and the counters of each aggregation.
+	 */
+	private static volatile AggregationListener listener = AggregationListener.NO_OP;
+	/**
+	 * The constant k of the reciprocal rank fusion.
+	 */
+	private static volatile int reciprocalRankFusionK = DEFAULT_RECIPROCAL_RANK_FUSION_K;
+	/**
+	 * The Markov chain aggregation of MARKOV_CHAIN.
+	 */
+	private static volatile MarkovChainAggregation markovChainAggregation = new MarkovChainAggregation();
+	/**
+	 * The randomized pivot aggregation of KWIK_SORT.
+	 */
+	private static volatile KwikSortAggregation kwikSortAggregation = new KwikSortAggregation();
+	
+	
+	/**
+	 * Sets the listener which gets the timings and the counters of each aggregation.
+	 * 
+	 * @param aggregationListener The listener, or null to ignore the aggregations again.
+	 */
+	public static void setListener(AggregationListener aggregationListener){
+		listener = (aggregationListener != null) ? aggregationListener : AggregationListener.NO_OP;
+	}
+	
+	
+	/**
+	 * 
+	 * @return The listener which gets the timings and the counters of each aggregation.
+	 */
+	public static AggregationListener getListener(){
+		return listener;
+	}
+	
+	
+	/**
+	 * Sets the constant k of the reciprocal rank fusion: a model at ranking r gets the score w / (k + r) from a ranker
+	 * with the weight w.
+	 * 
+	 * @param k The constant, at least 0. The default is DEFAULT_RECIPROCAL_RANK_FUSION_K.
+	 */
+	public static void setReciprocalRankFusionK(int k){
+		if (k < 0)
+			throw new IllegalArgumentException("The constant of the reciprocal rank fusion must not be negative: " + k);
+		reciprocalRankFusionK = k;
+	}
+	
+	
+	/**
+	 * 
+	 * @return The constant k of the reciprocal rank fusion.
+	 */
+	public static int getReciprocalRankFusionK(){
+		return reciprocalRankFusionK;
+	}
+	
+	
+	/**
+	 * Sets the Markov chain aggregation of MARKOV_CHAIN, e.g. one with a warm start or another tolerance.
+	 * 
+	 * @param aggregation
+	 */
+	public static void setMarkovChainAggregation(MarkovChainAggregation aggregation){
+		markovChainAggregation = (aggregation != null) ? aggregation : new MarkovChainAggregation();
+	}
+	
+	
+	/**
+	 * 
+	 * @return The Markov chain aggregation of MARKOV_CHAIN.
+	 */
+	public static MarkovChainAggregation getMarkovChainAggregation(){
+		return markovChainAggregation;
+	}
+	
+	
+	/**
+	 * Sets the randomized pivot aggregation of KWIK_SORT, e.g. one with another seed or without polish.
+	 * 
+	 * @param aggregation
+	 */
+	public static void setKwikSortAggregation(KwikSortAggregation aggregation){
+		kwikSortAggregation = (aggregation != null) ? aggregation : new KwikSortAggregation();
+	}
+	
+	
+	/**
+	 * 
+	 * @return The randomized pivot aggregation of KWIK_SORT.
+	 */
+	public static KwikSortAggregation getKwikSortAggregation(){
+		return kwikSortAggregation;
+	}
+	
+	
+	/**
+	 * 
+	 * @return The current global settings of RECIPROCAL_RANK_FUSION, MARKOV_CHAIN and KWIK_SORT, which do not change
+	 * when the settings of RankAggregation are changed later.
+	 */
+	public static AggregationSettings getSettings(){
+		return new AggregationSettings(reciprocalRankFusionK, markovChainAggregation, kwikSortAggregation);
+	}
+	
 	
 	/**
 	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method.
@@ -22,190 +136,562 @@ public class RankAggregation {
 	 * @return Aggregate list of models
 	 */
 	public static List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, int rankersWeights){
+		return aggregate(rankersList, initialAggregateRanker, aggregateMethod, decodeWeights(rankersWeights));
+	}
+	
+	
+	/**
+	 * Decodes the weights of the first 4 rankers in the rankersList, two decimal digits each.
+	 * 
+	 * @param rankersWeights
+	 * @return The 4 weights.
+	 */
+	static float[] decodeWeights(int rankersWeights){
+		float[] weights = new float[4];
+		for(int i = 0; i < 4; i++){
+			weights[i] = rankersWeights % 100;
+			rankersWeights = rankersWeights / 100;
+		}
+		return weights;
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod AUTO aggregates within AggregationPlanner.DEFAULT_LATENCY_BUDGET_MILLIS.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @return Aggregate list of models
+	 */
+	public static List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
 
 		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+		if (aggregateMethod == RankAggregationType.Types.AUTO)
+			return aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, AggregationPlanner.DEFAULT_LATENCY_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankersList.size());
+		
+		AggregateResult result = aggregateResult(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, trace);
+		return toList(result, initialAggregateRanker, aggregateMethod, aggregationListener, trace);
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method
+	 * and orders the head of the aggregate list Kemeny optimally within the budget of the search, see KemenyHeadSearch.
+	 * The rest of the aggregate list keeps the order of the method.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod AUTO aggregates with AggregationPlanner.AUTO_METHOD, without latency budget.
+	 * DEFAULT orders only the head of the initial aggregate ranker.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @param exactHead The search of the head, which keeps the statistics of this aggregation.
+	 * @return Aggregate list of models
+	 */
+	public static List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			KemenyHeadSearch exactHead){
+		
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+		if (aggregateMethod == RankAggregationType.Types.AUTO)
+			aggregateMethod = AggregationPlanner.AUTO_METHOD;
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankersList.size());
+		
+		ModelIdDictionary dictionary = buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = buildRankerHandlers(rankersList, dictionary);
+		trace.mark(AggregationPhase.HANDLER_CONSTRUCTION);
+		
+		//The result shares the order of the aggregate ranker handler, so that it gets the ordered head
+		AggregateResult result = aggregate(rankersListH, aggregateRankerH, aggregateMethod, rankersWeights, trace);
+		exactHead.search(rankersListH, aggregateRankerH);
+		trace.addComparisons(exactHead.getNodes());
+		trace.mark(AggregationPhase.SEARCH);
+		
+		List<Model> results = result.toList();
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		complete(aggregationListener, trace);
+		return results;
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method
+	 * and returns a view of the aggregate list instead of a list, e.g. for reading one page with slice(offset, limit).
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod AUTO aggregates within AggregationPlanner.DEFAULT_LATENCY_BUDGET_MILLIS,
+	 * the view has the chosen plan, see AggregateResult.getPlan.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @return A view of the aggregate list of models
+	 */
+	public static AggregateResult aggregateResult(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		
+		if (aggregateMethod == RankAggregationType.Types.AUTO)
+			return aggregateResult(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, AggregationPlanner.DEFAULT_LATENCY_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+		if (initialAggregateRanker.isEmpty()) return AggregateResult.of(initialAggregateRanker);
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankersList.size());
+		
+		AggregateResult result = aggregateResult(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, trace);
+		complete(aggregationListener, trace);
+		return result;
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method
+	 * without changing any model of the caller. The aggregate scores and order are kept in the arrays of the buffer,
+	 * which are reused by the next aggregation into the buffer.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod AUTO aggregates with AggregationPlanner.AUTO_METHOD, without latency budget.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @param buffer The buffer for the aggregation, e.g. AggregationBuffer.get() of the current thread.
+	 * @return A view of the aggregate list of the unchanged models with the aggregate scores,
+	 * valid until the buffer is used again.
+	 */
+	public static AggregateResult aggregateResult(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationBuffer buffer){
+		return aggregateResult(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, buffer, getSettings());
+	}
+	
+	
+	/**
+	 * Aggregates like aggregateResult with a buffer, with the given settings instead of the global settings.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param buffer
+	 * @param settings The settings of RECIPROCAL_RANK_FUSION, MARKOV_CHAIN and KWIK_SORT.
+	 * @return A view of the aggregate list of the unchanged models with the aggregate scores,
+	 * valid until the buffer is used again.
+	 */
+	static AggregateResult aggregateResult(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationBuffer buffer, AggregationSettings settings){
+		
+		if (aggregateMethod == RankAggregationType.Types.AUTO)
+			aggregateMethod = AggregationPlanner.AUTO_METHOD;
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankersList.size());
+		
+		IndexedRankerHandler aggregateRankerH = buffer.fill(rankersList, initialAggregateRanker);
+		trace.mark(AggregationPhase.HANDLER_CONSTRUCTION);
+		
+		AggregateResult result = aggregate(buffer.getRankerHandlers(), aggregateRankerH, aggregateMethod, rankersWeights, settings, trace);
+		complete(aggregationListener, trace);
+		return result;
+	}
+	
+	
+	/**
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param trace
+	 * @return A view of the aggregate list of models
+	 */
+	private static AggregateResult aggregateResult(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationTrace trace){
 		//Build the ranker handlers
-		RankerHandler aggregateRankerH = new RankerHandler(initialAggregateRanker);
-		List<RankerHandler> rankersListH = new LinkedList<RankerHandler>();
-		for(List<Model> ranker: rankersList){
-			RankerHandler rankerH = new RankerHandler(ranker);
-			rankersListH.add(rankerH);
-		}
+		ModelIdDictionary dictionary = buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = buildRankerHandlers(rankersList, dictionary);
+		trace.mark(AggregationPhase.HANDLER_CONSTRUCTION);
 		
-		HashMap<Integer, Integer> weights = new HashMap<Integer, Integer>();
+		return aggregate(rankersListH, aggregateRankerH, aggregateMethod, rankersWeights, trace);
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method,
+	 * without telling the listener, e.g. for the calibration benchmark of the AggregationPlanner.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod Neither DEFAULT nor AUTO.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @return A view of the aggregate list of models
+	 */
+	static AggregateResult aggregateUntraced(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		return aggregateResult(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights, AggregationTrace.DISABLED);
+	}
+	
+	
+	/**
+	 * Aggregates the rankers of a RankerFile with regard to an initial aggregate ranker using a chosen aggregate method.
+	 * The rankers are read from the mapped file without model objects, only the initial aggregate ranker has models.
+	 * 
+	 * @param rankerFile
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod AUTO aggregates with AggregationPlanner.AUTO_METHOD, without latency budget.
+	 * @param rankersWeights The weight of each ranker in the rankerFile. Rankers without a weight have the weight 0.
+	 * @return Aggregate list of models
+	 */
+	public static List<Model> aggregate(RankerFile rankerFile, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
 		
-		//Build a hashmap which has the form: <ranker number, ranker weight> (for each ranker in the rankersList)
-		for(int i = 0; i < 4; i++){
-			weights.put(i, rankersWeights % 100);
-			rankersWeights = rankersWeights / 100;
-		}
+		if (initialAggregateRanker.isEmpty()) return initialAggregateRanker;
+		if (aggregateMethod == RankAggregationType.Types.AUTO)
+			aggregateMethod = AggregationPlanner.AUTO_METHOD;
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankerFile.getNumberOfRankers());
+		
+		AggregateResult result = aggregateResult(rankerFile, initialAggregateRanker, aggregateMethod, rankersWeights, trace);
+		return toList(result, initialAggregateRanker, aggregateMethod, aggregationListener, trace);
+	}
+	
+	
+	/**
+	 * Aggregates the rankers of a RankerFile with regard to an initial aggregate ranker using a chosen aggregate method
+	 * and returns a view of the aggregate list instead of a list.
+	 * 
+	 * @param rankerFile
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod AUTO aggregates with AggregationPlanner.AUTO_METHOD, without latency budget.
+	 * @param rankersWeights The weight of each ranker in the rankerFile. Rankers without a weight have the weight 0.
+	 * @return A view of the aggregate list of models
+	 */
+	public static AggregateResult aggregateResult(RankerFile rankerFile, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights){
+		
+		if (initialAggregateRanker.isEmpty()) return AggregateResult.of(initialAggregateRanker);
+		if (aggregateMethod == RankAggregationType.Types.AUTO)
+			aggregateMethod = AggregationPlanner.AUTO_METHOD;
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankerFile.getNumberOfRankers());
+		
+		AggregateResult result = aggregateResult(rankerFile, initialAggregateRanker, aggregateMethod, rankersWeights, trace);
+		complete(aggregationListener, trace);
+		return result;
+	}
+	
+	
+	/**
+	 * 
+	 * @param rankerFile
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param trace
+	 * @return A view of the aggregate list of models
+	 */
+	private static AggregateResult aggregateResult(RankerFile rankerFile, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			AggregationTrace trace){
+		//Build the ranker handlers, the Ids of the initial aggregate ranker which are not in the file are added after the Ids of the file
+		ModelIdDictionary dictionary = rankerFile.newDictionary();
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = new ArrayList<IndexedRankerHandler>(rankerFile.getNumberOfRankers());
+		for(int l = 0; l < rankerFile.getNumberOfRankers(); l++)
+			rankersListH.add(new IndexedRankerHandler(rankerFile.getRanker(l), dictionary));
+		trace.mark(AggregationPhase.HANDLER_CONSTRUCTION);
+		
+		return aggregate(rankersListH, aggregateRankerH, aggregateMethod, rankersWeights, trace);
+	}
+	
+	
+	/**
+	 * Aggregates the ranker handlers with the chosen aggregate method.
+	 * 
+	 * @param rankersListH
+	 * @param aggregateRankerH
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param trace
+	 * @return A view of the aggregate list of models, the initial aggregate ranker for the default method.
+	 */
+	private static AggregateResult aggregate(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH,
+			RankAggregationType.Types aggregateMethod, float[] rankersWeights, AggregationTrace trace){
+		return aggregate(rankersListH, aggregateRankerH, aggregateMethod, rankersWeights, getSettings(), trace);
+	}
+	
+	
+	/**
+	 * Aggregates the ranker handlers with the chosen aggregate method and settings.
+	 * 
+	 * @param rankersListH
+	 * @param aggregateRankerH
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param settings The settings of RECIPROCAL_RANK_FUSION, MARKOV_CHAIN and KWIK_SORT.
+	 * @param trace
+	 * @return A view of the aggregate list of models, the initial aggregate ranker for the default method.
+	 */
+	private static AggregateResult aggregate(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH,
+			RankAggregationType.Types aggregateMethod, float[] rankersWeights, AggregationSettings settings, AggregationTrace trace){
 		
 		switch(aggregateMethod){ 
 			
 		case ADJACENT_PAIRS: 
-			return adj(rankersListH, aggregateRankerH); 
+			return adj(aggregateRankerH, preference(rankersListH, aggregateRankerH, trace), trace); 
 		case COMB_MNZ:
-			return combMNZ(rankersListH, aggregateRankerH);
+			return combMNZ(rankersListH, aggregateRankerH, trace);
+		case COMB_SUM:
+		case BORDA:
+		case RECIPROCAL_RANK_FUSION:
+			return linearFusion(rankersListH, aggregateRankerH, aggregateMethod, rankersWeights, settings.getReciprocalRankFusionK(), trace);
+		case MARKOV_CHAIN:
+			return settings.getMarkovChainAggregation().aggregate(rankersListH, aggregateRankerH, trace);
+		case KWIK_SORT:
+			return settings.getKwikSortAggregation().aggregate(rankersListH, aggregateRankerH, trace);
 		case LOCAL_KEMENIZATION:
-			return localKemenization(rankersListH, aggregateRankerH);
+			return localKemenization(preference(rankersListH, aggregateRankerH, trace), aggregateRankerH, trace);
 		case SUPERVISED_LOCAL_KEMENIZATION: 
-			return supervisedLocalKemenization(rankersListH, aggregateRankerH, weights);
+			double weightsSum = 0; //The sum of the weights of all rankers
+			for(float weight: rankersWeights)
+				weightsSum += weight;
+			
+			float[] rankerWeights = new float[rankersListH.size()];
+			for(int l = 0; l < rankerWeights.length && l < rankersWeights.length; l++)
+				rankerWeights[l] = rankersWeights[l];
+			return supervisedLocalKemenization(rankersListH, aggregateRankerH, rankerWeights, weightsSum, trace);
 		case DEFAULT: 
-			return initialAggregateRanker;
+			return aggregateRankerH.makeResult();
 		default: 
-			return initialAggregateRanker;
+			return aggregateRankerH.makeResult();
 		}
 	}
+	
+	
+	/**
+	 * Makes the list of models which aggregate returns and reports the trace to the listener.
+	 * 
+	 * @param result
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param aggregationListener
+	 * @param trace
+	 * @return A new list of the models of the result, the initial aggregate ranker itself for the default method.
+	 */
+	private static List<Model> toList(AggregateResult result, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod,
+			AggregationListener aggregationListener, AggregationTrace trace){
+		List<Model> results = (aggregateMethod == RankAggregationType.Types.DEFAULT) ? initialAggregateRanker : result.toList();
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		complete(aggregationListener, trace);
+		return results;
+	}
+	
+	
+	/**
+	 * 
+	 * @param aggregationListener
+	 * @param aggregateMethod
+	 * @param numberOfModels
+	 * @param numberOfRankers
+	 * @return A new trace which has been reported to the listener as started, or the disabled trace if nobody listens.
+	 */
+	private static AggregationTrace newTrace(AggregationListener aggregationListener, RankAggregationType.Types aggregateMethod, int numberOfModels, int numberOfRankers){
+		if (aggregationListener == AggregationListener.NO_OP)
+			return AggregationTrace.DISABLED;
+		AggregationTrace trace = new AggregationTrace(aggregateMethod, numberOfModels, numberOfRankers);
+		aggregationListener.aggregationStarted(trace);
+		return trace;
+	}
+	
+	
+	/**
+	 * Stops the clock of the trace and reports it to the listener.
+	 * 
+	 * @param aggregationListener
+	 * @param trace
+	 */
+	private static void complete(AggregationListener aggregationListener, AggregationTrace trace){
+		trace.finish();
+		if (trace.isEnabled())
+			aggregationListener.aggregationCompleted(trace);
+	}
 
 	
 	/**
-	 * Computes the Kendall-tau distance between two rankers.
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker within a latency budget.
+	 * The default AggregationPlanner chooses whether the method runs on the whole aggregate ranker or on its head,
+	 * or whether COMB_MNZ runs instead. aggregateResult with a latency budget returns the chosen plan as well.
+	 * If the default planner has not been calibrated yet, see AggregationPlanner.calibrateDefault, the calibration
+	 * takes from the budget.
 	 * 
-	 * @param aggregateRankerH The initial aggregate ranker.
-	 * @param ranker_iH 
-	 * @return The Kendall-tau distance between the given two rankers.
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod The requested method. AUTO requests AggregationPlanner.AUTO_METHOD.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @param latencyBudget
+	 * @param unit The unit of latencyBudget.
+	 * @return Aggregate list of models
+	 */
+	public static List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			long latencyBudget, TimeUnit unit){
+		long startTime = System.nanoTime();
+		AggregationPlanner planner = AggregationPlanner.getDefault();
+		AggregationPlan plan = planner.plan(rankersList, initialAggregateRanker, aggregateMethod, remainingBudget(startTime, latencyBudget, unit), TimeUnit.NANOSECONDS);
+		return planner.execute(plan, rankersList, initialAggregateRanker, rankersWeights);
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker within a latency budget
+	 * and returns a view of the aggregate list with the plan which the default AggregationPlanner has chosen.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod The requested method. AUTO requests AggregationPlanner.AUTO_METHOD.
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @param latencyBudget
+	 * @param unit The unit of latencyBudget.
+	 * @return A view of the aggregate list of models, AggregateResult.getPlan returns the plan.
 	 */
-	private static int distance(RankerHandler aggregateRankerH, RankerHandler ranker_iH){
-		int ranker_iLength = ranker_iH.getRankerSize();
+	public static AggregateResult aggregateResult(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, float[] rankersWeights,
+			long latencyBudget, TimeUnit unit){
+		long startTime = System.nanoTime();
+		AggregationPlanner planner = AggregationPlanner.getDefault();
+		AggregationPlan plan = planner.plan(rankersList, initialAggregateRanker, aggregateMethod, remainingBudget(startTime, latencyBudget, unit), TimeUnit.NANOSECONDS);
+		return AggregateResult.of(planner.execute(plan, rankersList, initialAggregateRanker, rankersWeights), plan);
+	}
+	
+	
+	/**
+	 * 
+	 * @param startTime The System.nanoTime() at the start of the aggregation.
+	 * @param latencyBudget
+	 * @param unit The unit of latencyBudget.
+	 * @return The nanoseconds which are left of the budget, e.g. after the first use has calibrated the default planner.
+	 */
+	private static long remainingBudget(long startTime, long latencyBudget, TimeUnit unit){
+		return Math.max(0, unit.toNanos(latencyBudget) - (System.nanoTime() - startTime));
+	}
+	
+	
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a chosen aggregate method
+	 * and returns only the first k models of the aggregate list.
+	 * COMB_MNZ reads the rankers from the top and stops as soon as no model which has not been read yet 
+	 * could be among the best k models (threshold algorithm). The other methods aggregate the whole list.
+	 * 
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 * @param k The number of models to return.
+	 * @return The first k models of the aggregate list of models
+	 */
+	public static List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod, int rankersWeights, int k){
 		
-		ArrayList<String> uniqueModelIDListR_i = ranker_iH.getUniqueModelIDList();
-		ArrayList<String> uniqueModelIDListRA = aggregateRankerH.getUniqueModelIDList();
+		if (aggregateMethod != RankAggregationType.Types.COMB_MNZ || initialAggregateRanker.isEmpty()){
+			List<Model> results = aggregate(rankersList, initialAggregateRanker, aggregateMethod, rankersWeights);
+			if (results.size() <= k) return results;
+			return new ArrayList<Model>(results.subList(0, k));
+		}
 		
-		//Counts the number of pairwise disagreements between the aggregate ranker and ranker_i
-		int sumOfDisagreements = 0; 
+		AggregationListener aggregationListener = listener;
+		AggregationTrace trace = newTrace(aggregationListener, aggregateMethod, initialAggregateRanker.size(), rankersList.size());
 		
-		//Counts the number of pairs (m1, m2) from aggregate ranker with m1 is ranked better than m2 and 
-		//ranker_i contains m2 but not m1
-		if (ranker_iLength > 0){
-			//The number of models from aggregate ranker which are not contained in ranker_i
-			int sumOfModelsNotInR_i = 0; 
-			for(String uniqueModelID : uniqueModelIDListRA){
-				if (ranker_iH.containsByUniqueModelID(uniqueModelID))
-					//For each model m from aggregate ranker, if m is contained in ranker_i, 
-					//add the number of models ranked higher than m but not contained in ranker_i
-					sumOfDisagreements += sumOfModelsNotInR_i;
-				else sumOfModelsNotInR_i++;
-			}
-		}
-			
-		//Counts the number of pairs (m1, m2) from aggregate ranker with m1 is ranked higher than m2 and 
-		//ranker_i ranks m2 higher than m1
-		for(int i = 0; i < ranker_iLength; i++){
-			String uniqueModelID1 = uniqueModelIDListR_i.get(i);
-			
-			for(int j = i+1; j < ranker_iLength; j++){
-				String uniqueModelID2 = uniqueModelIDListR_i.get(j);
-				int ranking2OfModel1 = aggregateRankerH.getRankingByUniqueModelID(uniqueModelID1);
-				int ranking2OfModel2 = aggregateRankerH.getRankingByUniqueModelID(uniqueModelID2);
-				
-				if(ranking2OfModel1 > ranking2OfModel2)
-					sumOfDisagreements++;
-				}
-		}
-			
-		return sumOfDisagreements;	
+		//Build the ranker handlers
+		ModelIdDictionary dictionary = buildDictionary(rankersList, initialAggregateRanker);
+		IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = buildRankerHandlers(rankersList, dictionary);
+		trace.mark(AggregationPhase.HANDLER_CONSTRUCTION);
+		
+		List<Model> results = combMNZTopK(rankersListH, aggregateRankerH, k, trace);
+		complete(aggregationListener, trace);
+		return results;
 	}
 	
 	
 	/**
-	 * Computes the average distance between the aggregate ranker after two adjacent model have been swapped in it and all the rankers in a list of rankers.
-	 * And updates the Kendall-tau distances between the aggregate and each ranker in the rankers list.
+	 * Interns the unique model Ids of all rankers, so that every handler covers the whole dictionary.
 	 * 
-	 * @param rankersListH
-	 * @param aggregateRankerH
-	 * @param uniqueModelID1
-	 * @param uniqueModelID2
-	 * @param distanceToRankers
-	 * @return The average distance between the aggregate ranker and all other rankers in the rankers list.
-	 */
-	//After swapping model1 and model2 in aggregate ranker:
-	//Returns the average distance between the aggregate ranker and all other rankers in rankersList
-	//(=(sum of the distances between the aggregate ranker and each ranker in rankersList) divided by the number of rankers in rankersList )
-	//and updates the distances between aggregate ranker and each ranker in the rankersList
-	private static double distanceAvg(List<RankerHandler> rankersListH, RankerHandler aggregateRankerH, String uniqueModelID1, String uniqueModelID2, double[] distanceToRankers){
-		int ranker_iLength = rankersListH.size();
-		double sumDistance = 0; //Sum of the distances between the aggregate ranker and each ranker in the rankersList
-		
-		for(int i = 0; i < ranker_iLength; i++){
-			RankerHandler ranker_iH = rankersListH.get(i);
-			
-			int rankingOfModel1 = ranker_iH.getRankingByUniqueModelID(uniqueModelID1);
-			if(rankingOfModel1 == -1) //If the model is not contained in ranker_i then:
-				rankingOfModel1 = Integer.MAX_VALUE; //Set the ranking of the model to max value
-			
-			int rankingOfModel2 = ranker_iH.getRankingByUniqueModelID(uniqueModelID2);
-			if(rankingOfModel2 == -1)
-				rankingOfModel2 = Integer.MAX_VALUE; 
-			
-			//Compare the rankings of model1 and model2 in ranker_i and increase / decrease the distance
-			if (rankingOfModel1 > rankingOfModel2)
-				distanceToRankers[i]++;
-			else if (rankingOfModel1 < rankingOfModel2)
-				distanceToRankers[i]--;
-			
-			sumDistance += distanceToRankers[i]; //Add the modified distance to the sum
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @return A dictionary with the unique model Ids of the initial aggregate ranker first.
+	 */
+	static ModelIdDictionary buildDictionary(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		ModelIdDictionary dictionary = new ModelIdDictionary();
+		dictionary.internAll(initialAggregateRanker);
+		for(List<Model> ranker: rankersList)
+			dictionary.internAll(ranker);
+		return dictionary;
+	}
+	
+	
+	/**
+	 * 
+	 * @param rankersList
+	 * @param dictionary
+	 * @return A list with a ranker handler for each ranker in rankersList.
+	 */
+	static List<IndexedRankerHandler> buildRankerHandlers(List<List<Model>> rankersList, ModelIdDictionary dictionary){
+		List<IndexedRankerHandler> rankersListH = new ArrayList<IndexedRankerHandler>();
+		for(List<Model> ranker: rankersList){
+			IndexedRankerHandler rankerH = new IndexedRankerHandler(ranker, dictionary);
+			rankersListH.add(rankerH);
 		}
+		return rankersListH;
+	}
+	
+	
+	/**
+	 * 
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param trace
+	 * @return The pairwise preferences of the rankers, each ranker with the weight 1.
+	 */
+	private static PairwisePreference preference(List<IndexedRankerHandler>rankersListH, IndexedRankerHandler aggregateRankerH, AggregationTrace trace){
+		PairwisePreference preference = new PairwisePreference(rankersListH, aggregateRankerH);
 		
-		if(ranker_iLength > 0)
-			sumDistance = sumDistance / ranker_iLength; //Divide the sum by the number of rankers in rankersList
-		return sumDistance;
+		long aggregateRankerLength = aggregateRankerH.getRankerSize();
+		trace.addRankLookups(aggregateRankerLength * rankersListH.size());
+		if(preference.isTabulated())
+			trace.addComparisons(aggregateRankerLength * (aggregateRankerLength - 1) / 2 * rankersListH.size());
+		trace.mark(AggregationPhase.DISTANCE_INITIALISATION);
+		return preference;
+	}
+	
+	
+	/**
+	 * Computes the change of the sum of the distances between the aggregate ranker and all the rankers in a list of rankers,
+	 * after two adjacent models have been swapped in the aggregate ranker.
+	 * Only the pair of the swapped models could change the distances.
+	 * 
+	 * @param preference The pairwise preferences of the rankers.
+	 * @param modelIndex1 The model which is ranked first after swapping.
+	 * @param modelIndex2 The model which is ranked second after swapping.
+	 * @return The change of the sum of the distances.
+	 */
+	//Each ranker which prefers model2 to model1 disagrees with the swapped pair now (+1)
+	//and each ranker which prefers model1 to model2 agrees with it now (-1)
+	static int distanceChange(PairwisePreference preference, int modelIndex1, int modelIndex2){
+		return preference.getPreference(modelIndex2, modelIndex1) - preference.getPreference(modelIndex1, modelIndex2);
 	}
 	
 	
 	/**
 	 * Adjacent pairs aggregation method based on Kendall-tau distance.
 	 * 
-	 * @param rankersListH A list of other ranker handlers.
 	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param preference The pairwise preferences of the rankers.
+	 * @param trace
 	 * @return An aggregate list of models.
 	 */
 	//Adjacent pairs aggregation method based on Kendall-tau distance 
-	//Swaps every two adjacent models in the initial aggregate ranker.
-	//If the average distance between the aggregate ranker after swapping and the other rankers is improved
-	//Permanently swap. Swap back otherwise.
-	private static List<Model> adj (List<RankerHandler>rankersListH, RankerHandler aggregateRankerH){ //adjacent pairs, based on Ke-tau
-		double dintanceMin = 0; //The minimal average distance so far
-		int count = 0; //Counts the rounds of swapping every two adjacent models in the initial ranker
-		int numOfSwaps = 0;
-		ArrayList<String> uniqueModelIDList = aggregateRankerH.getUniqueModelIDList();
-		int ranker_iLength = rankersListH.size();
-		//The distance between the aggregate ranker and each other ranker in the rankersList
-		double[] distanceToRankers = new double[ranker_iLength];  
-		double[] tempDistanceToRankers = new double[ranker_iLength];
-		
-		//Compute the initial distances
-		for(int i = 0; i < rankersListH.size(); i++){
-			RankerHandler ranker_iH = rankersListH.get(i);
-			distanceToRankers[i] = distance(aggregateRankerH, ranker_iH);
-			dintanceMin += distanceToRankers[i];
-		}
+	//Swaps two adjacent models in the aggregate ranker if the sum of the distances between the aggregate ranker
+	//and the other rankers is improved, until no adjacent pair can be improved. See AdjacentPairsSearch.
+	static AggregateResult adj (IndexedRankerHandler aggregateRankerH, PairwisePreference preference, AggregationTrace trace){ //adjacent pairs, based on Ke-tau
+		AdjacentPairsSearch search = new AdjacentPairsSearch();
+		search.search(aggregateRankerH, preference);
+		trace.addComparisons(search.getExaminedPairs());
+		trace.addSwaps(search.getSwaps());
+		trace.addSweeps(search.getSweeps());
+		trace.mark(AggregationPhase.SEARCH);
 		
-		//The initial distanceMin = the initial average distance
-		dintanceMin = dintanceMin / rankersListH.size();
-		
-		while ((count < 100) && (numOfSwaps > 0)){ //repeat 100 rounds
-			for(int i = 0; i < aggregateRankerH.getRankerSize() - 2; i++){
-				aggregateRankerH.swap(uniqueModelIDList.get(i), uniqueModelIDList.get(i+1));
-				for(int r = 0; r < 4; r++)
-					tempDistanceToRankers[r] = distanceToRankers[r];
-				double distAvg = distanceAvg(rankersListH, aggregateRankerH, uniqueModelIDList.get(i), uniqueModelIDList.get(i+1), tempDistanceToRankers);
-				if (distAvg < dintanceMin){ //If average distance has been improved after swapping
-					dintanceMin = distAvg; //Update the minimal distance
-					numOfSwaps++;
-					for(int r = 0; r < 4; r++) //Update the distances to the rankers
-						distanceToRankers[r] = tempDistanceToRankers[r];
-				}
-				else{
-					//swap back if distance has not been improved 
-					aggregateRankerH.swap(uniqueModelIDList.get(i), uniqueModelIDList.get(i+1)); 
-				}
-			}
-			
-			count++;
-		}
-	
-		List<Model> results = aggregateRankerH.makeResultsListRankBased(); 
-		return results;
+		AggregateResult result = aggregateRankerH.makeResultRankBased(); 
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
 	}
 	
 	
@@ -215,36 +701,262 @@ public class RankAggregation {
 	 * 
 	 * @param rankersListH A list of other ranker handlers.
 	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param trace
 	 * @return An aggregate list of models.
 	 */
 	//CombMNZ method. Based on the normalized Borda rank. 
 	//The new score for each model will be:
 	//(the sum of Borda rank normalization related to each ranker) * (the number of the rankers the model is contained in) 
-	private static List<Model> combMNZ(List<RankerHandler>rankersListH, RankerHandler aggregateRankerH){
+	static AggregateResult combMNZ(List<IndexedRankerHandler>rankersListH, IndexedRankerHandler aggregateRankerH, AggregationTrace trace){
 		int s = rankersListH.size();
 		float maxPossibleScore = s * s;  //The maximum value the score could ever have
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
 		
-		for (String uniqueModelID : aggregateRankerH.getUniqueModelIDList()) {
-			int h = 0; //Denotes the number of times model appears in the rankers
-			float brn_sum = 0; //Borda rank normalization for the model
+		for (int k = 0; k < aggregateRankerLength; k++) {
+			int modelIndex = modelIndexList[k];
+			float scoreProcent = combMNZScore(rankersListH, modelIndex, aggregateRankerLength, maxPossibleScore);
+			aggregateRankerH.updateScoreByModelIndex(modelIndex, scoreProcent); //Set new score
+		}
+		trace.addRankLookups((long) aggregateRankerLength * s);
+		trace.mark(AggregationPhase.DISTANCE_INITIALISATION);
+		
+		aggregateRankerH.sortModelsByScore();
+		trace.mark(AggregationPhase.SEARCH);
+		
+		//Make a list with the models
+		AggregateResult result = aggregateRankerH.makeResult(); 
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
+	}
+	
+	
+	/**
+	 * Linear time fusion of the weighted rankings. A model at ranking r of a ranker with the weight w and n models
+	 * gets the score:
+	 * <ul>
+	 * <li>COMB_SUM: w * (1 - (r - 1) / N), the normalized Borda rank of CombMNZ with N models in the aggregate ranker,</li>
+	 * <li>BORDA: w * (n - r + 1), the Borda count,</li>
+	 * <li>RECIPROCAL_RANK_FUSION: w / (k + r),</li>
+	 * </ul>
+	 * and 0 from a ranker which does not contain it. The scores of all rankers are summed up.
+	 * This is a score based aggregation method.
+	 * <p>
+	 * The rankings of each ranker are gathered into float arrays by the order of the aggregate ranker, a missing model
+	 * with the presence 0. The scores are then summed up by a loop without branches over these arrays,
+	 * which the JIT compiles into SIMD instructions.
+	 * 
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param aggregateMethod COMB_SUM, BORDA or RECIPROCAL_RANK_FUSION.
+	 * @param rankersWeights The weight of each ranker. Rankers without a weight have the weight 0.
+	 * @param k The constant of the reciprocal rank fusion.
+	 * @param trace
+	 * @return An aggregate list of models.
+	 */
+	static AggregateResult linearFusion(List<IndexedRankerHandler>rankersListH, IndexedRankerHandler aggregateRankerH, RankAggregationType.Types aggregateMethod,
+			float[] rankersWeights, int k, AggregationTrace trace){
+		int s = rankersListH.size();
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		
+		AggregationWorkspace workspace = AggregationWorkspace.get();
+		float[] rankings = workspace.getFusionRankings(aggregateRankerLength);
+		float[] presence = workspace.getFusionPresence(aggregateRankerLength);
+		float[] scores = workspace.getFusionScores(aggregateRankerLength);
+		for (int i = 0; i < aggregateRankerLength; i++)
+			scores[i] = 0;
+		
+		for (int l = 0; l < s && l < rankersWeights.length; l++) {
+			float weight = rankersWeights[l];
+			if (weight == 0)
+				continue;
+			
+			IndexedRankerHandler ranker_iH = rankersListH.get(l);
+			for (int i = 0; i < aggregateRankerLength; i++) {
+				int ranking = ranker_iH.getRankingByModelIndex(modelIndexList[i]);
+				boolean contained = ranking != IndexedRankerHandler.ABSENT;
+				rankings[i] = contained ? ranking : 0;
+				presence[i] = contained ? 1 : 0;
+			}
+			
+			switch(aggregateMethod){
+			case COMB_SUM:
+				addCombSum(scores, rankings, presence, aggregateRankerLength, weight * (aggregateRankerLength + 1) / aggregateRankerLength, 
+						weight / aggregateRankerLength);
+				break;
+			case BORDA:
+				addBorda(scores, rankings, presence, aggregateRankerLength, weight, ranker_iH.getRankerSize() + 1);
+				break;
+			default:
+				addReciprocalRanks(scores, rankings, presence, aggregateRankerLength, weight, k);
+			}
+		}
+		trace.addRankLookups((long) aggregateRankerLength * s);
+		
+		for (int i = 0; i < aggregateRankerLength; i++)
+			aggregateRankerH.updateScoreByModelIndex(modelIndexList[i], scores[i]);
+		trace.mark(AggregationPhase.DISTANCE_INITIALISATION);
+		
+		aggregateRankerH.sortModelsByScore();
+		trace.mark(AggregationPhase.SEARCH);
+		
+		AggregateResult result = aggregateRankerH.makeResult(); 
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
+	}
+	
+	
+	//scores[i] += presence[i] * (a - b * rankings[i]), i.e. w * (1 - (r - 1) / N) for the contained models
+	static void addCombSum(float[] scores, float[] rankings, float[] presence, int length, float a, float b){
+		for (int i = 0; i < length; i++)
+			scores[i] += presence[i] * (a - b * rankings[i]);
+	}
+	
+	
+	//scores[i] += presence[i] * w * (n + 1 - rankings[i])
+	static void addBorda(float[] scores, float[] rankings, float[] presence, int length, float weight, float rankerLengthPlusOne){
+		for (int i = 0; i < length; i++)
+			scores[i] += presence[i] * weight * (rankerLengthPlusOne - rankings[i]);
+	}
+	
+	
+	//scores[i] += presence[i] * w / (k + rankings[i]), the denominator of a missing model is k + 1, so that it is never 0
+	static void addReciprocalRanks(float[] scores, float[] rankings, float[] presence, int length, float weight, float k){
+		for (int i = 0; i < length; i++)
+			scores[i] += presence[i] * weight / (k + rankings[i] + 1 - presence[i]);
+	}
+	
+	
+	/**
+	 * Computes the CombMNZ score of a model.
+	 * 
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param modelIndex
+	 * @param aggregateRankerLength The number of models in the aggregate ranker.
+	 * @param maxPossibleScore The maximum value the score could ever have.
+	 * @return The CombMNZ score of the model.
+	 */
+	private static float combMNZScore(List<IndexedRankerHandler>rankersListH, int modelIndex, int aggregateRankerLength, float maxPossibleScore){
+		int s = rankersListH.size();
+		int h = 0; //Denotes the number of times model appears in the rankers
+		float brn_sum = 0; //Borda rank normalization for the model
 
-			for (int i = 0; i < s; i++) { //Compute h and brn_sum
-				RankerHandler ranker_iH = rankersListH.get(i);
+		for (int i = 0; i < s; i++) { //Compute h and brn_sum
+			IndexedRankerHandler ranker_iH = rankersListH.get(i);
+			
+			int ranking = ranker_iH.getRankingByModelIndex(modelIndex); 
+			if (ranking != IndexedRankerHandler.ABSENT){ //if 'ranker_i' contains model
+				h++;
+				brn_sum += 1 - ((double) (ranking - 1) / aggregateRankerLength);
+			}
+		}
+
+		float newScore = brn_sum * h;
+		return newScore / maxPossibleScore;
+	}
+	
+	
+	/**
+	 * Computes an upper bound of the CombMNZ score of a model which is ranked at ranking or worse in every ranker 
+	 * containing it. It uses the same arithmetic as combMNZScore, so that it also bounds the rounded scores.
+	 * 
+	 * @param s The number of rankers.
+	 * @param ranking
+	 * @param aggregateRankerLength The number of models in the aggregate ranker.
+	 * @param maxPossibleScore The maximum value the score could ever have.
+	 * @return An upper bound of the CombMNZ score.
+	 */
+	private static float combMNZBound(int s, int ranking, int aggregateRankerLength, float maxPossibleScore){
+		double brn = 1 - ((double) (ranking - 1) / aggregateRankerLength);
+		//A model which is not contained in any ranker has the score 0
+		if (brn <= 0)
+			return 0;
+		
+		float brn_sum = 0;
+		for (int i = 0; i < s; i++)
+			brn_sum += brn;
+		
+		float newScore = brn_sum * s;
+		return newScore / maxPossibleScore;
+	}
+	
+	
+	/**
+	 * CombMNZ aggregation method which returns only the best k models.
+	 * It reads the rankers from the top, like the threshold algorithm of Fagin et al.
+	 * 
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param k The number of models to return.
+	 * @param trace
+	 * @return The best k models of the aggregate list, sorted by their score.
+	 */
+	//Reads the models at each depth of all rankers and computes the score of each new model with the rankings in all rankers.
+	//The score is monotone in the rankings, so a model which has not been read yet could at most reach the score 
+	//of a model ranked at the next depth in all rankers. Stop if the worst of the best k models is better than that.
+	//Models with the same score are ordered like in the initial aggregate ranker.
+	private static List<Model> combMNZTopK(List<IndexedRankerHandler>rankersListH, IndexedRankerHandler aggregateRankerH, int k, AggregationTrace trace){
+		int s = rankersListH.size();
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		
+		if (k <= 0)
+			return new ArrayList<Model>();
+		if (s == 0){
+			return combMNZ(rankersListH, aggregateRankerH, trace).slice(0, k).toList();
+		}
+		
+		float maxPossibleScore = s * s;  //The maximum value the score could ever have
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		TopKSelector selector = new TopKSelector(Math.min(k, aggregateRankerLength));
+		boolean[] seen = new boolean[aggregateRankerH.getDictionary().size()];
+		
+		int maxRankerLength = 0;
+		for (IndexedRankerHandler ranker_iH : rankersListH)
+			maxRankerLength = Math.max(maxRankerLength, ranker_iH.getRankerSize());
+		
+		long scoredModels = 0;
+		boolean stopped = false;
+		for (int depth = 0; depth < maxRankerLength && !stopped; depth++){
+			for (int i = 0; i < s; i++){
+				IndexedRankerHandler ranker_iH = rankersListH.get(i);
+				if (depth >= ranker_iH.getRankerSize())
+					continue;
 				
-				int ranking = ranker_iH.getRankingByUniqueModelID(uniqueModelID); 
-				if (ranking != -1){ //if 'ranker_i' contains model
-					h++;
-					brn_sum += 1 - ((double) (ranking - 1) / aggregateRankerH.getRankerSize());
+				int modelIndex = ranker_iH.getModelIndexList()[depth];
+				if (seen[modelIndex])
+					continue;
+				seen[modelIndex] = true;
+				
+				int ranking = aggregateRankerH.getRankingByModelIndex(modelIndex);
+				if (ranking != IndexedRankerHandler.ABSENT){ //Only the models of the aggregate ranker are aggregated
+					selector.offer(combMNZScore(rankersListH, modelIndex, aggregateRankerLength, maxPossibleScore), ranking);
+					scoredModels++;
 				}
 			}
-
-			float newScore = brn_sum * h;
-			float scoreProcent = newScore / maxPossibleScore;
-			aggregateRankerH.updateScoreByModelID(uniqueModelID, scoreProcent); //Set new score
+			
+			//The models which have not been read yet are ranked at depth + 2 or worse in every ranker
+			if (selector.isFull() && selector.getWorstScore() > combMNZBound(s, depth + 2, aggregateRankerLength, maxPossibleScore))
+				stopped = true;
 		}
 		
-		//Make a list with the models
-		List<Model> results = aggregateRankerH.makeResultsListScoreBased(); 
+		//All rankers have been read: the remaining models are not contained in any ranker
+		if (!stopped)
+			for (int i = 0; i < aggregateRankerLength; i++)
+				if (!seen[modelIndexList[i]]){
+					selector.offer(combMNZScore(rankersListH, modelIndexList[i], aggregateRankerLength, maxPossibleScore), i + 1);
+					scoredModels++;
+				}
+		trace.addRankLookups(scoredModels * s);
+		trace.mark(AggregationPhase.SEARCH);
+		
+		List<Model> results = new ArrayList<Model>(selector.getSize());
+		for (int ranking : selector.removeAllBestFirst()){
+			int modelIndex = modelIndexList[ranking - 1];
+			aggregateRankerH.updateScoreByModelIndex(modelIndex, combMNZScore(rankersListH, modelIndex, aggregateRankerLength, maxPossibleScore));
+			results.add(aggregateRankerH.getModelByModelIndex(modelIndex));
+		}
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
 		return results;
 	}
 	
@@ -253,55 +965,59 @@ public class RankAggregation {
 	 * The local Kemenization aggregation method.
 	 * Builds a locally Kemeny optimized aggregate ranker.
 	 * 
-	 * @param rankersListH A list of other ranker handlers.
+	 * @param preference The pairwise preferences of the rankers.
 	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param trace
 	 * @return An aggregate list of models.
 	 */
 	//Local Kemenization. Builds a locally Kemeny optimized aggregate ranker.
-	private static List<Model> localKemenization(List<RankerHandler>rankersListH, RankerHandler aggregateRankerH){
-		int rankersListLength = rankersListH.size();
-		int aggregateRankerLength = aggregateRankerH.getRankerSize();
-		ArrayList<String> uniqueModelIDList = aggregateRankerH.getUniqueModelIDList();
+	static AggregateResult localKemenization(PairwisePreference preference, IndexedRankerHandler aggregateRankerH, AggregationTrace trace){
+		localKemenization(preference, aggregateRankerH, 0, aggregateRankerH.getRankerSize(), trace);
+		trace.mark(AggregationPhase.SEARCH);
 		
-		for(int i = 1; i < aggregateRankerLength; i++){
-			String uniqueModelID2 = uniqueModelIDList.get(i);
+		AggregateResult result = aggregateRankerH.makeResultRankBased(); 
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
+	}
+	
+	
+	/**
+	 * Local Kemenization of a part of the aggregate ranker. The models outside of the part are not moved.
+	 * 
+	 * @param preference The pairwise preferences of the rankers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param from The position of the first model of the part.
+	 * @param to The position after the last model of the part.
+	 * @param trace
+	 */
+	static void localKemenization(PairwisePreference preference, IndexedRankerHandler aggregateRankerH, int from, int to, AggregationTrace trace){
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		long comparisons = 0;
+		long swaps = 0;
+		
+		for(int i = from + 1; i < to; i++){
+			int modelIndex2 = modelIndexList[i];
 			
-			for(int j = i-1; j >= 0; j--){
-				int pro = 0;
-				int con = 0;
-				String uniqueModelID1 = uniqueModelIDList.get(j);
+			for(int j = i-1; j >= from; j--){
+				int modelIndex1 = modelIndexList[j];
 				
-				//Compare the rankings of model1 and model2 in each ranker 
-				for(int l = 0; l < rankersListLength; l++){
-					RankerHandler ranker_i = rankersListH.get(l);
-					
-					int rankingOfModel1 = ranker_i.getRankingByUniqueModelID(uniqueModelID1);
-					if(rankingOfModel1 == -1)
-						rankingOfModel1 = Integer.MAX_VALUE; 
-					
-					int rankingOfModel2 = ranker_i.getRankingByUniqueModelID(uniqueModelID2);
-					if(rankingOfModel2 == -1)
-						rankingOfModel2 = Integer.MAX_VALUE; 
-					
-					//update pro if the ranking is the same as in the initial aggregate ranker
-					//update cons otherwise
-					if(rankingOfModel2 > rankingOfModel1)
-						pro++;
-					else if (rankingOfModel2 < rankingOfModel1)
-						con++;
-				}
+				//pro: the number of rankers which rank model1 and model2 like the initial aggregate ranker
+				//con: the number of rankers which prefer model2 to model1
+				int pro = preference.getPreference(modelIndex1, modelIndex2);
+				int con = preference.getPreference(modelIndex2, modelIndex1);
+				comparisons++;
 				
 				//swap model1 and model2 if the majority of the rankers prefer model2 to model1 (if ranking of model2 < ranking of model1)
 				if(con > pro){
-					aggregateRankerH.swap(uniqueModelID2, uniqueModelID1);
+					aggregateRankerH.swap(modelIndex2, modelIndex1);
+					swaps++;
 				}
 				else if (pro >= con)
 					break;
 			}
 		}
-		
-		List<Model> results = aggregateRankerH.makeResultsListRankBased(); 
-		return results;
+		trace.addComparisons(comparisons);
+		trace.addSwaps(swaps);
 	}
 	
 	
@@ -311,71 +1027,121 @@ public class RankAggregation {
 	 * 
 	 * @param rankersListH A list of other ranker handlers.
 	 * @param aggregateRankerH An initial aggregate ranker handler.
-	 * @param weights
+	 * @param rankerWeights The weight of each ranker in rankersListH.
+	 * @param weightsSum The sum of the weights of all rankers.
+	 * @param trace
 	 * @return An aggregate list of models.
 	 */
 	//Builds a locally Kemeny optimized aggregate ranker with regard to the weights of the input rankers.
-	private static List<Model> supervisedLocalKemenization (List<RankerHandler>rankersListH, RankerHandler aggregateRankerH, HashMap<Integer, Integer> weights){
+	static AggregateResult supervisedLocalKemenization (List<IndexedRankerHandler>rankersListH, IndexedRankerHandler aggregateRankerH, float[] rankerWeights, double weightsSum,
+			AggregationTrace trace){
 		
-		int numberOfRankers = rankersListH.size();
 		int aggregateRankerLength = aggregateRankerH.getRankerSize();
 		//For each two models m1 and m2, if they are ranked correctly (with supervisedLocalKemenization)
 		//Then M(m1, m2) will be true, false otherwise.
-		boolean[][] M = new boolean[aggregateRankerLength][aggregateRankerLength];
-	
-		int rankingOfModel1;
-		int rankingOfModel2;
-		ArrayList<String> uniqueModelIDList = aggregateRankerH.getUniqueModelIDList();
-		
-		int weightsSum = 0; //The sum of the weights of all rankers in rankersList
-		for(int o: weights.values())
-			weightsSum += o;
-	    
-		//Computes a score for each pairs of models in aggregate ranker as follows:
-		//Sums up the weights of the rankers which don't rank the pair different from the aggregate ranker
-		//If the score is greter than weightsSum/2 then set M(this pair) to true
-		for(int i = 0; i < aggregateRankerLength; i++){
-			for(int j = i + 1 ; j < aggregateRankerLength; j++){
-				String uniqueModelID1 = uniqueModelIDList.get(i);
-				String uniqueModelID2 = uniqueModelIDList.get(j);
-				int score = 0;
-				
-				for(int l = 0; l < numberOfRankers; l++){
-					RankerHandler ranker_iH = rankersListH.get(l);
-					
-					rankingOfModel1 = ranker_iH.getRankingByUniqueModelID(uniqueModelID1);
-					if(rankingOfModel1 == -1)
-						rankingOfModel1 = Integer.MAX_VALUE; 
-					
-					rankingOfModel2 = ranker_iH.getRankingByUniqueModelID(uniqueModelID2);
-					if(rankingOfModel2 == -1)
-						rankingOfModel2 = Integer.MAX_VALUE; 
-					
-					if(rankingOfModel1 <= rankingOfModel2)
-						score += weights.get(l);
-				}
-				
-				if (score >= 0.5 * weightsSum){
-					M[i][j] = true;
-					M[j][i] = false;
-				}
-			}
-		}
+		TriangularBitMatrix M = supervisedMatrix(rankersListH, aggregateRankerH, rankerWeights, weightsSum);
+		long pairs = (long) aggregateRankerLength * (aggregateRankerLength - 1) / 2;
+		trace.addRankLookups((long) aggregateRankerLength * rankersListH.size());
+		trace.addComparisons(pairs * rankersListH.size());
+		trace.mark(AggregationPhase.DISTANCE_INITIALISATION);
+		
+		return supervisedLocalKemenization(M, aggregateRankerH, trace);
+	}
+	
+	
+	/**
+	 * The search of the supervised local Kemenization with a given matrix M.
+	 * 
+	 * @param M The matrix M of the aggregate ranker, with M(i, j) = true if the pair at the positions i < j is ranked correctly.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param trace
+	 * @return An aggregate list of models.
+	 */
+	static AggregateResult supervisedLocalKemenization(TriangularBitMatrix M, IndexedRankerHandler aggregateRankerH, AggregationTrace trace){
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		long pairs = (long) aggregateRankerLength * (aggregateRankerLength - 1) / 2;
 		
 		//For each pair of models (m1, m2) with M(m1,m2) = false: swap m1, m2
+		long swaps = 0;
 		for(int i = 1; i < aggregateRankerLength; i++){
-			String uniqueModelID2 = uniqueModelIDList.get(i);
+			int modelIndex2 = modelIndexList[i];
 			
 			for(int j = i-1; j >= 0; j--){
-				String uniqueModelID1 = uniqueModelIDList.get(j);
+				int modelIndex1 = modelIndexList[j];
 				
-				if(M[j][i] == false)
-					aggregateRankerH.swap(uniqueModelID1, uniqueModelID2);
+				if(M.get(j, i) == false){
+					aggregateRankerH.swap(modelIndex1, modelIndex2);
+					swaps++;
+				}
 			}
 		}
+		trace.addComparisons(pairs);
+		trace.addSwaps(swaps);
+		trace.mark(AggregationPhase.SEARCH);
 		
-		List<Model> results = aggregateRankerH.makeResultsListRankBased(); 
-		return results;
+		AggregateResult result = aggregateRankerH.makeResultRankBased(); 
+		trace.mark(AggregationPhase.RESULT_MATERIALISATION);
+		return result;
+	}
+	
+	
+	/**
+	 * Computes the matrix M of supervised local Kemenization for the models in the order of the aggregate ranker.
+	 * The rows are computed in parallel in blocks.
+	 * 
+	 * @param rankersListH A list of other ranker handlers.
+	 * @param aggregateRankerH An initial aggregate ranker handler.
+	 * @param rankerWeights The weight of each ranker in rankersListH.
+	 * @param weightsSum The sum of the weights of all rankers.
+	 * @return M, with M(i, j) = true if the pair at the positions i < j is ranked correctly.
+	 */
+	//Computes a score for each pairs of models in aggregate ranker as follows:
+	//Sums up the weights of the rankers which don't rank the pair different from the aggregate ranker
+	//If the score is greter than weightsSum/2 then set M(this pair) to true
+	private static TriangularBitMatrix supervisedMatrix(List<IndexedRankerHandler>rankersListH, IndexedRankerHandler aggregateRankerH, float[] rankerWeights, double weightsSum){
+		int numberOfRankers = rankersListH.size();
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+		TriangularBitMatrix M = new TriangularBitMatrix(aggregateRankerLength);
+		
+		//The rankings of the models of the aggregate ranker in each ranker, in the order of the aggregate ranker
+		int[][] rankings = new int[numberOfRankers][aggregateRankerLength];
+		for(int l = 0; l < numberOfRankers; l++){
+			IndexedRankerHandler ranker_iH = rankersListH.get(l);
+			for(int i = 0; i < aggregateRankerLength; i++){
+				int ranking = ranker_iH.getRankingByModelIndex(modelIndexList[i]);
+				rankings[l][i] = (ranking == IndexedRankerHandler.ABSENT) ? Integer.MAX_VALUE : ranking;
+			}
+		}
+		
+		int numberOfBlocks = (aggregateRankerLength + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+		IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+			//The scores of the pairs (i, j) of the current row i, at position j
+			double[] scores = AggregationWorkspace.get().getRowScores(aggregateRankerLength);
+			int to = Math.min(aggregateRankerLength, (block + 1) * ROWS_PER_BLOCK);
+			
+			for(int i = block * ROWS_PER_BLOCK; i < to; i++){
+				for(int j = i + 1; j < aggregateRankerLength; j++)
+					scores[j] = 0;
+				
+				for(int l = 0; l < numberOfRankers; l++){
+					int[] rankings_l = rankings[l];
+					float weight = rankerWeights[l];
+					int rankingOfModel1 = rankings_l[i];
+					
+					for(int j = i + 1; j < aggregateRankerLength; j++)
+						if(rankingOfModel1 <= rankings_l[j])
+							scores[j] += weight;
+				}
+				
+				for(int j = i + 1; j < aggregateRankerLength; j++)
+					if(scores[j] >= 0.5 * weightsSum)
+						M.set(i, j);
+			}
+		});
+		
+		return M;
 	}
 	
 
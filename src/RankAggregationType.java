@@ -13,7 +13,25 @@ public class RankAggregationType {
 		ADJACENT_PAIRS,
 		COMB_MNZ, 	
 		LOCAL_KEMENIZATION, 		
-		SUPERVISED_LOCAL_KEMENIZATION
+		SUPERVISED_LOCAL_KEMENIZATION,
+		/*
+		 * Linear time fusion of the weighted rankings, see RankAggregation.linearFusion
+		 */
+		COMB_SUM,
+		BORDA,
+		RECIPROCAL_RANK_FUSION,
+		/*
+		 * Markov chain aggregation MC4, see MarkovChainAggregation
+		 */
+		MARKOV_CHAIN,
+		/*
+		 * Randomized pivot aggregation, see KwikSortAggregation
+		 */
+		KWIK_SORT,
+		/*
+		 * Chooses the method within a latency budget, see AggregationPlanner
+		 */
+		AUTO
 	}
 	
 	public static Types stringToRankAggregationType (String type){
@@ -27,6 +45,18 @@ public class RankAggregationType {
 			return Types.LOCAL_KEMENIZATION;
 		case "SUPERVISED_LOCAL_KEMENIZATION": 
 			return Types.SUPERVISED_LOCAL_KEMENIZATION;
+		case "COMB_SUM":
+			return Types.COMB_SUM;
+		case "BORDA":
+			return Types.BORDA;
+		case "RECIPROCAL_RANK_FUSION":
+			return Types.RECIPROCAL_RANK_FUSION;
+		case "MARKOV_CHAIN":
+			return Types.MARKOV_CHAIN;
+		case "KWIK_SORT":
+			return Types.KWIK_SORT;
+		case "AUTO": 
+			return Types.AUTO;
 		case "DEFAULT": 
 			return Types.DEFAULT;
 		default: 
@@ -46,6 +76,18 @@ public class RankAggregationType {
 			return "LOCAL_KEMENIZATION";
 		case SUPERVISED_LOCAL_KEMENIZATION: 
 			return "SUPERVISED_LOCAL_KEMENIZATION";
+		case COMB_SUM:
+			return "COMB_SUM";
+		case BORDA:
+			return "BORDA";
+		case RECIPROCAL_RANK_FUSION:
+			return "RECIPROCAL_RANK_FUSION";
+		case MARKOV_CHAIN:
+			return "MARKOV_CHAIN";
+		case KWIK_SORT:
+			return "KWIK_SORT";
+		case AUTO: 
+			return "AUTO";
 		case DEFAULT: 
 			return "DEFAULT";
 		default: 
@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * The Kendall-tau and Spearman footrule distances between all pairs of a list of (partial) rankers,
+ * e.g. the rankers of a query and their aggregate ranker, for monitoring how much the rankers disagree.
+ * The pairs are computed in parallel, each Kendall-tau distance in O(n log n) by counting inversions.
+ * <p>
+ * Two rankers A and B are compared on the union of their models. A model which is not contained in a ranker is
+ * ranked after all models of the ranker (the distances K(0) and F(l) of Fagin et al. for top-k lists):
+ * <ul>
+ * <li>Kendall-tau: the number of pairs of models which A and B order differently. A pair of two models which are
+ * both missing in one ranker is not counted, a model of A only and a model of B only are always ordered differently.</li>
+ * <li>Spearman footrule: the sum of |rankingA(m) - rankingB(m)|, a missing model has the ranking length + 1.</li>
+ * </ul>
+ * computeAsync computes the distances after RankAggregation.aggregate has returned, so that the response is not delayed.
+ * @author Mariam Nassar
+ *
+ */
+public class RankerDistances {
+
+	/**
+	 * The number of rankers.
+	 */
+	private int size;
+	/**
+	 * The distances of the pairs (i, j) with i < j, at pairIndex(i, j).
+	 */
+	private long[] kendallTau;
+	private long[] footrule;
+	/**
+	 * The number of models of both rankers of each pair.
+	 */
+	private int[] unionSizes;
+
+
+	/**
+	 * Constructor.
+	 * @param size The number of rankers.
+	 */
+	private RankerDistances(int size){
+		int pairs = size * (size - 1) / 2;
+		this.size = size;
+		this.kendallTau = new long[pairs];
+		this.footrule = new long[pairs];
+		this.unionSizes = new int[pairs];
+	}
+
+	/**
+	 * Computes the distances between all pairs of rankers in parallel on the common ForkJoinPool.
+	 *
+	 * @param rankersList
+	 * @return The distances of the rankers in the order of the rankersList.
+	 */
+	public static RankerDistances compute(List<List<Model>> rankersList){
+		return compute(rankersList, ForkJoinPool.commonPool()).join();
+	}
+
+	/**
+	 * Computes the distances between all pairs of rankers in parallel on an executor, one task for each ranker i
+	 * with the pairs (i, j), j > i. No thread of the executor waits for another task, so that an executor
+	 * with a single thread works as well.
+	 *
+	 * @param rankersList
+	 * @param executor
+	 * @return A future for the distances of the rankers in the order of the rankersList.
+	 */
+	private static CompletableFuture<RankerDistances> compute(List<List<Model>> rankersList, Executor executor){
+		return CompletableFuture.supplyAsync(() -> {
+			ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, new ArrayList<Model>());
+			return RankAggregation.buildRankerHandlers(rankersList, dictionary);
+		}, executor).thenCompose(rankersListH -> {
+			int size = rankersListH.size();
+			RankerDistances distances = new RankerDistances(size);
+			CompletableFuture<?>[] rows = new CompletableFuture<?>[Math.max(size - 1, 0)];
+			for(int i = 0; i < rows.length; i++){
+				int row = i;
+				rows[i] = CompletableFuture.runAsync(() -> {
+					for(int j = row + 1; j < size; j++)
+						distances.compare(pairIndex(size, row, j), rankersListH.get(row), rankersListH.get(j));
+				}, executor);
+			}
+			return CompletableFuture.allOf(rows).thenApply(done -> distances);
+		});
+	}
+
+	/**
+	 * Computes the distances between all pairs of the rankers and the aggregate ranker in parallel on the common ForkJoinPool.
+	 *
+	 * @param rankersList
+	 * @param aggregateRanker E.g. the result of RankAggregation.aggregate.
+	 * @return The distances of the rankers in the order of the rankersList, the aggregate ranker is the last ranker.
+	 */
+	public static RankerDistances compute(List<List<Model>> rankersList, List<Model> aggregateRanker){
+		return compute(withAggregateRanker(rankersList, aggregateRanker));
+	}
+
+	/**
+	 *
+	 * @param rankersList
+	 * @param aggregateRanker
+	 * @return A new list of the rankers and the aggregate ranker as the last ranker.
+	 */
+	private static List<List<Model>> withAggregateRanker(List<List<Model>> rankersList, List<Model> aggregateRanker){
+		List<List<Model>> allRankers = new ArrayList<List<Model>>(rankersList.size() + 1);
+		allRankers.addAll(rankersList);
+		allRankers.add(aggregateRanker);
+		return allRankers;
+	}
+
+	/**
+	 * Computes the distances between all pairs of the rankers and the aggregate ranker on the common ForkJoinPool.
+	 * The lists must not be changed until the future is completed.
+	 *
+	 * @param rankersList
+	 * @param aggregateRanker E.g. the result of RankAggregation.aggregate.
+	 * @return A future for the distances, the aggregate ranker is the last ranker.
+	 */
+	public static CompletableFuture<RankerDistances> computeAsync(List<List<Model>> rankersList, List<Model> aggregateRanker){
+		return computeAsync(rankersList, aggregateRanker, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the distances between all pairs of the rankers and the aggregate ranker on an executor,
+	 * the pairs in parallel on the same executor. The lists must not be changed until the future is completed.
+	 *
+	 * @param rankersList
+	 * @param aggregateRanker E.g. the result of RankAggregation.aggregate.
+	 * @param executor
+	 * @return A future for the distances, the aggregate ranker is the last ranker.
+	 */
+	public static CompletableFuture<RankerDistances> computeAsync(List<List<Model>> rankersList, List<Model> aggregateRanker, Executor executor){
+		return compute(withAggregateRanker(rankersList, aggregateRanker), executor);
+	}
+
+	/**
+	 * Computes the distances of one pair of rankers.
+	 *
+	 * @param pair The index of the pair.
+	 * @param rankerAH
+	 * @param rankerBH
+	 */
+	private void compare(int pair, IndexedRankerHandler rankerAH, IndexedRankerHandler rankerBH){
+		int lengthA = rankerAH.getRankerSize();
+		int lengthB = rankerBH.getRankerSize();
+		int[] modelIndexListA = rankerAH.getModelIndexList();
+		int[] modelIndexListB = rankerBH.getModelIndexList();
+
+		long disagreements = 0;
+		long footruleSum = 0;
+
+		//The rankings in B of the common models in the order of A. Each inversion is a pair ranked differently by both rankers.
+		//A model of A only which is ranked before a common model disagrees with B, which ranks it after the common model
+		int[] rankingsInB = AggregationWorkspace.get().getRankings(lengthA);
+		int common = 0;
+		int onlyInA = 0;
+		for(int k = 0; k < lengthA; k++){
+			int rankingInB = rankerBH.getRankingByModelIndex(modelIndexListA[k]);
+			if(rankingInB != IndexedRankerHandler.ABSENT){
+				rankingsInB[common++] = rankingInB;
+				disagreements += onlyInA;
+				footruleSum += Math.abs(k + 1 - rankingInB);
+			}
+			else{
+				onlyInA++;
+				footruleSum += Math.abs(lengthB + 1 - (k + 1));
+			}
+		}
+
+		int onlyInB = 0;
+		for(int k = 0; k < lengthB; k++){
+			if(rankerAH.containsByModelIndex(modelIndexListB[k]))
+				disagreements += onlyInB;
+			else{
+				onlyInB++;
+				footruleSum += Math.abs(lengthA + 1 - (k + 1));
+			}
+		}
+
+		//A model of A only and a model of B only are ordered differently by both rankers
+		disagreements += (long) onlyInA * onlyInB;
+		disagreements += KendallTau.countInversions(rankingsInB, common);
+
+		kendallTau[pair] = disagreements;
+		footrule[pair] = footruleSum;
+		unionSizes[pair] = common + onlyInA + onlyInB;
+	}
+
+	/**
+	 *
+	 * @param size
+	 * @param i
+	 * @param j
+	 * @return The index of the pair (i, j) with i < j.
+	 */
+	private static int pairIndex(int size, int i, int j){
+		return i * (2 * size - i - 1) / 2 + j - i - 1;
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return The index of the pair of the rankers i and j, -1 if i = j.
+	 */
+	private int pairIndex(int i, int j){
+		if(i < 0 || j < 0 || i >= size || j >= size)
+			throw new IndexOutOfBoundsException("No ranker (" + i + ", " + j + ") of " + size);
+		if(i == j)
+			return -1;
+		return (i < j) ? pairIndex(size, i, j) : pairIndex(size, j, i);
+	}
+
+	/**
+	 *
+	 * @return The number of rankers.
+	 */
+	public int getSize(){
+		return size;
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return The Kendall-tau distance between the rankers i and j.
+	 */
+	public long getKendallTau(int i, int j){
+		int pair = pairIndex(i, j);
+		return (pair < 0) ? 0 : kendallTau[pair];
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return The Kendall-tau distance between the rankers i and j divided by the number of pairs of their models, in [0, 1].
+	 */
+	public double getNormalizedKendallTau(int i, int j){
+		int pair = pairIndex(i, j);
+		if(pair < 0) return 0;
+		long pairs = (long) unionSizes[pair] * (unionSizes[pair] - 1) / 2;
+		return (pairs > 0) ? (double) kendallTau[pair] / pairs : 0;
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return The Spearman footrule distance between the rankers i and j.
+	 */
+	public long getFootrule(int i, int j){
+		int pair = pairIndex(i, j);
+		return (pair < 0) ? 0 : footrule[pair];
+	}
+
+	/**
+	 *
+	 * @return A new matrix of the Kendall-tau distances.
+	 */
+	public long[][] getKendallTauMatrix(){
+		long[][] matrix = new long[size][size];
+		for(int i = 0; i < size; i++)
+			for(int j = 0; j < size; j++)
+				matrix[i][j] = getKendallTau(i, j);
+		return matrix;
+	}
+
+	/**
+	 *
+	 * @return A new matrix of the Spearman footrule distances.
+	 */
+	public long[][] getFootruleMatrix(){
+		long[][] matrix = new long[size][size];
+		for(int i = 0; i < size; i++)
+			for(int j = 0; j < size; j++)
+				matrix[i][j] = getFootrule(i, j);
+		return matrix;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder builder = new StringBuilder("Normalized Kendall-tau distances:");
+		for(int i = 0; i < size; i++){
+			builder.append('\n');
+			for(int j = 0; j < size; j++)
+				builder.append(String.format(" %.4f", getNormalizedKendallTau(i, j)));
+		}
+		return builder.toString();
+	}
+
+}
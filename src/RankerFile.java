@@ -0,0 +1,239 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * A memory-mapped file of rankers in a compact binary format, written by the RankerFileWriter.
+ * The rankers are read straight from the mapped file as MappedRanker views, without model objects
+ * and without a String per unique model Id, e.g. for replaying logged queries while tuning the weights.
+ * <p>
+ * The format, all numbers little endian:
+ * <pre>
+ * int       magic "MRNK", version
+ * int       D: the number of unique model Ids, m: the number of rankers
+ * int[m]    the number of models of each ranker
+ * int[D+1]  the offset of each unique model Id in the Id bytes, the last offset is the number of Id bytes
+ * byte[]    the unique model Ids in UTF-8, padded to a multiple of 4 bytes
+ * for each ranker:
+ *   int[n]  the model indices in the order of the ranker
+ *   float[n] the scores in the order of the ranker
+ *   int[D]  the ranking of each model index, IndexedRankerHandler.ABSENT if the ranker does not contain the model
+ * </pre>
+ * The model index of a unique model Id is its position in the dictionary of the file.
+ * A file is mapped as a whole, so that it must be smaller than 2 GB.
+ * @author Mariam Nassar
+ *
+ */
+public class RankerFile {
+	/**
+	 * "MRNK" in little endian.
+	 */
+	static final int MAGIC = 0x4B4E524D;
+	static final int VERSION = 1;
+	/**
+	 * The length of magic, version, D and m in bytes.
+	 */
+	static final int HEADER_LENGTH = 16;
+
+	/**
+	 * The mapped file. Only absolute reads are used, so that it can be shared between threads.
+	 */
+	private ByteBuffer buffer;
+	private int dictionarySize;
+	private int numberOfRankers;
+	private int idOffsetsPosition;
+	private int idBytesPosition;
+	/**
+	 * The position of the model indices of each ranker in the file.
+	 */
+	private int[] rankerPositions;
+	private int[] rankerSizes;
+	/**
+	 * The decoded unique model Ids, null until the dictionary is used first.
+	 */
+	private volatile ModelIdDictionary dictionary;
+
+
+	/**
+	 * Memory-maps a ranker file. The file can be closed or changed by others afterwards,
+	 * the mapping stays valid until this object is garbage collected.
+	 *
+	 * @param file A file written by the RankerFileWriter.
+	 * @return The ranker file.
+	 * @throws IOException If the file cannot be read or is not a ranker file.
+	 */
+	public static RankerFile open(File file) throws IOException{
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")){
+			FileChannel channel = randomAccessFile.getChannel();
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("The ranker file is too large to be mapped: " + file);
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new RankerFile(mapped);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * @param buffer The content of a ranker file.
+	 * @throws IOException If the buffer does not contain a ranker file.
+	 */
+	RankerFile(ByteBuffer buffer) throws IOException{
+		this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int length = this.buffer.limit();
+
+		if(length < HEADER_LENGTH || this.buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a ranker file");
+		if(this.buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported version of the ranker file: " + this.buffer.getInt(4));
+		this.dictionarySize = this.buffer.getInt(8);
+		this.numberOfRankers = this.buffer.getInt(12);
+		if(dictionarySize < 0 || numberOfRankers < 0)
+			throw new IOException("Corrupt ranker file header");
+
+		//The positions are computed in long, so that a corrupt file cannot make them overflow
+		long position = HEADER_LENGTH;
+		long rankerSizesPosition = position;
+		position += 4L * numberOfRankers;
+		long idOffsetsPosition = position;
+		position += 4L * (dictionarySize + 1);
+		if(position > length)
+			throw new IOException("Truncated ranker file");
+		this.idOffsetsPosition = (int) idOffsetsPosition;
+		this.idBytesPosition = (int) position;
+		position += align(this.buffer.getInt(this.idOffsetsPosition + 4 * dictionarySize));
+
+		this.rankerPositions = new int[numberOfRankers];
+		this.rankerSizes = new int[numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++){
+			int size = this.buffer.getInt((int) rankerSizesPosition + 4 * l);
+			if(size < 0 || position > length)
+				throw new IOException("Corrupt ranker file");
+			rankerSizes[l] = size;
+			rankerPositions[l] = (int) position;
+			position += 8L * size + 4L * dictionarySize;
+		}
+		if(position > length)
+			throw new IOException("Truncated ranker file");
+	}
+
+	/**
+	 *
+	 * @return The number of rankers in the file.
+	 */
+	public int getNumberOfRankers(){
+		return numberOfRankers;
+	}
+
+	/**
+	 *
+	 * @return The number of unique model Ids in the file.
+	 */
+	public int getDictionarySize(){
+		return dictionarySize;
+	}
+
+	/**
+	 * Decodes one unique model Id of the file.
+	 *
+	 * @param modelIndex
+	 * @return The unique model Id with the given model index.
+	 */
+	public String getUniqueModelID(int modelIndex){
+		if(modelIndex < 0 || modelIndex >= dictionarySize)
+			throw new IndexOutOfBoundsException("Model index " + modelIndex + " of " + dictionarySize);
+
+		int from = buffer.getInt(idOffsetsPosition + 4 * modelIndex);
+		int to = buffer.getInt(idOffsetsPosition + 4 * (modelIndex + 1));
+		byte[] bytes = new byte[to - from];
+		ByteBuffer idBytes = buffer.duplicate();
+		idBytes.position(idBytesPosition + from);
+		idBytes.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns a new dictionary with the unique model Ids of the file, so that a model index of the file
+	 * is the same model index in the dictionary. Further Ids can be interned into the new dictionary,
+	 * e.g. of an initial aggregate ranker. The Ids are decoded only when this is called first,
+	 * and the new dictionary is an overlay which shares them instead of copying them.
+	 *
+	 * @return A new dictionary.
+	 */
+	public ModelIdDictionary newDictionary(){
+		ModelIdDictionary fileDictionary = dictionary;
+		if(fileDictionary == null){
+			fileDictionary = decodeDictionary();
+			dictionary = fileDictionary;
+		}
+		return ModelIdDictionary.overlay(fileDictionary);
+	}
+
+	/**
+	 *
+	 * @param l
+	 * @return A view of the ranker with the index l, which reads from the mapped file.
+	 */
+	public MappedRanker getRanker(int l){
+		if(l < 0 || l >= numberOfRankers)
+			throw new IndexOutOfBoundsException("Ranker " + l + " of " + numberOfRankers);
+
+		int size = rankerSizes[l];
+		int position = rankerPositions[l];
+		IntBuffer modelIndices = slice(position, 4 * size).asIntBuffer();
+		FloatBuffer scores = slice(position + 4 * size, 4 * size).asFloatBuffer();
+		IntBuffer rankings = slice(position + 8 * size, 4 * dictionarySize).asIntBuffer();
+		return new MappedRanker(modelIndices, scores, rankings);
+	}
+
+	/**
+	 *
+	 * @return A dictionary with all unique model Ids of the file.
+	 */
+	private ModelIdDictionary decodeDictionary(){
+		int numberOfIdBytes = buffer.getInt(idOffsetsPosition + 4 * dictionarySize);
+		byte[] bytes = new byte[numberOfIdBytes];
+		ByteBuffer idBytes = buffer.duplicate();
+		idBytes.position(idBytesPosition);
+		idBytes.get(bytes);
+
+		ModelIdDictionary fileDictionary = new ModelIdDictionary();
+		int from = buffer.getInt(idOffsetsPosition);
+		for(int modelIndex = 0; modelIndex < dictionarySize; modelIndex++){
+			int to = buffer.getInt(idOffsetsPosition + 4 * (modelIndex + 1));
+			fileDictionary.intern(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+			from = to;
+		}
+		return fileDictionary;
+	}
+
+	/**
+	 *
+	 * @param position
+	 * @param length
+	 * @return A little endian view of a part of the mapped file.
+	 */
+	private ByteBuffer slice(int position, int length){
+		ByteBuffer part = buffer.duplicate();
+		part.limit(position + length);
+		part.position(position);
+		return part.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 *
+	 * @param length
+	 * @return The length rounded up to a multiple of 4.
+	 */
+	static long align(long length){
+		return (length + 3) & ~3L;
+	}
+
+}
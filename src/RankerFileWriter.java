@@ -0,0 +1,98 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+/**
+ * Writes rankers into the binary format of the RankerFile, e.g. the rankers of logged or common queries.
+ * @author Mariam Nassar
+ *
+ */
+public class RankerFileWriter {
+
+	/**
+	 * Writes a list of rankers into a file. An existing file is replaced.
+	 *
+	 * @param rankersList The rankers. A null ranker is written as an empty ranker.
+	 * @param file
+	 * @throws IOException If the file cannot be written or the rankers are too large for one ranker file.
+	 */
+	public static void write(List<List<Model>> rankersList, File file) throws IOException{
+		ModelIdDictionary dictionary = new ModelIdDictionary();
+		for(List<Model> ranker: rankersList){
+			if(ranker != null)
+				for(Model model: ranker)
+					if(model.getUniqueVersionId() == null)
+						throw new IllegalArgumentException("A model without unique model Id cannot be written");
+			dictionary.internAll(ranker);
+		}
+		int dictionarySize = dictionary.size();
+		int numberOfRankers = rankersList.size();
+
+		byte[][] ids = new byte[dictionarySize][];
+		long numberOfIdBytes = 0;
+		for(int modelIndex = 0; modelIndex < dictionarySize; modelIndex++){
+			ids[modelIndex] = dictionary.getUniqueModelID(modelIndex).getBytes(StandardCharsets.UTF_8);
+			numberOfIdBytes += ids[modelIndex].length;
+		}
+
+		long length = RankerFile.HEADER_LENGTH + 4L * numberOfRankers + 4L * (dictionarySize + 1) + RankerFile.align(numberOfIdBytes);
+		for(List<Model> ranker: rankersList)
+			length += 8L * size(ranker) + 4L * dictionarySize;
+		if(length > Integer.MAX_VALUE)
+			throw new IOException("The rankers are too large for one ranker file: " + length + " bytes");
+
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")){
+			randomAccessFile.setLength(length);
+			MappedByteBuffer mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+			mapped.putInt(RankerFile.MAGIC);
+			mapped.putInt(RankerFile.VERSION);
+			mapped.putInt(dictionarySize);
+			mapped.putInt(numberOfRankers);
+			for(List<Model> ranker: rankersList)
+				mapped.putInt(size(ranker));
+
+			int offset = 0;
+			for(int modelIndex = 0; modelIndex < dictionarySize; modelIndex++){
+				mapped.putInt(offset);
+				offset += ids[modelIndex].length;
+			}
+			mapped.putInt(offset);
+			for(byte[] id: ids)
+				mapped.put(id);
+			while(mapped.position() % 4 != 0)
+				mapped.put((byte) 0);
+
+			for(List<Model> ranker: rankersList){
+				//The handler resolves the rankings like the aggregation does, e.g. for a model contained twice
+				IndexedRankerHandler rankerH = new IndexedRankerHandler(ranker, dictionary);
+				int size = rankerH.getRankerSize();
+				int[] modelIndexList = rankerH.getModelIndexList();
+				for(int i = 0; i < size; i++)
+					mapped.putInt(modelIndexList[i]);
+				for(int i = 0; i < size; i++)
+					mapped.putFloat(ranker.get(i).getScore());
+				for(int modelIndex = 0; modelIndex < dictionarySize; modelIndex++)
+					mapped.putInt(rankerH.getRankingByModelIndex(modelIndex));
+			}
+			mapped.force();
+		}
+	}
+
+	/**
+	 *
+	 * @param ranker
+	 * @return The number of models of the ranker, 0 for null.
+	 */
+	private static int size(List<Model> ranker){
+		return (ranker != null) ? ranker.size() : 0;
+	}
+
+}
@@ -1,10 +1,6 @@
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 
 /**
@@ -132,19 +128,22 @@ public class RankerHandler {
 	}
 	
 	/**
-	 * Sorts the models by their score. For the score based aggregation methods.
+	 * Sorts the models by their score, the best score first. For the score based aggregation methods.
+	 * Models with the same score keep their order.
 	 */
 	public void sortModelsByScore(){
-		
-		//Maps the score of the model into the unique model ID
-		HashMap<Float, String> scoreUniqueModelID = new HashMap<Float, String>();
+		int size = uniqueModelIDList.size();
+		float[] scores = new float[size];
+		for(int i = 0; i < size; i++)
+			scores[i] = this.rankerMap.get(uniqueModelIDList.get(i)).getScore();
 
-		for(String uniqueModelId: uniqueModelIDList){
-			Model model = this.rankerMap.get(uniqueModelId);
-			scoreUniqueModelID.put(model.getScore(), uniqueModelId);
+		ArrayList<String> sortedUniqueModelIDList = new ArrayList<String>(size);
+		for(int position: ScoreSorter.sortByScore(scores, size)){
+			String uniqueModelId = uniqueModelIDList.get(position);
+			sortedUniqueModelIDList.add(uniqueModelId);
+			this.uniqueModelIdRanking.put(uniqueModelId, sortedUniqueModelIDList.size());
 		}
-		Map<Float, String> sortedMap = new TreeMap<Float, String>(scoreUniqueModelID);
-		uniqueModelIDList = (ArrayList<String>) sortedMap.values();
+		uniqueModelIDList = sortedUniqueModelIDList;
 	}
 	
 	/**
@@ -153,12 +152,7 @@ public class RankerHandler {
 	 */
 	public List<Model> makeResultsListScoreBased(){
 		this.sortModelsByScore();
-		List<Model> modelsList = new LinkedList<Model>();
-		for(String uniqueModelId: uniqueModelIDList){
-			Model model = this.rankerMap.get(uniqueModelId);
-			modelsList.add(model);
-		}
-		return modelsList;
+		return makeResultsList();
 	}
 	
 	/**
@@ -167,11 +161,17 @@ public class RankerHandler {
 	 */
 	public List<Model> makeResultsListRankBased(){
 		this.setScoresToNAN();
-		List<Model> modelsList = new LinkedList<Model>();
-		for(String uniqueModelId: uniqueModelIDList){
-			Model model = this.rankerMap.get(uniqueModelId);
-			modelsList.add(model);
-		}
+		return makeResultsList();
+	}
+	
+	/**
+	 * 
+	 * @return A list of the models in the order of the ranker.
+	 */
+	private List<Model> makeResultsList(){
+		List<Model> modelsList = new ArrayList<Model>(uniqueModelIDList.size());
+		for(String uniqueModelId: uniqueModelIDList)
+			modelsList.add(this.rankerMap.get(uniqueModelId));
 		return modelsList;
 	}
 	
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+
+/**
+ * Sorts positions by score without boxing. Each (score, position) pair is packed into one long key, so that
+ * sorting the keys orders the best score first and keeps the order of the positions for equal scores.
+ * Scores are compared like Float.compare.
+ * @author Mariam Nassar
+ *
+ */
+public class ScoreSorter {
+
+	/**
+	 * Packs a score and a position into a key. A smaller key means a better entry.
+	 *
+	 * @param score
+	 * @param position A position >= 0.
+	 * @return The key of the pair.
+	 */
+	public static long key(float score, int position){
+		int bits = Float.floatToIntBits(score);
+		//Flip the magnitude of negative floats, so that the bits compare like the floats
+		int sortable = bits ^ ((bits >> 31) & 0x7fffffff);
+		//Invert, so that the best score is the smallest key
+		return ((long) ~sortable << 32) | position;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return The score of a key.
+	 */
+	public static float score(long key){
+		int sortable = ~(int) (key >> 32);
+		return Float.intBitsToFloat(sortable ^ ((sortable >> 31) & 0x7fffffff));
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return The position of a key.
+	 */
+	public static int position(long key){
+		return (int) key;
+	}
+
+	/**
+	 * Sorts the positions 0, ..., length - 1 by their scores in O(n log n).
+	 *
+	 * @param scores The score of each position.
+	 * @param length
+	 * @return The positions, the best score first. Positions with equal scores keep their order.
+	 */
+	public static int[] sortByScore(float[] scores, int length){
+		long[] keys = AggregationWorkspace.get().getScoreKeys(length);
+		for(int i = 0; i < length; i++)
+			keys[i] = key(scores[i], i);
+		Arrays.sort(keys, 0, length);
+
+		int[] positions = new int[length];
+		for(int i = 0; i < length; i++)
+			positions[i] = position(keys[i]);
+		return positions;
+	}
+
+	/**
+	 * Selects the k best positions of 0, ..., length - 1 by their scores in O(n log k).
+	 *
+	 * @param scores The score of each position.
+	 * @param length
+	 * @param k
+	 * @return The best min(k, length) positions, the best score first. Positions with equal scores keep their order.
+	 */
+	public static int[] topByScore(float[] scores, int length, int k){
+		TopKSelector selector = new TopKSelector(Math.max(0, Math.min(k, length)));
+		for(int i = 0; i < length; i++)
+			selector.offer(scores[i], i);
+		return selector.removeAllBestFirst();
+	}
+
+}
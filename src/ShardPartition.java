@@ -0,0 +1,76 @@
+/**
+ * The models of one shard of the lists of a query: the models of the initial aggregate ranker whose unique model Ids
+ * are hashed to the shard, and the entries of the rankers with these unique model Ids.
+ * A worker which owns the partitions of its shard, e.g. loaded when the index is built, gets only the query,
+ * the weights and the lengths of the lists from the coordinator, see ShardedAggregation.aggregate(String, ...).
+ * ShardedAggregation.partitions splits the lists of a query into the partitions of the shards.
+ * @author Mariam Nassar
+ *
+ */
+public class ShardPartition {
+
+	/**
+	 * The unique model Ids of the models of the shard and their positions in the initial aggregate ranker, 0 based.
+	 */
+	private final String[] modelIds;
+	private final int[] positions;
+	/**
+	 * The unique model Ids of the entries of each ranker which belong to the shard and their rankings.
+	 */
+	private final String[][] rankerModelIds;
+	private final int[][] rankerRankings;
+
+
+	/**
+	 * Constructor. The arrays are not copied.
+	 * @param modelIds The unique model Ids of the models of the shard.
+	 * @param positions The position of each model of the shard in the initial aggregate ranker, 0 based, in ascending order.
+	 * @param rankerModelIds The unique model Ids of the entries of each ranker which belong to the shard.
+	 * @param rankerRankings The ranking of each of these entries.
+	 */
+	public ShardPartition(String[] modelIds, int[] positions, String[][] rankerModelIds, int[][] rankerRankings){
+		if(modelIds.length != positions.length || rankerModelIds.length != rankerRankings.length)
+			throw new IllegalArgumentException("The lengths of the arrays of the partition differ");
+		for(int i = 1; i < positions.length; i++)
+			if(positions[i - 1] >= positions[i])
+				throw new IllegalArgumentException("The positions of the partition are not ascending at " + i);
+
+		this.modelIds = modelIds;
+		this.positions = positions;
+		this.rankerModelIds = rankerModelIds;
+		this.rankerRankings = rankerRankings;
+	}
+
+	String[] getModelIds(){
+		return modelIds;
+	}
+
+	int[] getPositions(){
+		return positions;
+	}
+
+	String[][] getRankerModelIds(){
+		return rankerModelIds;
+	}
+
+	int[][] getRankerRankings(){
+		return rankerRankings;
+	}
+
+	/**
+	 *
+	 * @return The number of models of the shard.
+	 */
+	public int getSize(){
+		return modelIds.length;
+	}
+
+	/**
+	 *
+	 * @return The number of rankers.
+	 */
+	public int getNumberOfRankers(){
+		return rankerModelIds.length;
+	}
+
+}
@@ -0,0 +1,16 @@
+/**
+ * The partitions which a worker owns, keyed by query, e.g. loaded from a RankerFile when the worker starts.
+ * The ShardServer and the InProcessShardTransport look up the partition of a ShardRequest which only names its query.
+ * @author Mariam Nassar
+ *
+ */
+public interface ShardPartitionStore {
+
+	/**
+	 *
+	 * @param query
+	 * @return The partition of the query on this shard, null if the worker does not know the query.
+	 */
+	ShardPartition getPartition(String query);
+
+}
@@ -0,0 +1,293 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * The part of a score based aggregation which one shard computes: the models of the initial aggregate ranker
+ * whose unique model Ids are hashed to the shard, and the entries of the rankers with these unique model Ids.
+ * The lengths of the lists are the lengths of the whole lists, so that the shard computes the same scores
+ * as an aggregation of the whole lists.
+ * <p>
+ * A request of forQuery names the query instead, the worker takes the models of the shard from its ShardPartitionStore.
+ * So the coordinator only sends the query, the weights and the lengths of the lists.
+ * <p>
+ * The wire format of the SocketShardTransport, written by DataOutput:
+ * <pre>
+ * int       magic "SHRQ", version
+ * boolean   whether the request names its query, then UTF the query
+ * UTF       the name of the aggregate method
+ * int       k, N: the number of models in the initial aggregate ranker, the constant of the reciprocal rank fusion
+ * int       w, float[w] the weights of the rankers
+ * int       a: the number of models of the shard, for each: UTF unique model Id, int position in the initial aggregate ranker
+ * int       m: the number of rankers, for each ranker:
+ *   int     the number of models of the whole ranker
+ *   int     e: the number of entries of the shard, for each: UTF unique model Id, int ranking
+ * </pre>
+ * A request which names its query has no models and no entries:
+ * <pre>
+ * a = 0 and e = 0 for each ranker
+ * </pre>
+ * @author Mariam Nassar
+ *
+ */
+public class ShardRequest {
+	/**
+	 * "SHRQ".
+	 */
+	static final int MAGIC = 0x53485251;
+	static final int VERSION = 2;
+	private static final ShardPartition NO_PARTITION = new ShardPartition(new String[0], new int[0], new String[0][], new int[0][]);
+
+	/**
+	 * The query whose partition the worker owns, null if the request contains the models of the shard.
+	 */
+	private final String query;
+	private final RankAggregationType.Types aggregateMethod;
+	private final int k;
+	private final int aggregateRankerLength;
+	private final int reciprocalRankFusionK;
+	private final float[] rankersWeights;
+	/**
+	 * The number of models of each whole ranker.
+	 */
+	private final int[] rankerLengths;
+	private final ShardPartition partition;
+
+
+	/**
+	 * Constructor. The arrays are not copied.
+	 * @param aggregateMethod COMB_MNZ, COMB_SUM, BORDA or RECIPROCAL_RANK_FUSION.
+	 * @param k The number of models the shard returns at most.
+	 * @param aggregateRankerLength The number of models in the whole initial aggregate ranker.
+	 * @param reciprocalRankFusionK The constant of the reciprocal rank fusion.
+	 * @param rankersWeights The weight of each ranker. Rankers without a weight have the weight 0.
+	 * @param modelIds The unique model Ids of the models of the shard.
+	 * @param positions The position of each model of the shard in the initial aggregate ranker, 0 based, in ascending order.
+	 * @param rankerLengths The number of models of each whole ranker.
+	 * @param rankerModelIds The unique model Ids of the entries of each ranker which belong to the shard.
+	 * @param rankerRankings The ranking of each of these entries.
+	 */
+	public ShardRequest(RankAggregationType.Types aggregateMethod, int k, int aggregateRankerLength, int reciprocalRankFusionK, float[] rankersWeights,
+			String[] modelIds, int[] positions, int[] rankerLengths, String[][] rankerModelIds, int[][] rankerRankings){
+		this(null, aggregateMethod, k, aggregateRankerLength, reciprocalRankFusionK, rankersWeights, rankerLengths,
+				new ShardPartition(modelIds, positions, rankerModelIds, rankerRankings));
+	}
+
+	private ShardRequest(String query, RankAggregationType.Types aggregateMethod, int k, int aggregateRankerLength, int reciprocalRankFusionK,
+			float[] rankersWeights, int[] rankerLengths, ShardPartition partition){
+		this.query = query;
+		this.aggregateMethod = aggregateMethod;
+		this.k = k;
+		this.aggregateRankerLength = aggregateRankerLength;
+		this.reciprocalRankFusionK = reciprocalRankFusionK;
+		this.rankersWeights = rankersWeights;
+		this.rankerLengths = rankerLengths;
+		this.partition = partition;
+	}
+
+	/**
+	 * A request of a query whose partition the worker of the shard owns. The arrays are not copied.
+	 *
+	 * @param query The key of the partition in the ShardPartitionStore of the worker.
+	 * @param aggregateMethod COMB_MNZ, COMB_SUM, BORDA or RECIPROCAL_RANK_FUSION.
+	 * @param k The number of models the shard returns at most.
+	 * @param aggregateRankerLength The number of models in the whole initial aggregate ranker.
+	 * @param reciprocalRankFusionK The constant of the reciprocal rank fusion.
+	 * @param rankersWeights The weight of each ranker. Rankers without a weight have the weight 0.
+	 * @param rankerLengths The number of models of each whole ranker.
+	 * @return The request.
+	 */
+	public static ShardRequest forQuery(String query, RankAggregationType.Types aggregateMethod, int k, int aggregateRankerLength,
+			int reciprocalRankFusionK, float[] rankersWeights, int[] rankerLengths){
+		if(query == null)
+			throw new NullPointerException("query");
+
+		return new ShardRequest(query, aggregateMethod, k, aggregateRankerLength, reciprocalRankFusionK, rankersWeights, rankerLengths, NO_PARTITION);
+	}
+
+	/**
+	 *
+	 * @param partition The partition of the query, e.g. from the ShardPartitionStore of the worker.
+	 * @return A request with the models of the partition.
+	 */
+	ShardRequest withPartition(ShardPartition partition){
+		if(partition.getNumberOfRankers() != rankerLengths.length)
+			throw new IllegalArgumentException("The partition of the query " + query + " has " + partition.getNumberOfRankers()
+					+ " rankers, the request has " + rankerLengths.length);
+
+		return new ShardRequest(null, aggregateMethod, k, aggregateRankerLength, reciprocalRankFusionK, rankersWeights, rankerLengths, partition);
+	}
+
+	/**
+	 * Writes the request in the wire format.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeBoolean(query != null);
+		if(query != null)
+			out.writeUTF(query);
+		out.writeUTF(aggregateMethod.name());
+		out.writeInt(k);
+		out.writeInt(aggregateRankerLength);
+		out.writeInt(reciprocalRankFusionK);
+		out.writeInt(rankersWeights.length);
+		for(float weight: rankersWeights)
+			out.writeFloat(weight);
+
+		String[] modelIds = partition.getModelIds();
+		int[] positions = partition.getPositions();
+		out.writeInt(modelIds.length);
+		for(int i = 0; i < modelIds.length; i++){
+			out.writeUTF(modelIds[i]);
+			out.writeInt(positions[i]);
+		}
+
+		out.writeInt(rankerLengths.length);
+		for(int l = 0; l < rankerLengths.length; l++){
+			out.writeInt(rankerLengths[l]);
+			if(query != null){
+				out.writeInt(0);
+				continue;
+			}
+			String[] ids = partition.getRankerModelIds()[l];
+			int[] rankings = partition.getRankerRankings()[l];
+			out.writeInt(ids.length);
+			for(int i = 0; i < ids.length; i++){
+				out.writeUTF(ids[i]);
+				out.writeInt(rankings[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a request in the wire format.
+	 *
+	 * @param in
+	 * @return The request.
+	 * @throws IOException If the input does not contain a request.
+	 */
+	public static ShardRequest read(DataInput in) throws IOException{
+		if(in.readInt() != MAGIC)
+			throw new IOException("Not a shard request");
+		int version = in.readInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported version of the shard request: " + version);
+
+		String query = in.readBoolean() ? in.readUTF() : null;
+		RankAggregationType.Types aggregateMethod;
+		String methodName = in.readUTF();
+		try{
+			aggregateMethod = RankAggregationType.Types.valueOf(methodName);
+		}
+		catch(IllegalArgumentException e){
+			throw new IOException("Unknown aggregate method: " + methodName);
+		}
+		int k = in.readInt();
+		int aggregateRankerLength = in.readInt();
+		int reciprocalRankFusionK = in.readInt();
+		float[] rankersWeights = new float[readLength(in)];
+		for(int l = 0; l < rankersWeights.length; l++)
+			rankersWeights[l] = in.readFloat();
+
+		int size = readLength(in);
+		String[] modelIds = new String[size];
+		int[] positions = new int[size];
+		for(int i = 0; i < size; i++){
+			modelIds[i] = in.readUTF();
+			positions[i] = in.readInt();
+		}
+
+		int s = readLength(in);
+		int[] rankerLengths = new int[s];
+		String[][] rankerModelIds = new String[s][];
+		int[][] rankerRankings = new int[s][];
+		for(int l = 0; l < s; l++){
+			rankerLengths[l] = in.readInt();
+			int entries = readLength(in);
+			rankerModelIds[l] = new String[entries];
+			rankerRankings[l] = new int[entries];
+			for(int i = 0; i < entries; i++){
+				rankerModelIds[l][i] = in.readUTF();
+				rankerRankings[l][i] = in.readInt();
+			}
+		}
+		if(query != null)
+			return forQuery(query, aggregateMethod, k, aggregateRankerLength, reciprocalRankFusionK, rankersWeights, rankerLengths);
+		try{
+			return new ShardRequest(aggregateMethod, k, aggregateRankerLength, reciprocalRankFusionK, rankersWeights,
+					modelIds, positions, rankerLengths, rankerModelIds, rankerRankings);
+		}
+		catch(IllegalArgumentException e){
+			throw new IOException("Corrupt shard request: " + e.getMessage());
+		}
+	}
+
+	private static int readLength(DataInput in) throws IOException{
+		int length = in.readInt();
+		if(length < 0)
+			throw new IOException("Corrupt shard request");
+		return length;
+	}
+
+	/**
+	 *
+	 * @return The query whose partition the worker owns, null if the request contains the models of the shard.
+	 */
+	public String getQuery(){
+		return query;
+	}
+
+	public RankAggregationType.Types getAggregateMethod(){
+		return aggregateMethod;
+	}
+
+	public int getK(){
+		return k;
+	}
+
+	public int getAggregateRankerLength(){
+		return aggregateRankerLength;
+	}
+
+	public int getReciprocalRankFusionK(){
+		return reciprocalRankFusionK;
+	}
+
+	float[] getRankersWeights(){
+		return rankersWeights;
+	}
+
+	String[] getModelIds(){
+		return partition.getModelIds();
+	}
+
+	int[] getPositions(){
+		return partition.getPositions();
+	}
+
+	int[] getRankerLengths(){
+		return rankerLengths;
+	}
+
+	String[][] getRankerModelIds(){
+		return partition.getRankerModelIds();
+	}
+
+	int[][] getRankerRankings(){
+		return partition.getRankerRankings();
+	}
+
+	/**
+	 *
+	 * @return The number of models of the shard.
+	 */
+	public int getSize(){
+		return partition.getSize();
+	}
+
+}
@@ -0,0 +1,138 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * The best k models of a shard, the best model first. A model is given by its position in the initial aggregate ranker,
+ * its score and its unique model Id, so that the results of the shards can be merged like the entries of a TopKSelector
+ * by a coordinator which does not hold the initial aggregate ranker.
+ * <p>
+ * The wire format of the SocketShardTransport, written by DataOutput:
+ * <pre>
+ * int       magic "SHRS", version
+ * int       n: the number of models, for each: int position, float score, UTF unique model Id
+ *           or -1 if the shard failed, followed by UTF the message
+ * </pre>
+ * @author Mariam Nassar
+ *
+ */
+public class ShardResult {
+	/**
+	 * "SHRS".
+	 */
+	static final int MAGIC = 0x53485253;
+	static final int VERSION = 2;
+
+	private final int[] positions;
+	private final float[] scores;
+	private final String[] modelIds;
+
+
+	/**
+	 * Constructor. The arrays are not copied.
+	 * @param positions The positions of the models in the initial aggregate ranker, 0 based, the best model first.
+	 * @param scores The score of each model.
+	 * @param modelIds The unique model Id of each model.
+	 */
+	public ShardResult(int[] positions, float[] scores, String[] modelIds){
+		this.positions = positions;
+		this.scores = scores;
+		this.modelIds = modelIds;
+	}
+
+	/**
+	 *
+	 * @return The number of models.
+	 */
+	public int getSize(){
+		return positions.length;
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @return The position of the i-th best model in the initial aggregate ranker, 0 based.
+	 */
+	public int getPosition(int i){
+		return positions[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @return The score of the i-th best model.
+	 */
+	public float getScore(int i){
+		return scores[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @return The unique model Id of the i-th best model.
+	 */
+	public String getModelId(int i){
+		return modelIds[i];
+	}
+
+	/**
+	 * Writes the result in the wire format.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(positions.length);
+		for(int i = 0; i < positions.length; i++){
+			out.writeInt(positions[i]);
+			out.writeFloat(scores[i]);
+			out.writeUTF(modelIds[i]);
+		}
+	}
+
+	/**
+	 * Writes the failure of a shard in the wire format, ShardResult.read throws it as an IOException.
+	 *
+	 * @param out
+	 * @param message
+	 * @throws IOException
+	 */
+	static void writeFailure(DataOutput out, String message) throws IOException{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(-1);
+		out.writeUTF(message != null ? message : "");
+	}
+
+	/**
+	 * Reads a result in the wire format.
+	 *
+	 * @param in
+	 * @return The result.
+	 * @throws IOException If the input does not contain a result or the shard failed.
+	 */
+	public static ShardResult read(DataInput in) throws IOException{
+		if(in.readInt() != MAGIC)
+			throw new IOException("Not a shard result");
+		int version = in.readInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported version of the shard result: " + version);
+
+		int size = in.readInt();
+		if(size < 0)
+			throw new IOException("The shard failed: " + in.readUTF());
+		int[] positions = new int[size];
+		float[] scores = new float[size];
+		String[] modelIds = new String[size];
+		for(int i = 0; i < size; i++){
+			positions[i] = in.readInt();
+			scores[i] = in.readFloat();
+			modelIds[i] = in.readUTF();
+		}
+		return new ShardResult(positions, scores, modelIds);
+	}
+
+}
@@ -0,0 +1,182 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+
+/**
+ * The worker of a shard for the SocketShardTransport. It reads one ShardRequest per connection,
+ * aggregates it by the ShardWorker and writes the ShardResult back.
+ * <p>
+ * A worker JVM is started by
+ * <pre>
+ * java -cp core/target/classes ShardServer [port]
+ * </pre>
+ * which listens on the loopback address. The port 0 chooses a free port, which is printed.
+ * <p>
+ * A failure which cannot be reported to the transport, e.g. a connection which cannot be accepted or answered,
+ * is passed to the failure handler of the caller. A server which owns the partitions of its shard
+ * answers the requests which only name their query from its ShardPartitionStore.
+ * @author Mariam Nassar
+ *
+ */
+public class ShardServer implements Closeable {
+
+	private ServerSocket serverSocket;
+	/**
+	 * Aggregates the requests of the connections.
+	 */
+	private ExecutorService executor;
+	private Thread acceptThread;
+	/**
+	 * Gets the failures which cannot be reported to the transport.
+	 */
+	private Consumer<IOException> failureHandler;
+	/**
+	 * The partitions of the shard, null if the server owns no partitions.
+	 */
+	private ShardPartitionStore partitions;
+
+
+	/**
+	 * Constructor. Listens on a port of the loopback address.
+	 * @param port The port, 0 for a free port.
+	 * @param failureHandler Gets the failures of connections which cannot be reported to the transport.
+	 * It is called by the threads of the server.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public ShardServer(int port, Consumer<IOException> failureHandler) throws IOException{
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), null, failureHandler);
+	}
+
+	/**
+	 * Constructor. Listens on a port of the loopback address.
+	 * @param port The port, 0 for a free port.
+	 * @param partitions The partitions of the shard, or null.
+	 * @param failureHandler Gets the failures of connections which cannot be reported to the transport.
+	 * It is called by the threads of the server.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public ShardServer(int port, ShardPartitionStore partitions, Consumer<IOException> failureHandler) throws IOException{
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), partitions, failureHandler);
+	}
+
+	/**
+	 * Constructor.
+	 * @param address The address to listen on.
+	 * @param partitions The partitions of the shard, or null.
+	 * @param failureHandler Gets the failures of connections which cannot be reported to the transport.
+	 * It is called by the threads of the server.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public ShardServer(InetSocketAddress address, ShardPartitionStore partitions, Consumer<IOException> failureHandler) throws IOException{
+		if(failureHandler == null)
+			throw new NullPointerException("failureHandler");
+
+		this.partitions = partitions;
+		this.failureHandler = failureHandler;
+		this.serverSocket = new ServerSocket();
+		serverSocket.bind(address);
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "shard-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts to accept connections in a new thread, which keeps the JVM running until the server is closed.
+	 *
+	 * @return This server.
+	 */
+	public synchronized ShardServer start(){
+		if(acceptThread == null){
+			acceptThread = new Thread(this::acceptConnections, "shard-server-accept");
+			acceptThread.start();
+		}
+		return this;
+	}
+
+	/**
+	 *
+	 * @return The address the server listens on, e.g. for the SocketShardTransport.
+	 */
+	public InetSocketAddress getAddress(){
+		return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+	}
+
+	private void acceptConnections(){
+		while(!serverSocket.isClosed()){
+			try{
+				Socket socket = serverSocket.accept();
+				executor.execute(() -> handle(socket));
+			}
+			catch(SocketException e){
+				//The server socket has been closed
+			}
+			catch(IOException e){
+				failureHandler.accept(new IOException("Cannot accept a shard connection", e));
+			}
+		}
+	}
+
+	/**
+	 * Aggregates the request of a connection. A failing request is reported to the transport.
+	 *
+	 * @param socket
+	 */
+	private void handle(Socket socket){
+		try(Socket s = socket){
+			s.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+			ShardResult result;
+			try{
+				result = ShardWorker.aggregate(ShardRequest.read(in), partitions);
+			}
+			catch(IOException | RuntimeException e){
+				ShardResult.writeFailure(out, e.toString());
+				out.flush();
+				return;
+			}
+			result.write(out);
+			out.flush();
+		}
+		catch(IOException e){
+			failureHandler.accept(new IOException("Cannot answer a shard request", e));
+		}
+	}
+
+	/**
+	 * Stops to accept connections. The requests which are running are answered.
+	 */
+	@Override
+	public void close() throws IOException{
+		serverSocket.close();
+		executor.shutdown();
+	}
+
+	/**
+	 * Runs a worker until the JVM is stopped. The failures of connections are printed to the standard error.
+	 *
+	 * @param args [port], the default port 0 chooses a free port.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public static void main(String[] args) throws IOException{
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+		ShardServer server = new ShardServer(port, e -> System.err.println(e + ": " + e.getCause())).start();
+		System.out.println("Shard server listening on " + server.getAddress());
+	}
+
+}
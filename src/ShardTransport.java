@@ -0,0 +1,29 @@
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Sends the requests of a ShardedAggregation to the workers of the shards.
+ * The InProcessShardTransport runs the shards in this JVM, the SocketShardTransport sends them to ShardServers.
+ * @author Mariam Nassar
+ *
+ */
+public interface ShardTransport extends Closeable {
+
+	/**
+	 *
+	 * @return The number of shards, at least 1.
+	 */
+	int getNumberOfShards();
+
+	/**
+	 * Sends a request to the worker of a shard.
+	 *
+	 * @param shard The index of the shard, 0 <= shard < getNumberOfShards().
+	 * @param request
+	 * @return A future for the result of the shard. It completes exceptionally with an IOException
+	 * if the worker cannot be reached or fails.
+	 */
+	CompletableFuture<ShardResult> send(int shard, ShardRequest request);
+
+}
@@ -0,0 +1,181 @@
+/**
+ * Computes the scores of the models of one shard of a score based aggregation and selects the best k of them.
+ * The score of a model of COMB_MNZ, COMB_SUM, BORDA and RECIPROCAL_RANK_FUSION only depends on its own rankings
+ * and on the lengths of the lists, so that a shard computes the same scores as RankAggregation.aggregate
+ * with the same arithmetic.
+ * @author Mariam Nassar
+ *
+ */
+public class ShardWorker {
+
+	private ShardWorker(){
+	}
+
+	/**
+	 * Aggregates one shard whose request contains the models of the shard.
+	 *
+	 * @param request
+	 * @return The best k models of the shard, the best model first. Models with equal scores are ordered like
+	 * in the initial aggregate ranker.
+	 */
+	public static ShardResult aggregate(ShardRequest request){
+		return aggregate(request, null);
+	}
+
+	/**
+	 * Aggregates one shard. The models of a request which names its query are taken from the partitions of the worker.
+	 *
+	 * @param request
+	 * @param partitions The partitions which the worker owns, or null.
+	 * @return The best k models of the shard, the best model first. Models with equal scores are ordered like
+	 * in the initial aggregate ranker.
+	 */
+	public static ShardResult aggregate(ShardRequest request, ShardPartitionStore partitions){
+		RankAggregationType.Types aggregateMethod = request.getAggregateMethod();
+		if(!ShardedAggregation.isShardable(aggregateMethod))
+			throw new IllegalArgumentException("The aggregate method cannot be sharded: " + aggregateMethod);
+
+		String query = request.getQuery();
+		if(query != null){
+			ShardPartition partition = (partitions != null) ? partitions.getPartition(query) : null;
+			if(partition == null)
+				throw new IllegalArgumentException("The shard has no partition of the query " + query);
+			request = request.withPartition(partition);
+		}
+
+		String[] modelIds = request.getModelIds();
+		int size = modelIds.length;
+		if(request.getK() <= 0 || size == 0)
+			return new ShardResult(new int[0], new float[0], new String[0]);
+
+		//Only the models of the aggregate ranker are aggregated, the dictionary contains no other unique model Ids
+		ModelIdDictionary dictionary = new ModelIdDictionary();
+		int[] modelIndexList = new int[size];
+		for(int i = 0; i < size; i++)
+			modelIndexList[i] = dictionary.intern(modelIds[i]);
+
+		float[] scores = (aggregateMethod == RankAggregationType.Types.COMB_MNZ)
+				? combMNZScores(request, dictionary) : linearFusionScores(request, dictionary);
+
+		//The positions are ascending, so that the index of a model of the shard orders equal scores like its position
+		TopKSelector selector = new TopKSelector(Math.min(request.getK(), size));
+		int[] positions = request.getPositions();
+		for(int i = 0; i < size; i++)
+			selector.offer(scores[modelIndexList[i]], i);
+
+		long[] keys = selector.removeAllKeysBestFirst();
+		int[] bestPositions = new int[keys.length];
+		float[] bestScores = new float[keys.length];
+		String[] bestModelIds = new String[keys.length];
+		for(int i = 0; i < keys.length; i++){
+			int index = ScoreSorter.position(keys[i]);
+			bestPositions[i] = positions[index];
+			bestScores[i] = ScoreSorter.score(keys[i]);
+			bestModelIds[i] = modelIds[index];
+		}
+		return new ShardResult(bestPositions, bestScores, bestModelIds);
+	}
+
+	/**
+	 * The CombMNZ scores like RankAggregation.combMNZScore.
+	 *
+	 * @param request
+	 * @param dictionary The dictionary of the models of the shard.
+	 * @return The score of each model index.
+	 */
+	private static float[] combMNZScores(ShardRequest request, ModelIdDictionary dictionary){
+		int size = dictionary.size();
+		int aggregateRankerLength = request.getAggregateRankerLength();
+		int s = request.getRankerLengths().length;
+		float maxPossibleScore = s * s;  //The maximum value the score could ever have
+
+		int[] h = new int[size]; //Denotes the number of times a model appears in the rankers
+		float[] brn_sum = new float[size]; //Borda rank normalization for the models
+		int[] rankings = new int[size];
+		for(int l = 0; l < s; l++){
+			gatherRankings(request, l, dictionary, rankings);
+			for(int i = 0; i < size; i++){
+				int ranking = rankings[i];
+				if(ranking != IndexedRankerHandler.ABSENT){
+					h[i]++;
+					brn_sum[i] += 1 - ((double) (ranking - 1) / aggregateRankerLength);
+				}
+			}
+		}
+
+		float[] scores = new float[size];
+		for(int i = 0; i < size; i++){
+			float newScore = brn_sum[i] * h[i];
+			scores[i] = newScore / maxPossibleScore;
+		}
+		return scores;
+	}
+
+	/**
+	 * The COMB_SUM, BORDA or RECIPROCAL_RANK_FUSION scores like RankAggregation.linearFusion.
+	 *
+	 * @param request
+	 * @param dictionary The dictionary of the models of the shard.
+	 * @return The score of each model index.
+	 */
+	private static float[] linearFusionScores(ShardRequest request, ModelIdDictionary dictionary){
+		int size = dictionary.size();
+		int aggregateRankerLength = request.getAggregateRankerLength();
+		int[] rankerLengths = request.getRankerLengths();
+		float[] rankersWeights = request.getRankersWeights();
+		int s = rankerLengths.length;
+		float k = request.getReciprocalRankFusionK();
+
+		int[] ranking_i = new int[size];
+		float[] rankings = new float[size];
+		float[] presence = new float[size];
+		float[] scores = new float[size];
+		for(int l = 0; l < s && l < rankersWeights.length; l++){
+			float weight = rankersWeights[l];
+			if(weight == 0)
+				continue;
+
+			gatherRankings(request, l, dictionary, ranking_i);
+			for(int i = 0; i < size; i++){
+				boolean contained = ranking_i[i] != IndexedRankerHandler.ABSENT;
+				rankings[i] = contained ? ranking_i[i] : 0;
+				presence[i] = contained ? 1 : 0;
+			}
+
+			switch(request.getAggregateMethod()){
+			case COMB_SUM:
+				RankAggregation.addCombSum(scores, rankings, presence, size, weight * (aggregateRankerLength + 1) / aggregateRankerLength,
+						weight / aggregateRankerLength);
+				break;
+			case BORDA:
+				RankAggregation.addBorda(scores, rankings, presence, size, weight, rankerLengths[l] + 1);
+				break;
+			default:
+				RankAggregation.addReciprocalRanks(scores, rankings, presence, size, weight, k);
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Gathers the rankings of the models of the shard in a ranker. Like in the IndexedRankerHandler,
+	 * the last entry of a unique model Id wins.
+	 *
+	 * @param request
+	 * @param l The index of the ranker.
+	 * @param dictionary The dictionary of the models of the shard.
+	 * @param rankings Filled with the ranking of each model index, IndexedRankerHandler.ABSENT if the ranker does not contain the model.
+	 */
+	private static void gatherRankings(ShardRequest request, int l, ModelIdDictionary dictionary, int[] rankings){
+		String[] ids = request.getRankerModelIds()[l];
+		int[] entryRankings = request.getRankerRankings()[l];
+		for(int i = 0; i < rankings.length; i++)
+			rankings[i] = IndexedRankerHandler.ABSENT;
+		for(int i = 0; i < ids.length; i++){
+			int modelIndex = dictionary.getModelIndex(ids[i]);
+			if(modelIndex >= 0)
+				rankings[modelIndex] = entryRankings[i];
+		}
+	}
+
+}
@@ -0,0 +1,334 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * Scatter/gather aggregation of the score based methods COMB_MNZ, COMB_SUM, BORDA and RECIPROCAL_RANK_FUSION
+ * over several shards, e.g. worker JVMs, for lists which are too large for one JVM.
+ * The score of a model only depends on its own rankings and on the lengths of the lists, so the unique model Ids
+ * are hash partitioned over the shards: each shard gets the models of the initial aggregate ranker and the entries
+ * of the rankers with its unique model Ids, computes their scores and returns its best k models.
+ * The coordinator merges the best models of the shards by a k-way heap.
+ * <p>
+ * aggregate(List, ...) partitions the lists of the caller, so the coordinator holds the whole lists and their partitions.
+ * For lists which are too large for the coordinator, the workers own the partitions of their shards, e.g. split
+ * by partitions when the index is built, and aggregate(String, ...) only sends the query, the weights and the lengths
+ * of the lists. The coordinator then only holds the best k models of each shard.
+ * <p>
+ * The best k models are the first k models of RankAggregation.aggregate with the same scores and the same order,
+ * models with equal scores are ordered like in the initial aggregate ranker. Like the AggregationEngine,
+ * it never changes the models of the caller. The shards are sent by a ShardTransport.
+ * @author Mariam Nassar
+ *
+ */
+public class ShardedAggregation {
+
+	private ShardTransport transport;
+
+
+	/**
+	 * The best models of a shard which have not been merged yet.
+	 */
+	private static class ShardCursor {
+		private final ShardResult result;
+		private int next;
+		private long key;
+
+		ShardCursor(ShardResult result){
+			this.result = result;
+		}
+
+		/**
+		 * Moves to the next model of the shard.
+		 * @return false, if all models of the shard have been merged.
+		 */
+		boolean advance(){
+			if(next >= result.getSize())
+				return false;
+			key = ScoreSorter.key(result.getScore(next), result.getPosition(next));
+			next++;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param transport The transport to the workers of the shards.
+	 */
+	public ShardedAggregation(ShardTransport transport){
+		this.transport = transport;
+	}
+
+	/**
+	 * Aggregates a list of rankers with regard to an initial aggregate ranker using a score based aggregate method
+	 * and returns only the first k models of the aggregate list.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod COMB_MNZ, COMB_SUM, BORDA or RECIPROCAL_RANK_FUSION.
+	 * @param rankersWeights The weight of each ranker in the rankersList, or null if all rankers have the weight 1.
+	 * Rankers without a weight have the weight 0. COMB_MNZ ignores the weights.
+	 * @param k The number of models to return.
+	 * @return The first k models of the aggregate list, new models with the aggregate scores.
+	 * @throws IOException If a shard cannot be aggregated.
+	 */
+	public List<Model> aggregate(List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod,
+			float[] rankersWeights, int k) throws IOException{
+		if(!isShardable(aggregateMethod))
+			throw new IllegalArgumentException("The aggregate method cannot be sharded: " + aggregateMethod);
+		if(k <= 0 || initialAggregateRanker.isEmpty())
+			return new ArrayList<Model>();
+		if(rankersWeights == null){
+			rankersWeights = new float[rankersList.size()];
+			for(int l = 0; l < rankersWeights.length; l++)
+				rankersWeights[l] = 1;
+		}
+
+		ShardPartition[] partitions = partitions(rankersList, initialAggregateRanker, transport.getNumberOfShards());
+		ShardRequest[] requests = new ShardRequest[partitions.length];
+		int[] rankerLengths = rankerLengths(rankersList);
+		for(int shard = 0; shard < partitions.length; shard++){
+			ShardPartition partition = partitions[shard];
+			requests[shard] = new ShardRequest(aggregateMethod, k, initialAggregateRanker.size(), RankAggregation.getReciprocalRankFusionK(), rankersWeights,
+					partition.getModelIds(), partition.getPositions(), rankerLengths, partition.getRankerModelIds(), partition.getRankerRankings());
+		}
+		return scatterGather(requests, k);
+	}
+
+	/**
+	 * Aggregates a query whose lists are partitioned over the workers, which own the partitions of their shards,
+	 * using a score based aggregate method and returns only the first k models of the aggregate list.
+	 * The coordinator only sends the query, the weights and the lengths of the lists.
+	 *
+	 * @param query The key of the partitions in the ShardPartitionStores of the workers.
+	 * @param aggregateRankerLength The number of models in the whole initial aggregate ranker.
+	 * @param rankerLengths The number of models of each whole ranker.
+	 * @param aggregateMethod COMB_MNZ, COMB_SUM, BORDA or RECIPROCAL_RANK_FUSION.
+	 * @param rankersWeights The weight of each ranker, or null if all rankers have the weight 1.
+	 * Rankers without a weight have the weight 0. COMB_MNZ ignores the weights.
+	 * @param k The number of models to return.
+	 * @return The first k models of the aggregate list, new models with the aggregate scores.
+	 * @throws IOException If a shard cannot be aggregated, e.g. if a worker does not know the query.
+	 */
+	public List<Model> aggregate(String query, int aggregateRankerLength, int[] rankerLengths, RankAggregationType.Types aggregateMethod,
+			float[] rankersWeights, int k) throws IOException{
+		if(!isShardable(aggregateMethod))
+			throw new IllegalArgumentException("The aggregate method cannot be sharded: " + aggregateMethod);
+		if(k <= 0 || aggregateRankerLength == 0)
+			return new ArrayList<Model>();
+		if(rankersWeights == null){
+			rankersWeights = new float[rankerLengths.length];
+			for(int l = 0; l < rankersWeights.length; l++)
+				rankersWeights[l] = 1;
+		}
+
+		ShardRequest request = ShardRequest.forQuery(query, aggregateMethod, k, aggregateRankerLength, RankAggregation.getReciprocalRankFusionK(),
+				rankersWeights, rankerLengths);
+		ShardRequest[] requests = new ShardRequest[transport.getNumberOfShards()];
+		for(int shard = 0; shard < requests.length; shard++)
+			requests[shard] = request;
+		return scatterGather(requests, k);
+	}
+
+	/**
+	 * Sends the requests to the shards and merges their best models.
+	 *
+	 * @param requests The request of each shard.
+	 * @param k
+	 * @return The best k models of all shards.
+	 * @throws IOException If a shard cannot be aggregated.
+	 */
+	private List<Model> scatterGather(ShardRequest[] requests, int k) throws IOException{
+		//Scatter
+		List<CompletableFuture<ShardResult>> futures = new ArrayList<CompletableFuture<ShardResult>>(requests.length);
+		for(int shard = 0; shard < requests.length; shard++)
+			futures.add(transport.send(shard, requests[shard]));
+
+		//Gather
+		ShardResult[] results = new ShardResult[requests.length];
+		for(int shard = 0; shard < results.length; shard++)
+			results[shard] = await(futures.get(shard));
+		return merge(results, k);
+	}
+
+	/**
+	 * Hash partitions the unique model Ids of the initial aggregate ranker and of the rankers over the shards,
+	 * e.g. to give each worker the partitions of its shard when the index is built.
+	 *
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param numberOfShards
+	 * @return The partition of each shard.
+	 */
+	public static ShardPartition[] partitions(List<List<Model>> rankersList, List<Model> initialAggregateRanker, int numberOfShards){
+		if(numberOfShards < 1)
+			throw new IllegalArgumentException("At least 1 shard is needed: " + numberOfShards);
+		int s = rankersList.size();
+
+		//The models of the initial aggregate ranker with their positions
+		int[] shardOfModel = shardsOf(initialAggregateRanker, numberOfShards);
+		int[] shardSizes = count(shardOfModel, numberOfShards);
+		String[][] modelIds = new String[numberOfShards][];
+		int[][] positions = new int[numberOfShards][];
+		for(int shard = 0; shard < numberOfShards; shard++){
+			modelIds[shard] = new String[shardSizes[shard]];
+			positions[shard] = new int[shardSizes[shard]];
+		}
+		int[] fill = new int[numberOfShards];
+		for(int i = 0; i < shardOfModel.length; i++){
+			int shard = shardOfModel[i];
+			modelIds[shard][fill[shard]] = initialAggregateRanker.get(i).getUniqueVersionId();
+			positions[shard][fill[shard]] = i;
+			fill[shard]++;
+		}
+
+		//The entries of the rankers with their rankings
+		String[][][] rankerModelIds = new String[numberOfShards][s][];
+		int[][][] rankerRankings = new int[numberOfShards][s][];
+		for(int l = 0; l < s; l++){
+			List<Model> ranker = rankersList.get(l);
+			int[] shardOfEntry = shardsOf(ranker, numberOfShards);
+			int[] entries = count(shardOfEntry, numberOfShards);
+			for(int shard = 0; shard < numberOfShards; shard++){
+				rankerModelIds[shard][l] = new String[entries[shard]];
+				rankerRankings[shard][l] = new int[entries[shard]];
+				fill[shard] = 0;
+			}
+			for(int i = 0; i < shardOfEntry.length; i++){
+				int shard = shardOfEntry[i];
+				rankerModelIds[shard][l][fill[shard]] = ranker.get(i).getUniqueVersionId();
+				rankerRankings[shard][l][fill[shard]] = i + 1;
+				fill[shard]++;
+			}
+		}
+
+		ShardPartition[] partitions = new ShardPartition[numberOfShards];
+		for(int shard = 0; shard < numberOfShards; shard++)
+			partitions[shard] = new ShardPartition(modelIds[shard], positions[shard], rankerModelIds[shard], rankerRankings[shard]);
+		return partitions;
+	}
+
+	/**
+	 *
+	 * @param rankersList
+	 * @return The number of models of each ranker, e.g. for aggregate(String, ...).
+	 */
+	public static int[] rankerLengths(List<List<Model>> rankersList){
+		int[] rankerLengths = new int[rankersList.size()];
+		for(int l = 0; l < rankerLengths.length; l++)
+			rankerLengths[l] = rankersList.get(l).size();
+		return rankerLengths;
+	}
+
+	/**
+	 * Merges the best models of the shards by a k-way heap.
+	 *
+	 * @param results The best models of each shard.
+	 * @param k
+	 * @return The best k models of all shards.
+	 */
+	private static List<Model> merge(ShardResult[] results, int k){
+		PriorityQueue<ShardCursor> heap = new PriorityQueue<ShardCursor>(results.length, (a, b) -> Long.compare(a.key, b.key));
+		for(ShardResult result: results){
+			ShardCursor cursor = new ShardCursor(result);
+			if(cursor.advance())
+				heap.add(cursor);
+		}
+
+		List<Model> bestModels = new ArrayList<Model>();
+		while(bestModels.size() < k && !heap.isEmpty()){
+			ShardCursor best = heap.poll();
+			bestModels.add(new Model(ScoreSorter.score(best.key), best.result.getModelId(best.next - 1)));
+			if(best.advance())
+				heap.add(best);
+		}
+		return bestModels;
+	}
+
+	/**
+	 * Waits for the result of a shard.
+	 *
+	 * @param future
+	 * @return The result of the shard.
+	 * @throws IOException If the shard cannot be aggregated.
+	 */
+	private static ShardResult await(CompletableFuture<ShardResult> future) throws IOException{
+		try{
+			return future.get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a shard");
+		}
+		catch(ExecutionException e){
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException) cause;
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException("The shard failed", cause);
+		}
+	}
+
+	/**
+	 *
+	 * @param aggregateMethod
+	 * @return true, if the aggregate method can be sharded, i.e. the score of a model only depends on its own rankings.
+	 */
+	public static boolean isShardable(RankAggregationType.Types aggregateMethod){
+		switch(aggregateMethod){
+		case COMB_MNZ:
+		case COMB_SUM:
+		case BORDA:
+		case RECIPROCAL_RANK_FUSION:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * @param uniqueModelID
+	 * @param numberOfShards
+	 * @return The shard of a unique model Id.
+	 */
+	public static int shardOf(String uniqueModelID, int numberOfShards){
+		if(uniqueModelID == null)
+			return 0;
+		int hash = uniqueModelID.hashCode();
+		//Spread the high bits, like the HashMap
+		hash ^= hash >>> 16;
+		return (hash & 0x7fffffff) % numberOfShards;
+	}
+
+	private static int[] shardsOf(List<Model> ranker, int numberOfShards){
+		int[] shards = new int[ranker.size()];
+		int i = 0;
+		for(Model model: ranker)
+			shards[i++] = shardOf(model.getUniqueVersionId(), numberOfShards);
+		return shards;
+	}
+
+	private static int[] count(int[] shards, int numberOfShards){
+		int[] counts = new int[numberOfShards];
+		for(int shard: shards)
+			counts[shard]++;
+		return counts;
+	}
+
+	/**
+	 *
+	 * @return The transport to the workers of the shards.
+	 */
+	public ShardTransport getTransport(){
+		return transport;
+	}
+
+}
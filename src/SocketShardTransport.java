@@ -0,0 +1,114 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Sends the shards of a ShardedAggregation over TCP to ShardServers, one worker JVM per shard.
+ * Each request opens a connection to the worker of its shard, see ShardRequest and ShardResult for the wire format.
+ * The workers can run on the same machine, e.g. ShardServers on the loopback address for tests on one box.
+ * @author Mariam Nassar
+ *
+ */
+public class SocketShardTransport implements ShardTransport {
+	/**
+	 * The default timeout of connecting to a worker and of reading its result.
+	 */
+	public static final int DEFAULT_TIMEOUT_MILLIS = 30000;
+
+	private List<InetSocketAddress> workers;
+	private int timeoutMillis;
+	/**
+	 * One thread per shard waits for the result of the worker.
+	 */
+	private ExecutorService executor;
+
+
+	/**
+	 * Constructor with the default timeout.
+	 * @param workers The address of the worker of each shard.
+	 */
+	public SocketShardTransport(List<InetSocketAddress> workers){
+		this(workers, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Constructor.
+	 * @param workers The address of the worker of each shard.
+	 * @param timeoutMillis The timeout of connecting to a worker and of reading its result, 0 for no timeout.
+	 */
+	public SocketShardTransport(List<InetSocketAddress> workers, int timeoutMillis){
+		if(workers.isEmpty())
+			throw new IllegalArgumentException("At least 1 worker is needed");
+		if(timeoutMillis < 0)
+			throw new IllegalArgumentException("The timeout must not be negative: " + timeoutMillis);
+
+		this.workers = new ArrayList<InetSocketAddress>(workers);
+		this.timeoutMillis = timeoutMillis;
+		this.executor = Executors.newFixedThreadPool(workers.size(), runnable -> {
+			Thread thread = new Thread(runnable, "shard-transport");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public int getNumberOfShards(){
+		return workers.size();
+	}
+
+	@Override
+	public CompletableFuture<ShardResult> send(int shard, ShardRequest request){
+		CompletableFuture<ShardResult> future = new CompletableFuture<ShardResult>();
+		executor.execute(() -> {
+			try{
+				future.complete(call(workers.get(shard), request));
+			}
+			catch(IOException | RuntimeException e){
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Sends a request to a worker and waits for its result.
+	 *
+	 * @param worker
+	 * @param request
+	 * @return The result of the worker.
+	 * @throws IOException If the worker cannot be reached or fails.
+	 */
+	private ShardResult call(InetSocketAddress worker, ShardRequest request) throws IOException{
+		try(Socket socket = new Socket()){
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(timeoutMillis);
+			socket.connect(worker, timeoutMillis);
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			request.write(out);
+			out.flush();
+			socket.shutdownOutput();
+
+			return ShardResult.read(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+		}
+	}
+
+	/**
+	 * Stops the threads of the transport. The workers keep running.
+	 */
+	@Override
+	public void close(){
+		executor.shutdownNow();
+	}
+
+}
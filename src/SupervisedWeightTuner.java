@@ -0,0 +1,265 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+
+/**
+ * Supervised local Kemenization of a fixed list of rankers with changing weights, e.g. while curators tune the weights
+ * of the rankers of one query. The constructor computes for each ranker l a bit-packed matrix A_l, with A_l(i, j) = true
+ * if the ranker agrees with the initial aggregate ranker on the pair at the positions i < j. The matrix M of a weight vector
+ * is then computed word by word from these matrices instead of from the rankings, so that the second and later calls of
+ * aggregate take a fraction of the time of RankAggregation.aggregate.
+ * <p>
+ * M(i, j) only depends on which rankers agree on the pair, so the weighted majority is a boolean function of the m bits
+ * A_l(i, j). For up to MAX_TABLE_RANKERS rankers, this function is tabulated for a weight vector with the same arithmetic
+ * as RankAggregation and reduced to a decision diagram, which is evaluated on 64 pairs at once with and, or and not of
+ * the words of the A_l. With more rankers, the weights of the agreeing rankers are summed up for each pair.
+ * The results are the same as of RankAggregation.aggregate with SUPERVISED_LOCAL_KEMENIZATION.
+ * @author Mariam Nassar
+ *
+ */
+public class SupervisedWeightTuner {
+	/**
+	 * The maximal number of rankers whose weighted majority is tabulated.
+	 */
+	public static final int MAX_TABLE_RANKERS = 16;
+	private static final int ROWS_PER_BLOCK = 64;
+
+	/**
+	 * The initial aggregate ranker, which is copied by each aggregation.
+	 */
+	private IndexedRankerHandler aggregateRankerH;
+	/**
+	 * The agreement matrix A_l of each ranker.
+	 */
+	private TriangularBitMatrix[] agreements;
+
+
+	/**
+	 * The weighted majority of the rankers as a reduced ordered decision diagram. Node k tests the ranker variables[k]
+	 * and has the result of node highs[k] if the ranker agrees and of node lows[k] otherwise.
+	 * The nodes 0 and 1 are the constants false and true, node k + 2 is the k-th instruction.
+	 */
+	private static class DecisionProgram {
+		private static final int FALSE = 0;
+		private static final int TRUE = 1;
+
+		private final int[] variables;
+		private final int[] highs;
+		private final int[] lows;
+		private int size;
+		private int root;
+
+		DecisionProgram(int capacity){
+			this.variables = new int[capacity];
+			this.highs = new int[capacity];
+			this.lows = new int[capacity];
+		}
+
+		/**
+		 * Tabulates the weighted majority of up to MAX_TABLE_RANKERS rankers and reduces it.
+		 *
+		 * @param rankerWeights The weight of each ranker.
+		 * @param weightsSum The sum of the weights of all rankers.
+		 * @return The decision program.
+		 */
+		static DecisionProgram compile(float[] rankerWeights, double weightsSum){
+			int numberOfRankers = rankerWeights.length;
+			int tableSize = 1 << numberOfRankers;
+
+			//The sum of the weights of each set of agreeing rankers, added up in the order of the rankers like RankAggregation.supervisedMatrix
+			double[] sums = new double[tableSize];
+			int[] nodes = new int[tableSize];
+			for(int mask = 0; mask < tableSize; mask++){
+				if(mask > 0){
+					int last = 31 - Integer.numberOfLeadingZeros(mask);
+					sums[mask] = sums[mask ^ (1 << last)] + rankerWeights[last];
+				}
+				nodes[mask] = (sums[mask] >= 0.5 * weightsSum) ? TRUE : FALSE;
+			}
+
+			//Replace the last ranker of the sets by a node, level by level. Equal nodes are shared and a node with equal children is skipped
+			DecisionProgram program = new DecisionProgram(Math.max(tableSize - 1, 1));
+			Map<Long, Integer> uniqueNodes = new HashMap<Long, Integer>();
+			for(int l = numberOfRankers - 1; l >= 0; l--){
+				for(int mask = 0; mask < (1 << l); mask++){
+					int low = nodes[mask];
+					int high = nodes[mask | (1 << l)];
+					if(low == high)
+						continue;
+
+					Long key = ((long) l << 58) | ((long) high << 29) | low;
+					Integer node = uniqueNodes.get(key);
+					if(node == null){
+						node = program.add(l, high, low);
+						uniqueNodes.put(key, node);
+					}
+					nodes[mask] = node;
+				}
+			}
+			program.root = nodes[0];
+			return program;
+		}
+
+		private int add(int variable, int high, int low){
+			variables[size] = variable;
+			highs[size] = high;
+			lows[size] = low;
+			return 2 + size++;
+		}
+
+		/**
+		 * Evaluates the program on 64 pairs at once.
+		 *
+		 * @param words The words of the agreement matrix of each ranker.
+		 * @param word The index of the word.
+		 * @param values A buffer with at least size + 2 entries.
+		 * @return The word of M.
+		 */
+		long evaluate(long[][] words, int word, long[] values){
+			values[FALSE] = 0;
+			values[TRUE] = -1L;
+			for(int k = 0; k < size; k++){
+				long agree = words[variables[k]][word];
+				values[k + 2] = (agree & values[highs[k]]) | (~agree & values[lows[k]]);
+			}
+			return values[root];
+		}
+	}
+
+
+	/**
+	 * Constructor. Computes the agreement matrices of the rankers in parallel.
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 */
+	public SupervisedWeightTuner(List<List<Model>> rankersList, List<Model> initialAggregateRanker){
+		ModelIdDictionary dictionary = RankAggregation.buildDictionary(rankersList, initialAggregateRanker);
+		this.aggregateRankerH = new IndexedRankerHandler(initialAggregateRanker, dictionary);
+		List<IndexedRankerHandler> rankersListH = RankAggregation.buildRankerHandlers(rankersList, dictionary);
+
+		int numberOfRankers = rankersListH.size();
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		int[] modelIndexList = aggregateRankerH.getModelIndexList();
+
+		//The rankings of the models of the aggregate ranker in each ranker, in the order of the aggregate ranker
+		int[][] rankings = new int[numberOfRankers][aggregateRankerLength];
+		this.agreements = new TriangularBitMatrix[numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++){
+			IndexedRankerHandler ranker_iH = rankersListH.get(l);
+			for(int i = 0; i < aggregateRankerLength; i++){
+				int ranking = ranker_iH.getRankingByModelIndex(modelIndexList[i]);
+				rankings[l][i] = (ranking == IndexedRankerHandler.ABSENT) ? Integer.MAX_VALUE : ranking;
+			}
+			agreements[l] = new TriangularBitMatrix(aggregateRankerLength);
+		}
+
+		int numberOfBlocks = (aggregateRankerLength + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+		IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+			int to = Math.min(aggregateRankerLength, (block + 1) * ROWS_PER_BLOCK);
+			for(int l = 0; l < numberOfRankers; l++){
+				int[] rankings_l = rankings[l];
+				long[] words = agreements[l].getWords();
+
+				for(int i = block * ROWS_PER_BLOCK; i < to; i++){
+					int rankingOfModel1 = rankings_l[i];
+					int word = agreements[l].getRowWord(i);
+					long bits = 0;
+					int bit = 0;
+					for(int j = i + 1; j < aggregateRankerLength; j++){
+						if(rankingOfModel1 <= rankings_l[j])
+							bits |= 1L << bit;
+						if(++bit == 64){
+							words[word++] = bits;
+							bits = 0;
+							bit = 0;
+						}
+					}
+					if(bit > 0)
+						words[word] = bits;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Aggregates the rankers with regard to the initial aggregate ranker by the supervised local Kemenization with the given weights.
+	 * Like RankAggregation.aggregate, it changes the scores of the models of the initial aggregate ranker.
+	 *
+	 * @param rankersWeights The weight of each ranker in the rankersList. Rankers without a weight have the weight 0.
+	 * @return Aggregate list of models
+	 */
+	public List<Model> aggregate(float[] rankersWeights){
+		if(aggregateRankerH.getRankerSize() == 0) return aggregateRankerH.makeResult().toList();
+
+		double weightsSum = 0; //The sum of the weights of all rankers
+		for(float weight: rankersWeights)
+			weightsSum += weight;
+
+		float[] rankerWeights = new float[agreements.length];
+		for(int l = 0; l < rankerWeights.length && l < rankersWeights.length; l++)
+			rankerWeights[l] = rankersWeights[l];
+
+		TriangularBitMatrix M = supervisedMatrix(rankerWeights, weightsSum);
+		return RankAggregation.supervisedLocalKemenization(M, new IndexedRankerHandler(aggregateRankerH), AggregationTrace.DISABLED).toList();
+	}
+
+	/**
+	 * Computes the matrix M of supervised local Kemenization from the agreement matrices.
+	 * The rows are computed in parallel in blocks.
+	 *
+	 * @param rankerWeights The weight of each ranker.
+	 * @param weightsSum The sum of the weights of all rankers.
+	 * @return M, with M(i, j) = true if the pair at the positions i < j is ranked correctly.
+	 */
+	TriangularBitMatrix supervisedMatrix(float[] rankerWeights, double weightsSum){
+		int numberOfRankers = agreements.length;
+		int aggregateRankerLength = aggregateRankerH.getRankerSize();
+		TriangularBitMatrix M = new TriangularBitMatrix(aggregateRankerLength);
+		long[] mWords = M.getWords();
+		long[][] words = new long[numberOfRankers][];
+		for(int l = 0; l < numberOfRankers; l++)
+			words[l] = agreements[l].getWords();
+
+		DecisionProgram program = (numberOfRankers <= MAX_TABLE_RANKERS) ? DecisionProgram.compile(rankerWeights, weightsSum) : null;
+		double halfWeightsSum = 0.5 * weightsSum;
+
+		int numberOfBlocks = (aggregateRankerLength + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+		IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+			int from = M.getRowWord(block * ROWS_PER_BLOCK);
+			int to = M.getRowWord(Math.min(aggregateRankerLength, (block + 1) * ROWS_PER_BLOCK));
+
+			if(program != null){
+				long[] values = new long[program.size + 2];
+				for(int word = from; word < to; word++)
+					mWords[word] = program.evaluate(words, word, values);
+				return;
+			}
+
+			//Too many rankers for a table: sum up the weights of the agreeing rankers of each pair
+			for(int word = from; word < to; word++){
+				long bits = 0;
+				for(int bit = 0; bit < 64; bit++){
+					double score = 0;
+					for(int l = 0; l < numberOfRankers; l++)
+						if((words[l][word] & (1L << bit)) != 0)
+							score += rankerWeights[l];
+					if(score >= halfWeightsSum)
+						bits |= 1L << bit;
+				}
+				mWords[word] = bits;
+			}
+		});
+		return M;
+	}
+
+	/**
+	 *
+	 * @return The number of rankers.
+	 */
+	public int getNumberOfRankers(){
+		return agreements.length;
+	}
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Selects the k best entries of a stream of (score, position) pairs with a bounded min-heap on primitive arrays.
+ * An entry is better than another one if its score is higher, or if the scores are equal and its position is smaller.
+ * The entries are stored as the keys of the ScoreSorter.
+ * @author Mariam Nassar
+ *
+ */
+public class TopKSelector {
+	/**
+	 * The maximal number of entries.
+	 */
+	private int k;
+	/**
+	 * The number of entries in the heap.
+	 */
+	private int size;
+	/**
+	 * The keys of the entries. The worst entry, i.e. the largest key, is at the root.
+	 */
+	private long[] keys;
+
+
+	/**
+	 * Constructor.
+	 * @param k The maximal number of entries.
+	 */
+	public TopKSelector(int k){
+		this.k = k;
+		this.keys = new long[k];
+	}
+
+	/**
+	 * Adds an entry if there are less than k entries or if it is better than the worst entry.
+	 *
+	 * @param score
+	 * @param position A position >= 0.
+	 * @return true, if the entry has been added, and false else.
+	 */
+	public boolean offer(float score, int position){
+		long key = ScoreSorter.key(score, position);
+		if(size < k){
+			keys[size] = key;
+			siftUp(size);
+			size++;
+			return true;
+		}
+		if(k == 0 || key >= keys[0])
+			return false;
+
+		keys[0] = key;
+		siftDown(0, size);
+		return true;
+	}
+
+	/**
+	 *
+	 * @return true, if the selector contains k entries.
+	 */
+	public boolean isFull(){
+		return size == k;
+	}
+
+	/**
+	 *
+	 * @return The number of entries.
+	 */
+	public int getSize(){
+		return this.size;
+	}
+
+	/**
+	 *
+	 * @return The score of the worst entry. The selector must not be empty.
+	 */
+	public float getWorstScore(){
+		return ScoreSorter.score(keys[0]);
+	}
+
+	/**
+	 * Sorts the entries from the best to the worst and returns their positions.
+	 * The selector is empty afterwards.
+	 *
+	 * @return The positions of the entries, the best entry first.
+	 */
+	public int[] removeAllBestFirst(){
+		long[] keys = removeAllKeysBestFirst();
+		int[] result = new int[keys.length];
+		for(int i = 0; i < keys.length; i++)
+			result[i] = ScoreSorter.position(keys[i]);
+		return result;
+	}
+
+	/**
+	 * Sorts the entries from the best to the worst and returns their keys, see ScoreSorter.score and ScoreSorter.position.
+	 * The selector is empty afterwards.
+	 *
+	 * @return The keys of the entries, the best entry first.
+	 */
+	public long[] removeAllKeysBestFirst(){
+		long[] result = new long[size];
+
+		//Heap sort: the worst entry is removed first and put at the end
+		for(int last = size - 1; last >= 0; last--){
+			result[last] = keys[0];
+			keys[0] = keys[last];
+			siftDown(0, last);
+		}
+		size = 0;
+		return result;
+	}
+
+	private void siftUp(int child){
+		long key = keys[child];
+
+		while(child > 0){
+			int parent = (child - 1) >>> 1;
+			if(keys[parent] >= key)
+				break;
+			keys[child] = keys[parent];
+			child = parent;
+		}
+		keys[child] = key;
+	}
+
+	private void siftDown(int parent, int heapSize){
+		long key = keys[parent];
+
+		while(true){
+			int child = 2 * parent + 1;
+			if(child >= heapSize)
+				break;
+			//Choose the worse child
+			if(child + 1 < heapSize && keys[child] < keys[child + 1])
+				child++;
+			if(key >= keys[child])
+				break;
+			keys[parent] = keys[child];
+			parent = child;
+		}
+		keys[parent] = key;
+	}
+
+}
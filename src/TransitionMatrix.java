@@ -0,0 +1,314 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * The transition matrix of the Markov chain MC4 over the models of the aggregate ranker: from a model P the chain
+ * picks one of the n models uniformly and moves to it if more rankers prefer it to P than the other way round,
+ * otherwise it stays at P.
+ * <p>
+ * The matrix is never stored as n x n. The majority is only counted between neighbours, the models at most radius
+ * positions before or after each other in a ranker or in the reference order. The reference order sorts the models
+ * by the sum of their rankings (Borda), so that the majority of two models which are not neighbours is taken from it.
+ * The transitions to models before P in the reference order are a suffix sum, and only the neighbour pairs whose
+ * majority differs from the reference order are kept in the compressed sparse row format (CSR).
+ * The rows hold the incoming transitions, so that a step of the power iteration computes the rows in parallel
+ * without synchronisation.
+ * @author Mariam Nassar
+ *
+ */
+class TransitionMatrix {
+	/**
+	 * The number of rows which are built or multiplied by one task.
+	 */
+	private static final int ROWS_PER_BLOCK = 1024;
+
+	/**
+	 * The number of states, the models of the aggregate ranker in the order of the aggregate ranker.
+	 */
+	private int size;
+	/**
+	 * The rows of the states in the reference order.
+	 */
+	private int[] referenceOrder;
+	/**
+	 * The offset of each row in the columns and values arrays, size + 1 entries.
+	 */
+	private int[] rowOffsets;
+	/**
+	 * The neighbours whose transition to the state of the row differs from the reference order, row by row.
+	 */
+	private int[] columns;
+	/**
+	 * The correction of each transition in columns, 1 / n or -1 / n.
+	 */
+	private double[] values;
+	/**
+	 * For each state: the probability to stay.
+	 */
+	private double[] stayProbabilities;
+	/**
+	 * The number of neighbour pairs whose majority has been counted.
+	 */
+	private long comparisons;
+
+
+	/**
+	 * Constructor.
+	 * @param rankersListH A list of ranker handlers.
+	 * @param aggregateRankerH The aggregate ranker handler.
+	 * @param radius The number of positions before and after a model which are its neighbours.
+	 */
+	TransitionMatrix(List<IndexedRankerHandler> rankersListH, IndexedRankerHandler aggregateRankerH, final int radius){
+		final int size = aggregateRankerH.getRankerSize();
+		this.size = size;
+		final int numberOfRankers = rankersListH.size();
+
+		int[] rowModelIndex = aggregateRankerH.getModelIndexList();
+		int[] modelIndexRow = new int[aggregateRankerH.getDictionary().size()];
+		Arrays.fill(modelIndexRow, -1);
+		for(int row = 0; row < size; row++)
+			modelIndexRow[rowModelIndex[row]] = row;
+
+		//The rankings of the states in each ranker, models which are not contained are ranked after all other models.
+		//The rows of the models of each ranker by position, -1 for models which are not in the aggregate ranker.
+		//The reference order is the last list of rows.
+		final int[][] rankingsByRow = new int[numberOfRankers][size];
+		final int[][] rowsByPosition = new int[numberOfRankers + 1][];
+		long[] keys = new long[size];
+		for(int l = 0; l < numberOfRankers; l++){
+			IndexedRankerHandler ranker_iH = rankersListH.get(l);
+			int absentRanking = ranker_iH.getRankerSize() + 1;
+			for(int row = 0; row < size; row++){
+				int ranking = ranker_iH.getRankingByModelIndex(rowModelIndex[row]);
+				boolean contained = ranking != IndexedRankerHandler.ABSENT;
+				rankingsByRow[l][row] = contained ? ranking : Integer.MAX_VALUE;
+				keys[row] += contained ? ranking : absentRanking;
+			}
+			int[] modelIndexList = ranker_iH.getModelIndexList();
+			rowsByPosition[l] = new int[ranker_iH.getRankerSize()];
+			for(int position = 0; position < rowsByPosition[l].length; position++){
+				int modelIndex = modelIndexList[position];
+				rowsByPosition[l][position] = (modelIndex < modelIndexRow.length) ? modelIndexRow[modelIndex] : -1;
+			}
+		}
+
+		//The sums of the rankings stay far below 2^31, so that the row fits into the lower 32 bits of the key
+		for(int row = 0; row < size; row++)
+			keys[row] = (keys[row] << 32) | row;
+		Arrays.sort(keys);
+		this.referenceOrder = new int[size];
+		final int[] referencePositions = new int[size];
+		for(int position = 0; position < size; position++){
+			int row = (int) keys[position];
+			referenceOrder[position] = row;
+			referencePositions[row] = position;
+		}
+		rowsByPosition[numberOfRankers] = referenceOrder;
+
+		//First pass: the number of corrections of each row
+		final int[] rowLengths = new int[size];
+		final int[] movesByRow = new int[size];
+		final int[] neighbourCounts = new int[size];
+		final int numberOfBlocks = (size + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+		IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+			int[] neighbours = new int[2 * radius * (numberOfRankers + 1)];
+			int to = Math.min(size, (block + 1) * ROWS_PER_BLOCK);
+			for(int row = block * ROWS_PER_BLOCK; row < to; row++){
+				int numberOfNeighbours = neighbours(row, radius, rankingsByRow, referencePositions, rowsByPosition, neighbours);
+				neighbourCounts[row] = numberOfNeighbours;
+				rowLengths[row] = corrections(row, rankingsByRow, referencePositions, neighbours, numberOfNeighbours, null);
+				movesByRow[row] = moves(row, rankingsByRow, referencePositions, neighbours, numberOfNeighbours);
+			}
+		});
+
+		this.rowOffsets = new int[size + 1];
+		for(int row = 0; row < size; row++)
+			rowOffsets[row + 1] = rowOffsets[row] + rowLengths[row];
+
+		//Second pass: the corrections, the blocks write disjoint parts
+		this.columns = new int[rowOffsets[size]];
+		this.values = new double[rowOffsets[size]];
+		IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+			int[] neighbours = new int[2 * radius * (numberOfRankers + 1)];
+			int to = Math.min(size, (block + 1) * ROWS_PER_BLOCK);
+			for(int row = block * ROWS_PER_BLOCK; row < to; row++){
+				int numberOfNeighbours = neighbours(row, radius, rankingsByRow, referencePositions, rowsByPosition, neighbours);
+				corrections(row, rankingsByRow, referencePositions, neighbours, numberOfNeighbours, this);
+			}
+		});
+
+		this.stayProbabilities = new double[size];
+		for(int row = 0; row < size; row++){
+			comparisons += neighbourCounts[row];
+			stayProbabilities[row] = 1 - (double) movesByRow[row] / size;
+		}
+	}
+
+	/**
+	 * Collects the distinct neighbours of a state.
+	 *
+	 * @param row The state.
+	 * @param radius
+	 * @param rankingsByRow
+	 * @param referencePositions
+	 * @param rowsByPosition
+	 * @param neighbours The array which gets the neighbours, large enough for all neighbours.
+	 * @return The number of neighbours.
+	 */
+	private static int neighbours(int row, int radius, int[][] rankingsByRow, int[] referencePositions, int[][] rowsByPosition, int[] neighbours){
+		int numberOfNeighbours = 0;
+		for(int l = 0; l < rowsByPosition.length; l++){
+			int position = (l < rankingsByRow.length) ? rankingsByRow[l][row] - 1 : referencePositions[row];
+			int[] rows = rowsByPosition[l];
+			if(position >= rows.length)
+				continue;
+			int to = Math.min(rows.length, position + radius + 1);
+			for(int k = Math.max(0, position - radius); k < to; k++)
+				if(rows[k] >= 0 && k != position)
+					neighbours[numberOfNeighbours++] = rows[k];
+		}
+
+		Arrays.sort(neighbours, 0, numberOfNeighbours);
+		int distinct = 0;
+		for(int k = 0; k < numberOfNeighbours; k++)
+			if(distinct == 0 || neighbours[distinct - 1] != neighbours[k])
+				neighbours[distinct++] = neighbours[k];
+		return distinct;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param neighbour
+	 * @param rankingsByRow
+	 * @return true, if more rankers prefer the neighbour to the state of the row than the other way round.
+	 */
+	private static boolean preferred(int row, int neighbour, int[][] rankingsByRow){
+		//pro: the number of rankers which prefer the neighbour, con: the number of rankers which prefer the state
+		int pro = 0;
+		int con = 0;
+		for(int[] rankings: rankingsByRow){
+			if(rankings[neighbour] < rankings[row])
+				pro++;
+			else if(rankings[row] < rankings[neighbour])
+				con++;
+		}
+		return pro > con;
+	}
+
+	/**
+	 * Counts, or stores into the matrix, the incoming transitions of a state from its neighbours which differ
+	 * from the reference order. The neighbourhood is symmetric, so that the neighbours of the state are the states
+	 * which may move to it.
+	 *
+	 * @param row The state.
+	 * @param rankingsByRow
+	 * @param referencePositions
+	 * @param neighbours The distinct neighbours of the state.
+	 * @param numberOfNeighbours
+	 * @param matrix The matrix which gets the corrections at the offset of the row, null for counting only.
+	 * @return The number of corrections.
+	 */
+	private static int corrections(int row, int[][] rankingsByRow, int[] referencePositions, int[] neighbours, int numberOfNeighbours, TransitionMatrix matrix){
+		int numberOfCorrections = 0;
+		for(int k = 0; k < numberOfNeighbours; k++){
+			int neighbour = neighbours[k];
+			boolean moves = preferred(neighbour, row, rankingsByRow);
+			boolean movesByReference = referencePositions[row] < referencePositions[neighbour];
+			if(moves == movesByReference)
+				continue;
+			if(matrix != null){
+				int offset = matrix.rowOffsets[row] + numberOfCorrections;
+				matrix.columns[offset] = neighbour;
+				matrix.values[offset] = (moves ? 1.0 : -1.0) / matrix.size;
+			}
+			numberOfCorrections++;
+		}
+		return numberOfCorrections;
+	}
+
+	/**
+	 *
+	 * @param row The state.
+	 * @param rankingsByRow
+	 * @param referencePositions
+	 * @param neighbours The distinct neighbours of the state.
+	 * @param numberOfNeighbours
+	 * @return The number of states to which the state moves: the states before it in the reference order,
+	 * corrected by the majority of its neighbours.
+	 */
+	private static int moves(int row, int[][] rankingsByRow, int[] referencePositions, int[] neighbours, int numberOfNeighbours){
+		int moves = referencePositions[row];
+		for(int k = 0; k < numberOfNeighbours; k++){
+			int neighbour = neighbours[k];
+			boolean movesByReference = referencePositions[neighbour] < referencePositions[row];
+			if(preferred(row, neighbour, rankingsByRow) != movesByReference)
+				moves += movesByReference ? -1 : 1;
+		}
+		return moves;
+	}
+
+	/**
+	 * One step of the power iteration: next = x * ((1 - damping) * P + damping / n), with the transition matrix P
+	 * and a uniform jump with the probability damping.
+	 *
+	 * @param x A probability vector over the states.
+	 * @param next The array which gets the next probability vector.
+	 * @param below A scratch array of the size of the matrix.
+	 * @param damping The probability of a uniform jump, so that the chain is ergodic.
+	 * @return The L1 distance between x and next.
+	 */
+	double multiply(final double[] x, final double[] next, final double[] below, final double damping){
+		//below[row]: the probability of the states after the state in the reference order, which move to it
+		double sum = 0;
+		for(int position = size - 1; position >= 0; position--){
+			int row = referenceOrder[position];
+			below[row] = sum;
+			sum += x[row];
+		}
+
+		final double jump = damping / size;
+		final double pick = 1.0 / size;
+		final int numberOfBlocks = (size + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+		return IntStream.range(0, numberOfBlocks).parallel().mapToDouble(block -> {
+			double change = 0;
+			int to = Math.min(size, (block + 1) * ROWS_PER_BLOCK);
+			for(int row = block * ROWS_PER_BLOCK; row < to; row++){
+				double incoming = stayProbabilities[row] * x[row] + pick * below[row];
+				for(int k = rowOffsets[row]; k < rowOffsets[row + 1]; k++)
+					incoming += values[k] * x[columns[k]];
+				double probability = jump + (1 - damping) * incoming;
+				change += Math.abs(probability - x[row]);
+				next[row] = probability;
+			}
+			return change;
+		}).sum();
+	}
+
+	/**
+	 *
+	 * @return The number of states.
+	 */
+	int size(){
+		return size;
+	}
+
+	/**
+	 *
+	 * @return The number of stored corrections.
+	 */
+	int numberOfEntries(){
+		return columns.length;
+	}
+
+	/**
+	 *
+	 * @return The number of neighbour pairs whose majority has been counted.
+	 */
+	long getComparisons(){
+		return comparisons;
+	}
+
+}
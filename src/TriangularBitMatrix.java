@@ -0,0 +1,90 @@
+/**
+ * A bit-packed upper triangular boolean matrix. Only the entries (i, j) with i < j are stored.
+ * Every row starts at a new long word, so that different rows can be written by different threads.
+ * @author Mariam Nassar
+ *
+ */
+public class TriangularBitMatrix {
+	/**
+	 * The number of rows and columns.
+	 */
+	private int size;
+	/**
+	 * The offset in bits of each row in the bits array. Entry (i, j) is at rowOffsets[i] + j - i - 1.
+	 */
+	private long[] rowOffsets;
+	/**
+	 * The bits of the matrix.
+	 */
+	private long[] bits;
+
+
+	/**
+	 * Constructor. All entries are false.
+	 * @param size The number of rows and columns.
+	 */
+	public TriangularBitMatrix(int size){
+		this.size = size;
+		this.rowOffsets = new long[Math.max(size, 1)];
+
+		long offset = 0;
+		for(int i = 0; i < size; i++){
+			rowOffsets[i] = offset;
+			long rowLength = size - i - 1;
+			offset += (rowLength + 63) & ~63L; //Round up to whole words
+		}
+		if((offset >>> 6) > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many models for a triangular bit matrix: " + size);
+		this.bits = new long[(int) (offset >>> 6)];
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return The entry (i, j). i has to be smaller than j.
+	 */
+	public boolean get(int i, int j){
+		long bit = rowOffsets[i] + j - i - 1;
+		return (bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Sets the entry (i, j) to true. i has to be smaller than j.
+	 *
+	 * @param i
+	 * @param j
+	 */
+	public void set(int i, int j){
+		long bit = rowOffsets[i] + j - i - 1;
+		bits[(int) (bit >>> 6)] |= 1L << bit;
+	}
+
+	/**
+	 *
+	 * @param i A row, or size for the end of the last row.
+	 * @return The index of the first word of the row in getWords().
+	 */
+	int getRowWord(int i){
+		return (i < size) ? (int) (rowOffsets[i] >>> 6) : bits.length;
+	}
+
+	/**
+	 * Two matrices of the same size have the same layout, so that their words can be combined word by word.
+	 * The bits after the end of each row are not entries of the matrix.
+	 *
+	 * @return The words of the matrix.
+	 */
+	long[] getWords(){
+		return bits;
+	}
+
+	/**
+	 *
+	 * @return The number of rows and columns.
+	 */
+	public int getSize(){
+		return this.size;
+	}
+
+}
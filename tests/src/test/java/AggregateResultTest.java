@@ -0,0 +1,103 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that the view of RankAggregation.aggregateResult, its pages and its streams have the models, ranks and scores
+ * of the list of RankAggregation.aggregate.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregateResultTest {
+
+	private static final RankAggregationType.Types[] METHODS = {
+		RankAggregationType.Types.DEFAULT,
+		RankAggregationType.Types.COMB_MNZ,
+		RankAggregationType.Types.LOCAL_KEMENIZATION,
+		RankAggregationType.Types.BORDA
+	};
+
+
+	@Test
+	public void viewEqualsAggregate(){
+		RandomRankers random = new RandomRankers(16);
+		for(int query = 0; query < 50; query++){
+			int pool = 1 + random.nextInt(100);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			float[] weights = {1, 1, 1, 1, 1};
+
+			for(RankAggregationType.Types method: METHODS){
+				String message = "query " + query + " " + method;
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				AggregateResult result = RankAggregation.aggregateResult(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				assertEquals(message, RandomRankers.toString(expected), RandomRankers.toString(result));
+				assertEquals(message, RandomRankers.toString(expected), RandomRankers.toString(result.toList()));
+				assertEquals(message, RandomRankers.toString(expected), RandomRankers.toString(result.parallelStream().collect(Collectors.toList())));
+				for(int i = 0; i < result.size(); i++){
+					assertEquals(message, i + 1, result.getRank(i));
+					assertEquals(message, expected.get(i).getScore(), result.getScore(i), 0);
+					assertEquals(message, expected.get(i).getUniqueVersionId(), result.getUniqueModelID(i));
+				}
+
+				//Pages, also beyond the end, and a page of a page
+				int offset = random.nextInt(result.size() + 5);
+				int limit = random.nextInt(result.size() + 5);
+				AggregateResult page = result.slice(offset, limit);
+				int from = Math.min(offset, expected.size());
+				int to = Math.min(from + limit, expected.size());
+				assertEquals(message, RandomRankers.toString(expected.subList(from, to)), RandomRankers.toString(page));
+				for(int i = 0; i < page.size(); i++)
+					assertEquals(message, from + i + 1, page.getRank(i));
+				if(page.size() > 1){
+					AggregateResult subPage = page.subList(1, page.size());
+					assertEquals(message, RandomRankers.toString(expected.subList(from + 1, to)), RandomRankers.toString(subPage));
+					assertEquals(message, from + 2, subPage.getRank(0));
+					assertEquals(message, RandomRankers.toString(expected.subList(from + 1, to)), RandomRankers.toString(subPage.stream().collect(Collectors.toList())));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void outOfBounds(){
+		RandomRankers random = new RandomRankers(17);
+		AggregateResult result = RankAggregation.aggregateResult(random.rankers(2, 10), random.ranker(10, 10), RankAggregationType.Types.BORDA, new float[]{1, 1});
+		AggregateResult page = result.slice(2, 3);
+
+		try{
+			page.get(3);
+			fail("Got position 3 of 3");
+		}
+		catch(IndexOutOfBoundsException e){
+			//expected
+		}
+		try{
+			page.getRank(-1);
+			fail("Got the rank of position -1");
+		}
+		catch(IndexOutOfBoundsException e){
+			//expected
+		}
+		try{
+			page.subList(0, 4);
+			fail("Got a sub list beyond the page");
+		}
+		catch(IndexOutOfBoundsException e){
+			//expected
+		}
+		try{
+			result.slice(-1, 3);
+			fail("Got a page at a negative offset");
+		}
+		catch(IllegalArgumentException e){
+			//expected
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that aggregations into one reused AggregationBuffer equal RankAggregation.aggregate on copies of the models,
+ * for queries which grow and shrink, and that they never change the models of the caller.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationBufferTest {
+
+	private static final RankAggregationType.Types[] METHODS = {
+		RankAggregationType.Types.DEFAULT,
+		RankAggregationType.Types.ADJACENT_PAIRS,
+		RankAggregationType.Types.COMB_MNZ,
+		RankAggregationType.Types.LOCAL_KEMENIZATION,
+		RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION,
+		RankAggregationType.Types.COMB_SUM,
+		RankAggregationType.Types.BORDA,
+		RankAggregationType.Types.RECIPROCAL_RANK_FUSION,
+		RankAggregationType.Types.MARKOV_CHAIN,
+		RankAggregationType.Types.KWIK_SORT
+	};
+
+
+	@Test
+	public void bufferEqualsAggregate(){
+		RandomRankers random = new RandomRankers(17);
+		AggregationBuffer buffer = new AggregationBuffer();
+		for(int query = 0; query < 60; query++){
+			//Large and small queries take turns, so that the buffer is reused with stale entries
+			int pool = 1 + random.nextInt((query % 2 == 0) ? 200 : 10);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(6), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			float[] weights = new float[rankersList.size()];
+			for(int l = 0; l < weights.length; l++)
+				weights[l] = 1 + random.nextInt(4);
+			String initial = RandomRankers.toString(initialAggregateRanker);
+			List<String> rankers = new ArrayList<String>();
+			for(List<Model> ranker: rankersList)
+				rankers.add(RandomRankers.toString(ranker));
+
+			for(RankAggregationType.Types method: METHODS){
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				AggregateResult result = RankAggregation.aggregateResult(rankersList, initialAggregateRanker, method, weights, buffer);
+				assertEquals("query " + query + " " + method, RandomRankers.toString(expected), toString(result));
+				assertEquals("query " + query + " " + method, initial, RandomRankers.toString(initialAggregateRanker));
+			}
+			List<String> unchanged = new ArrayList<String>();
+			for(List<Model> ranker: rankersList)
+				unchanged.add(RandomRankers.toString(ranker));
+			assertEquals("query " + query, rankers, unchanged);
+		}
+	}
+
+	/**
+	 *
+	 * @param result
+	 * @return The unique model Ids and the aggregate scores of the result, like RandomRankers.toString.
+	 */
+	private static String toString(AggregateResult result){
+		List<Model> models = new ArrayList<Model>(result.size());
+		for(int i = 0; i < result.size(); i++)
+			models.add(new Model(result.getScore(i), result.getUniqueModelID(i)));
+		return RandomRankers.toString(models);
+	}
+
+}
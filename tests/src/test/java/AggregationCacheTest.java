@@ -0,0 +1,139 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Compares the lists of the AggregationCache with the lists of the AggregationEngine, which does not cache,
+ * and checks which requests are hits.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationCacheTest {
+
+	@After
+	public void resetSettings(){
+		RankAggregation.setReciprocalRankFusionK(RankAggregation.DEFAULT_RECIPROCAL_RANK_FUSION_K);
+		RankAggregation.setKwikSortAggregation(null);
+	}
+
+	@Test
+	public void hitEqualsMiss(){
+		RandomRankers random = new RandomRankers(10);
+		AggregationCache cache = new AggregationCache(100, 0, TimeUnit.SECONDS);
+		AggregationEngine engine = new AggregationEngine();
+		RankAggregationType.Types[] methods = {RankAggregationType.Types.ADJACENT_PAIRS, RankAggregationType.Types.COMB_MNZ,
+				RankAggregationType.Types.LOCAL_KEMENIZATION, RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION, RankAggregationType.Types.BORDA};
+
+		for(int query = 0; query < 50; query++){
+			int pool = 1 + random.nextInt(60);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			RankAggregationType.Types method = methods[query % methods.length];
+			float[] weights = new float[rankersList.size()];
+			for(int l = 0; l < weights.length; l++)
+				weights[l] = 1 + random.nextInt(4);
+			String expected = RandomRankers.toString(engine.aggregate(rankersList, initialAggregateRanker, method, weights));
+
+			List<Model> miss = cache.aggregate(rankersList, initialAggregateRanker, method, weights);
+			assertEquals("query " + query, expected, RandomRankers.toString(miss));
+			//Changing the returned models does not change the cache
+			for(Model model: miss)
+				model.setScore(-2);
+			//Equal lists of other models are the same request
+			List<Model> hit = cache.aggregate(copy(rankersList), RandomRankers.copy(initialAggregateRanker), method, weights.clone());
+			assertEquals("query " + query, expected, RandomRankers.toString(hit));
+			assertEquals("query " + query, query + 1, cache.getMissCount());
+			assertEquals("query " + query, query + 1, cache.getHitCount());
+		}
+	}
+
+	@Test
+	public void otherRequestIsMiss(){
+		RandomRankers random = new RandomRankers(12);
+		List<List<Model>> rankersList = random.rankers(3, 30);
+		List<Model> initialAggregateRanker = random.ranker(30, 30);
+		AggregationCache cache = new AggregationCache(100, 0, TimeUnit.SECONDS);
+		float[] weights = {1, 2, 3};
+
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.LOCAL_KEMENIZATION, weights);
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.LOCAL_KEMENIZATION, new float[]{1, 2, 4});
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.ADJACENT_PAIRS, weights);
+		cache.aggregate(rankersList.subList(0, 2), initialAggregateRanker, RankAggregationType.Types.LOCAL_KEMENIZATION, weights);
+		//The same models in another order
+		List<Model> reversed = RandomRankers.copy(initialAggregateRanker);
+		Collections.reverse(reversed);
+		cache.aggregate(rankersList, reversed, RankAggregationType.Types.LOCAL_KEMENIZATION, weights);
+		assertEquals(5, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntryIsEvicted(){
+		RandomRankers random = new RandomRankers(11);
+		List<List<Model>> rankersList = random.rankers(3, 20);
+		List<Model> initialAggregateRanker = random.ranker(20, 20);
+		AggregationCache cache = new AggregationCache(2, 0, TimeUnit.SECONDS);
+
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.BORDA, null);
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.COMB_MNZ, null);
+		//BORDA is used again, so that COMB_MNZ is the least recently used entry
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.BORDA, null);
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.COMB_SUM, null);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.BORDA, null);
+		assertEquals(2, cache.getHitCount());
+		cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.COMB_MNZ, null);
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void settingsArePartOfTheKey(){
+		RandomRankers random = new RandomRankers(18);
+		List<List<Model>> rankersList = random.rankers(4, 50);
+		List<Model> initialAggregateRanker = random.ranker(40, 50);
+		float[] weights = {1, 2, 0.5f, 1};
+		AggregationCache cache = new AggregationCache(10, 0, TimeUnit.SECONDS);
+		AggregationEngine engine = new AggregationEngine();
+
+		for(int k: new int[]{60, 0, 60}){
+			RankAggregation.setReciprocalRankFusionK(k);
+			assertEquals("k = " + k, RandomRankers.toString(engine.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.RECIPROCAL_RANK_FUSION, weights)),
+					RandomRankers.toString(cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.RECIPROCAL_RANK_FUSION, weights)));
+		}
+		//The second k = 60 is a hit
+		assertEquals(2, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		for(long seed: new long[]{1, 2, 1}){
+			RankAggregation.setKwikSortAggregation(new KwikSortAggregation(ForkJoinPool.commonPool(), seed, false));
+			assertEquals("seed " + seed, RandomRankers.toString(engine.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.KWIK_SORT, weights)),
+					RandomRankers.toString(cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.KWIK_SORT, weights)));
+		}
+		assertEquals(4, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+
+		//Settings of the call instead of the global settings
+		AggregationSettings settings = new AggregationSettings(5, new MarkovChainAggregation(), new KwikSortAggregation());
+		assertEquals(RandomRankers.toString(engine.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.RECIPROCAL_RANK_FUSION, weights, settings)),
+				RandomRankers.toString(cache.aggregate(rankersList, initialAggregateRanker, RankAggregationType.Types.RECIPROCAL_RANK_FUSION, weights, settings)));
+		assertEquals(5, cache.getMissCount());
+	}
+
+	private static List<List<Model>> copy(List<List<Model>> rankersList){
+		List<List<Model>> copy = new ArrayList<List<Model>>(rankersList.size());
+		for(List<Model> ranker: rankersList)
+			copy.add(RandomRankers.copy(ranker));
+		return copy;
+	}
+
+}
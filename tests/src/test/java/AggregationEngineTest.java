@@ -0,0 +1,107 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Checks that the AggregationEngine aggregates like RankAggregation.aggregate without changing the models of the caller,
+ * also when the same lists are aggregated by several threads at once.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationEngineTest {
+
+	private static final RankAggregationType.Types[] METHODS = {
+		RankAggregationType.Types.DEFAULT,
+		RankAggregationType.Types.ADJACENT_PAIRS,
+		RankAggregationType.Types.COMB_MNZ,
+		RankAggregationType.Types.LOCAL_KEMENIZATION,
+		RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION,
+		RankAggregationType.Types.COMB_SUM,
+		RankAggregationType.Types.BORDA,
+		RankAggregationType.Types.RECIPROCAL_RANK_FUSION,
+		RankAggregationType.Types.MARKOV_CHAIN,
+		RankAggregationType.Types.KWIK_SORT
+	};
+
+	private final ExecutorService fourThreads = Executors.newFixedThreadPool(4);
+
+
+	@After
+	public void stopExecutor(){
+		fourThreads.shutdown();
+	}
+
+	@Test
+	public void aggregateEqualsRankAggregation(){
+		RandomRankers random = new RandomRankers(7);
+		AggregationEngine engine = new AggregationEngine();
+		for(int query = 0; query < 50; query++){
+			int pool = 1 + random.nextInt(60);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			float[] weights = weights(random, rankersList.size());
+			String initial = RandomRankers.toString(initialAggregateRanker);
+			List<String> rankers = toStrings(rankersList);
+
+			for(RankAggregationType.Types method: METHODS){
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				assertEquals("query " + query + " " + method, RandomRankers.toString(expected),
+						RandomRankers.toString(engine.aggregate(rankersList, initialAggregateRanker, method, weights)));
+				assertEquals("query " + query + " " + method, initial, RandomRankers.toString(initialAggregateRanker));
+			}
+			assertEquals("query " + query, rankers, toStrings(rankersList));
+		}
+	}
+
+	@Test
+	public void aggregateAllEqualsAggregate() throws Exception{
+		RandomRankers random = new RandomRankers(8);
+		AggregationEngine engine = new AggregationEngine(fourThreads);
+		//The same lists in several requests, so that the threads share them
+		List<List<Model>> rankersList = random.rankers(4, 80);
+		List<Model> initialAggregateRanker = random.ranker(80, 80);
+		String initial = RandomRankers.toString(initialAggregateRanker);
+
+		List<AggregationRequest> requests = new ArrayList<AggregationRequest>();
+		for(int r = 0; r < 40; r++)
+			requests.add(new AggregationRequest(rankersList, initialAggregateRanker, METHODS[r % METHODS.length], weights(random, rankersList.size())));
+		List<CompletableFuture<List<Model>>> futures = engine.aggregateAll(requests);
+
+		assertEquals(requests.size(), futures.size());
+		for(int r = 0; r < requests.size(); r++){
+			AggregationRequest request = requests.get(r);
+			List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), request.getAggregateMethod(), request.getRankersWeights());
+			assertEquals("request " + r, RandomRankers.toString(expected), RandomRankers.toString(futures.get(r).get()));
+		}
+		assertEquals(initial, RandomRankers.toString(initialAggregateRanker));
+	}
+
+	/**
+	 *
+	 * @param random
+	 * @param numberOfRankers
+	 * @return Random weights from 1 to 4.
+	 */
+	private static float[] weights(RandomRankers random, int numberOfRankers){
+		float[] weights = new float[numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++)
+			weights[l] = 1 + random.nextInt(4);
+		return weights;
+	}
+
+	private static List<String> toStrings(List<List<Model>> rankersList){
+		List<String> rankers = new ArrayList<String>(rankersList.size());
+		for(List<Model> ranker: rankersList)
+			rankers.add(RandomRankers.toString(ranker));
+		return rankers;
+	}
+
+}
@@ -0,0 +1,133 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Checks the paths of the AggregationPlanner with known times per cost unit, and that the planned aggregation
+ * equals RankAggregation.aggregate of the planned method and part of the aggregate ranker.
+ * @author Mariam Nassar
+ *
+ */
+public class AggregationPlannerTest {
+
+	/**
+	 * One nanosecond per cost unit for each method.
+	 */
+	private final AggregationPlanner planner = new AggregationPlanner(1, 1, 1, 1, 1, 1);
+	private AggregationPlanner defaultPlanner;
+
+
+	@Before
+	public void keepDefault(){
+		defaultPlanner = AggregationPlanner.getDefault();
+	}
+
+	@After
+	public void resetDefault(){
+		AggregationPlanner.setDefault(defaultPlanner);
+	}
+
+	@Test
+	public void planPaths(){
+		int n = 1000;
+		int m = 3;
+		//LOCAL_KEMENIZATION costs n * (n - 1) / 2 * (m + 1) = 1998000 units
+		AggregationPlan requested = planner.plan(n, m, 1, RankAggregationType.Types.LOCAL_KEMENIZATION, 2_000_000);
+		assertEquals(AggregationPlan.Path.REQUESTED, requested.getPath());
+		assertEquals(RankAggregationType.Types.LOCAL_KEMENIZATION, requested.getMethod());
+		assertEquals(n, requested.getHeadLength());
+		assertEquals(1_998_000, requested.getEstimatedNanos());
+
+		AggregationPlan truncated = planner.plan(n, m, 1, RankAggregationType.Types.LOCAL_KEMENIZATION, 100_000);
+		assertEquals(AggregationPlan.Path.TRUNCATED_HEAD, truncated.getPath());
+		assertEquals(RankAggregationType.Types.LOCAL_KEMENIZATION, truncated.getMethod());
+		//The longest head which fits: 224 * 223 / 2 * 4 = 99904
+		assertEquals(224, truncated.getHeadLength());
+		assertTrue(truncated.getEstimatedNanos() <= 100_000);
+		assertTrue(planner.estimate(RankAggregationType.Types.LOCAL_KEMENIZATION, 225, m, 1) > 100_000);
+
+		//A head of 31 models is shorter than MIN_HEAD_LENGTH
+		AggregationPlan fallback = planner.plan(n, m, 1, RankAggregationType.Types.LOCAL_KEMENIZATION, 31 * 30 / 2 * 4);
+		assertEquals(AggregationPlan.Path.FALLBACK, fallback.getPath());
+		assertEquals(RankAggregationType.Types.COMB_MNZ, fallback.getMethod());
+		assertEquals(RankAggregationType.Types.LOCAL_KEMENIZATION, fallback.getRequestedMethod());
+		assertEquals(n, fallback.getHeadLength());
+
+		//The linear methods have no cheaper alternative
+		for(RankAggregationType.Types method: new RankAggregationType.Types[]{RankAggregationType.Types.COMB_MNZ, RankAggregationType.Types.BORDA,
+				RankAggregationType.Types.MARKOV_CHAIN, RankAggregationType.Types.KWIK_SORT, RankAggregationType.Types.DEFAULT})
+			assertEquals(method.toString(), AggregationPlan.Path.REQUESTED, planner.plan(n, m, 1, method, 0).getPath());
+
+		AggregationPlan auto = planner.plan(n, m, 1, RankAggregationType.Types.AUTO, 2_000_000);
+		assertEquals(RankAggregationType.Types.AUTO, auto.getRequestedMethod());
+		assertEquals(AggregationPlanner.AUTO_METHOD, auto.getMethod());
+	}
+
+	@Test
+	public void executeEqualsAggregate(){
+		RandomRankers random = new RandomRankers(12);
+		List<List<Model>> rankersList = random.rankers(3, 300);
+		List<Model> initialAggregateRanker = random.ranker(300, 300);
+		float[] weights = {1, 1, 1};
+
+		//The head of 64 models fits exactly
+		AggregationPlan truncated = planner.plan(rankersList, initialAggregateRanker, RankAggregationType.Types.ADJACENT_PAIRS,
+				planner.estimate(RankAggregationType.Types.ADJACENT_PAIRS, 64, 3, overlap(rankersList, 300)), TimeUnit.NANOSECONDS);
+		assertEquals(AggregationPlan.Path.TRUNCATED_HEAD, truncated.getPath());
+		assertEquals(64, truncated.getHeadLength());
+
+		List<Model> results = planner.execute(truncated, rankersList, RandomRankers.copy(initialAggregateRanker), weights);
+		List<Model> head = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker.subList(0, 64)), RankAggregationType.Types.ADJACENT_PAIRS, weights);
+		assertEquals(RandomRankers.toString(head), RandomRankers.toString(results.subList(0, 64)));
+		//The tail keeps its order without scores
+		assertEquals(RandomRankers.uniqueModelIds(initialAggregateRanker.subList(64, 300)), RandomRankers.uniqueModelIds(results.subList(64, 300)));
+		for(Model model: results.subList(64, 300))
+			assertEquals(-1, model.getScore(), 0);
+
+		AggregationPlan fallback = planner.plan(rankersList, initialAggregateRanker, RankAggregationType.Types.ADJACENT_PAIRS, 1, TimeUnit.NANOSECONDS);
+		assertEquals(AggregationPlan.Path.FALLBACK, fallback.getPath());
+		assertEquals(RandomRankers.toString(RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.COMB_MNZ, weights)),
+				RandomRankers.toString(planner.execute(fallback, rankersList, RandomRankers.copy(initialAggregateRanker), weights)));
+	}
+
+	@Test
+	public void aggregateResultHasThePlan(){
+		AggregationPlanner.setDefault(planner);
+		RandomRankers random = new RandomRankers(13);
+		List<List<Model>> rankersList = random.rankers(3, 100);
+		List<Model> initialAggregateRanker = random.ranker(100, 100);
+		float[] weights = {1, 1, 1};
+
+		AggregateResult requested = RankAggregation.aggregateResult(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.AUTO, weights, 1, TimeUnit.DAYS);
+		assertEquals(AggregationPlan.Path.REQUESTED, requested.getPlan().getPath());
+		assertEquals(RandomRankers.toString(RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), AggregationPlanner.AUTO_METHOD, weights)),
+				RandomRankers.toString(requested));
+
+		AggregateResult fallback = RankAggregation.aggregateResult(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.AUTO, weights, 0, TimeUnit.NANOSECONDS);
+		assertEquals(AggregationPlan.Path.FALLBACK, fallback.getPlan().getPath());
+		//A page keeps the plan
+		assertSame(fallback.getPlan(), fallback.slice(10, 10).getPlan());
+	}
+
+	/**
+	 *
+	 * @param rankersList
+	 * @param n
+	 * @return The overlap which the planner estimates by the lengths of the rankers.
+	 */
+	private static double overlap(List<List<Model>> rankersList, int n){
+		double overlap = 0;
+		for(List<Model> ranker: rankersList)
+			overlap += (double) Math.min(n, ranker.size()) / n / rankersList.size();
+		return overlap;
+	}
+
+}
@@ -0,0 +1,125 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that a depth window which covers all models equals the whole aggregation, and that a smaller window
+ * aggregates the window of the cut rankers and appends the tail in its initial order with the score -1.
+ * @author Mariam Nassar
+ *
+ */
+public class DepthWindowAggregationTest {
+
+	private static final RankAggregationType.Types[] METHODS = {
+		RankAggregationType.Types.ADJACENT_PAIRS,
+		RankAggregationType.Types.LOCAL_KEMENIZATION,
+		RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION
+	};
+
+
+	@Test
+	public void fullDepthEqualsAggregate(){
+		RandomRankers random = new RandomRankers(23);
+		for(int query = 0; query < 50; query++){
+			int pool = 1 + random.nextInt(100);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			float[] weights = weights(random, rankersList.size());
+			DepthWindowAggregation aggregation = new DepthWindowAggregation(pool + random.nextInt(3));
+
+			for(RankAggregationType.Types method: METHODS){
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				assertEquals("query " + query + " " + method, RandomRankers.toString(expected),
+						RandomRankers.toString(aggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights)));
+			}
+		}
+	}
+
+	@Test
+	public void windowAndTail(){
+		RandomRankers random = new RandomRankers(24);
+		for(int query = 0; query < 50; query++){
+			int pool = 10 + random.nextInt(100);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(pool, pool);
+			float[] weights = weights(random, rankersList.size());
+			int depth = 1 + random.nextInt(pool / 2);
+
+			//The window: the first models of the initial aggregate ranker and of the rankers
+			Set<String> heads = new HashSet<String>();
+			List<List<Model>> cutRankersList = new ArrayList<List<Model>>();
+			for(List<Model> ranker: rankersList){
+				List<Model> head = ranker.subList(0, Math.min(depth, ranker.size()));
+				heads.addAll(RandomRankers.uniqueModelIds(head));
+				cutRankersList.add(head);
+			}
+			List<Model> window = new ArrayList<Model>();
+			List<String> tail = new ArrayList<String>();
+			for(int i = 0; i < initialAggregateRanker.size(); i++){
+				Model model = initialAggregateRanker.get(i);
+				if(i < depth || heads.contains(model.getUniqueVersionId()))
+					window.add(model);
+				else tail.add(model.getUniqueVersionId());
+			}
+
+			for(RankAggregationType.Types method: METHODS){
+				String message = "query " + query + " " + method;
+				List<Model> results = new DepthWindowAggregation(depth).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				List<Model> expected = RankAggregation.aggregate(cutRankersList, RandomRankers.copy(window), method, weights);
+				assertEquals(message, RandomRankers.toString(expected), RandomRankers.toString(results.subList(0, window.size())));
+				assertEquals(message, tail, RandomRankers.uniqueModelIds(results.subList(window.size(), results.size())));
+				for(Model model: results)
+					assertEquals(message, -1, model.getScore(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void fullDepthReport(){
+		RandomRankers random = new RandomRankers(25);
+		List<AggregationRequest> sample = new ArrayList<AggregationRequest>();
+		for(int query = 0; query < 10; query++){
+			List<List<Model>> rankersList = random.rankers(3, 50);
+			sample.add(new AggregationRequest(rankersList, random.ranker(50, 50), METHODS[query % METHODS.length], null));
+		}
+
+		DepthWindowReport report = new DepthWindowAggregation(50).compare(sample, 10);
+		assertEquals(10, report.getQueries());
+		assertEquals(0, report.getMaxKendallTau(), 0);
+		assertEquals(1, report.getMinTopKOverlap(), 0);
+		assertEquals(10, report.getIdenticalTopK());
+		assertEquals(1, report.getMeanWindowRatio(), 0);
+	}
+
+	@Test
+	public void scoreBasedMethodHasNoWindow(){
+		try{
+			new DepthWindowAggregation(10).aggregate(new ArrayList<List<Model>>(), new ArrayList<Model>(), RankAggregationType.Types.COMB_MNZ, new float[0]);
+			fail("COMB_MNZ has a depth window");
+		}
+		catch(IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	/**
+	 *
+	 * @param random
+	 * @param numberOfRankers
+	 * @return Random weights from 1 to 4.
+	 */
+	private static float[] weights(RandomRankers random, int numberOfRankers){
+		float[] weights = new float[numberOfRankers];
+		for(int l = 0; l < numberOfRankers; l++)
+			weights[l] = 1 + random.nextInt(4);
+		return weights;
+	}
+
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that the incremental aggregation equals RankAggregation.aggregate of the current rankers,
+ * also after removing and replacing rankers, and that it never changes the models of the caller.
+ * @author Mariam Nassar
+ *
+ */
+public class IncrementalAggregatorTest {
+
+	private static final RankAggregationType.Types[] METHODS = {
+		RankAggregationType.Types.ADJACENT_PAIRS,
+		RankAggregationType.Types.COMB_MNZ,
+		RankAggregationType.Types.LOCAL_KEMENIZATION,
+		RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION,
+		RankAggregationType.Types.COMB_SUM,
+		RankAggregationType.Types.BORDA,
+		RankAggregationType.Types.RECIPROCAL_RANK_FUSION,
+		RankAggregationType.Types.MARKOV_CHAIN,
+		RankAggregationType.Types.KWIK_SORT
+	};
+
+
+	@Test
+	public void aggregateEqualsRankAggregation(){
+		RandomRankers random = new RandomRankers(6);
+		for(int query = 0; query < 50; query++){
+			int pool = 1 + random.nextInt(60);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			String initial = RandomRankers.toString(initialAggregateRanker);
+			IncrementalAggregator aggregator = new IncrementalAggregator(initialAggregateRanker);
+
+			List<List<Model>> rankersList = new ArrayList<List<Model>>();
+			List<Float> weights = new ArrayList<Float>();
+			int numberOfRankers = 1 + random.nextInt(6);
+			for(int l = 0; l < numberOfRankers; l++){
+				List<Model> ranker = random.ranker(random.nextInt(pool + 1), pool);
+				float weight = 1 + random.nextInt(4);
+				aggregator.addRanker("r" + l, ranker, weight);
+				rankersList.add(ranker);
+				weights.add(weight);
+			}
+			//Remove the first ranker and replace the second one, which then comes last like a new ranker
+			if(numberOfRankers > 2){
+				aggregator.removeRanker("r0");
+				List<Model> ranker = random.ranker(random.nextInt(pool + 1), pool);
+				aggregator.replaceRanker("r1", ranker);
+				float weight = weights.get(1);
+				rankersList.remove(1);
+				weights.remove(1);
+				rankersList.remove(0);
+				weights.remove(0);
+				rankersList.add(ranker);
+				weights.add(weight);
+			}
+
+			float[] rankersWeights = new float[weights.size()];
+			for(int l = 0; l < rankersWeights.length; l++)
+				rankersWeights[l] = weights.get(l);
+			for(RankAggregationType.Types method: METHODS){
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, rankersWeights);
+				List<Model> actual = aggregator.aggregate(method);
+				if(method == RankAggregationType.Types.COMB_MNZ)
+					assertCombMNZ("query " + query, expected, actual);
+				else
+					assertEquals("query " + query + " " + method, RandomRankers.toString(expected), RandomRankers.toString(actual));
+			}
+			assertEquals("query " + query, initial, RandomRankers.toString(initialAggregateRanker));
+			assertEquals("query " + query, initial, RandomRankers.toString(aggregator.aggregate(RankAggregationType.Types.DEFAULT)));
+		}
+	}
+
+	/**
+	 * The CombMNZ scores of the incremental aggregation may differ in the last digits, so that models with
+	 * the same score may change places.
+	 *
+	 * @param message
+	 * @param expected
+	 * @param actual
+	 */
+	private static void assertCombMNZ(String message, List<Model> expected, List<Model> actual){
+		assertEquals(message, expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++)
+			assertEquals(message + " position " + i, expected.get(i).getScore(), actual.get(i).getScore(), 1e-5);
+
+		List<String> expectedIds = RandomRankers.uniqueModelIds(expected);
+		List<String> actualIds = RandomRankers.uniqueModelIds(actual);
+		Collections.sort(expectedIds);
+		Collections.sort(actualIds);
+		assertEquals(message, expectedIds, actualIds);
+	}
+
+	@Test
+	public void duplicateUniqueModelIds(){
+		List<Model> initialAggregateRanker = new ArrayList<Model>();
+		for(int i = 0; i < 4; i++)
+			initialAggregateRanker.add(new Model(4 - i, "m" + i));
+		//m1 is contained twice, only its last ranking counts
+		List<Model> ranker = new ArrayList<Model>();
+		ranker.add(new Model(1, "m1"));
+		ranker.add(new Model(1, "m2"));
+		ranker.add(new Model(1, "m1"));
+		List<Model> otherRanker = new ArrayList<Model>();
+		otherRanker.add(new Model(1, "m3"));
+		otherRanker.add(new Model(1, "m1"));
+		List<List<Model>> rankersList = new ArrayList<List<Model>>();
+		rankersList.add(ranker);
+		rankersList.add(otherRanker);
+
+		IncrementalAggregator aggregator = new IncrementalAggregator(initialAggregateRanker);
+		aggregator.addRanker("ranker", ranker);
+		aggregator.addRanker("otherRanker", otherRanker);
+		List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.COMB_MNZ, 1);
+		assertEquals(RandomRankers.toString(expected), RandomRankers.toString(aggregator.aggregate(RankAggregationType.Types.COMB_MNZ)));
+
+		//Removing the ranker removes each model once
+		aggregator.removeRanker("ranker");
+		rankersList.remove(0);
+		expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.COMB_MNZ, 1);
+		assertEquals(RandomRankers.toString(expected), RandomRankers.toString(aggregator.aggregate(RankAggregationType.Types.COMB_MNZ)));
+	}
+
+}
@@ -0,0 +1,119 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Compares the head of the KemenyHeadSearch with the best order of an exhaustive search over all permutations
+ * of short heads, and checks that a search which runs out of budget is never worse than the heuristic.
+ * @author Mariam Nassar
+ *
+ */
+public class KemenyHeadSearchTest {
+
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+
+
+	@After
+	public void stopPool(){
+		pool.shutdown();
+	}
+
+	@Test
+	public void headEqualsExhaustiveSearch(){
+		RandomRankers random = new RandomRankers(20);
+		for(int query = 0; query < 100; query++){
+			int models = 2 + random.nextInt(30);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(6), models);
+			List<Model> aggregateRanker = random.ranker(2 + random.nextInt(models - 1), models);
+			int headLength = 2 + random.nextInt(7);
+			int h = Math.min(headLength, aggregateRanker.size());
+
+			KemenyHeadSearch search = new KemenyHeadSearch(pool, headLength, 0, 0, TimeUnit.MILLISECONDS);
+			List<Model> results = search.aggregate(rankersList, aggregateRanker);
+			String message = "query " + query;
+			assertTrue(message, search.isOptimal());
+
+			//The head is a permutation of the head, the rest keeps its order
+			List<String> head = RandomRankers.uniqueModelIds(results.subList(0, h));
+			List<String> initialHead = RandomRankers.uniqueModelIds(aggregateRanker.subList(0, h));
+			Collections.sort(head);
+			Collections.sort(initialHead);
+			assertEquals(message, initialHead, head);
+			assertEquals(message, RandomRankers.uniqueModelIds(aggregateRanker.subList(h, aggregateRanker.size())),
+					RandomRankers.uniqueModelIds(results.subList(h, results.size())));
+
+			long cost = cost(rankersList, RandomRankers.uniqueModelIds(results.subList(0, h)));
+			List<String> heuristicHead = RandomRankers.uniqueModelIds(aggregateRanker.subList(0, h));
+			assertEquals(message, minimalCost(rankersList, heuristicHead, 0), cost);
+			assertEquals(message, cost - cost(rankersList, heuristicHead), search.getDistanceChange());
+		}
+	}
+
+	@Test
+	public void budgetNeverWorseThanHeuristic(){
+		RandomRankers random = new RandomRankers(21);
+		for(int query = 0; query < 20; query++){
+			List<List<Model>> rankersList = random.rankers(5, 60);
+			List<Model> aggregateRanker = random.ranker(60, 60);
+
+			//A few nodes only, so that the search stops early
+			KemenyHeadSearch search = new KemenyHeadSearch(pool, 20, 100, 0, TimeUnit.MILLISECONDS);
+			List<Model> results = search.aggregate(rankersList, aggregateRanker);
+			long cost = cost(rankersList, RandomRankers.uniqueModelIds(results.subList(0, 20)));
+			long heuristicCost = cost(rankersList, RandomRankers.uniqueModelIds(aggregateRanker.subList(0, 20)));
+			assertTrue("query " + query, cost <= heuristicCost);
+			assertEquals("query " + query, cost - heuristicCost, search.getDistanceChange());
+		}
+	}
+
+	/**
+	 *
+	 * @param rankersList
+	 * @param order Unique model Ids.
+	 * @return The number of pairs of the order and rankers which prefer the later model of the pair,
+	 * a model which is not contained in a ranker is ranked after all models of the ranker.
+	 */
+	private static long cost(List<List<Model>> rankersList, List<String> order){
+		long cost = 0;
+		for(List<Model> ranker: rankersList){
+			Map<String, Integer> rankings = new HashMap<String, Integer>();
+			for(int k = 0; k < ranker.size(); k++)
+				rankings.put(ranker.get(k).getUniqueVersionId(), k + 1);
+			for(int a = 0; a < order.size(); a++)
+				for(int b = a + 1; b < order.size(); b++)
+					if(rankings.getOrDefault(order.get(b), Integer.MAX_VALUE) < rankings.getOrDefault(order.get(a), Integer.MAX_VALUE))
+						cost++;
+		}
+		return cost;
+	}
+
+	/**
+	 *
+	 * @param rankersList
+	 * @param order Unique model Ids, the positions before first are fixed.
+	 * @param first
+	 * @return The minimal cost over all permutations of the positions from first on.
+	 */
+	private static long minimalCost(List<List<Model>> rankersList, List<String> order, int first){
+		if(first == order.size())
+			return cost(rankersList, order);
+		long minimalCost = Long.MAX_VALUE;
+		for(int i = first; i < order.size(); i++){
+			Collections.swap(order, first, i);
+			minimalCost = Math.min(minimalCost, minimalCost(rankersList, order, first + 1));
+			Collections.swap(order, first, i);
+		}
+		return minimalCost;
+	}
+
+}
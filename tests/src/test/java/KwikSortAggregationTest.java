@@ -0,0 +1,97 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Checks that KwikSort only depends on the seed and not on the number of threads, also for parts which are
+ * partitioned in parallel, that it keeps the order which all rankers agree on and that the polish is locally optimal.
+ * @author Mariam Nassar
+ *
+ */
+public class KwikSortAggregationTest {
+
+	private final ForkJoinPool onePool = new ForkJoinPool(1);
+	private final ForkJoinPool fourPool = new ForkJoinPool(4);
+
+
+	@After
+	public void stopPools(){
+		onePool.shutdown();
+		fourPool.shutdown();
+	}
+
+	@Test
+	public void sameSeedOnAnyNumberOfThreads(){
+		RandomRankers random = new RandomRankers(21);
+		for(int query = 0; query < 30; query++){
+			int pool = 1 + random.nextInt((query % 10 == 0) ? 5000 : 300);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			long seed = random.nextInt(1000);
+			boolean polish = query % 2 == 0;
+
+			List<Model> one = new KwikSortAggregation(onePool, seed, polish).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+			List<Model> four = new KwikSortAggregation(fourPool, seed, polish).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+			assertEquals("query " + query, RandomRankers.toString(one), RandomRankers.toString(four));
+
+			List<String> sorted = RandomRankers.uniqueModelIds(one);
+			List<String> initial = RandomRankers.uniqueModelIds(initialAggregateRanker);
+			Collections.sort(sorted);
+			Collections.sort(initial);
+			assertEquals("query " + query, initial, sorted);
+		}
+	}
+
+	@Test
+	public void parallelPartition(){
+		RandomRankers random = new RandomRankers(22);
+		//Longer than the parts which are partitioned sequentially
+		List<List<Model>> rankersList = random.rankers(3, 40000);
+		List<Model> initialAggregateRanker = random.ranker(40000, 40000);
+
+		List<Model> one = new KwikSortAggregation(onePool, 7, false).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+		List<Model> four = new KwikSortAggregation(fourPool, 7, false).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+		assertEquals(RandomRankers.uniqueModelIds(one), RandomRankers.uniqueModelIds(four));
+	}
+
+	@Test
+	public void consensusIsKept(){
+		RandomRankers random = new RandomRankers(23);
+		List<Model> consensus = random.ranker(500, 500);
+		List<List<Model>> rankersList = new ArrayList<List<Model>>();
+		for(int l = 0; l < 3; l++)
+			rankersList.add(RandomRankers.copy(consensus));
+
+		for(long seed = 0; seed < 5; seed++){
+			List<Model> results = new KwikSortAggregation(fourPool, seed, false).aggregate(rankersList, random.ranker(500, 500));
+			assertEquals("seed " + seed, RandomRankers.uniqueModelIds(consensus), RandomRankers.uniqueModelIds(results));
+		}
+	}
+
+	@Test
+	public void polishIsLocallyOptimal(){
+		RandomRankers random = new RandomRankers(24);
+		for(int query = 0; query < 30; query++){
+			int pool = 2 + random.nextInt(200);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> results = new KwikSortAggregation(fourPool, query, true).aggregate(rankersList, random.ranker(1 + random.nextInt(pool), pool));
+
+			//No adjacent pair is preferred the other way round by the majority of the rankers
+			for(int i = 0; i + 1 < results.size(); i++){
+				String uniqueModelId1 = results.get(i).getUniqueVersionId();
+				String uniqueModelId2 = results.get(i + 1).getUniqueVersionId();
+				assertTrue("query " + query + " position " + i,
+						RandomRankers.preference(rankersList, uniqueModelId2, uniqueModelId1) <= RandomRankers.preference(rankersList, uniqueModelId1, uniqueModelId2));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Checks that MC4 is deterministic, ranks the models by a probability distribution, keeps the order
+ * which all rankers agree on, and that the warm start converges to the same ranking in fewer sweeps.
+ * @author Mariam Nassar
+ *
+ */
+public class MarkovChainAggregationTest {
+
+	@After
+	public void resetSettings(){
+		RankAggregation.setMarkovChainAggregation(null);
+		RankAggregation.setListener(null);
+	}
+
+	@Test
+	public void deterministicDistribution(){
+		RandomRankers random = new RandomRankers(19);
+		MarkovChainAggregation aggregation = new MarkovChainAggregation();
+		for(int query = 0; query < 50; query++){
+			int pool = 1 + random.nextInt(300);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+
+			List<Model> first = aggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+			List<Model> second = aggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+			assertEquals("query " + query, RandomRankers.toString(first), RandomRankers.toString(second));
+
+			List<String> sorted = RandomRankers.uniqueModelIds(first);
+			List<String> initial = RandomRankers.uniqueModelIds(initialAggregateRanker);
+			Collections.sort(sorted);
+			Collections.sort(initial);
+			assertEquals("query " + query, initial, sorted);
+
+			//The scores are the stationary probabilities in descending order
+			double sum = 0;
+			for(int i = 0; i < first.size(); i++){
+				sum += first.get(i).getScore();
+				if(i > 0)
+					assertTrue("query " + query + " position " + i, first.get(i - 1).getScore() >= first.get(i).getScore());
+			}
+			assertEquals("query " + query, 1, sum, 1e-4);
+		}
+	}
+
+	@Test
+	public void consensusIsKept(){
+		RandomRankers random = new RandomRankers(20);
+		List<Model> consensus = random.ranker(50, 50);
+		List<List<Model>> rankersList = new ArrayList<List<Model>>();
+		for(int l = 0; l < 3; l++)
+			rankersList.add(RandomRankers.copy(consensus));
+		//The initial order is reversed
+		List<Model> initialAggregateRanker = RandomRankers.copy(consensus);
+		Collections.reverse(initialAggregateRanker);
+
+		List<Model> results = new MarkovChainAggregation().aggregate(rankersList, initialAggregateRanker);
+		assertEquals(RandomRankers.uniqueModelIds(consensus), RandomRankers.uniqueModelIds(results));
+	}
+
+	@Test
+	public void warmStartConvergesInFewerSweeps(){
+		RandomRankers random = new RandomRankers(21);
+		List<List<Model>> rankersList = random.rankers(4, 400);
+		List<Model> initialAggregateRanker = random.ranker(400, 400);
+		float[] weights = {1, 1, 1, 1};
+		long[] sweeps = new long[1];
+		RankAggregation.setListener(trace -> sweeps[0] = trace.getSweeps());
+
+		List<Model> cold = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.MARKOV_CHAIN, weights);
+		long coldSweeps = sweeps[0];
+
+		MarkovChainAggregation warm = new MarkovChainAggregation(MarkovChainAggregation.DEFAULT_RADIUS, MarkovChainAggregation.DEFAULT_DAMPING,
+				MarkovChainAggregation.DEFAULT_TOLERANCE, MarkovChainAggregation.DEFAULT_MAX_ITERATIONS, true);
+		RankAggregation.setMarkovChainAggregation(warm);
+		RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.MARKOV_CHAIN, weights);
+		assertEquals(coldSweeps, sweeps[0]);
+		List<Model> warmResults = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.MARKOV_CHAIN, weights);
+		assertTrue(sweeps[0] + " of " + coldSweeps, sweeps[0] < coldSweeps);
+
+		//The same ranking within the tolerance
+		assertEquals(cold.size(), warmResults.size());
+		for(int i = 0; i < cold.size(); i++)
+			assertEquals("position " + i, cold.get(i).getScore(), warmResults.get(i).getScore(), 1e-5);
+
+		//Without the previous probabilities it starts cold again
+		warm.resetWarmStart();
+		RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.MARKOV_CHAIN, weights);
+		assertEquals(coldSweeps, sweeps[0]);
+	}
+
+}
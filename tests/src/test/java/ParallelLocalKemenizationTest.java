@@ -0,0 +1,67 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Checks that the parallel local Kemenization is locally Kemeny optimal like the sequential one,
+ * and that its result does not depend on the number of threads.
+ * @author Mariam Nassar
+ *
+ */
+public class ParallelLocalKemenizationTest {
+
+	private final ForkJoinPool onePool = new ForkJoinPool(1);
+	private final ForkJoinPool fourPool = new ForkJoinPool(4);
+
+
+	@After
+	public void stopPools(){
+		onePool.shutdown();
+		fourPool.shutdown();
+	}
+
+	@Test
+	public void locallyOptimalOnAnyNumberOfThreads(){
+		RandomRankers random = new RandomRankers(13);
+		for(int query = 0; query < 100; query++){
+			int pool = 1 + random.nextInt(200);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			//Short blocks, so that most models are merged
+			int blockLength = 2 + random.nextInt(16);
+
+			List<Model> one = new ParallelLocalKemenization(onePool, blockLength).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+			List<Model> four = new ParallelLocalKemenization(fourPool, blockLength).aggregate(rankersList, RandomRankers.copy(initialAggregateRanker));
+			assertEquals("query " + query, RandomRankers.toString(one), RandomRankers.toString(four));
+
+			List<String> sorted = RandomRankers.uniqueModelIds(one);
+			List<String> initial = RandomRankers.uniqueModelIds(initialAggregateRanker);
+			Collections.sort(sorted);
+			Collections.sort(initial);
+			assertEquals("query " + query, initial, sorted);
+
+			//No adjacent pair is preferred the other way round by the majority of the rankers
+			for(int i = 0; i + 1 < one.size(); i++){
+				String uniqueModelId1 = one.get(i).getUniqueVersionId();
+				String uniqueModelId2 = one.get(i + 1).getUniqueVersionId();
+				assertTrue("query " + query + " position " + i,
+						RandomRankers.preference(rankersList, uniqueModelId2, uniqueModelId1) <= RandomRankers.preference(rankersList, uniqueModelId1, uniqueModelId2));
+			}
+		}
+	}
+
+	@Test
+	public void emptyInitialAggregateRanker(){
+		List<Model> initialAggregateRanker = new ArrayList<Model>();
+		assertTrue(new ParallelLocalKemenization(onePool, 4).aggregate(new RandomRankers(14).rankers(2, 10), initialAggregateRanker).isEmpty());
+	}
+
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * Seeded random rankers for the equivalence tests: partial lists of a pool of unique model Ids,
+ * empty rankers and models which the initial aggregate ranker does not contain.
+ * @author Mariam Nassar
+ *
+ */
+public class RandomRankers {
+
+	private final Random random;
+
+
+	/**
+	 * Constructor.
+	 * @param seed
+	 */
+	public RandomRankers(long seed){
+		this.random = new Random(seed);
+	}
+
+	/**
+	 *
+	 * @param length The number of models.
+	 * @param pool The number of unique model Ids to choose from, at least length.
+	 * @return A ranker with length distinct models of the pool in random order and random scores.
+	 */
+	public List<Model> ranker(int length, int pool){
+		List<String> uniqueModelIds = new ArrayList<String>(pool);
+		for(int i = 0; i < pool; i++)
+			uniqueModelIds.add("m" + i);
+		Collections.shuffle(uniqueModelIds, random);
+
+		List<Model> ranker = new ArrayList<Model>(length);
+		for(String uniqueModelId: uniqueModelIds.subList(0, length))
+			ranker.add(new Model(random.nextFloat(), uniqueModelId));
+		return ranker;
+	}
+
+	/**
+	 *
+	 * @param numberOfRankers
+	 * @param pool The number of unique model Ids to choose from.
+	 * @return Rankers of random lengths from 0 to pool, so that some are empty and most are partial.
+	 */
+	public List<List<Model>> rankers(int numberOfRankers, int pool){
+		List<List<Model>> rankersList = new ArrayList<List<Model>>(numberOfRankers);
+		for(int l = 0; l < numberOfRankers; l++)
+			rankersList.add(ranker(random.nextInt(pool + 1), pool));
+		return rankersList;
+	}
+
+	/**
+	 *
+	 * @param bound
+	 * @return A random number from 0 to bound - 1.
+	 */
+	public int nextInt(int bound){
+		return random.nextInt(bound);
+	}
+
+	/**
+	 *
+	 * @param ranker
+	 * @return New models with the unique model Ids and scores of the ranker.
+	 */
+	public static List<Model> copy(List<Model> ranker){
+		List<Model> copy = new ArrayList<Model>(ranker.size());
+		for(Model model: ranker)
+			copy.add(new Model(model.getScore(), model.getUniqueVersionId()));
+		return copy;
+	}
+
+	/**
+	 *
+	 * @param ranker
+	 * @return The unique model Ids and scores of the ranker, e.g. for assertEquals.
+	 */
+	public static String toString(List<Model> ranker){
+		StringBuilder string = new StringBuilder();
+		for(Model model: ranker)
+			string.append(model.getUniqueVersionId()).append('/').append(model.getScore()).append(' ');
+		return string.toString();
+	}
+
+	/**
+	 *
+	 * @param ranker
+	 * @return The unique model Ids of the ranker.
+	 */
+	public static List<String> uniqueModelIds(List<Model> ranker){
+		List<String> uniqueModelIds = new ArrayList<String>(ranker.size());
+		for(Model model: ranker)
+			uniqueModelIds.add(model.getUniqueVersionId());
+		return uniqueModelIds;
+	}
+
+	/**
+	 *
+	 * @param rankersList
+	 * @param uniqueModelId1
+	 * @param uniqueModelId2
+	 * @return The number of rankers which rank model1 better than model2, a missing model is ranked last.
+	 */
+	public static int preference(List<List<Model>> rankersList, String uniqueModelId1, String uniqueModelId2){
+		int preference = 0;
+		for(List<Model> ranker: rankersList){
+			Map<String, Integer> rankings = new HashMap<String, Integer>();
+			for(int i = 0; i < ranker.size(); i++)
+				rankings.put(ranker.get(i).getUniqueVersionId(), i + 1);
+			int ranking1 = rankings.containsKey(uniqueModelId1) ? rankings.get(uniqueModelId1) : Integer.MAX_VALUE;
+			int ranking2 = rankings.containsKey(uniqueModelId2) ? rankings.get(uniqueModelId2) : Integer.MAX_VALUE;
+			if(ranking1 < ranking2)
+				preference++;
+		}
+		return preference;
+	}
+
+}
@@ -0,0 +1,163 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Compares RankAggregation.aggregate with the first version of the aggregation methods, see BaselineRankAggregation,
+ * on seeded random rankers: the interned model indices, the shared pairwise preferences and the primitive sort
+ * of the score based results must not change any result.
+ * ADJACENT_PAIRS of the first version never swapped, it is compared with a local optimum instead.
+ * @author Mariam Nassar
+ *
+ */
+public class RankAggregationTest {
+
+	private static final RankAggregationType.Types[] BASELINE_METHODS = {RankAggregationType.Types.COMB_MNZ,
+			RankAggregationType.Types.LOCAL_KEMENIZATION, RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION,
+			RankAggregationType.Types.DEFAULT};
+
+
+	@Test
+	public void aggregateEqualsBaseline(){
+		RandomRankers random = new RandomRankers(42);
+		for(int query = 0; query < 300; query++){
+			int pool = 1 + random.nextInt(query < 200 ? 30 : 300);
+			//The weights of the first version are two decimal digits for each of at most 4 rankers
+			List<List<Model>> rankersList = random.rankers(random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			int rankersWeights = random.nextInt(100) + 100 * random.nextInt(100) + 10000 * random.nextInt(100) + 1000000 * random.nextInt(100);
+
+			for(RankAggregationType.Types aggregateMethod: BASELINE_METHODS)
+				assertBaseline("query " + query, rankersList, initialAggregateRanker, aggregateMethod, rankersWeights);
+		}
+	}
+
+	@Test
+	public void emptyRankers(){
+		RandomRankers random = new RandomRankers(7);
+		List<Model> initialAggregateRanker = random.ranker(20, 30);
+		List<List<Model>> noRankers = new ArrayList<List<Model>>();
+		List<List<Model>> emptyRankers = Arrays.asList(new ArrayList<Model>(), new ArrayList<Model>());
+
+		for(RankAggregationType.Types aggregateMethod: BASELINE_METHODS){
+			assertBaseline("no rankers", noRankers, initialAggregateRanker, aggregateMethod, 1010101);
+			assertBaseline("empty rankers", emptyRankers, initialAggregateRanker, aggregateMethod, 1010101);
+		}
+	}
+
+	@Test
+	public void emptyInitialAggregateRanker(){
+		RandomRankers random = new RandomRankers(8);
+		List<List<Model>> rankersList = random.rankers(3, 20);
+		for(RankAggregationType.Types aggregateMethod: RankAggregationType.Types.values()){
+			List<Model> initialAggregateRanker = new ArrayList<Model>();
+			assertSame(aggregateMethod.toString(), initialAggregateRanker, RankAggregation.aggregate(rankersList, initialAggregateRanker, aggregateMethod, 1010101));
+		}
+	}
+
+	@Test
+	public void duplicateUniqueModelIds(){
+		RandomRankers random = new RandomRankers(9);
+		for(int query = 0; query < 100; query++){
+			int pool = 2 + random.nextInt(30);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(4), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			//A model twice in a ranker and in the initial aggregate ranker
+			for(List<Model> ranker: rankersList)
+				if(!ranker.isEmpty())
+					ranker.add(random.nextInt(ranker.size() + 1), RandomRankers.copy(ranker).get(random.nextInt(ranker.size())));
+			initialAggregateRanker.add(new Model(0, initialAggregateRanker.get(random.nextInt(initialAggregateRanker.size())).getUniqueVersionId()));
+
+			for(RankAggregationType.Types aggregateMethod: BASELINE_METHODS)
+				assertBaseline("query " + query, rankersList, initialAggregateRanker, aggregateMethod, 1010101);
+		}
+	}
+
+	@Test
+	public void adjacentPairsIsLocallyOptimal(){
+		RandomRankers random = new RandomRankers(10);
+		for(int query = 0; query < 200; query++){
+			int pool = 1 + random.nextInt(60);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(6), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+
+			List<Model> results = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.ADJACENT_PAIRS, 0);
+			List<String> sorted = RandomRankers.uniqueModelIds(results);
+			List<String> initial = RandomRankers.uniqueModelIds(initialAggregateRanker);
+			Collections.sort(sorted);
+			Collections.sort(initial);
+			assertEquals("query " + query, initial, sorted);
+
+			//No swap of two adjacent models decreases the Kendall-tau distance to the rankers
+			for(int i = 0; i + 1 < results.size(); i++){
+				String uniqueModelId1 = results.get(i).getUniqueVersionId();
+				String uniqueModelId2 = results.get(i + 1).getUniqueVersionId();
+				assertTrue("query " + query + " position " + i,
+						RandomRankers.preference(rankersList, uniqueModelId2, uniqueModelId1) <= RandomRankers.preference(rankersList, uniqueModelId1, uniqueModelId2));
+				assertEquals(-1, results.get(i).getScore(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void pairwisePreferenceWithoutCountsEqualsCounts(){
+		RandomRankers random = new RandomRankers(11);
+		for(int query = 0; query < 100; query++){
+			//At least one pair, a single model has no counts to keep
+			int pool = 2 + random.nextInt(40);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			ModelIdDictionary dictionary = new ModelIdDictionary();
+			IndexedRankerHandler aggregateRankerH = new IndexedRankerHandler(random.ranker(2 + random.nextInt(pool - 1), pool), dictionary);
+			List<IndexedRankerHandler> rankersListH = new ArrayList<IndexedRankerHandler>();
+			for(List<Model> ranker: rankersList)
+				rankersListH.add(new IndexedRankerHandler(ranker, dictionary));
+
+			//Small weights fit into bytes, larger ones into shorts, no count bytes keep the rankings
+			PairwisePreference bytes = new PairwisePreference(aggregateRankerH, Long.MAX_VALUE);
+			PairwisePreference shorts = new PairwisePreference(aggregateRankerH, Long.MAX_VALUE);
+			PairwisePreference rankings = new PairwisePreference(aggregateRankerH, 0);
+			for(IndexedRankerHandler ranker_iH: rankersListH){
+				int weight = 1 + random.nextInt(3);
+				bytes.addRanker(ranker_iH, weight);
+				shorts.addRanker(ranker_iH, 100 * weight);
+				rankings.addRanker(ranker_iH, 100 * weight);
+			}
+			assertTrue(bytes.isTabulated());
+			assertTrue(shorts.isTabulated());
+			assertTrue(!rankings.isTabulated());
+
+			int[] modelIndexList = aggregateRankerH.getModelIndexList();
+			for(int i = 0; i < aggregateRankerH.getRankerSize(); i++)
+				for(int j = 0; j < aggregateRankerH.getRankerSize(); j++){
+					int preference = shorts.getPreference(modelIndexList[i], modelIndexList[j]);
+					assertEquals(preference, rankings.getPreference(modelIndexList[i], modelIndexList[j]));
+					assertEquals(preference, 100 * bytes.getPreference(modelIndexList[i], modelIndexList[j]));
+				}
+		}
+	}
+
+	/**
+	 * Aggregates copies of the models with RankAggregation and BaselineRankAggregation and compares the lists.
+	 *
+	 * @param message
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param aggregateMethod
+	 * @param rankersWeights
+	 */
+	private static void assertBaseline(String message, List<List<Model>> rankersList, List<Model> initialAggregateRanker, RankAggregationType.Types aggregateMethod,
+			int rankersWeights){
+		List<Model> expected = BaselineRankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), aggregateMethod, rankersWeights);
+		List<Model> actual = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), aggregateMethod, rankersWeights);
+		assertEquals(message + " " + aggregateMethod, RandomRankers.toString(expected), RandomRankers.toString(actual));
+	}
+
+}
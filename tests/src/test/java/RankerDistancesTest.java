@@ -0,0 +1,139 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Checks the distances of RankerDistances against counting all pairs of models, and that computeAsync
+ * runs on the executor only.
+ * @author Mariam Nassar
+ *
+ */
+public class RankerDistancesTest {
+
+	private final ExecutorService singleThread = Executors.newSingleThreadExecutor();
+
+
+	@After
+	public void stopExecutor(){
+		singleThread.shutdown();
+	}
+
+	@Test
+	public void distancesEqualBruteForce(){
+		RandomRankers random = new RandomRankers(25);
+		for(int query = 0; query < 100; query++){
+			int pool = 1 + random.nextInt(40);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> aggregateRanker = random.ranker(random.nextInt(pool + 1), pool);
+
+			RankerDistances distances = RankerDistances.compute(rankersList, aggregateRanker);
+			rankersList.add(aggregateRanker);
+			assertDistances("query " + query, rankersList, distances);
+		}
+	}
+
+	@Test
+	public void computeAsyncRunsOnTheExecutor() throws Exception{
+		RandomRankers random = new RandomRankers(26);
+		List<List<Model>> rankersList = random.rankers(6, 30);
+		List<Model> aggregateRanker = random.ranker(30, 30);
+		AtomicInteger tasks = new AtomicInteger();
+
+		//A single thread must not wait for the pairs it has submitted itself
+		RankerDistances distances = RankerDistances.computeAsync(rankersList, aggregateRanker, command -> {
+			tasks.incrementAndGet();
+			singleThread.execute(command);
+		}).get();
+		rankersList.add(aggregateRanker);
+		assertDistances("single thread", rankersList, distances);
+		//The rankers and one task for each ranker but the last
+		assertEquals(1 + rankersList.size() - 1, tasks.get());
+	}
+
+	@Test
+	public void noRankers(){
+		RankerDistances distances = RankerDistances.compute(new ArrayList<List<Model>>());
+		assertEquals(0, distances.getSize());
+	}
+
+	private static void assertDistances(String message, List<List<Model>> rankersList, RankerDistances distances){
+		assertEquals(message, rankersList.size(), distances.getSize());
+		for(int i = 0; i < rankersList.size(); i++)
+			for(int j = 0; j < rankersList.size(); j++){
+				assertEquals(message + " (" + i + ", " + j + ")", kendallTau(rankersList.get(i), rankersList.get(j)), distances.getKendallTau(i, j));
+				assertEquals(message + " (" + i + ", " + j + ")", footrule(rankersList.get(i), rankersList.get(j)), distances.getFootrule(i, j));
+			}
+	}
+
+	/**
+	 *
+	 * @param ranker
+	 * @return The rankings of the models of the ranker, starting with 1.
+	 */
+	private static Map<String, Integer> rankings(List<Model> ranker){
+		Map<String, Integer> rankings = new HashMap<String, Integer>();
+		for(int k = 0; k < ranker.size(); k++)
+			rankings.put(ranker.get(k).getUniqueVersionId(), k + 1);
+		return rankings;
+	}
+
+	/**
+	 *
+	 * @param rankerA
+	 * @param rankerB
+	 * @return The Kendall-tau distance K(0) by comparing each pair of the union, a missing model ranked last.
+	 */
+	private static long kendallTau(List<Model> rankerA, List<Model> rankerB){
+		Map<String, Integer> rankingsA = rankings(rankerA);
+		Map<String, Integer> rankingsB = rankings(rankerB);
+		Set<String> union = new HashSet<String>(rankingsA.keySet());
+		union.addAll(rankingsB.keySet());
+		String[] models = union.toArray(new String[0]);
+
+		long distance = 0;
+		for(int x = 0; x < models.length; x++)
+			for(int y = x + 1; y < models.length; y++){
+				int ax = rankingsA.getOrDefault(models[x], rankerA.size() + 1);
+				int ay = rankingsA.getOrDefault(models[y], rankerA.size() + 1);
+				int bx = rankingsB.getOrDefault(models[x], rankerB.size() + 1);
+				int by = rankingsB.getOrDefault(models[y], rankerB.size() + 1);
+				//Both missing in one ranker
+				if(ax == ay || bx == by)
+					continue;
+				if((ax < ay) != (bx < by))
+					distance++;
+			}
+		return distance;
+	}
+
+	/**
+	 *
+	 * @param rankerA
+	 * @param rankerB
+	 * @return The Spearman footrule distance F(l), a missing model with the ranking length + 1.
+	 */
+	private static long footrule(List<Model> rankerA, List<Model> rankerB){
+		Map<String, Integer> rankingsA = rankings(rankerA);
+		Map<String, Integer> rankingsB = rankings(rankerB);
+		Set<String> union = new HashSet<String>(rankingsA.keySet());
+		union.addAll(rankingsB.keySet());
+
+		long distance = 0;
+		for(String model: union)
+			distance += Math.abs(rankingsA.getOrDefault(model, rankerA.size() + 1) - rankingsB.getOrDefault(model, rankerB.size() + 1));
+		return distance;
+	}
+
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Writes rankers with the RankerFileWriter, reads them back from the RankerFile and aggregates them
+ * like the lists of models.
+ * @author Mariam Nassar
+ *
+ */
+public class RankerFileTest {
+
+	private static final RankAggregationType.Types[] METHODS = {
+		RankAggregationType.Types.ADJACENT_PAIRS,
+		RankAggregationType.Types.COMB_MNZ,
+		RankAggregationType.Types.LOCAL_KEMENIZATION,
+		RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION,
+		RankAggregationType.Types.COMB_SUM,
+		RankAggregationType.Types.BORDA,
+		RankAggregationType.Types.RECIPROCAL_RANK_FUSION,
+		RankAggregationType.Types.MARKOV_CHAIN,
+		RankAggregationType.Types.KWIK_SORT
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void writeReadRoundTrip() throws IOException{
+		RandomRankers random = new RandomRankers(15);
+		List<List<Model>> rankersList = random.rankers(6, 80);
+		//An empty ranker, and Ids which are not ASCII
+		rankersList.add(new ArrayList<Model>());
+		List<Model> ranker = new ArrayList<Model>();
+		ranker.add(new Model(0.5f, "münster"));
+		ranker.add(new Model(0.25f, "模型"));
+		ranker.add(new Model(0.125f, "m1"));
+		rankersList.add(ranker);
+
+		File file = folder.newFile();
+		RankerFileWriter.write(rankersList, file);
+		RankerFile rankerFile = RankerFile.open(file);
+
+		assertEquals(rankersList.size(), rankerFile.getNumberOfRankers());
+		for(int l = 0; l < rankersList.size(); l++){
+			List<Model> expected = rankersList.get(l);
+			MappedRanker mappedRanker = rankerFile.getRanker(l);
+			assertEquals("ranker " + l, expected.size(), mappedRanker.getRankerSize());
+			List<Model> read = new ArrayList<Model>();
+			for(int k = 0; k < mappedRanker.getRankerSize(); k++){
+				int modelIndex = mappedRanker.getModelIndex(k);
+				read.add(new Model(mappedRanker.getScore(k), rankerFile.getUniqueModelID(modelIndex)));
+				assertEquals("ranker " + l, k + 1, mappedRanker.getRankingByModelIndex(modelIndex));
+				assertEquals("ranker " + l, mappedRanker.getScore(k), mappedRanker.getScoreByModelIndex(modelIndex), 0);
+			}
+			assertEquals("ranker " + l, RandomRankers.toString(expected), RandomRankers.toString(read));
+		}
+
+		//A model which is in the file, but not in the ranker
+		int modelIndex = rankerFile.newDictionary().getModelIndex("münster");
+		assertFalse(rankerFile.getRanker(rankersList.size() - 2).containsByModelIndex(modelIndex));
+	}
+
+	@Test
+	public void aggregateEqualsLists() throws IOException{
+		RandomRankers random = new RandomRankers(16);
+		for(int query = 0; query < 20; query++){
+			int pool = 1 + random.nextInt(60);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			//Models of the initial aggregate ranker which no ranker contains are interned after the file
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool + 10);
+			float[] weights = new float[rankersList.size()];
+			for(int l = 0; l < weights.length; l++)
+				weights[l] = 1 + random.nextInt(4);
+
+			File file = folder.newFile();
+			RankerFileWriter.write(rankersList, file);
+			RankerFile rankerFile = RankerFile.open(file);
+			for(RankAggregationType.Types method: METHODS){
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), method, weights);
+				assertEquals("query " + query + " " + method, RandomRankers.toString(expected),
+						RandomRankers.toString(RankAggregation.aggregate(rankerFile, RandomRankers.copy(initialAggregateRanker), method, weights)));
+			}
+		}
+	}
+
+	@Test
+	public void notARankerFile() throws IOException{
+		File file = folder.newFile();
+		Files.write(file.toPath(), "not a ranker file".getBytes("UTF-8"));
+		assertOpenFails(file);
+
+		RankerFileWriter.write(new RandomRankers(17).rankers(3, 20), file);
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")){
+			randomAccessFile.setLength(randomAccessFile.length() - 4);
+		}
+		assertOpenFails(file);
+	}
+
+	private static void assertOpenFails(File file){
+		try{
+			RankerFile.open(file);
+			fail("Opened " + file);
+		}
+		catch(IOException e){
+			//expected
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Compares the sharded aggregation of the score based methods with the first k models of RankAggregation.aggregate,
+ * in process and over local sockets, with the lists sent by the coordinator and with partitions owned by the workers.
+ * @author Mariam Nassar
+ *
+ */
+public class ShardedAggregationTest {
+
+	private static final int SHARDS = 3;
+	private static final RankAggregationType.Types[] SHARDABLE_METHODS = {RankAggregationType.Types.COMB_MNZ,
+			RankAggregationType.Types.COMB_SUM, RankAggregationType.Types.BORDA, RankAggregationType.Types.RECIPROCAL_RANK_FUSION};
+
+	private final List<ShardServer> servers = new ArrayList<ShardServer>();
+	private final List<ShardTransport> transports = new ArrayList<ShardTransport>();
+
+
+	@After
+	public void close() throws IOException{
+		for(ShardTransport transport: transports)
+			transport.close();
+		for(ShardServer server: servers)
+			server.close();
+		RankAggregation.setReciprocalRankFusionK(RankAggregation.DEFAULT_RECIPROCAL_RANK_FUSION_K);
+	}
+
+	@Test
+	public void mergeEqualsAggregate() throws IOException{
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for(int shard = 0; shard < SHARDS; shard++)
+			addresses.add(server(new ShardServer(0, ShardedAggregationTest::rethrow)).getAddress());
+		ShardTransport[] shardTransports = {transport(new InProcessShardTransport(1)), transport(new InProcessShardTransport(4)),
+				transport(new SocketShardTransport(addresses))};
+
+		RandomRankers random = new RandomRankers(11);
+		for(int query = 0; query < 100; query++){
+			Query lists = new Query(random);
+			for(RankAggregationType.Types aggregateMethod: SHARDABLE_METHODS){
+				List<Model> expected = lists.expected(aggregateMethod);
+				for(ShardTransport transport: shardTransports)
+					assertEquals("query " + query + " " + aggregateMethod + " on " + transport.getNumberOfShards() + " shards", RandomRankers.toString(expected),
+							RandomRankers.toString(new ShardedAggregation(transport).aggregate(lists.rankersList, lists.initialAggregateRanker, aggregateMethod, lists.weights, lists.k)));
+			}
+		}
+	}
+
+	@Test
+	public void partitionsOfTheWorkersEqualAggregate() throws IOException{
+		List<Map<String, ShardPartition>> partitions = new ArrayList<Map<String, ShardPartition>>();
+		List<ShardPartitionStore> stores = new ArrayList<ShardPartitionStore>();
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for(int shard = 0; shard < SHARDS; shard++){
+			Map<String, ShardPartition> shardPartitions = new HashMap<String, ShardPartition>();
+			partitions.add(shardPartitions);
+			stores.add(shardPartitions::get);
+			addresses.add(server(new ShardServer(0, shardPartitions::get, ShardedAggregationTest::rethrow)).getAddress());
+		}
+
+		//The partitions are stored before the workers are asked
+		RandomRankers random = new RandomRankers(12);
+		List<Query> queries = new ArrayList<Query>();
+		for(int query = 0; query < 100; query++){
+			Query lists = new Query(random);
+			ShardPartition[] shardPartitions = ShardedAggregation.partitions(lists.rankersList, lists.initialAggregateRanker, SHARDS);
+			for(int shard = 0; shard < SHARDS; shard++)
+				partitions.get(shard).put("q" + query, shardPartitions[shard]);
+			queries.add(lists);
+		}
+
+		ShardTransport[] shardTransports = {transport(new InProcessShardTransport(stores, ForkJoinPool.commonPool())), transport(new SocketShardTransport(addresses))};
+		for(int query = 0; query < queries.size(); query++){
+			Query lists = queries.get(query);
+			for(RankAggregationType.Types aggregateMethod: SHARDABLE_METHODS){
+				List<Model> expected = lists.expected(aggregateMethod);
+				for(ShardTransport transport: shardTransports)
+					assertEquals("query " + query + " " + aggregateMethod, RandomRankers.toString(expected),
+							RandomRankers.toString(new ShardedAggregation(transport).aggregate("q" + query, lists.initialAggregateRanker.size(),
+									ShardedAggregation.rankerLengths(lists.rankersList), aggregateMethod, lists.weights, lists.k)));
+			}
+		}
+
+		try{
+			new ShardedAggregation(shardTransports[0]).aggregate("unknown", 3, new int[]{3}, RankAggregationType.Types.BORDA, null, 2);
+			fail("The query is unknown");
+		}
+		catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().contains("unknown"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rankBasedMethodsCannotBeSharded() throws IOException{
+		RandomRankers random = new RandomRankers(13);
+		new ShardedAggregation(transport(new InProcessShardTransport(2))).aggregate(random.rankers(2, 10), random.ranker(5, 10),
+				RankAggregationType.Types.LOCAL_KEMENIZATION, null, 2);
+	}
+
+	private ShardServer server(ShardServer server) throws IOException{
+		servers.add(server.start());
+		return server;
+	}
+
+	private ShardTransport transport(ShardTransport transport){
+		transports.add(transport);
+		return transport;
+	}
+
+	private static void rethrow(IOException e){
+		throw new AssertionError(e);
+	}
+
+
+	/**
+	 * The random lists, weights and k of a query.
+	 */
+	private static class Query {
+		private final List<List<Model>> rankersList;
+		private final List<Model> initialAggregateRanker;
+		private final float[] weights;
+		private final int k;
+
+		Query(RandomRankers random){
+			int pool = 1 + random.nextInt(100);
+			int n = 1 + random.nextInt(pool);
+			this.rankersList = random.rankers(1 + random.nextInt(5), pool);
+			this.initialAggregateRanker = random.ranker(n, pool);
+			//Duplicate unique model Ids, rankers without weights and negative weights
+			if(random.nextInt(5) == 0)
+				initialAggregateRanker.add(new Model(0, initialAggregateRanker.get(0).getUniqueVersionId()));
+			this.weights = new float[Math.max(0, rankersList.size() - random.nextInt(2))];
+			for(int l = 0; l < weights.length; l++)
+				weights[l] = random.nextInt(4) - (random.nextInt(6) == 0 ? 2 : 0);
+			//k up to beyond the length of the list
+			this.k = 1 + random.nextInt(n + 3);
+		}
+
+		/**
+		 *
+		 * @param aggregateMethod
+		 * @return The first k models of RankAggregation.aggregate.
+		 */
+		List<Model> expected(RankAggregationType.Types aggregateMethod){
+			List<Model> results = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), aggregateMethod, weights);
+			return results.subList(0, Math.min(k, results.size()));
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Compares the re-tuned weights of the SupervisedWeightTuner with SUPERVISED_LOCAL_KEMENIZATION of RankAggregation.aggregate.
+ * @author Mariam Nassar
+ *
+ */
+public class SupervisedWeightTunerTest {
+
+	@Test
+	public void tunerEqualsSupervisedLocalKemenization(){
+		RandomRankers random = new RandomRankers(5);
+		for(int query = 0; query < 100; query++){
+			int pool = 1 + random.nextInt(150);
+			List<List<Model>> rankersList = random.rankers(random.nextInt(3) == 0 ? 1 + random.nextInt(20) : 1 + random.nextInt(6), pool);
+			List<Model> initialAggregateRanker = random.ranker(random.nextInt(pool + 1), pool);
+			SupervisedWeightTuner tuner = new SupervisedWeightTuner(rankersList, initialAggregateRanker);
+
+			for(int tuning = 0; tuning < 5; tuning++){
+				//Fewer or more weights than rankers, zero, fractional and negative weights
+				float[] weights = new float[Math.max(0, rankersList.size() + random.nextInt(3) - 1)];
+				for(int l = 0; l < weights.length; l++)
+					weights[l] = (random.nextInt(4) == 0) ? 0 : (random.nextInt(2) == 0) ? random.nextInt(5) : random.nextInt(300) / 100f - (random.nextInt(8) == 0 ? 2 : 0);
+
+				List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION, weights);
+				assertEquals("query " + query + " tuning " + tuning, RandomRankers.uniqueModelIds(expected), RandomRankers.uniqueModelIds(tuner.aggregate(weights)));
+			}
+		}
+	}
+
+	@Test
+	public void emptyRankers(){
+		RandomRankers random = new RandomRankers(6);
+		List<Model> initialAggregateRanker = random.ranker(20, 20);
+		List<List<Model>> rankersList = new ArrayList<List<Model>>();
+		rankersList.add(new ArrayList<Model>());
+		rankersList.add(random.ranker(0, 20));
+		SupervisedWeightTuner tuner = new SupervisedWeightTuner(rankersList, initialAggregateRanker);
+
+		float[] weights = {1, 2};
+		List<Model> expected = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.SUPERVISED_LOCAL_KEMENIZATION, weights);
+		assertEquals(RandomRankers.uniqueModelIds(expected), RandomRankers.uniqueModelIds(tuner.aggregate(weights)));
+	}
+
+}
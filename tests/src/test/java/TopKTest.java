@@ -0,0 +1,63 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Compares the top k mode of COMB_MNZ, which stops reading the rankers early, with the first k models
+ * of the whole aggregate list.
+ * @author Mariam Nassar
+ *
+ */
+public class TopKTest {
+
+	@Test
+	public void topKEqualsPrefix(){
+		RandomRankers random = new RandomRankers(5);
+		for(int query = 0; query < 1000; query++){
+			int pool = 1 + random.nextInt(80);
+			List<List<Model>> rankersList = random.rankers(1 + random.nextInt(5), pool);
+			List<Model> initialAggregateRanker = random.ranker(1 + random.nextInt(pool), pool);
+			//k up to beyond the length of the list
+			int k = random.nextInt(pool + 3);
+			assertPrefix("query " + query, rankersList, initialAggregateRanker, k);
+		}
+	}
+
+	@Test
+	public void boundaries(){
+		RandomRankers random = new RandomRankers(6);
+		List<Model> initialAggregateRanker = random.ranker(30, 40);
+		List<List<Model>> rankersList = random.rankers(3, 40);
+		assertPrefix("k = 0", rankersList, initialAggregateRanker, 0);
+		assertPrefix("k = n", rankersList, initialAggregateRanker, initialAggregateRanker.size());
+		assertPrefix("k > n", rankersList, initialAggregateRanker, 1000);
+
+		List<List<Model>> emptyRankers = new ArrayList<List<Model>>();
+		emptyRankers.add(new ArrayList<Model>());
+		assertPrefix("no rankers", new ArrayList<List<Model>>(), initialAggregateRanker, 10);
+		assertPrefix("empty ranker", emptyRankers, initialAggregateRanker, 10);
+
+		List<Model> empty = new ArrayList<Model>();
+		assertTrue(RankAggregation.aggregate(rankersList, empty, RankAggregationType.Types.COMB_MNZ, 0, 10).isEmpty());
+	}
+
+	/**
+	 * Aggregates copies of the models with and without k and compares the first k models.
+	 *
+	 * @param message
+	 * @param rankersList
+	 * @param initialAggregateRanker
+	 * @param k
+	 */
+	private static void assertPrefix(String message, List<List<Model>> rankersList, List<Model> initialAggregateRanker, int k){
+		List<Model> full = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.COMB_MNZ, 0);
+		List<Model> topK = RankAggregation.aggregate(rankersList, RandomRankers.copy(initialAggregateRanker), RankAggregationType.Types.COMB_MNZ, 0, k);
+		assertEquals(message, RandomRankers.toString(full.subList(0, Math.min(k, full.size()))), RandomRankers.toString(topK));
+	}
+
+}